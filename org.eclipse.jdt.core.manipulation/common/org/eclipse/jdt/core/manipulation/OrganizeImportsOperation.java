@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2021 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -37,7 +37,6 @@ import org.eclipse.text.edits.TextEdit;
 
 import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.ICompilationUnit;
-import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
@@ -60,9 +59,6 @@ import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.Type;
 import org.eclipse.jdt.core.dom.rewrite.ImportRewrite;
 import org.eclipse.jdt.core.dom.rewrite.ImportRewrite.ImportRewriteContext;
-import org.eclipse.jdt.core.search.IJavaSearchConstants;
-import org.eclipse.jdt.core.search.IJavaSearchScope;
-import org.eclipse.jdt.core.search.SearchEngine;
 import org.eclipse.jdt.core.search.TypeNameMatch;
 
 import org.eclipse.jdt.internal.core.manipulation.JavaManipulationMessages;
@@ -71,6 +67,7 @@ import org.eclipse.jdt.internal.core.manipulation.Messages;
 import org.eclipse.jdt.internal.core.manipulation.dom.ASTResolving;
 import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
 import org.eclipse.jdt.internal.core.manipulation.util.Strings;
+import org.eclipse.jdt.internal.corext.codemanipulation.TypeNameMatchCache;
 import org.eclipse.jdt.internal.corext.dom.ASTNodes;
 import org.eclipse.jdt.internal.corext.dom.Bindings;
 import org.eclipse.jdt.internal.corext.dom.ScopeAnalyzer;
@@ -345,23 +342,35 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 			fUnresolvedTypes.put(typeName, new UnresolvedTypeData(ref));
 		}
 
-		public boolean process(IProgressMonitor monitor) throws JavaModelException {
+		public IJavaProject getProject() {
+			return fCurrPackage.getJavaProject();
+		}
+
+		public boolean isExcludeTestCode() throws JavaModelException {
+			return !((IPackageFragmentRoot)fCurrPackage.getParent()).getResolvedClasspathEntry().isTest();
+		}
+
+		/**
+		 * Looks up the unresolved type names and adds the imports that are not ambiguous.
+		 * @param cache the cache to get the types from, or <code>null</code> to search for them
+		 * @param monitor the progress monitor
+		 * @return <code>true</code> if there are open choices
+		 * @throws JavaModelException if the search failed
+		 */
+		public boolean process(TypeNameMatchCache cache, IProgressMonitor monitor) throws JavaModelException {
 			try {
 				int nUnresolved= fUnresolvedTypes.size();
 				if (nUnresolved == 0) {
 					return false;
 				}
-				char[][] allTypes= new char[nUnresolved][];
-				int i= 0;
-				for (String string : fUnresolvedTypes.keySet()) {
-					allTypes[i++]= string.toCharArray();
+				final IJavaProject project= getProject();
+				boolean excludeTestCode= isExcludeTestCode();
+				List<TypeNameMatch> typesFound;
+				if (cache != null) {
+					typesFound= cache.findTypes(project, excludeTestCode, fUnresolvedTypes.keySet(), monitor);
+				} else {
+					typesFound= TypeNameMatchCache.searchTypeNames(project, excludeTestCode, fUnresolvedTypes.keySet(), monitor);
 				}
-				final ArrayList<TypeNameMatch> typesFound= new ArrayList<>();
-				final IJavaProject project= fCurrPackage.getJavaProject();
-				boolean excludeTestCode= !((IPackageFragmentRoot)fCurrPackage.getParent()).getResolvedClasspathEntry().isTest();
-				IJavaSearchScope scope= SearchEngine.createJavaSearchScope(excludeTestCode, new IJavaElement[] { project }, true);
-				TypeNameMatchCollector collector= new TypeNameMatchCollector(typesFound);
-				new SearchEngine().searchAllTypeNames(null, allTypes, scope, collector, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
 
 				boolean is50OrHigher= JavaModelUtil.is50OrHigher(project);
 
@@ -513,6 +522,8 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 
 	private final boolean fAllowSyntaxErrors;
 
+	private TypeNameMatchCache fTypeNameMatchCache;
+
 	/**
 	 * Creates a new OrganizeImportsOperation operation.
 	 *
@@ -572,6 +583,18 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 		JavaModelUtil.applyEdit(fCompilationUnit, edit, fDoSave, subMonitor.split(1));
 	}
 
+	/**
+	 * Sets the cache used to look up the types of unresolved type names. By default, every
+	 * operation searches for its unresolved type names.
+	 *
+	 * @param cache the cache to share with other operations, or <code>null</code> to not use a cache
+	 *
+	 * @noreference This method is not intended to be referenced by clients.
+	 */
+	public void setTypeNameMatchCache(TypeNameMatchCache cache) {
+		fTypeNameMatchCache= cache;
+	}
+
 	public TextEdit createTextEdit(IProgressMonitor m) throws CoreException, OperationCanceledException {
 		SubMonitor subMonitor= SubMonitor.convert(m, Messages.format(JavaManipulationMessages.OrganizeImportsOperation_description, BasicElementLabels.getFileName(fCompilationUnit)), 9);
 		fNumberOfImportsAdded= 0;
@@ -614,7 +637,7 @@ public class OrganizeImportsOperation implements IWorkspaceRunnable {
 			processor.add(typeRef);
 		}
 
-		boolean hasOpenChoices= processor.process(subMonitor.split(3));
+		boolean hasOpenChoices= processor.process(fTypeNameMatchCache, subMonitor.split(3));
 		addStaticImports(staticReferences, importsRewrite, unresolvableImportMatcher);
 
 		if (hasOpenChoices && fChooseImportQuery != null) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2020 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,6 +25,9 @@ import org.eclipse.core.runtime.Status;
 
 import org.eclipse.jdt.core.manipulation.JavaManipulation;
 
+import org.eclipse.jdt.internal.corext.refactoring.ProjectDependencyGraph;
+import org.eclipse.jdt.internal.corext.refactoring.rename.RippleHierarchyCache;
+
 /**
  * The main plug-in class to be used in the workbench.
  */
@@ -64,6 +67,8 @@ public class JavaManipulationPlugin extends Plugin implements DebugOptionsListen
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		RippleHierarchyCache.disposeDefault();
+		ProjectDependencyGraph.disposeDefault();
 		super.stop(context);
 		fgDefault= null;
 	}
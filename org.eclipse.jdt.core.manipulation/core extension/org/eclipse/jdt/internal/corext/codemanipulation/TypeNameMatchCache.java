@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.codemanipulation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.manipulation.OrganizeImportsOperation;
+import org.eclipse.jdt.core.manipulation.TypeNameMatchCollector;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.TypeNameMatch;
+
+/**
+ * Caches the types found for unresolved simple type names, so that several
+ * {@link OrganizeImportsOperation}s on compilation units of the same project do not repeat the
+ * same type name searches.
+ * <p>
+ * A cache must only be shared while the types in the workspace do not change, e.g. by the
+ * operations of a single clean up run. It can be used from several threads. The searches run
+ * without holding the lock of the cache, so concurrent lookups of the same names may search
+ * twice, but never wait for each other's searches.
+ * </p>
+ *
+ * @see OrganizeImportsOperation#setTypeNameMatchCache(TypeNameMatchCache)
+ */
+public final class TypeNameMatchCache {
+
+	private static final class SearchScope {
+		final IJavaProject fProject;
+		final boolean fExcludeTestCode;
+
+		SearchScope(IJavaProject project, boolean excludeTestCode) {
+			fProject= project;
+			fExcludeTestCode= excludeTestCode;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * fProject.hashCode() + (fExcludeTestCode ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SearchScope)) {
+				return false;
+			}
+			SearchScope other= (SearchScope) obj;
+			return fExcludeTestCode == other.fExcludeTestCode && fProject.equals(other.fProject);
+		}
+	}
+
+	private final Map<SearchScope, Map<String, List<TypeNameMatch>>> fMatchesByScope= new HashMap<>();
+
+	private Map<String, List<TypeNameMatch>> getMatches(SearchScope scope) {
+		return fMatchesByScope.computeIfAbsent(scope, k -> new HashMap<>());
+	}
+
+	/**
+	 * Returns the types with the given simple names that are visible in the given project,
+	 * searching only for the names that are not cached yet.
+	 *
+	 * @param project the project
+	 * @param excludeTestCode whether types in test source folders are excluded
+	 * @param simpleTypeNames the simple type names
+	 * @param monitor the progress monitor
+	 * @return the types found
+	 * @throws JavaModelException if the search failed
+	 */
+	public List<TypeNameMatch> findTypes(IJavaProject project, boolean excludeTestCode, Collection<String> simpleTypeNames, IProgressMonitor monitor) throws JavaModelException {
+		SearchScope scope= new SearchScope(project, excludeTestCode);
+		Map<String, List<TypeNameMatch>> found= new HashMap<>();
+		List<String> missing= new ArrayList<>();
+		synchronized (this) {
+			Map<String, List<TypeNameMatch>> matches= getMatches(scope);
+			for (String typeName : simpleTypeNames) {
+				List<TypeNameMatch> list= matches.get(typeName);
+				if (list != null) {
+					found.put(typeName, list);
+				} else {
+					missing.add(typeName);
+				}
+			}
+		}
+		if (!missing.isEmpty()) {
+			Map<String, List<TypeNameMatch>> searched= new HashMap<>();
+			for (String typeName : missing) {
+				searched.put(typeName, new ArrayList<>(2));
+			}
+			for (TypeNameMatch match : searchTypeNames(project, excludeTestCode, missing, monitor)) {
+				List<TypeNameMatch> list= searched.get(match.getSimpleTypeName());
+				if (list != null) {
+					list.add(match);
+				}
+			}
+			// only reached with complete results, i.e. when the search has not been canceled
+			synchronized (this) {
+				getMatches(scope).putAll(searched);
+			}
+			found.putAll(searched);
+		}
+		List<TypeNameMatch> result= new ArrayList<>();
+		for (String typeName : simpleTypeNames) {
+			result.addAll(found.get(typeName));
+		}
+		return result;
+	}
+
+	/**
+	 * Searches the types with the given simple names that are visible in the given project.
+	 *
+	 * @param project the project
+	 * @param excludeTestCode whether types in test source folders are excluded
+	 * @param simpleTypeNames the simple type names
+	 * @param monitor the progress monitor
+	 * @return the types found
+	 * @throws JavaModelException if the search failed
+	 */
+	public static List<TypeNameMatch> searchTypeNames(IJavaProject project, boolean excludeTestCode, Collection<String> simpleTypeNames, IProgressMonitor monitor) throws JavaModelException {
+		char[][] allTypes= new char[simpleTypeNames.size()][];
+		int i= 0;
+		for (String string : simpleTypeNames) {
+			allTypes[i++]= string.toCharArray();
+		}
+		final ArrayList<TypeNameMatch> typesFound= new ArrayList<>();
+		IJavaSearchScope scope= SearchEngine.createJavaSearchScope(excludeTestCode, new IJavaElement[] { project }, true);
+		TypeNameMatchCollector collector= new TypeNameMatchCollector(typesFound);
+		new SearchEngine().searchAllTypeNames(null, allTypes, scope, collector, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, monitor);
+		return typesFound;
+	}
+}
@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * The project dependencies of the Java projects in the workspace, as defined by the project
+ * entries on their resolved class paths.
+ * <p>
+ * The graph is read once and then updated from Java element deltas: a class path change only
+ * re-reads the class path of the changed project, while added, removed, opened or closed
+ * projects cause the graph to be read again on the next query. The sets of referencing and
+ * related projects computed for a project are cached until the graph changes.
+ * </p>
+ * <p>
+ * Class paths are read outside of the lock of the graph, since resolving a class path can need
+ * the workspace or other locks held by the callers. The graph is then updated under the lock.
+ * Every change is numbered, and a graph is only published if it is not older than the graph
+ * that has been published last, so a slow reader cannot replace a newer graph with an older
+ * one.
+ * </p>
+ */
+public final class ProjectDependencyGraph {
+
+	private static final int CLASSPATH_CHANGED= IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED;
+
+	private static ProjectDependencyGraph fgDefault;
+
+	/**
+	 * Referenced project to referencing projects, with whether the reference is exported.
+	 * Guarded by <code>this</code>.
+	 */
+	private Map<IJavaProject, Map<IJavaProject, Boolean>> fReferencing;
+
+	/**
+	 * Referencing project to referenced projects, with whether the reference is exported.
+	 * Guarded by <code>this</code>.
+	 */
+	private Map<IJavaProject, Map<IJavaProject, Boolean>> fReferenced;
+
+	/**
+	 * The change count of the published graph, <code>-1</code> if no graph has been published.
+	 * Guarded by <code>this</code>.
+	 */
+	private long fPublishedCount= -1;
+
+	/**
+	 * Guards the changes reported by deltas. The delta listener never waits for the graph to be
+	 * read, since reading class paths can need the workspace. A change is only forgotten once a
+	 * graph that contains it has been published.
+	 */
+	private final Object fChangeLock= new Object();
+	private boolean fStale= true;
+	/**
+	 * The change count of the last change that made the graph stale.
+	 */
+	private long fStaleCount;
+	/**
+	 * The projects with changed class paths, with the change count of their last change.
+	 */
+	private final Map<IJavaProject, Long> fChangedClasspaths= new HashMap<>();
+	private long fChangeCount;
+
+	private final Map<IJavaProject, Set<IJavaProject>> fReferencingProjects= new HashMap<>();
+	private final Map<IJavaProject, Set<IJavaProject>> fRelatedProjects= new HashMap<>();
+
+	private int fHits;
+	private int fMisses;
+
+	private final IElementChangedListener fListener= event -> processDelta(event.getDelta());
+
+	private ProjectDependencyGraph() {
+		JavaCore.addElementChangedListener(fListener, ElementChangedEvent.POST_CHANGE);
+	}
+
+	/**
+	 * Returns the shared graph.
+	 *
+	 * @return the graph
+	 */
+	public static synchronized ProjectDependencyGraph getDefault() {
+		if (fgDefault == null)
+			fgDefault= new ProjectDependencyGraph();
+		return fgDefault;
+	}
+
+	/**
+	 * Disposes the shared graph, if it has been created. Called when the plug-in stops.
+	 */
+	public static synchronized void disposeDefault() {
+		if (fgDefault != null) {
+			JavaCore.removeElementChangedListener(fgDefault.fListener);
+			fgDefault= null;
+		}
+	}
+
+	/**
+	 * Returns the given project and all projects referencing it, directly or through exported
+	 * class path entries.
+	 *
+	 * @param focus the project
+	 * @return the projects, including <code>focus</code>
+	 * @throws JavaModelException if a class path could not be read
+	 */
+	public Set<IJavaProject> getReferencingProjects(IJavaProject focus) throws JavaModelException {
+		update();
+		synchronized (this) {
+			Set<IJavaProject> result= fReferencingProjects.get(focus);
+			if (result != null) {
+				fHits++;
+				return result;
+			}
+			fMisses++;
+			result= new LinkedHashSet<>();
+			addReferencingProjects(focus, result);
+			result.add(focus);
+			result= Collections.unmodifiableSet(result);
+			fReferencingProjects.put(focus, result);
+			return result;
+		}
+	}
+
+	/**
+	 * Returns the given project and all projects referencing it or referenced by it, following
+	 * exported class path entries in both directions.
+	 *
+	 * @param focus the project
+	 * @return the projects, including <code>focus</code>
+	 * @throws JavaModelException if a class path could not be read
+	 */
+	public Set<IJavaProject> getRelatedProjects(IJavaProject focus) throws JavaModelException {
+		update();
+		synchronized (this) {
+			Set<IJavaProject> result= fRelatedProjects.get(focus);
+			if (result != null) {
+				fHits++;
+				return result;
+			}
+			fMisses++;
+			result= new LinkedHashSet<>();
+			addRelatedReferencing(focus, result);
+			addRelatedReferenced(focus, result);
+			result.add(focus);
+			result= Collections.unmodifiableSet(result);
+			fRelatedProjects.put(focus, result);
+			return result;
+		}
+	}
+
+	/**
+	 * Forgets the graph, so that it is read again on the next query.
+	 */
+	public void clear() {
+		synchronized (fChangeLock) {
+			fStale= true;
+			fStaleCount= ++fChangeCount;
+		}
+	}
+
+	public synchronized int getHitCount() {
+		return fHits;
+	}
+
+	public synchronized int getMissCount() {
+		return fMisses;
+	}
+
+	private void addReferencingProjects(IJavaProject focus, Set<IJavaProject> projects) {
+		for (Entry<IJavaProject, Boolean> entry : getEdges(fReferencing, focus).entrySet()) {
+			IJavaProject candidate= entry.getKey();
+			if (projects.add(candidate) && entry.getValue().booleanValue())
+				addReferencingProjects(candidate, projects);
+		}
+	}
+
+	private void addRelatedReferencing(IJavaProject focus, Set<IJavaProject> projects) {
+		for (Entry<IJavaProject, Boolean> entry : getEdges(fReferencing, focus).entrySet()) {
+			IJavaProject candidate= entry.getKey();
+			if (projects.add(candidate) && entry.getValue().booleanValue()) {
+				addRelatedReferencing(candidate, projects);
+				addRelatedReferenced(candidate, projects);
+			}
+		}
+	}
+
+	private void addRelatedReferenced(IJavaProject focus, Set<IJavaProject> projects) {
+		for (Entry<IJavaProject, Boolean> entry : getEdges(fReferenced, focus).entrySet()) {
+			IJavaProject candidate= entry.getKey();
+			if (projects.add(candidate) && entry.getValue().booleanValue()) {
+				addRelatedReferenced(candidate, projects);
+				addRelatedReferencing(candidate, projects);
+			}
+		}
+	}
+
+	private static Map<IJavaProject, Boolean> getEdges(Map<IJavaProject, Map<IJavaProject, Boolean>> graph, IJavaProject project) {
+		Map<IJavaProject, Boolean> edges= graph.get(project);
+		return edges != null ? edges : Collections.emptyMap();
+	}
+
+	/**
+	 * Reads the class paths of the changed projects without holding any lock of the graph, and
+	 * then publishes them. Concurrent queries may read the same class paths again, which is
+	 * harmless, since the changes stay pending until a graph that contains them has been
+	 * published. If a newer graph has been published meanwhile, the class paths that are still
+	 * pending are read again.
+	 *
+	 * @throws JavaModelException if a class path could not be read
+	 */
+	private void update() throws JavaModelException {
+		while (true) {
+			boolean stale;
+			Set<IJavaProject> changedClasspaths;
+			long changeCount;
+			synchronized (fChangeLock) {
+				stale= fStale;
+				changedClasspaths= new HashSet<>(fChangedClasspaths.keySet());
+				changeCount= fChangeCount;
+			}
+			if (!stale && changedClasspaths.isEmpty())
+				return;
+			Map<IJavaProject, Map<IJavaProject, Boolean>> classpaths= new LinkedHashMap<>();
+			if (stale) {
+				for (IJavaProject project : JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects()) {
+					classpaths.put(project, readClasspath(project));
+				}
+			} else {
+				for (IJavaProject project : changedClasspaths) {
+					classpaths.put(project, readClasspath(project));
+				}
+			}
+			synchronized (this) {
+				if (changeCount >= fPublishedCount) {
+					publish(stale, classpaths);
+					fPublishedCount= changeCount;
+					synchronized (fChangeLock) {
+						if (stale && fStaleCount <= changeCount)
+							fStale= false;
+						fChangedClasspaths.values().removeIf(count -> count.longValue() <= changeCount);
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	private void publish(boolean stale, Map<IJavaProject, Map<IJavaProject, Boolean>> classpaths) {
+		if (stale) {
+			fReferencing= new LinkedHashMap<>();
+			fReferenced= new LinkedHashMap<>();
+		} else {
+			for (IJavaProject project : classpaths.keySet()) {
+				Map<IJavaProject, Boolean> referenced= fReferenced.remove(project);
+				if (referenced != null) {
+					for (IJavaProject required : referenced.keySet()) {
+						getEdges(fReferencing, required).remove(project);
+					}
+				}
+			}
+		}
+		for (Entry<IJavaProject, Map<IJavaProject, Boolean>> entry : classpaths.entrySet()) {
+			IJavaProject project= entry.getKey();
+			for (Entry<IJavaProject, Boolean> edge : entry.getValue().entrySet()) {
+				fReferenced.computeIfAbsent(project, p -> new LinkedHashMap<>()).put(edge.getKey(), edge.getValue());
+				fReferencing.computeIfAbsent(edge.getKey(), p -> new LinkedHashMap<>()).put(project, edge.getValue());
+			}
+		}
+		fReferencingProjects.clear();
+		fRelatedProjects.clear();
+	}
+
+	private static Map<IJavaProject, Boolean> readClasspath(IJavaProject project) throws JavaModelException {
+		Map<IJavaProject, Boolean> referenced= new LinkedHashMap<>();
+		if (!project.exists())
+			return referenced;
+		IWorkspaceRoot root= ResourcesPlugin.getWorkspace().getRoot();
+		for (IClasspathEntry entry : project.getResolvedClasspath(true)) {
+			if (entry.getEntryKind() != IClasspathEntry.CPE_PROJECT)
+				continue;
+			IProject requiredProject= root.getProject(entry.getPath().lastSegment());
+			IJavaProject required= JavaCore.create(requiredProject);
+			if (required.equals(project) || !required.exists())
+				continue;
+			// an exported entry wins over other entries for the same project
+			referenced.merge(required, Boolean.valueOf(entry.isExported()), (a, b) -> Boolean.valueOf(a.booleanValue() || b.booleanValue()));
+		}
+		return referenced;
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				for (IJavaElementDelta child : delta.getAffectedChildren()) {
+					processDelta(child);
+				}
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (delta.getKind() != IJavaElementDelta.CHANGED || (delta.getFlags() & (IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED)) != 0) {
+					clear();
+				} else if ((delta.getFlags() & CLASSPATH_CHANGED) != 0) {
+					synchronized (fChangeLock) {
+						// also recorded while the graph is stale, since a graph that is being read may miss it
+						fChangedClasspaths.put((IJavaProject) element, Long.valueOf(++fChangeCount));
+					}
+				}
+				break;
+			default:
+				break;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -24,16 +24,11 @@ import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IPath;
 
-import org.eclipse.core.resources.IProject;
-
-import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IMember;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
-import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.search.IJavaSearchScope;
 import org.eclipse.jdt.core.search.SearchEngine;
@@ -42,55 +37,6 @@ import org.eclipse.jdt.internal.corext.util.JdtFlags;
 
 public class RefactoringScopeFactory {
 
-	/*
-	 * Adds to <code> projects </code> IJavaProject objects for all projects directly or indirectly referencing focus. @param projects IJavaProjects will be added to this set
-	 */
-	private static void addReferencingProjects(IJavaProject focus, Set<IJavaProject> projects) throws JavaModelException {
-		for (IProject referencingProject : focus.getProject().getReferencingProjects()) {
-			IJavaProject candidate= JavaCore.create(referencingProject);
-			if (candidate == null || projects.contains(candidate) || !candidate.exists())
-				continue; // break cycle
-			IClasspathEntry entry= getReferencingClassPathEntry(candidate, focus);
-			if (entry != null) {
-				projects.add(candidate);
-				if (entry.isExported())
-					addReferencingProjects(candidate, projects);
-			}
-		}
-	}
-
-	private static void addRelatedReferencing(IJavaProject focus, Set<IJavaProject> projects) throws CoreException {
-		for (IProject referencingProject : focus.getProject().getReferencingProjects()) {
-			IJavaProject candidate= JavaCore.create(referencingProject);
-			if (candidate == null || projects.contains(candidate) || !candidate.exists())
-				continue; // break cycle
-			IClasspathEntry entry= getReferencingClassPathEntry(candidate, focus);
-			if (entry != null) {
-				projects.add(candidate);
-				if (entry.isExported()) {
-					addRelatedReferencing(candidate, projects);
-					addRelatedReferenced(candidate, projects);
-				}
-			}
-		}
-	}
-
-	private static void addRelatedReferenced(IJavaProject focus, Set<IJavaProject> projects) throws CoreException {
-		for (IProject referencedProject : focus.getProject().getReferencedProjects()) {
-			IJavaProject candidate= JavaCore.create(referencedProject);
-			if (candidate == null || projects.contains(candidate) || !candidate.exists())
-				continue; // break cycle
-			IClasspathEntry entry= getReferencingClassPathEntry(focus, candidate);
-			if (entry != null) {
-				projects.add(candidate);
-				if (entry.isExported()) {
-					addRelatedReferenced(candidate, projects);
-					addRelatedReferencing(candidate, projects);
-				}
-			}
-		}
-	}
-
 	/**
 	 * Creates a new search scope with all compilation units possibly referencing <code>javaElement</code>,
 	 * considering the visibility of the element, references only from source
@@ -260,40 +206,13 @@ public class RefactoringScopeFactory {
 		return result.toArray(new IPackageFragmentRoot[result.size()]);
 	}
 
-	/*
-	 * Finds, if possible, a classpathEntry in one given project such that this classpath entry references another given project. If more than one entry exists for the referenced project and at least one is exported, then an exported entry will be returned.
-	 */
-	private static IClasspathEntry getReferencingClassPathEntry(IJavaProject referencingProject, IJavaProject referencedProject) throws JavaModelException {
-		IClasspathEntry result= null;
-		IPath path= referencedProject.getProject().getFullPath();
-		for (IClasspathEntry entry : referencingProject.getResolvedClasspath(true)) {
-			if (entry.getEntryKind() == IClasspathEntry.CPE_PROJECT && path.equals(entry.getPath())) {
-				if (entry.isExported())
-					return entry;
-				// Consider it as a candidate. May be there is another entry that is
-				// exported.
-				result= entry;
-			}
-		}
-		return result;
-	}
-
 	private static IJavaProject[] getRelatedProjects(IJavaProject focus) throws CoreException {
-		final Set<IJavaProject> projects= new HashSet<>();
-
-		addRelatedReferencing(focus, projects);
-		addRelatedReferenced(focus, projects);
-
-		projects.add(focus);
+		Set<IJavaProject> projects= ProjectDependencyGraph.getDefault().getRelatedProjects(focus);
 		return projects.toArray(new IJavaProject[projects.size()]);
 	}
 
 	private static Collection<IJavaProject> getReferencingProjects(IJavaProject focus) throws JavaModelException {
-		Set<IJavaProject> projects= new HashSet<>();
-
-		addReferencingProjects(focus, projects);
-		projects.add(focus);
-		return projects;
+		return ProjectDependencyGraph.getDefault().getReferencingProjects(focus);
 	}
 
 	private static int getVisibility(IMember member) throws JavaModelException {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2021 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -128,6 +128,8 @@ import org.eclipse.jdt.internal.corext.refactoring.base.RefactoringStatusCodes;
 import org.eclipse.jdt.internal.corext.refactoring.changes.DynamicValidationRefactoringChange;
 import org.eclipse.jdt.internal.corext.refactoring.structure.ASTNodeSearchUtil;
 import org.eclipse.jdt.internal.corext.refactoring.structure.CompilationUnitRewrite;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
+import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 import org.eclipse.jdt.internal.corext.refactoring.util.ResourceUtil;
 import org.eclipse.jdt.internal.corext.refactoring.util.TightSourceRangeComputer;
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
@@ -463,18 +465,31 @@ public class InlineConstantRefactoring extends Refactoring {
 		private final boolean fIs15;
 
 		private InlineTargetCompilationUnit(CompilationUnitRewrite cuRewrite, Name[] references, InlineConstantRefactoring refactoring, HashSet<SimpleName> staticImportsInInitializer) {
-			fInitializer= refactoring.getInitializer();
-			fInitializerUnit= refactoring.getDeclaringCompilationUnit();
+			this(cuRewrite, references, refactoring.getDeclaration(), refactoring.getDeclaringCompilationUnit(),
+					refactoring.getRemoveDeclaration() && refactoring.getReplaceAllReferences(), staticImportsInInitializer);
+		}
+
+		/**
+		 * @param cuRewrite the rewrite of the compilation unit with the references
+		 * @param references the references to inline
+		 * @param declaration the declaration of the constant, in an AST that is only used by the current thread
+		 * @param declaringUnit the compilation unit declaring the constant
+		 * @param removeDeclaration whether to remove the declaration if it is in <code>cuRewrite</code>
+		 * @param staticImportsInInitializer the static imports referenced in the initializer of <code>declaration</code>
+		 */
+		private InlineTargetCompilationUnit(CompilationUnitRewrite cuRewrite, Name[] references, VariableDeclarationFragment declaration, ICompilationUnit declaringUnit, boolean removeDeclaration, HashSet<SimpleName> staticImportsInInitializer) {
+			fInitializer= declaration.getInitializer();
+			fInitializerUnit= declaringUnit;
 
 			fCuRewrite= cuRewrite;
 			fSourceRangeComputer= new TightSourceRangeComputer();
 			fCuRewrite.getASTRewrite().setTargetSourceRangeComputer(fSourceRangeComputer);
-			if (refactoring.getRemoveDeclaration() && refactoring.getReplaceAllReferences() && cuRewrite.getCu().equals(fInitializerUnit))
-				fDeclarationToRemove= refactoring.getDeclaration();
+			if (removeDeclaration && cuRewrite.getCu().equals(fInitializerUnit))
+				fDeclarationToRemove= declaration;
 			else
 				fDeclarationToRemove= null;
 
-			fOriginalDeclaration= refactoring.getDeclaration();
+			fOriginalDeclaration= declaration;
 
 			fReferences= new Expression[references.length];
 			for (int i= 0; i < references.length; i++)
@@ -831,7 +846,7 @@ public class InlineConstantRefactoring extends Refactoring {
 	@Override
 	public RefactoringStatus checkFinalConditions(IProgressMonitor pm) throws CoreException {
 		RefactoringStatus result= new RefactoringStatus();
-		pm.beginTask("", 3); //$NON-NLS-1$
+		pm.beginTask("", 4); //$NON-NLS-1$
 
 		try {
 			fSelectionCuRewrite.clearASTAndImportRewrites();
@@ -841,16 +856,23 @@ public class InlineConstantRefactoring extends Refactoring {
 			ImportReferencesCollector.collect(getInitializer(), fField.getJavaProject(), null, new ArrayList<SimpleName>(), staticImportsInInitializer);
 
 			if (getReplaceAllReferences()) {
-				for (SearchResultGroup group : getReferences(pm, result)) {
+				SearchResultGroup[] groups= getReferences(pm, result);
+				Map<ICompilationUnit, CompilationUnitChange> batchChanges= createBatchChanges(groups, new SubProgressMonitor(pm, 1));
+				for (SearchResultGroup group : groups) {
 					if (pm.isCanceled())
 						throw new OperationCanceledException();
 					ICompilationUnit cu= group.getCompilationUnit();
 
-					CompilationUnitRewrite cuRewrite= getCuRewrite(cu);
-					Name[] references= extractReferenceNodes(group.getSearchResults(), cuRewrite.getRoot());
-					InlineTargetCompilationUnit targetCompilationUnit= new InlineTargetCompilationUnit(
-							cuRewrite, references, this, staticImportsInInitializer);
-					CompilationUnitChange change= targetCompilationUnit.getChange();
+					CompilationUnitChange change;
+					if (batchChanges.containsKey(cu)) {
+						change= batchChanges.get(cu);
+					} else {
+						CompilationUnitRewrite cuRewrite= getCuRewrite(cu);
+						Name[] references= extractReferenceNodes(group.getSearchResults(), cuRewrite.getRoot());
+						InlineTargetCompilationUnit targetCompilationUnit= new InlineTargetCompilationUnit(
+								cuRewrite, references, this, staticImportsInInitializer);
+						change= targetCompilationUnit.getChange();
+					}
 					if (change != null)
 						changes.add(change);
 				}
@@ -901,6 +923,68 @@ public class InlineConstantRefactoring extends Refactoring {
 		}
 	}
 
+	/**
+	 * Creates the changes of the referencing units other than the selected and the declaring unit.
+	 * The units are parsed in batches with {@link ASTParser#createASTs} and the batches are
+	 * analyzed in parallel. Every batch parses its own copy of the declaring unit, so that no AST
+	 * is shared between threads.
+	 *
+	 * @param groups the references
+	 * @param pm the progress monitor
+	 * @return the changes by unit, a <code>null</code> value if there is nothing to change in a
+	 *         unit; units that are not contained have to be processed by the caller
+	 * @throws CoreException if a change could not be created
+	 */
+	private Map<ICompilationUnit, CompilationUnitChange> createBatchChanges(SearchResultGroup[] groups, IProgressMonitor pm) throws CoreException {
+		Map<ICompilationUnit, CompilationUnitChange> result= new HashMap<>();
+		ICompilationUnit declaringUnit= getDeclaringCompilationUnit();
+		Map<ICompilationUnit, SearchResultGroup> groupsByUnit= new HashMap<>();
+		List<ICompilationUnit> units= new ArrayList<>();
+		for (SearchResultGroup group : groups) {
+			ICompilationUnit cu= group.getCompilationUnit();
+			// the declaring unit is parsed with every batch, so only the units of its project are batched
+			if (!cu.equals(fSelectionCu) && !cu.equals(declaringUnit) && cu.getJavaProject().equals(declaringUnit.getJavaProject())) {
+				groupsByUnit.put(cu, group);
+				units.add(cu);
+			}
+		}
+		if (!ParallelUnitProcessor.isBatchingEnabled() || units.size() < ParallelUnitProcessor.MIN_PARALLEL_UNITS) {
+			pm.done();
+			return result;
+		}
+		List<List<ICompilationUnit>> batches= ParallelUnitProcessor.createBatches(units);
+		for (Map<ICompilationUnit, CompilationUnitChange> batchChanges : ParallelUnitProcessor.process(batches, batch -> createBatchChanges(batch, groupsByUnit), pm)) {
+			result.putAll(batchChanges);
+		}
+		return result;
+	}
+
+	private Map<ICompilationUnit, CompilationUnitChange> createBatchChanges(List<ICompilationUnit> batch, Map<ICompilationUnit, SearchResultGroup> groupsByUnit) throws CoreException {
+		Map<ICompilationUnit, CompilationUnitChange> result= new HashMap<>();
+		ICompilationUnit declaringUnit= getDeclaringCompilationUnit();
+		List<ICompilationUnit> units= new ArrayList<>(batch);
+		units.add(declaringUnit);
+		Map<ICompilationUnit, CompilationUnit> asts= RefactoringASTParser.parseBatch(units, declaringUnit.getJavaProject(), false, null);
+		CompilationUnit declarationRoot= asts.get(declaringUnit);
+		VariableDeclarationFragment declaration= declarationRoot != null ? ASTNodeSearchUtil.getFieldDeclarationFragmentNode(fField, declarationRoot) : null;
+		if (declaration == null || declaration.getInitializer() == null)
+			return result; // leave the batch to the caller
+
+		HashSet<SimpleName> staticImportsInInitializer= new HashSet<>();
+		ImportReferencesCollector.collect(declaration.getInitializer(), fField.getJavaProject(), null, new ArrayList<SimpleName>(), staticImportsInInitializer);
+		for (ICompilationUnit cu : batch) {
+			CompilationUnit root= asts.get(cu);
+			if (root == null)
+				continue;
+			CompilationUnitRewrite cuRewrite= new CompilationUnitRewrite(cu, root);
+			Name[] references= extractReferenceNodes(groupsByUnit.get(cu).getSearchResults(), root);
+			InlineTargetCompilationUnit targetCompilationUnit= new InlineTargetCompilationUnit(
+					cuRewrite, references, declaration, declaringUnit, false, staticImportsInInitializer);
+			result.put(cu, targetCompilationUnit.getChange());
+		}
+		return result;
+	}
+
 	private Name[] extractReferenceNodes(SearchMatch[] searchResults, CompilationUnit cuNode) {
 		Name[] references= new Name[searchResults.length];
 		for (int i= 0; i < searchResults.length; i++)
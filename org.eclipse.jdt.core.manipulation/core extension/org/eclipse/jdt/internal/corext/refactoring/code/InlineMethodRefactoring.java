@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2020 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -29,6 +29,7 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.jdt.core.Flags;
@@ -41,6 +42,7 @@ import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.ITypeRoot;
 import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.BodyDeclaration;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
@@ -69,6 +71,7 @@ import org.eclipse.jdt.internal.corext.refactoring.changes.DynamicValidationRefa
 import org.eclipse.jdt.internal.corext.refactoring.changes.TextChangeCompatibility;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaElementUtil;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaStatusContext;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
 import org.eclipse.jdt.internal.corext.util.Messages;
@@ -103,6 +106,19 @@ public class InlineMethodRefactoring extends Refactoring {
 		public static final Mode INLINE_SINGLE= new Mode();
 	}
 
+	/**
+	 * The result of inlining the calls in one compilation unit of a batch.
+	 */
+	private static class UnitResult {
+		final RefactoringStatus fStatus;
+		final boolean fInlinedAll;
+
+		UnitResult(RefactoringStatus status, boolean inlinedAll) {
+			fStatus= status;
+			fInlinedAll= inlinedAll;
+		}
+	}
+
 	private ITypeRoot fInitialTypeRoot;
 	private ASTNode fInitialNode;
 	private TextChangeManager fChangeManager;
@@ -282,70 +298,23 @@ public class InlineMethodRefactoring extends Refactoring {
 		checkOverridden(result, new SubProgressMonitor(pm, 4));
 		IProgressMonitor sub= new SubProgressMonitor(pm, 15);
 		sub.beginTask("", units.length * 3); //$NON-NLS-1$
+		Map<ICompilationUnit, UnitResult> batchResults= inlineCallsInBatches(units, sub);
 		for (ICompilationUnit unit : units) {
-			sub.subTask(Messages.format(RefactoringCoreMessages.InlineMethodRefactoring_processing,  BasicElementLabels.getFileName(unit)));
-			CallInliner inliner= null;
-			try {
-				boolean added= false;
-				MultiTextEdit root= new MultiTextEdit();
-				CompilationUnitChange change= (CompilationUnitChange)fChangeManager.get(unit);
-				change.setEdit(root);
-				BodyDeclaration[] bodies= fTargetProvider.getAffectedBodyDeclarations(unit, new SubProgressMonitor(pm, 1));
-				if (bodies.length == 0)
-					continue;
-				inliner= new CallInliner(unit, (CompilationUnit) bodies[0].getRoot(), fSourceProvider);
-				for (BodyDeclaration body : bodies) {
-					inliner.initialize(body);
-					RefactoringStatus nestedInvocations= new RefactoringStatus();
-					ASTNode[] invocations= removeNestedCalls(nestedInvocations, unit,
-						fTargetProvider.getInvocations(body, new SubProgressMonitor(sub, 2)));
-					for (ASTNode invocation : invocations) {
-						result.merge(inliner.initialize(invocation, fTargetProvider.getStatusSeverity()));
-						if (result.hasFatalError())
-							break;
-						if (result.getSeverity() < fTargetProvider.getStatusSeverity()) {
-							added= true;
-							TextEditGroup group= new TextEditGroup(RefactoringCoreMessages.InlineMethodRefactoring_edit_inline);
-							change.addTextEditGroup(group);
-							result.merge(inliner.perform(group));
-						} else {
-							fDeleteSource= false;
-						}
-					}
-					// do this after we have inlined the method calls. We still want
-					// to generate the modifications.
-					if (!nestedInvocations.isOK()) {
-						result.merge(nestedInvocations);
-						fDeleteSource= false;
-					}
-				}
-				if (!added) {
+			UnitResult batchResult= batchResults.get(unit);
+			if (batchResult != null) {
+				if (result.getSeverity() >= fTargetProvider.getStatusSeverity() && fChangeManager.containsChangesIn(unit)) {
+					// as when processing the units one by one, no more calls are inlined after a problem
 					fChangeManager.remove(unit);
-				} else {
-					root.addChild(inliner.getModifications());
-					ImportRewrite rewrite= inliner.getImportEdit();
-					if (rewrite.hasRecordedChanges()) {
-						for (String s : rewrite.getAddedImports()) {
-							for (IType t : unit.getTypes()) {
-								if (s.startsWith(t.getFullyQualifiedName())) {
-									rewrite.removeImport(s);
-								}
-							}
-						}
-						if (rewrite.hasRecordedChanges()) {
-							TextEdit edit= rewrite.rewriteImports(null);
-							if (edit instanceof MultiTextEdit ? ((MultiTextEdit)edit).getChildrenSize() > 0 : true) {
-								root.addChild(edit);
-								change.addTextEditGroup(
-										new TextEditGroup(RefactoringCoreMessages.InlineMethodRefactoring_edit_import, new TextEdit[] {edit}));
-							}
-						}
-					}
+					fDeleteSource= false;
 				}
-			} finally {
-				if (inliner != null)
-					inliner.dispose();
+				result.merge(batchResult.fStatus);
+				if (!batchResult.fInlinedAll)
+					fDeleteSource= false;
+				continue;
 			}
+			sub.subTask(Messages.format(RefactoringCoreMessages.InlineMethodRefactoring_processing,  BasicElementLabels.getFileName(unit)));
+			if (!inlineCalls(unit, fTargetProvider, fSourceProvider, result, pm, sub))
+				fDeleteSource= false;
 			sub.worked(1);
 			if (sub.isCanceled())
 				throw new OperationCanceledException();
@@ -356,6 +325,156 @@ public class InlineMethodRefactoring extends Refactoring {
 		return result;
 	}
 
+	/**
+	 * Inlines the calls in the given compilation unit.
+	 *
+	 * @param unit the compilation unit
+	 * @param targetProvider the target provider finding the calls in <code>unit</code>
+	 * @param sourceProvider the source provider of the method to inline
+	 * @param result the status to add problems to; no more calls are inlined once its severity
+	 *            reaches the status severity of the target provider
+	 * @param pm the progress monitor for finding the affected body declarations
+	 * @param sub the progress monitor for finding the calls
+	 * @return <code>false</code> if calls have not been inlined, so that the method must not be
+	 *         deleted
+	 * @throws CoreException if the calls could not be inlined
+	 */
+	private boolean inlineCalls(ICompilationUnit unit, TargetProvider targetProvider, SourceProvider sourceProvider, RefactoringStatus result, IProgressMonitor pm, IProgressMonitor sub) throws CoreException {
+		boolean inlinedAll= true;
+		CallInliner inliner= null;
+		try {
+			boolean added= false;
+			MultiTextEdit root= new MultiTextEdit();
+			CompilationUnitChange change= (CompilationUnitChange)fChangeManager.get(unit);
+			change.setEdit(root);
+			BodyDeclaration[] bodies= targetProvider.getAffectedBodyDeclarations(unit, new SubProgressMonitor(pm, 1));
+			if (bodies.length == 0)
+				return inlinedAll;
+			inliner= new CallInliner(unit, (CompilationUnit) bodies[0].getRoot(), sourceProvider);
+			for (BodyDeclaration body : bodies) {
+				inliner.initialize(body);
+				RefactoringStatus nestedInvocations= new RefactoringStatus();
+				ASTNode[] invocations= removeNestedCalls(nestedInvocations, unit,
+					targetProvider.getInvocations(body, new SubProgressMonitor(sub, 2)));
+				for (ASTNode invocation : invocations) {
+					result.merge(inliner.initialize(invocation, targetProvider.getStatusSeverity()));
+					if (result.hasFatalError())
+						break;
+					if (result.getSeverity() < targetProvider.getStatusSeverity()) {
+						added= true;
+						TextEditGroup group= new TextEditGroup(RefactoringCoreMessages.InlineMethodRefactoring_edit_inline);
+						change.addTextEditGroup(group);
+						result.merge(inliner.perform(group));
+					} else {
+						inlinedAll= false;
+					}
+				}
+				// do this after we have inlined the method calls. We still want
+				// to generate the modifications.
+				if (!nestedInvocations.isOK()) {
+					result.merge(nestedInvocations);
+					inlinedAll= false;
+				}
+			}
+			if (!added) {
+				fChangeManager.remove(unit);
+			} else {
+				root.addChild(inliner.getModifications());
+				ImportRewrite rewrite= inliner.getImportEdit();
+				if (rewrite.hasRecordedChanges()) {
+					for (String s : rewrite.getAddedImports()) {
+						for (IType t : unit.getTypes()) {
+							if (s.startsWith(t.getFullyQualifiedName())) {
+								rewrite.removeImport(s);
+							}
+						}
+					}
+					if (rewrite.hasRecordedChanges()) {
+						TextEdit edit= rewrite.rewriteImports(null);
+						if (edit instanceof MultiTextEdit ? ((MultiTextEdit)edit).getChildrenSize() > 0 : true) {
+							root.addChild(edit);
+							change.addTextEditGroup(
+									new TextEditGroup(RefactoringCoreMessages.InlineMethodRefactoring_edit_import, new TextEdit[] {edit}));
+						}
+					}
+				}
+			}
+		} finally {
+			if (inliner != null)
+				inliner.dispose();
+		}
+		return inlinedAll;
+	}
+
+	/**
+	 * Inlines the calls of a method with many callers in batches of compilation units that are
+	 * parsed with {@link ASTParser#createASTs} and processed in parallel. Every batch resolves
+	 * its own source and target providers, so that no AST is shared between threads.
+	 * <p>
+	 * The declaring unit is parsed with every batch, so only the units of its project are
+	 * batched, and the declaring unit itself is left to the caller.
+	 * </p>
+	 *
+	 * @param units the affected compilation units
+	 * @param pm the progress monitor
+	 * @return the results by unit; units that are not contained have to be processed by the
+	 *         caller
+	 * @throws CoreException if the calls could not be inlined
+	 */
+	private Map<ICompilationUnit, UnitResult> inlineCallsInBatches(ICompilationUnit[] units, IProgressMonitor pm) throws CoreException {
+		Map<ICompilationUnit, UnitResult> result= new HashMap<>();
+		if (!ParallelUnitProcessor.isBatchingEnabled() || !fTargetProvider.supportsBatches() || !(fSourceProvider.getTypeRoot() instanceof ICompilationUnit))
+			return result;
+		ICompilationUnit sourceUnit= (ICompilationUnit) fSourceProvider.getTypeRoot();
+		List<ICompilationUnit> batchUnits= new ArrayList<>();
+		for (ICompilationUnit unit : units) {
+			if (!unit.equals(sourceUnit) && unit.getJavaProject().equals(sourceUnit.getJavaProject()))
+				batchUnits.add(unit);
+		}
+		if (batchUnits.size() < ParallelUnitProcessor.MIN_PARALLEL_UNITS)
+			return result;
+		IMethodBinding binding= fSourceProvider.getDeclaration().resolveBinding();
+		if (binding == null)
+			return result;
+		String key= binding.getKey();
+		List<List<ICompilationUnit>> batches= ParallelUnitProcessor.createBatches(batchUnits);
+		int batched= 0;
+		for (List<ICompilationUnit> batch : batches) {
+			batched+= batch.size();
+		}
+		for (Map<ICompilationUnit, UnitResult> batchResults : ParallelUnitProcessor.process(batches, batch -> inlineCalls(batch, key), new SubProgressMonitor(pm, 3 * batched))) {
+			result.putAll(batchResults);
+		}
+		return result;
+	}
+
+	private Map<ICompilationUnit, UnitResult> inlineCalls(List<ICompilationUnit> batch, String methodKey) throws CoreException {
+		Map<ICompilationUnit, UnitResult> result= new HashMap<>();
+		ICompilationUnit sourceUnit= (ICompilationUnit) fSourceProvider.getTypeRoot();
+		List<ICompilationUnit> units= new ArrayList<>(batch);
+		units.add(sourceUnit);
+		Map<ICompilationUnit, CompilationUnit> asts= RefactoringASTParser.parseBatch(units, sourceUnit.getJavaProject(), IASTSharedValues.SHARED_AST_STATEMENT_RECOVERY, null);
+		CompilationUnit sourceRoot= asts.get(sourceUnit);
+		ASTNode node= sourceRoot != null ? sourceRoot.findDeclaringNode(methodKey) : null;
+		if (!(node instanceof MethodDeclaration))
+			return result; // leave the batch to the caller
+		MethodDeclaration declaration= (MethodDeclaration) node;
+		SourceProvider sourceProvider= new SourceProvider(sourceUnit, declaration);
+		if (sourceProvider.checkActivation().hasFatalError())
+			return result;
+		sourceProvider.initialize();
+		TargetProvider targetProvider= TargetProvider.create(declaration.resolveBinding(), asts);
+		targetProvider.initialize();
+		for (ICompilationUnit unit : batch) {
+			if (asts.get(unit) == null)
+				continue;
+			RefactoringStatus status= new RefactoringStatus();
+			boolean inlinedAll= inlineCalls(unit, targetProvider, sourceProvider, status, new NullProgressMonitor(), new NullProgressMonitor());
+			result.put(unit, new UnitResult(status, inlinedAll));
+		}
+		return result;
+	}
+
 	@Override
 	public Change createChange(IProgressMonitor pm) throws CoreException {
 		if (fDeleteSource && fCurrentMode == Mode.INLINE_ALL) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,7 +19,7 @@ package org.eclipse.jdt.internal.corext.refactoring.code;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +44,7 @@ import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
 import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.BodyDeclaration;
 import org.eclipse.jdt.core.dom.ClassInstanceCreation;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.ConstructorInvocation;
 import org.eclipse.jdt.core.dom.EnumConstantDeclaration;
 import org.eclipse.jdt.core.dom.EnumDeclaration;
@@ -93,6 +94,16 @@ public abstract class TargetProvider {
 		return false;
 	}
 
+	/**
+	 * Returns whether the affected compilation units can be processed in batches by target
+	 * providers created with {@link #create(IMethodBinding, Map)}.
+	 *
+	 * @return <code>true</code> if the units can be processed in batches
+	 */
+	public boolean supportsBatches() {
+		return false;
+	}
+
 	public static TargetProvider create(ICompilationUnit cu, MethodInvocation invocation) {
 		return new SingleCallTargetProvider(cu, invocation);
 	}
@@ -126,6 +137,18 @@ public abstract class TargetProvider {
 		return new MemberTypeTargetProvider(methodBinding);
 	}
 
+	/**
+	 * Creates a target provider that finds the invocations in already parsed ASTs instead of the
+	 * shared ASTs, e.g. in a batch of units parsed together on a worker thread.
+	 *
+	 * @param methodBinding the method to inline, from the same environment as <code>asts</code>
+	 * @param asts the ASTs of the affected compilation units
+	 * @return the target provider
+	 */
+	public static TargetProvider create(IMethodBinding methodBinding, Map<ICompilationUnit, CompilationUnit> asts) {
+		return new MemberTypeTargetProvider(methodBinding, asts);
+	}
+
 	static void fastDone(IProgressMonitor pm) {
 		if (pm == null)
 			return;
@@ -436,10 +459,15 @@ public abstract class TargetProvider {
 
 	private static class MemberTypeTargetProvider extends TargetProvider {
 		private final IMethodBinding fMethodBinding;
+		private final Map<ICompilationUnit, CompilationUnit> fASTs;
 		private Map<BodyDeclaration, BodyData> fCurrentBodies;
 		public MemberTypeTargetProvider(IMethodBinding methodBinding) {
+			this(methodBinding, null);
+		}
+		public MemberTypeTargetProvider(IMethodBinding methodBinding, Map<ICompilationUnit, CompilationUnit> asts) {
 			Assert.isNotNull(methodBinding);
 			fMethodBinding= methodBinding;
+			fASTs= asts;
 		}
 		@Override
 		public void initialize() {
@@ -454,7 +482,7 @@ public abstract class TargetProvider {
 			SearchPattern pattern= SearchPattern.createPattern(method, IJavaSearchConstants.REFERENCES, SearchUtils.GENERICS_AGNOSTIC_MATCH_RULE);
 			Assert.isNotNull(pattern);
 			IJavaSearchScope scope= RefactoringScopeFactory.create(method, true, false);
-			final HashSet<ICompilationUnit> affectedCompilationUnits= new HashSet<>();
+			final Set<ICompilationUnit> affectedCompilationUnits= new LinkedHashSet<>();
 			CollectingSearchRequestor requestor= new CollectingSearchRequestor(binaryRefs) {
 				private ICompilationUnit fLastCU;
 				@Override
@@ -486,7 +514,7 @@ public abstract class TargetProvider {
 
 		@Override
 		public BodyDeclaration[] getAffectedBodyDeclarations(ICompilationUnit unit, IProgressMonitor pm) {
-			ASTNode root= SharedASTProviderCore.getAST(unit, SharedASTProviderCore.WAIT_YES, pm);
+			ASTNode root= fASTs != null ? fASTs.get(unit) : SharedASTProviderCore.getAST(unit, SharedASTProviderCore.WAIT_YES, pm);
 			InvocationFinder finder= new InvocationFinder(fMethodBinding);
 			root.accept(finder);
 			fCurrentBodies= finder.result;
@@ -512,5 +540,10 @@ public abstract class TargetProvider {
 		public int getStatusSeverity() {
 			return RefactoringStatus.ERROR;
 		}
+
+		@Override
+		public boolean supportsBatches() {
+			return true;
+		}
 	}
 }
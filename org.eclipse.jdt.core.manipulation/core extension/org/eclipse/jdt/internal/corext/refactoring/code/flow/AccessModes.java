@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.code.flow;
+
+import java.util.Arrays;
+
+/**
+ * The access modes of the local variables managed by a {@link FlowContext}.
+ * <p>
+ * Every local has exactly one of the access modes defined in {@link FlowInfo}. The modes are
+ * stored as one bit set per access mode, all packed into a single <code>long</code> array, so
+ * that the merge operations of the flow analysis can combine 64 locals at a time with a few
+ * bit operations and without allocating.
+ * </p>
+ */
+final class AccessModes {
+
+	private static final int MODE_COUNT= 6;
+
+	// Indices of the bit sets. The access mode constants in FlowInfo are 1 << index.
+	private static final int UNUSED= 0;
+	private static final int READ= 1;
+	private static final int READ_POTENTIAL= 2;
+	private static final int WRITE= 3;
+	private static final int WRITE_POTENTIAL= 4;
+	private static final int UNKNOWN= 5;
+
+	private final int fLength;
+	private final int fWords;
+	private final long[] fBits;
+
+	/**
+	 * Creates the access modes for <code>length</code> locals, all of them unused.
+	 *
+	 * @param length the number of locals
+	 */
+	public AccessModes(int length) {
+		fLength= length;
+		fWords= (length + 63) >>> 6;
+		fBits= new long[MODE_COUNT * fWords];
+		if (fWords > 0) {
+			Arrays.fill(fBits, 0, fWords, -1L);
+			int rest= length & 63;
+			if (rest != 0)
+				fBits[fWords - 1]= (1L << rest) - 1;
+		}
+	}
+
+	/**
+	 * Returns the access mode of the local with the given index.
+	 *
+	 * @param index the index of the local
+	 * @return one of the access mode constants of {@link FlowInfo}
+	 */
+	public int get(int index) {
+		int word= index >>> 6;
+		long mask= 1L << index;
+		for (int mode= 0; mode < MODE_COUNT; mode++) {
+			if ((fBits[mode * fWords + word] & mask) != 0)
+				return 1 << mode;
+		}
+		return FlowInfo.UNUSED;
+	}
+
+	/**
+	 * Sets the access mode of the local with the given index.
+	 *
+	 * @param index the index of the local
+	 * @param accessMode one of the access mode constants of {@link FlowInfo}
+	 */
+	public void set(int index, int accessMode) {
+		int word= index >>> 6;
+		long mask= 1L << index;
+		int modeIndex= Integer.numberOfTrailingZeros(accessMode);
+		for (int mode= 0; mode < MODE_COUNT; mode++) {
+			if (mode == modeIndex)
+				fBits[mode * fWords + word]|= mask;
+			else
+				fBits[mode * fWords + word]&= ~mask;
+		}
+	}
+
+	/**
+	 * Returns the index of the first local at or after <code>from</code> whose access mode
+	 * matches the given mask.
+	 *
+	 * @param accessModes a combination of access mode constants of {@link FlowInfo}
+	 * @param from the index to start at
+	 * @return the index, or <code>-1</code> if there is none
+	 */
+	public int nextIndex(int accessModes, int from) {
+		if (from >= fLength)
+			return -1;
+		int word= from >>> 6;
+		long bits= union(accessModes, word) & (-1L << from);
+		while (true) {
+			if (bits != 0)
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+			if (++word == fWords)
+				return -1;
+			bits= union(accessModes, word);
+		}
+	}
+
+	private long union(int accessModes, int word) {
+		long result= 0;
+		for (int mode= 0; mode < MODE_COUNT; mode++) {
+			if ((accessModes & (1 << mode)) != 0)
+				result|= fBits[mode * fWords + word];
+		}
+		return result;
+	}
+
+	/**
+	 * Turns reads into potential reads and writes into potential writes. This is the effect
+	 * of an open branch statement, and also the result of a conditional merge with all locals
+	 * unused.
+	 */
+	public void makePotential() {
+		for (int w= 0; w < fWords; w++) {
+			long read= fBits[READ * fWords + w];
+			long write= fBits[WRITE * fWords + w];
+			fBits[READ_POTENTIAL * fWords + w]|= read;
+			fBits[READ * fWords + w]= 0;
+			fBits[WRITE_POTENTIAL * fWords + w]|= write;
+			fBits[WRITE * fWords + w]= 0;
+		}
+	}
+
+	/**
+	 * Merges the access modes of two conditional branches into this object. Equal modes are
+	 * kept, reads and writes combined with unused or potential accesses of the same kind become
+	 * potential, and reads combined with writes become unknown:
+	 *
+	 * <pre>
+	 *                   UNUSED           READ            READ_POTENTIAL  WRITE            WRITE_POTENTIAL  UNKNOWN
+	 * UNUSED            UNUSED           READ_POTENTIAL  READ_POTENTIAL  WRITE_POTENTIAL  WRITE_POTENTIAL  UNKNOWN
+	 * READ              READ_POTENTIAL   READ            READ_POTENTIAL  UNKNOWN          UNKNOWN          UNKNOWN
+	 * READ_POTENTIAL    READ_POTENTIAL   READ_POTENTIAL  READ_POTENTIAL  UNKNOWN          UNKNOWN          UNKNOWN
+	 * WRITE             WRITE_POTENTIAL  UNKNOWN         UNKNOWN         WRITE            WRITE_POTENTIAL  UNKNOWN
+	 * WRITE_POTENTIAL   WRITE_POTENTIAL  UNKNOWN         UNKNOWN         WRITE_POTENTIAL  WRITE_POTENTIAL  UNKNOWN
+	 * UNKNOWN           UNKNOWN          UNKNOWN         UNKNOWN         UNKNOWN          UNKNOWN          UNKNOWN
+	 * </pre>
+	 *
+	 * @param other the access modes of the other branch
+	 */
+	public void mergeConditional(AccessModes other) {
+		long[] o= other.fBits;
+		for (int w= 0; w < fWords; w++) {
+			long unusedA= fBits[UNUSED * fWords + w], unusedB= o[UNUSED * fWords + w];
+			long readA= fBits[READ * fWords + w], readB= o[READ * fWords + w];
+			long writeA= fBits[WRITE * fWords + w], writeB= o[WRITE * fWords + w];
+			long anyReadA= readA | fBits[READ_POTENTIAL * fWords + w], anyReadB= readB | o[READ_POTENTIAL * fWords + w];
+			long anyWriteA= writeA | fBits[WRITE_POTENTIAL * fWords + w], anyWriteB= writeB | o[WRITE_POTENTIAL * fWords + w];
+
+			long unknown= fBits[UNKNOWN * fWords + w] | o[UNKNOWN * fWords + w] | (anyReadA & anyWriteB) | (anyWriteA & anyReadB);
+			long read= readA & readB;
+			long write= writeA & writeB;
+			fBits[UNUSED * fWords + w]= unusedA & unusedB;
+			fBits[READ * fWords + w]= read;
+			fBits[READ_POTENTIAL * fWords + w]= (anyReadA | anyReadB) & ~unknown & ~read;
+			fBits[WRITE * fWords + w]= write;
+			fBits[WRITE_POTENTIAL * fWords + w]= (anyWriteA | anyWriteB) & ~unknown & ~write;
+			fBits[UNKNOWN * fWords + w]= unknown;
+		}
+	}
+
+	/**
+	 * Merges the access modes of a following statement into this object, as done when
+	 * computing the return values of a selection: a write stays a write, a potential write
+	 * becomes a write if the following statement writes, and all other modes are replaced by
+	 * the mode of the following statement unless it is unused.
+	 *
+	 * @param other the access modes of the following statement
+	 */
+	public void mergeReturnValues(AccessModes other) {
+		long[] o= other.fBits;
+		for (int w= 0; w < fWords; w++) {
+			long writePotential= fBits[WRITE_POTENTIAL * fWords + w];
+			long toWrite= writePotential & o[WRITE * fWords + w];
+			long replace= ~(fBits[WRITE * fWords + w] | writePotential) & ~o[UNUSED * fWords + w];
+			merge(o, w, toWrite, replace);
+		}
+	}
+
+	/**
+	 * Merges the access modes of a following statement into this object, as done when
+	 * computing the arguments of a selection: unused locals take the mode of the following
+	 * statement, and a potential write becomes a read or a write if the following statement
+	 * reads or writes.
+	 *
+	 * @param other the access modes of the following statement
+	 */
+	public void mergeArguments(AccessModes other) {
+		long[] o= other.fBits;
+		for (int w= 0; w < fWords; w++) {
+			long writePotential= fBits[WRITE_POTENTIAL * fWords + w];
+			long toWrite= writePotential & o[WRITE * fWords + w];
+			// read always supersedes a potential write
+			long replace= fBits[UNUSED * fWords + w] | (writePotential & (o[READ * fWords + w] | o[READ_POTENTIAL * fWords + w]));
+			merge(o, w, toWrite, replace);
+		}
+	}
+
+	private void merge(long[] o, int w, long toWrite, long replace) {
+		for (int mode= 0; mode < MODE_COUNT; mode++) {
+			int i= mode * fWords + w;
+			fBits[i]= (fBits[i] & ~toWrite & ~replace) | (o[i] & replace);
+		}
+		fBits[WRITE * fWords + w]|= toWrite;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,7 +25,7 @@ class LocalFlowInfo extends FlowInfo {
 		fVariableId= binding.getVariableId();
 		if (context.considerAccessMode()) {
 			createAccessModeArray(context);
-			fAccessModes[fVariableId - context.getStartingIndex()]= localAccessMode;
+			fAccessModes.set(fVariableId - context.getStartingIndex(), localAccessMode);
 			context.manageLocal(binding);
 		}
 	}
@@ -35,13 +35,13 @@ class LocalFlowInfo extends FlowInfo {
 		fVariableId= info.fVariableId;
 		if (context.considerAccessMode()) {
 			createAccessModeArray(context);
-			fAccessModes[fVariableId - context.getStartingIndex()]= localAccessMode;
+			fAccessModes.set(fVariableId - context.getStartingIndex(), localAccessMode);
 		}
 	}
 
 	public void setWriteAccess(FlowContext context) {
 		if (context.considerAccessMode()) {
-			fAccessModes[fVariableId - context.getStartingIndex()]= FlowInfo.WRITE;
+			fAccessModes.set(fVariableId - context.getStartingIndex(), FlowInfo.WRITE);
 		}
 	}
 }
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.generics;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.eclipse.jdt.internal.corext.refactoring.typeconstraints2.ConstraintVariable2;
+
+/**
+ * A first-in first-out work-list of constraint variables that contains every variable at most
+ * once. Adding a variable that is already waiting to be processed has no effect, since
+ * processing it once propagates its latest type estimate.
+ * <p>
+ * Membership is tracked in a bit set over dense variable indexes that are assigned by this
+ * work-list (see {@link ConstraintVariable2#getIndex()}).
+ * </p>
+ */
+/* package */ class ConstraintVariableWorkList {
+
+	private final ArrayDeque<ConstraintVariable2> fQueue;
+	private final BitSet fQueued;
+	private ConstraintVariable2[] fVariables;
+	private int fVariableCount;
+
+	/**
+	 * Creates a work-list and assigns indexes to the given variables.
+	 *
+	 * @param variables the variables that will be added to this work-list
+	 */
+	public ConstraintVariableWorkList(ConstraintVariable2[] variables) {
+		fQueue= new ArrayDeque<>(variables.length);
+		fQueued= new BitSet(variables.length);
+		fVariables= new ConstraintVariable2[Math.max(16, variables.length)];
+		for (ConstraintVariable2 variable : variables) {
+			getIndex(variable);
+		}
+	}
+
+	private int getIndex(ConstraintVariable2 variable) {
+		int index= variable.getIndex();
+		if (index >= 0 && index < fVariableCount && fVariables[index] == variable)
+			return index;
+		// not yet known to this work-list
+		if (fVariableCount == fVariables.length)
+			fVariables= Arrays.copyOf(fVariables, 2 * fVariableCount);
+		index= fVariableCount++;
+		fVariables[index]= variable;
+		variable.setIndex(index);
+		return index;
+	}
+
+	/**
+	 * Adds the given variable to the end of the work-list, unless it is already contained.
+	 *
+	 * @param variable the variable to add
+	 */
+	public void add(ConstraintVariable2 variable) {
+		int index= getIndex(variable);
+		if (!fQueued.get(index)) {
+			fQueued.set(index);
+			fQueue.addLast(variable);
+		}
+	}
+
+	/**
+	 * Adds the given variables to the end of the work-list, skipping variables that are already
+	 * contained.
+	 *
+	 * @param variables the variables to add
+	 */
+	public void addAll(ConstraintVariable2[] variables) {
+		for (ConstraintVariable2 variable : variables) {
+			add(variable);
+		}
+	}
+
+	/**
+	 * Removes the first variable of the work-list.
+	 *
+	 * @return the removed variable
+	 */
+	public ConstraintVariable2 removeFirst() {
+		ConstraintVariable2 variable= fQueue.removeFirst();
+		fQueued.clear(variable.getIndex());
+		return variable;
+	}
+
+	public boolean isEmpty() {
+		return fQueue.isEmpty();
+	}
+
+	public int size() {
+		return fQueue.size();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2020 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -241,7 +241,10 @@ public class InferTypeArgumentsRefactoring extends Refactoring {
 			InferTypeArgumentsUpdate updates= solver.solveConstraints(new SubProgressMonitor(pm, 1));
 			solver= null; //free caches
 
+			if (fChangeManager != null)
+				fChangeManager.clear(); // conditions checked again
 			fChangeManager= new TextChangeManager();
+			fChangeManager.setMemoryBudget(TextChangeManager.getDefaultMemoryBudget());
 			rewriteDeclarations(updates, new SubProgressMonitor(pm, 1));
 
 			IFile[] filesToModify= ResourceUtil.getFiles(fChangeManager.getAllCompilationUnits());
@@ -321,6 +324,7 @@ public class InferTypeArgumentsRefactoring extends Refactoring {
 			CompilationUnitChange change= rewrite.createChange(true);
 			if (change != null) {
 				fChangeManager.manage(cu, change);
+				fChangeManager.checkMemoryBudget();
 			}
 		}
 
@@ -565,6 +569,7 @@ public class InferTypeArgumentsRefactoring extends Refactoring {
 			};
 			return result;
 		} finally {
+			fChangeManager.clear();
 			pm.done();
 		}
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2020 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,13 +17,16 @@ package org.eclipse.jdt.internal.corext.refactoring.rename;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
@@ -69,6 +72,7 @@ import org.eclipse.jdt.internal.corext.refactoring.RefactoringCoreMessages;
 import org.eclipse.jdt.internal.corext.refactoring.SearchResultGroup;
 import org.eclipse.jdt.internal.corext.refactoring.base.JavaStringStatusContext;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaStatusContext;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
 import org.eclipse.jdt.internal.corext.util.Messages;
@@ -181,19 +185,41 @@ public class RenameAnalyzeUtil {
 		return null;
 	}
 
+	/**
+	 * Creates working copies with the preview content of the given compilation units. The working
+	 * copies are created and reconciled in parallel (see {@link ParallelUnitProcessor}).
+	 *
+	 * @param compilationUnitsToModify the compilation units
+	 * @param manager the text change manager holding the changes of the compilation units
+	 * @param owner the working copy owner
+	 * @param pm the progress monitor
+	 * @return the new working copies, in the order of <code>compilationUnitsToModify</code>
+	 * @throws CoreException if a working copy could not be created
+	 */
 	public static ICompilationUnit[] createNewWorkingCopies(ICompilationUnit[] compilationUnitsToModify, TextChangeManager manager, WorkingCopyOwner owner, SubProgressMonitor pm) throws CoreException {
-		pm.beginTask("", compilationUnitsToModify.length); //$NON-NLS-1$
-		ICompilationUnit[] newWorkingCopies= new ICompilationUnit[compilationUnitsToModify.length];
-		for (int i= 0; i < compilationUnitsToModify.length; i++) {
-			ICompilationUnit cu= compilationUnitsToModify[i];
-			newWorkingCopies[i]= createNewWorkingCopy(cu, manager, owner, new SubProgressMonitor(pm, 1));
+		List<ICompilationUnit> created= Collections.synchronizedList(new ArrayList<>());
+		boolean success= false;
+		try {
+			List<ICompilationUnit> newWorkingCopies= ParallelUnitProcessor.process(compilationUnitsToModify, cu -> {
+				ICompilationUnit newWc= createNewWorkingCopy(cu, manager, owner, null);
+				created.add(newWc);
+				return newWc;
+			}, pm);
+			success= true;
+			return newWorkingCopies.toArray(new ICompilationUnit[newWorkingCopies.size()]);
+		} finally {
+			if (!success) {
+				synchronized (created) {
+					for (ICompilationUnit wc : created) {
+						wc.discardWorkingCopy();
+					}
+				}
+			}
 		}
-		pm.done();
-		return newWorkingCopies;
 	}
 
 	public static ICompilationUnit createNewWorkingCopy(ICompilationUnit cu, TextChangeManager manager,
-			WorkingCopyOwner owner, SubProgressMonitor pm) throws CoreException {
+			WorkingCopyOwner owner, IProgressMonitor pm) throws CoreException {
 		ICompilationUnit newWc= cu.getWorkingCopy(owner, null);
 		String previewContent= manager.get(cu).getPreviewContent(new NullProgressMonitor());
 		newWc.getBuffer().setContents(previewContent);
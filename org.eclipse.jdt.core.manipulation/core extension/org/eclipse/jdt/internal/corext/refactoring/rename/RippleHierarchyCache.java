@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.rename;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.SearchMatch;
+
+/**
+ * Caches the type hierarchies and ripple methods computed by {@link RippleMethodFinder2} and the
+ * method rename processors, so that consecutive refactorings on the same hierarchy, e.g. renaming
+ * several methods of a hierarchy in a row, do not recompute them every time.
+ * <p>
+ * Only results on the primary working copies are cached. The cache listens to Java element
+ * deltas and is flushed as soon as a delta can change a type hierarchy or the set of methods
+ * that ripple with each other. The cached hierarchies do not listen to changes themselves, so
+ * that they do not need to be updated on every delta.
+ * </p>
+ */
+public final class RippleHierarchyCache {
+
+	private static final int MAX_HIERARCHIES= 32;
+
+	private static final int MAX_RIPPLE_METHODS= 64;
+
+	private static RippleHierarchyCache fgDefault;
+
+	/**
+	 * Ripple methods of a method, with the matches of binary declarations if these have been
+	 * requested.
+	 */
+	static final class RippleMethods {
+		final IMethod[] fMethods;
+		final SearchMatch[] fBinaryMatches;
+
+		RippleMethods(IMethod[] methods, SearchMatch[] binaryMatches) {
+			fMethods= methods;
+			fBinaryMatches= binaryMatches;
+		}
+	}
+
+	private final Map<IType, ITypeHierarchy> fHierarchies= new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IType, ITypeHierarchy> eldest) {
+			return size() > MAX_HIERARCHIES;
+		}
+	};
+
+	/**
+	 * Ripple methods by method, without binary declarations.
+	 */
+	private final Map<IMethod, RippleMethods> fRippleMethods= new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IMethod, RippleMethods> eldest) {
+			return size() > MAX_RIPPLE_METHODS;
+		}
+	};
+
+	/**
+	 * Ripple methods by method, with the matches of binary declarations.
+	 */
+	private final Map<IMethod, RippleMethods> fRippleMethodsWithBinaries= new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IMethod, RippleMethods> eldest) {
+			return size() > MAX_RIPPLE_METHODS;
+		}
+	};
+
+	private final IElementChangedListener fListener= event -> {
+		if (isRippleChanged(event.getDelta()))
+			clear();
+	};
+
+	private int fHits;
+	private int fMisses;
+
+	private RippleHierarchyCache() {
+		JavaCore.addElementChangedListener(fListener, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+	}
+
+	/**
+	 * Returns the shared cache.
+	 *
+	 * @return the cache
+	 */
+	public static synchronized RippleHierarchyCache getDefault() {
+		if (fgDefault == null)
+			fgDefault= new RippleHierarchyCache();
+		return fgDefault;
+	}
+
+	/**
+	 * Disposes the shared cache, if it has been created. Called when the plug-in stops.
+	 */
+	public static synchronized void disposeDefault() {
+		if (fgDefault != null) {
+			JavaCore.removeElementChangedListener(fgDefault.fListener);
+			fgDefault.clear();
+			fgDefault= null;
+		}
+	}
+
+	/**
+	 * Returns the type hierarchy of the given type on the primary working copies, using a cached
+	 * hierarchy if available.
+	 *
+	 * @param type the focus type
+	 * @param pm the progress monitor
+	 * @return the type hierarchy
+	 * @throws JavaModelException if the hierarchy could not be created
+	 */
+	public ITypeHierarchy getTypeHierarchy(IType type, IProgressMonitor pm) throws JavaModelException {
+		synchronized (this) {
+			ITypeHierarchy hierarchy= fHierarchies.get(type);
+			if (hierarchy != null) {
+				fHits++;
+				return hierarchy;
+			}
+			fMisses++;
+		}
+		ITypeHierarchy hierarchy= type.newTypeHierarchy(pm);
+		synchronized (this) {
+			fHierarchies.put(type, hierarchy);
+		}
+		return hierarchy;
+	}
+
+	synchronized RippleMethods getRippleMethods(IMethod method, boolean withBinaries) {
+		RippleMethods rippleMethods= (withBinaries ? fRippleMethodsWithBinaries : fRippleMethods).get(method);
+		if (rippleMethods != null)
+			fHits++;
+		else
+			fMisses++;
+		return rippleMethods;
+	}
+
+	synchronized void putRippleMethods(IMethod method, boolean withBinaries, RippleMethods rippleMethods) {
+		(withBinaries ? fRippleMethodsWithBinaries : fRippleMethods).put(method, rippleMethods);
+	}
+
+	/**
+	 * Removes all cached hierarchies and ripple methods.
+	 */
+	public synchronized void clear() {
+		fHierarchies.clear();
+		fRippleMethods.clear();
+		fRippleMethodsWithBinaries.clear();
+	}
+
+	public synchronized int getHitCount() {
+		return fHits;
+	}
+
+	public synchronized int getMissCount() {
+		return fMisses;
+	}
+
+	/*
+	 * Returns true if the delta can change a type hierarchy, or a method declaration that can
+	 * ripple with others.
+	 */
+	private static boolean isRippleChanged(IJavaElementDelta delta) {
+		IJavaElement element= delta.getElement();
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				break;
+			case IJavaElement.JAVA_PROJECT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+						| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED)) != 0)
+					return true;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+						| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_REORDER)) != 0)
+					return true;
+				break;
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (kind != IJavaElementDelta.CHANGED)
+					return true;
+				break;
+			case IJavaElement.COMPILATION_UNIT:
+				if (kind != IJavaElementDelta.CHANGED)
+					return true;
+				// a change without fine-grained delta can be anything
+				if ((flags & (IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED)) == IJavaElementDelta.F_CONTENT)
+					return true;
+				break;
+			case IJavaElement.CLASS_FILE:
+				return true;
+			case IJavaElement.TYPE:
+				if (kind != IJavaElementDelta.CHANGED)
+					return true;
+				if ((flags & (IJavaElementDelta.F_SUPER_TYPES | IJavaElementDelta.F_MODIFIERS)) != 0)
+					return true;
+				break;
+			case IJavaElement.METHOD:
+				// method signature changes are reported as removed and added methods
+				if (kind != IJavaElementDelta.CHANGED || (flags & IJavaElementDelta.F_MODIFIERS) != 0)
+					return true;
+				break;
+			case IJavaElement.IMPORT_CONTAINER:
+			case IJavaElement.IMPORT_DECLARATION:
+				// can change how super types are resolved
+				return true;
+			default:
+				// other members can contain local and anonymous types
+				break;
+		}
+		for (IJavaElementDelta child : delta.getAffectedChildren()) {
+			if (isRippleChanged(child))
+				return true;
+		}
+		return false;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2022 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -67,6 +67,7 @@ public class RippleMethodFinder2 {
 
 	private final boolean fExcludeBinaries;
 	private final ReferencesInBinaryContext fBinaryRefs;
+	private RippleHierarchyCache fHierarchyCache;
 	private Map<IMethod, SearchMatch> fDeclarationToMatch;
 	private boolean fSearchOnlyInCompilationUnit = false;
 
@@ -86,50 +87,63 @@ public class RippleMethodFinder2 {
 			return fImplementation.get(key);
 		}
 	}
+	/**
+	 * Union-find on types with path compression and union by rank. Types are mapped to
+	 * consecutive ids, so that the forest itself is kept in primitive arrays.
+	 */
 	private static class UnionFind {
-		HashMap<IType, IType> fElementToRepresentative= new HashMap<>();
+		private final HashMap<IType, Integer> fIds= new HashMap<>();
+		private final List<IType> fTypes= new ArrayList<>();
+		private int[] fParents= new int[16];
+		private int[] fRanks= new int[16];
 
 		public void init(IType type) {
-			fElementToRepresentative.put(type, type);
+			if (fIds.containsKey(type))
+				return;
+			int id= fTypes.size();
+			if (id == fParents.length) {
+				fParents= Arrays.copyOf(fParents, id * 2);
+				fRanks= Arrays.copyOf(fRanks, id * 2);
+			}
+			fParents[id]= id;
+			fRanks[id]= 0;
+			fIds.put(type, Integer.valueOf(id));
+			fTypes.add(type);
 		}
 
-		//path compression:
 		public IType find(IType element) {
-			IType root= element;
-			IType rep= fElementToRepresentative.get(root);
-			while (rep != null && ! rep.equals(root)) {
-				root= rep;
-				rep= fElementToRepresentative.get(root);
-			}
-			if (rep == null)
+			Integer id= fIds.get(element);
+			if (id == null)
 				return null;
+			return fTypes.get(findRoot(id.intValue()));
+		}
 
-			rep= fElementToRepresentative.get(element);
-			while (! rep.equals(root)) {
-				IType temp= element;
-				element= rep;
-				fElementToRepresentative.put(temp, root);
-				rep= fElementToRepresentative.get(element);
+		private int findRoot(int id) {
+			int root= id;
+			while (fParents[root] != root)
+				root= fParents[root];
+			//path compression:
+			while (fParents[id] != root) {
+				int next= fParents[id];
+				fParents[id]= root;
+				id= next;
 			}
 			return root;
 		}
 
-//		//straightforward:
-//		public IType find(IType element) {
-//			IType current= element;
-//			IType rep= (IType) fElementToRepresentative.get(current);
-//			while (rep != null && ! rep.equals(current)) {
-//				current= rep;
-//				rep= (IType) fElementToRepresentative.get(current);
-//			}
-//			if (rep == null)
-//				return null;
-//			else
-//				return current;
-//		}
-
 		public void union(IType rep1, IType rep2) {
-			fElementToRepresentative.put(rep1, rep2);
+			int root1= findRoot(fIds.get(rep1).intValue());
+			int root2= findRoot(fIds.get(rep2).intValue());
+			if (root1 == root2)
+				return;
+			if (fRanks[root1] < fRanks[root2]) {
+				fParents[root1]= root2;
+			} else if (fRanks[root1] > fRanks[root2]) {
+				fParents[root2]= root1;
+			} else {
+				fParents[root2]= root1;
+				fRanks[root1]++;
+			}
 		}
 	}
 
@@ -172,6 +186,38 @@ public class RippleMethodFinder2 {
 		return getRelatedMethods(method, true, pm, owner);
 	}
 
+	/**
+	 * Finds the ripple methods of the given method. On the primary working copies, the ripple
+	 * methods and type hierarchies are shared with other invocations through the given cache.
+	 *
+	 * @param method the method
+	 * @param pm the progress monitor
+	 * @param owner the working copy owner, or <code>null</code> for the primary working copies
+	 * @param hierarchyCache the cache, usually {@link RippleHierarchyCache#getDefault()}
+	 * @return the ripple methods
+	 * @throws CoreException if the hierarchies could not be computed
+	 */
+	public static IMethod[] getRelatedMethods(IMethod method, IProgressMonitor pm, WorkingCopyOwner owner, RippleHierarchyCache hierarchyCache) throws CoreException {
+		try{
+			if (! MethodChecks.isVirtual(method))
+				return new IMethod[]{ method };
+
+			if (owner == null) {
+				RippleHierarchyCache.RippleMethods cached= hierarchyCache.getRippleMethods(method, false);
+				if (cached != null)
+					return cached.fMethods.clone();
+			}
+			RippleMethodFinder2 finder= new RippleMethodFinder2(method, true, false);
+			finder.fHierarchyCache= hierarchyCache;
+			IMethod[] rippleMethods= finder.getAllRippleMethods(pm, owner);
+			if (owner == null)
+				hierarchyCache.putRippleMethods(method, false, new RippleHierarchyCache.RippleMethods(rippleMethods.clone(), null));
+			return rippleMethods;
+		} finally{
+			pm.done();
+		}
+	}
+
 	public static IMethod[] getRelatedMethods(IMethod method, ReferencesInBinaryContext binaryRefs, IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
 		try {
 			if (! MethodChecks.isVirtual(method))
@@ -183,6 +229,48 @@ public class RippleMethodFinder2 {
 		}
 	}
 
+	/**
+	 * Finds the ripple methods of the given method and reports the binary ripple methods to the
+	 * given context. On the primary working copies, the ripple methods, the binary matches and the
+	 * type hierarchies are shared with other invocations through the given cache.
+	 *
+	 * @param method the method
+	 * @param binaryRefs the context that collects the binary ripple methods
+	 * @param pm the progress monitor
+	 * @param owner the working copy owner, or <code>null</code> for the primary working copies
+	 * @param hierarchyCache the cache, usually {@link RippleHierarchyCache#getDefault()}
+	 * @return the ripple methods, without the binary methods
+	 * @throws CoreException if the hierarchies could not be computed
+	 */
+	public static IMethod[] getRelatedMethods(IMethod method, ReferencesInBinaryContext binaryRefs, IProgressMonitor pm, WorkingCopyOwner owner, RippleHierarchyCache hierarchyCache) throws CoreException {
+		try {
+			if (! MethodChecks.isVirtual(method))
+				return new IMethod[]{ method };
+
+			if (owner == null) {
+				RippleHierarchyCache.RippleMethods cached= hierarchyCache.getRippleMethods(method, true);
+				if (cached != null) {
+					for (SearchMatch match : cached.fBinaryMatches)
+						binaryRefs.add(match);
+					return cached.fMethods.clone();
+				}
+			}
+			// collect the binary matches separately, so that they can be replayed
+			ReferencesInBinaryContext binaryMatches= new ReferencesInBinaryContext(binaryRefs.getDescription());
+			RippleMethodFinder2 finder= new RippleMethodFinder2(method, binaryMatches);
+			finder.fHierarchyCache= hierarchyCache;
+			IMethod[] rippleMethods= finder.getAllRippleMethods(pm, owner);
+			List<SearchMatch> matches= binaryMatches.getMatches();
+			for (SearchMatch match : matches)
+				binaryRefs.add(match);
+			if (owner == null)
+				hierarchyCache.putRippleMethods(method, true, new RippleHierarchyCache.RippleMethods(rippleMethods.clone(), matches.toArray(new SearchMatch[matches.size()])));
+			return rippleMethods;
+		} finally{
+			pm.done();
+		}
+	}
+
 	private IMethod[] getAllRippleMethods(IProgressMonitor pm, WorkingCopyOwner owner) throws CoreException {
 		IMethod[] rippleMethods= findAllRippleMethods(pm, owner);
 		if (fDeclarationToMatch == null)
@@ -357,7 +445,7 @@ public class RippleMethodFinder2 {
 
 		for (IType methodTypeSubtype : methodTypeSubtypes) {
 			checkCanceled(pm);
-			ITypeHierarchy subtypeHierarchy= methodTypeSubtype.newTypeHierarchy(owner, pm);
+			ITypeHierarchy subtypeHierarchy= newTypeHierarchy(methodTypeSubtype, owner, pm);
 			IType[] subtypeSuperTypes= subtypeHierarchy.getAllSupertypes(methodTypeSubtype);
 			for (IType subtypeSuperType : subtypeSuperTypes) {
 				checkCanceled(pm);
@@ -403,10 +491,19 @@ public class RippleMethodFinder2 {
 			throws JavaModelException {
 		ITypeHierarchy hierarchy= getCachedHierarchy(type, owner, new SubProgressMonitor(pm, 1));
 		if (hierarchy == null)
-			hierarchy= type.newTypeHierarchy(owner, new SubProgressMonitor(pm, 1));
+			hierarchy= newTypeHierarchy(type, owner, new SubProgressMonitor(pm, 1));
 		return hierarchy;
 	}
 
+	/*
+	 * Hierarchies on the primary working copies can be shared between invocations and refactorings, see RippleHierarchyCache
+	 */
+	private ITypeHierarchy newTypeHierarchy(IType type, WorkingCopyOwner owner, IProgressMonitor pm) throws JavaModelException {
+		if (owner == null && fHierarchyCache != null)
+			return fHierarchyCache.getTypeHierarchy(type, pm);
+		return type.newTypeHierarchy(owner, pm);
+	}
+
 	private void addMissedSuperTypes() throws JavaModelException {
 		Set<IMethod> newDeclarations = new HashSet<>();
 		for (IMethod method : fDeclarations) {
@@ -423,7 +520,7 @@ public class RippleMethodFinder2 {
 			for (IType root : fRootReps.get(rep)) {
 				ITypeHierarchy hierarchy= fRootHierarchies.get(root);
 				if (hierarchy == null) {
-					hierarchy= root.newTypeHierarchy(owner, new SubProgressMonitor(monitor, 1));
+					hierarchy= newTypeHierarchy(root, owner, new SubProgressMonitor(monitor, 1));
 					fRootHierarchies.put(root, hierarchy);
 				}
 				if (hierarchy.contains(type))
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -29,6 +29,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.core.resources.IFile;
@@ -158,8 +159,10 @@ import org.eclipse.jdt.internal.corext.refactoring.tagging.IDelegateUpdating;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaElementUtil;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaStatusContext;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavadocUtil;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 import org.eclipse.jdt.internal.corext.refactoring.util.ResourceUtil;
+import org.eclipse.jdt.internal.corext.refactoring.util.StageTimings;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
 import org.eclipse.jdt.internal.corext.refactoring.util.TightSourceRangeComputer;
 import org.eclipse.jdt.internal.corext.util.JdtFlags;
@@ -194,6 +197,8 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 	private static final String CONST_ASSIGN = " i=";		//$NON-NLS-1$
 	private static final String CONST_CLOSE = ";}";			//$NON-NLS-1$
 
+	private static final String PERF_STAGES= "org.eclipse.jdt.core.manipulation/perf/changeSignature/"; //$NON-NLS-1$
+
 	private StubTypeContext fContextCuStartEnd;
 	private int fOldVarargIndex; // initialized in checkVarargs()
 
@@ -201,6 +206,7 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 	private IDefaultValueAdvisor fDefaultValueAdvisor;
 
 	private ITypeHierarchy fCachedTypeHierarchy= null;
+	private final StageTimings fStageTimings= new StageTimings(PERF_STAGES, this);
 	private boolean fDelegateUpdating;
 	private boolean fDelegateDeprecation;
 
@@ -345,6 +351,16 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 		fBodyUpdater= bodyUpdater;
 	}
 
+	/**
+	 * Returns the time spent in the search, analysis and rewrite stages of the last final condition
+	 * check.
+	 *
+	 * @return the stage timings
+	 */
+	public StageTimings getStageTimings() {
+		return fStageTimings;
+	}
+
 	public CompilationUnitRewrite getBaseCuRewrite() {
 		return fBaseCuRewrite;
 	}
@@ -805,6 +821,7 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 			pm.beginTask(RefactoringCoreMessages.ChangeSignatureRefactoring_checking_preconditions, 8);
 			RefactoringStatus result= new RefactoringStatus();
 			clearManagers();
+			fStageTimings.clear();
 			fBaseCuRewrite.clearASTAndImportRewrites();
 			fBaseCuRewrite.getASTRewrite().setTargetSourceRangeComputer(new TightSourceRangeComputer());
 
@@ -820,14 +837,19 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 			String binaryRefsDescription= Messages.format(RefactoringCoreMessages.ReferencesInBinaryContext_ref_in_binaries_description , BasicElementLabels.getJavaElementName(getMethodName()));
 			ReferencesInBinaryContext binaryRefs= new ReferencesInBinaryContext(binaryRefsDescription);
 
+			long start= fStageTimings.start(StageTimings.SEARCH);
 			fRippleMethods= RippleMethodFinder2.getRelatedMethods(fMethod, binaryRefs, new SubProgressMonitor(pm, 1), null);
+			fStageTimings.end(StageTimings.SEARCH, start);
 			result.merge(checkVarargs());
 			if (result.hasFatalError())
 				return result;
 
+			start= fStageTimings.start(StageTimings.SEARCH);
 			fOccurrences= findOccurrences(new SubProgressMonitor(pm, 1), binaryRefs, result);
 			binaryRefs.addErrorIfNecessary(result);
+			fStageTimings.end(StageTimings.SEARCH, start);
 
+			start= fStageTimings.start(StageTimings.ANALYSIS);
 			result.merge(checkVisibilityChanges());
 			result.merge(checkTypeVariables());
 
@@ -848,16 +870,21 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 				result.merge(checkRenamings(new SubProgressMonitor(pm, 1)));
 			else
 				pm.worked(1);
+			fStageTimings.end(StageTimings.ANALYSIS, start);
 			if (result.hasFatalError())
 				return result;
 
 //			resolveTypesWithoutBindings(new SubProgressMonitor(pm, 1)); // already done in checkSignature(true)
 
+			start= fStageTimings.start(StageTimings.REWRITE);
 			createChangeManager(new SubProgressMonitor(pm, 1), result);
 			fCachedTypeHierarchy= null;
+			fStageTimings.end(StageTimings.REWRITE, start);
 
+			start= fStageTimings.start(StageTimings.ANALYSIS);
 			if (mustAnalyzeAstOfDeclaringCu())
 				result.merge(checkCompilationofDeclaringCu()); //TODO: should also check in ripple methods (move into createChangeManager)
+			fStageTimings.end(StageTimings.ANALYSIS, start);
 			if (result.hasFatalError())
 				return result;
 
@@ -869,7 +896,10 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 	}
 
 	protected void clearManagers() {
-		fChangeManager= null;
+		if (fChangeManager != null) {
+			fChangeManager.clear();
+			fChangeManager= null;
+		}
 	}
 
 	private RefactoringStatus checkVisibilityChanges() throws JavaModelException {
@@ -1363,9 +1393,21 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 		return RefactoringCoreMessages.ChangeSignatureRefactoring_restructure_parameters;
 	}
 
+	/**
+	 * Updates the occurrences unit by unit. The declaring unit shares its rewrite with the
+	 * condition checking and is updated in the calling thread. The other units are independent
+	 * and are updated concurrently, in chunks, so that only the ASTs of the units in progress are
+	 * kept in memory and completed changes can be moved out of memory between the chunks.
+	 *
+	 * @param pm the progress monitor
+	 * @param result the status to add problems to, in the order of the occurrences
+	 * @return the change manager
+	 * @throws CoreException if a unit could not be updated
+	 */
 	private TextChangeManager createChangeManager(IProgressMonitor pm, RefactoringStatus result) throws CoreException {
 		pm.beginTask(RefactoringCoreMessages.ChangeSignatureRefactoring_preview, 2);
 		fChangeManager= new TextChangeManager();
+		fChangeManager.setMemoryBudget(TextChangeManager.getDefaultMemoryBudget());
 		boolean isNoArgConstructor= isNoArgConstructor();
 		Map<ICompilationUnit, Set<IType>> namedSubclassMapping= null;
 		if (isNoArgConstructor){
@@ -1374,51 +1416,83 @@ public class ChangeSignatureProcessor extends RefactoringProcessor implements ID
 		}else{
 			pm.worked(1);
 		}
-		for (SearchResultGroup occurrence : fOccurrences) {
-			if (pm.isCanceled())
-				throw new OperationCanceledException();
-			SearchResultGroup group= occurrence;
-			ICompilationUnit cu= group.getCompilationUnit();
-			if (cu == null)
-				continue;
-			CompilationUnitRewrite cuRewrite;
-			if (cu.equals(getCu())) {
-				cuRewrite= fBaseCuRewrite;
+		final Map<ICompilationUnit, Set<IType>> subclasses= namedSubclassMapping;
+
+		List<SearchResultGroup> groups= new ArrayList<>(fOccurrences.length);
+		for (SearchResultGroup group : fOccurrences) {
+			if (group.getCompilationUnit() != null)
+				groups.add(group);
+		}
+		SubMonitor subMonitor= SubMonitor.convert(new SubProgressMonitor(pm, 1), groups.size());
+		Map<SearchResultGroup, RefactoringStatus> stati= new HashMap<>();
+		List<SearchResultGroup> others= new ArrayList<>(groups.size());
+		for (SearchResultGroup group : groups) {
+			if (group.getCompilationUnit().equals(getCu())) {
+				if (subMonitor.isCanceled())
+					throw new OperationCanceledException();
+				stati.put(group, updateOccurrences(group, subclasses));
+				subMonitor.worked(1);
 			} else {
-				cuRewrite= new CompilationUnitRewrite(cu);
-				cuRewrite.getASTRewrite().setTargetSourceRangeComputer(new TightSourceRangeComputer());
-			}
-			//IntroduceParameterObjectRefactoring needs to update declarations first:
-			List<OccurrenceUpdate<? extends ASTNode>> deferredUpdates= new ArrayList<>();
-			for (ASTNode node : ASTNodeSearchUtil.findNodes(group.getSearchResults(), cuRewrite.getRoot())) {
-				OccurrenceUpdate<? extends ASTNode> update= createOccurrenceUpdate(node, cuRewrite, result);
-				if (update instanceof DeclarationUpdate) {
-					update.updateNode();
-				} else {
-					deferredUpdates.add(update);
-				}
-			}
-			for (OccurrenceUpdate<? extends ASTNode> occurrenceUpdate : deferredUpdates) {
-				occurrenceUpdate.updateNode();
+				others.add(group);
 			}
+		}
 
-			if (isNoArgConstructor && namedSubclassMapping.containsKey(cu)){
-				//only non-anonymous subclasses may have noArgConstructors to modify - see bug 43444
-				for (IType subtype : namedSubclassMapping.get(cu)) {
-					AbstractTypeDeclaration subtypeNode= ASTNodeSearchUtil.getAbstractTypeDeclarationNode(subtype, cuRewrite.getRoot());
-					if (subtypeNode != null)
-						modifyImplicitCallsToNoArgConstructor(subtypeNode, cuRewrite);
-				}
+		int chunkSize= Math.max(ParallelUnitProcessor.MIN_PARALLEL_UNITS, 4 * ParallelUnitProcessor.getDefaultParallelism());
+		for (int start= 0; start < others.size(); start+= chunkSize) {
+			List<SearchResultGroup> chunk= others.subList(start, Math.min(start + chunkSize, others.size()));
+			List<RefactoringStatus> chunkStati= ParallelUnitProcessor.process(chunk, group -> updateOccurrences(group, subclasses), subMonitor.split(chunk.size()));
+			for (int i= 0; i < chunk.size(); i++) {
+				stati.put(chunk.get(i), chunkStati.get(i));
 			}
-			TextChange change= cuRewrite.createChange(true);
-			if (change != null)
-				fChangeManager.manage(cu, change);
+			fChangeManager.checkMemoryBudget();
+		}
+
+		for (SearchResultGroup group : groups) {
+			result.merge(stati.get(group));
 		}
 
 		pm.done();
 		return fChangeManager;
 	}
 
+	private RefactoringStatus updateOccurrences(SearchResultGroup group, Map<ICompilationUnit, Set<IType>> namedSubclassMapping) throws CoreException {
+		RefactoringStatus result= new RefactoringStatus();
+		ICompilationUnit cu= group.getCompilationUnit();
+		CompilationUnitRewrite cuRewrite;
+		if (cu.equals(getCu())) {
+			cuRewrite= fBaseCuRewrite;
+		} else {
+			cuRewrite= new CompilationUnitRewrite(cu);
+			cuRewrite.getASTRewrite().setTargetSourceRangeComputer(new TightSourceRangeComputer());
+		}
+		//IntroduceParameterObjectRefactoring needs to update declarations first:
+		List<OccurrenceUpdate<? extends ASTNode>> deferredUpdates= new ArrayList<>();
+		for (ASTNode node : ASTNodeSearchUtil.findNodes(group.getSearchResults(), cuRewrite.getRoot())) {
+			OccurrenceUpdate<? extends ASTNode> update= createOccurrenceUpdate(node, cuRewrite, result);
+			if (update instanceof DeclarationUpdate) {
+				update.updateNode();
+			} else {
+				deferredUpdates.add(update);
+			}
+		}
+		for (OccurrenceUpdate<? extends ASTNode> occurrenceUpdate : deferredUpdates) {
+			occurrenceUpdate.updateNode();
+		}
+
+		if (namedSubclassMapping != null && namedSubclassMapping.containsKey(cu)){
+			//only non-anonymous subclasses may have noArgConstructors to modify - see bug 43444
+			for (IType subtype : namedSubclassMapping.get(cu)) {
+				AbstractTypeDeclaration subtypeNode= ASTNodeSearchUtil.getAbstractTypeDeclarationNode(subtype, cuRewrite.getRoot());
+				if (subtypeNode != null)
+					modifyImplicitCallsToNoArgConstructor(subtypeNode, cuRewrite);
+			}
+		}
+		TextChange change= cuRewrite.createChange(true);
+		if (change != null)
+			fChangeManager.manage(cu, change);
+		return result;
+	}
+
 	private Map<ICompilationUnit, Set<IType>> createNamedSubclassMapping(IProgressMonitor pm) throws JavaModelException{
 		Map<ICompilationUnit, Set<IType>> result= new HashMap<>();
 		for (IType subclass : getCachedTypeHierarchy(new SubProgressMonitor(pm, 1)).getSubclasses(fMethod.getDeclaringType())) {
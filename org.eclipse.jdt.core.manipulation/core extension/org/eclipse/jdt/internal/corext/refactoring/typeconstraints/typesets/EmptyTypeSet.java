@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -28,6 +28,11 @@ public class EmptyTypeSet extends TypeSet {
 		return false;
 	}
 
+	@Override
+	protected boolean isImmutable() {
+		return true;
+	}
+
 	@Override
 	public TypeSet makeClone() {
 		return this;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -35,6 +35,11 @@ public class SuperTypesOfSingleton extends TypeSet {
 		return false;
 	}
 
+	@Override
+	protected boolean isImmutable() {
+		return true;
+	}
+
 	@Override
 	public TypeSet makeClone() {
 		return this; //new SuperTypesOfSingleton(fLowerBound, getTypeSetEnvironment());
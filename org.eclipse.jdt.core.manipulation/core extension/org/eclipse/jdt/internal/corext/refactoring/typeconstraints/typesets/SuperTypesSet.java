@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -37,6 +37,11 @@ public class SuperTypesSet extends TypeSet {
 		return fLowerBounds.isUniverse();
 	}
 
+	@Override
+	protected boolean isImmutable() {
+		return fLowerBounds.isImmutable();
+	}
+
 	@Override
 	public TypeSet makeClone() {
 		return this; //new SuperTypesSet(fLowerBounds.makeClone(), getTypeSetEnvironment());
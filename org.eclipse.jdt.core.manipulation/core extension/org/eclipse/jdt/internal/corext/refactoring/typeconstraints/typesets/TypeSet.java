@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -62,6 +62,17 @@ public abstract class TypeSet implements ITypeSet {
 
 	abstract public TypeSet makeClone();
 
+	/**
+	 * Returns whether this set never changes, so that intersections with it can be memoized by
+	 * the {@link TypeSetEnvironment}. {@link EnumeratedTypeSet}s can be modified in place and
+	 * are not immutable.
+	 *
+	 * @return <code>true</code> iff this set is immutable
+	 */
+	protected boolean isImmutable() {
+		return false;
+	}
+
 	/**
 	 * @param s2 another type set
 	 * @return intersection of this type set with the given type set
@@ -107,12 +118,21 @@ public abstract class TypeSet implements ITypeSet {
 				return x;
 		}
 
+		TypeSetEnvironment environment= getTypeSetEnvironment();
+		boolean memoize= isImmutable() && s2.isImmutable();
+		if (memoize) {
+			TypeSet cached= environment.getCachedIntersection(this, s2);
+			if (cached != null)
+				return cached;
+		}
+
 		TypeSet result= specialCasesIntersectedWith(s2);
 
-		if (result != null)
-			return result;
-		else
-			return new TypeSetIntersection(this, s2);
+		if (result == null)
+			result= new TypeSetIntersection(this, s2);
+		if (memoize && result.isImmutable())
+			environment.cacheIntersection(this, s2, result);
+		return result;
 	}
 
 	/**
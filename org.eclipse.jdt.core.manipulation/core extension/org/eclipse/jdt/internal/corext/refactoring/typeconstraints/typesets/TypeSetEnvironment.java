@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -33,8 +33,55 @@ public class TypeSetEnvironment {
 	private final Map<TType, SuperTypesOfSingleton> fSuperTypesOfSingletons= new LinkedHashMap<>();//@perf
 	private final Map<Object, SuperTypesSet> fSuperTypesSets= new LinkedHashMap<>();//@perf
 
+	/**
+	 * The maximum number of memoized intersections. The least recently used entries are evicted
+	 * first, since the solver tends to intersect the same few estimates over and over.
+	 */
+	private static final int MAX_CACHED_INTERSECTIONS= 4096;
+
+	private final Map<OperandPair, TypeSet> fIntersections= new LinkedHashMap<>(64, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<OperandPair, TypeSet> eldest) {
+			return size() > MAX_CACHED_INTERSECTIONS;
+		}
+	};
+
 	private int fgCommonExprHits= 0;
 	private int fgCommonExprMisses= 0;
+	private int fIntersectionHits= 0;
+	private int fIntersectionMisses= 0;
+
+	/**
+	 * The ordered operands of a binary type set operation.
+	 */
+	private static final class OperandPair {
+		private final TypeSet fLeft;
+		private final TypeSet fRight;
+		private final int fHashCode;
+
+		OperandPair(TypeSet left, TypeSet right) {
+			fLeft= left;
+			fRight= right;
+			fHashCode= 31 * left.hashCode() + right.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return fHashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof OperandPair))
+				return false;
+			OperandPair other= (OperandPair) obj;
+			return fHashCode == other.fHashCode && fLeft.equals(other.fLeft) && fRight.equals(other.fRight);
+		}
+	}
 
 	public TypeSetEnvironment(TypeEnvironment typeEnvironment) {
 		fTypeEnvironment= typeEnvironment;
@@ -119,9 +166,38 @@ public class TypeSetEnvironment {
 		}
 	}
 
+	/**
+	 * Returns the memoized intersection of the given immutable type sets.
+	 *
+	 * @param lhs the left operand
+	 * @param rhs the right operand
+	 * @return the intersection, or <code>null</code> if it has not been memoized
+	 */
+	TypeSet getCachedIntersection(TypeSet lhs, TypeSet rhs) {
+		TypeSet result= fIntersections.get(new OperandPair(lhs, rhs));
+		if (result != null)
+			fIntersectionHits++;
+		else
+			fIntersectionMisses++;
+		return result;
+	}
+
+	/**
+	 * Memoizes the intersection of the given type sets. All three sets must be immutable.
+	 *
+	 * @param lhs the left operand
+	 * @param rhs the right operand
+	 * @param result the intersection of <code>lhs</code> and <code>rhs</code>
+	 */
+	void cacheIntersection(TypeSet lhs, TypeSet rhs, TypeSet result) {
+		fIntersections.put(new OperandPair(lhs, rhs), result);
+	}
+
 	public void dumpStats() {
 		System.out.println("Common expression hits:   " + fgCommonExprHits); //$NON-NLS-1$
 		System.out.println("Common expression misses: " + fgCommonExprMisses); //$NON-NLS-1$
+		System.out.println("Intersection hits:        " + fIntersectionHits); //$NON-NLS-1$
+		System.out.println("Intersection misses:      " + fIntersectionMisses); //$NON-NLS-1$
 	}
 
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -47,6 +47,11 @@ public class TypeSetIntersection extends TypeSet {
 		return fLHS.isUniverse() && fRHS.isUniverse();
 	}
 
+	@Override
+	protected boolean isImmutable() {
+		return fLHS.isImmutable() && fRHS.isImmutable();
+	}
+
 	@Override
 	public TypeSet makeClone() {
 		return this; //new TypeSetIntersection(fLHS.makeClone(), fRHS.makeClone());
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -26,6 +26,8 @@ public abstract class ConstraintVariable2 {
 
 	private TypeEquivalenceSet fTypeEquivalenceSet;
 
+	private int fIndex= -1;
+
 	protected final TType fType;
 
 	/**
@@ -48,6 +50,15 @@ public abstract class ConstraintVariable2 {
 		}
 	}
 
+	/**
+	 * Returns the dense index that a constraint solver assigned to this variable.
+	 *
+	 * @return the index, or <code>-1</code> if no index has been assigned
+	 */
+	public int getIndex() {
+		return fIndex;
+	}
+
 	public TypeEquivalenceSet getTypeEquivalenceSet() {
 		return fTypeEquivalenceSet;
 	}
@@ -102,6 +113,15 @@ public abstract class ConstraintVariable2 {
 		}
 	}
 
+	/**
+	 * Sets the dense index of this variable. Only to be used by constraint solvers.
+	 *
+	 * @param index the index
+	 */
+	public void setIndex(int index) {
+		fIndex= index;
+	}
+
 	public void setTypeEquivalenceSet(TypeEquivalenceSet set) {
 		fTypeEquivalenceSet= set;
 	}
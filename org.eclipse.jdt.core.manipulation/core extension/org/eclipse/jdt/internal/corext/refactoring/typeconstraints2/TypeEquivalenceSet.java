@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,61 +13,79 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.typeconstraints2;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
-import java.util.List;
 
 public class TypeEquivalenceSet {
 
+	/*
+	 * The variables are stored in the first fSize elements of fVariables, which grows
+	 * geometrically. fContributingVariables caches an exactly sized copy, since callers may keep
+	 * the returned array while the set changes.
+	 */
 	private ConstraintVariable2[] fVariables;
+	private int fSize;
+	private ConstraintVariable2[] fContributingVariables;
 	private ITypeSet fTypeEstimate;
 
 
 	public TypeEquivalenceSet(ConstraintVariable2 first, ConstraintVariable2 second) {
 		fVariables= new ConstraintVariable2[] {first, second };
+		fSize= 2;
 	}
 
 	public TypeEquivalenceSet(ConstraintVariable2 variable) {
 		fVariables= new ConstraintVariable2[] {variable};
+		fSize= 1;
 	}
 
 	public void add(ConstraintVariable2 variable) {
-		for (ConstraintVariable2 constraintVariable : fVariables) {
-			if (constraintVariable == variable) {
+		for (int i= 0; i < fSize; i++) {
+			if (fVariables[i] == variable) {
 				return;
 			}
 		}
+		append(variable);
+	}
 
-		int length= fVariables.length;
-		ConstraintVariable2[] newElements= new ConstraintVariable2[length + 1];
-		System.arraycopy(fVariables, 0, newElements, 0, length);
-		newElements[length]= variable;
-		fVariables= newElements;
+	private void append(ConstraintVariable2 variable) {
+		if (fSize == fVariables.length)
+			fVariables= Arrays.copyOf(fVariables, Math.max(4, 2 * fSize));
+		fVariables[fSize++]= variable;
+		fContributingVariables= null;
 	}
 
 	public ConstraintVariable2[] getContributingVariables() {
-		return fVariables;
+		if (fContributingVariables == null)
+			fContributingVariables= fSize == fVariables.length ? fVariables : Arrays.copyOf(fVariables, fSize);
+		return fContributingVariables;
 	}
 
 	public void addAll(ConstraintVariable2[] variables) {
-		if (fVariables.length * variables.length > 100) {
-			LinkedHashSet<ConstraintVariable2> result= new LinkedHashSet<>(fVariables.length + variables.length);
-			result.addAll(Arrays.asList(fVariables));
+		if (fSize * variables.length > 100) {
+			LinkedHashSet<ConstraintVariable2> result= new LinkedHashSet<>(fSize + variables.length);
+			result.addAll(Arrays.asList(getContributingVariables()));
 			result.addAll(Arrays.asList(variables));
-			fVariables= result.toArray(new ConstraintVariable2[result.size()]);
+			if (result.size() != fSize) {
+				fVariables= result.toArray(new ConstraintVariable2[result.size()]);
+				fSize= fVariables.length;
+				fContributingVariables= null;
+			}
 
 		} else {
-			List<ConstraintVariable2> elements= Arrays.asList(fVariables);
-			ArrayList<ConstraintVariable2> result= new ArrayList<>(fVariables.length + variables.length);
-			result.addAll(elements);
 			for (ConstraintVariable2 right : variables) {
-				if (! result.contains(right))
-					result.add(right);
+				if (! contains(right))
+					append(right);
 			}
-			fVariables= result.toArray(new ConstraintVariable2[result.size()]);
 		}
+	}
 
+	private boolean contains(ConstraintVariable2 variable) {
+		for (int i= 0; i < fSize; i++) {
+			if (variable.equals(fVariables[i]))
+				return true;
+		}
+		return false;
 	}
 
 	public void setTypeEstimate(ITypeSet estimate) {
@@ -81,9 +99,9 @@ public class TypeEquivalenceSet {
 	@Override
 	public String toString() {
 		StringBuilder result= new StringBuilder();
-		if (fVariables.length > 0)
+		if (fSize > 0)
 			result.append(fVariables[0].toString());
-		for (int i= 1; i < fVariables.length; i++) {
+		for (int i= 1; i < fSize; i++) {
 			result.append(" =^= \n"); //$NON-NLS-1$
 			result.append(fVariables[i].toString());
 		}
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+
+import org.eclipse.jdt.internal.core.manipulation.JavaManipulationPlugin;
+
+/**
+ * Processes independent units of work of a refactoring (typically one compilation unit each)
+ * on a pool of worker threads.
+ * <p>
+ * The results are returned in the order of the input, so callers that merge them sequentially
+ * get the same result as with a serial loop. Small inputs and a parallelism of <code>1</code>
+ * are processed in the calling thread. Progress is reported on the calling thread, one tick per
+ * unit; cancellation of the monitor stops scheduling further units and throws an
+ * {@link OperationCanceledException} once the running units have finished. The worker threads
+ * are shared by all calls.
+ * </p>
+ * <p>
+ * Tasks must only modify state that belongs to their unit (e.g. the text change of their
+ * compilation unit in a {@link TextChangeManager}).
+ * </p>
+ */
+public final class ParallelUnitProcessor {
+
+	/**
+	 * A task processing a single unit.
+	 *
+	 * @param <E> the type of the units
+	 * @param <R> the type of the results
+	 */
+	@FunctionalInterface
+	public interface UnitTask<E, R> {
+
+		/**
+		 * Processes a unit. Called from a worker thread.
+		 *
+		 * @param unit the unit to process
+		 * @return the result, can be <code>null</code>
+		 * @throws CoreException if processing failed
+		 */
+		R process(E unit) throws CoreException;
+	}
+
+	/**
+	 * Below this number of units, the units are processed in the calling thread.
+	 */
+	public static final int MIN_PARALLEL_UNITS= 8;
+
+	/**
+	 * The maximal number of compilation units per batch, see {@link #createBatches(List)}.
+	 */
+	public static final int MAX_BATCH_SIZE= 50;
+
+	private static final String PARALLELISM_PROPERTY= "org.eclipse.jdt.refactoring.parallelism"; //$NON-NLS-1$
+
+	private static final long POLL_INTERVAL= 100;
+
+	private static final AtomicInteger fgThreadCount= new AtomicInteger();
+
+	private static ExecutorService fgExecutor;
+
+	private ParallelUnitProcessor() {
+	}
+
+	/**
+	 * Returns the default number of worker threads: the value of the system property
+	 * <code>org.eclipse.jdt.refactoring.parallelism</code> if set, otherwise the number of
+	 * available processors.
+	 *
+	 * @return the default parallelism, at least <code>1</code>
+	 */
+	public static int getDefaultParallelism() {
+		int processors= Runtime.getRuntime().availableProcessors();
+		return Math.max(1, Integer.getInteger(PARALLELISM_PROPERTY, processors).intValue());
+	}
+
+	/**
+	 * Returns whether refactorings should process their units in batches, see
+	 * {@link #createBatches(List)}. With a single worker thread, refactorings process their units
+	 * one by one, which also gives the reference results for the batched processing.
+	 *
+	 * @return <code>true</code> if the default parallelism is greater than <code>1</code>
+	 */
+	public static boolean isBatchingEnabled() {
+		return getDefaultParallelism() > 1;
+	}
+
+	/**
+	 * Splits compilation units into batches of units of the same project, e.g. to parse each batch
+	 * with a single {@link org.eclipse.jdt.core.dom.ASTParser#createASTs} call on a worker. The
+	 * batches are small enough to keep all workers busy, but contain at most
+	 * {@link #MAX_BATCH_SIZE} units.
+	 *
+	 * @param units the units to split
+	 * @return the batches, each in the order of the input
+	 */
+	public static List<List<ICompilationUnit>> createBatches(List<ICompilationUnit> units) {
+		Map<IJavaProject, List<ICompilationUnit>> unitsByProject= new LinkedHashMap<>();
+		for (ICompilationUnit unit : units) {
+			unitsByProject.computeIfAbsent(unit.getJavaProject(), project -> new ArrayList<>()).add(unit);
+		}
+		int batches= Math.max(MIN_PARALLEL_UNITS, 2 * getDefaultParallelism());
+		int batchSize= Math.max(1, Math.min(MAX_BATCH_SIZE, (units.size() + batches - 1) / batches));
+		List<List<ICompilationUnit>> result= new ArrayList<>();
+		for (List<ICompilationUnit> projectUnits : unitsByProject.values()) {
+			for (int i= 0; i < projectUnits.size(); i+= batchSize) {
+				result.add(projectUnits.subList(i, Math.min(projectUnits.size(), i + batchSize)));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Processes the units with the default parallelism.
+	 *
+	 * @param units the units to process
+	 * @param task the task to run on each unit
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return the results, in the order of the units
+	 * @throws CoreException if a task failed
+	 * @throws OperationCanceledException if the monitor got canceled
+	 * @param <E> the type of the units
+	 * @param <R> the type of the results
+	 */
+	public static <E, R> List<R> process(List<E> units, UnitTask<E, R> task, IProgressMonitor monitor) throws CoreException {
+		return process(units, task, getDefaultParallelism(), monitor);
+	}
+
+	/**
+	 * Processes the units with the default parallelism.
+	 *
+	 * @param units the units to process
+	 * @param task the task to run on each unit
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return the results, in the order of the units
+	 * @throws CoreException if a task failed
+	 * @throws OperationCanceledException if the monitor got canceled
+	 * @param <E> the type of the units
+	 * @param <R> the type of the results
+	 */
+	public static <E, R> List<R> process(E[] units, UnitTask<E, R> task, IProgressMonitor monitor) throws CoreException {
+		return process(Arrays.asList(units), task, getDefaultParallelism(), monitor);
+	}
+
+	/**
+	 * Processes the units with at most <code>parallelism</code> worker threads.
+	 *
+	 * @param units the units to process
+	 * @param task the task to run on each unit
+	 * @param parallelism the maximal number of worker threads
+	 * @param monitor the progress monitor, or <code>null</code>
+	 * @return the results, in the order of the units
+	 * @throws CoreException if a task failed
+	 * @throws OperationCanceledException if the monitor got canceled
+	 * @param <E> the type of the units
+	 * @param <R> the type of the results
+	 */
+	public static <E, R> List<R> process(List<E> units, UnitTask<E, R> task, int parallelism, IProgressMonitor monitor) throws CoreException {
+		SubMonitor subMonitor= SubMonitor.convert(monitor, units.size());
+		int threads= Math.min(parallelism, units.size());
+		if (threads <= 1 || units.size() < MIN_PARALLEL_UNITS) {
+			return processSerial(units, task, subMonitor);
+		}
+
+		// each worker takes the next unit until all units are taken, so that at most 'threads'
+		// units of this call run at the same time on the shared executor
+		List<CompletableFuture<R>> futures= new ArrayList<>(units.size());
+		for (int i= 0; i < units.size(); i++) {
+			futures.add(new CompletableFuture<>());
+		}
+		AtomicInteger next= new AtomicInteger();
+		AtomicBoolean stopped= new AtomicBoolean();
+		Runnable worker= () -> {
+			int index;
+			while (!stopped.get() && (index= next.getAndIncrement()) < units.size()) {
+				CompletableFuture<R> future= futures.get(index);
+				if (subMonitor.isCanceled()) {
+					future.completeExceptionally(new OperationCanceledException());
+					continue;
+				}
+				try {
+					future.complete(task.process(units.get(index)));
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			}
+		};
+
+		ExecutorService executor= getExecutor();
+		List<Future<?>> workers= new ArrayList<>(threads);
+		try {
+			for (int i= 0; i < threads; i++) {
+				workers.add(executor.submit(worker));
+			}
+			List<R> results= new ArrayList<>(units.size());
+			for (Future<R> future : futures) {
+				results.add(await(future, subMonitor));
+				subMonitor.worked(1);
+			}
+			return results;
+		} finally {
+			stopped.set(true);
+			for (Future<?> running : workers) {
+				awaitDone(running);
+			}
+			subMonitor.done();
+		}
+	}
+
+	private static <E, R> List<R> processSerial(List<E> units, UnitTask<E, R> task, SubMonitor subMonitor) throws CoreException {
+		List<R> results= new ArrayList<>(units.size());
+		for (E unit : units) {
+			if (subMonitor.isCanceled())
+				throw new OperationCanceledException();
+			results.add(task.process(unit));
+			subMonitor.worked(1);
+		}
+		subMonitor.done();
+		return results;
+	}
+
+	private static <R> R await(Future<R> future, IProgressMonitor monitor) throws CoreException {
+		while (true) {
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+			try {
+				return future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// poll the monitor again
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				Throwable cause= e.getCause();
+				if (cause instanceof CoreException)
+					throw (CoreException) cause;
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new CoreException(new Status(IStatus.ERROR, JavaManipulationPlugin.getPluginId(), cause.getMessage(), cause));
+			}
+		}
+	}
+
+	private static void awaitDone(Future<?> worker) {
+		boolean interrupted= false;
+		try {
+			while (true) {
+				try {
+					worker.get();
+					return;
+				} catch (InterruptedException e) {
+					interrupted= true;
+				} catch (ExecutionException e) {
+					return; // failures of tasks are reported through their futures
+				}
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * The workers of all calls share one executor. It never queues tasks, so that calls from
+	 * within a task cannot wait for each other, and idle threads end after a minute.
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (fgExecutor == null)
+			fgExecutor= Executors.newCachedThreadPool(createThreadFactory());
+		return fgExecutor;
+	}
+
+	private static ThreadFactory createThreadFactory() {
+		return runnable -> {
+			Thread thread= new Thread(runnable, "Refactoring Worker-" + fgThreadCount.incrementAndGet()); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,8 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.util;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -28,6 +30,7 @@ import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.WorkingCopyOwner;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.manipulation.CoreASTProvider;
 
@@ -126,6 +129,34 @@ public class RefactoringASTParser {
 		}
 	}
 
+	/**
+	 * Parses the given compilation units in one batch using {@link ASTParser#createASTs}, so that
+	 * the bindings of all units are resolved in a single environment. The resulting ASTs share
+	 * this environment and must only be used by one thread at a time.
+	 *
+	 * @param units the compilation units, all visible from <code>project</code>
+	 * @param project the project to resolve the bindings in
+	 * @param recovery whether statements and binding recovery should be enabled
+	 * @param pm an {@link IProgressMonitor}, or <code>null</code>
+	 * @return the parsed compilation units, by unit
+	 */
+	public static Map<ICompilationUnit, CompilationUnit> parseBatch(List<ICompilationUnit> units, IJavaProject project, boolean recovery, IProgressMonitor pm) {
+		ASTParser parser= ASTParser.newParser(IASTSharedValues.SHARED_AST_LEVEL);
+		parser.setResolveBindings(true);
+		parser.setStatementsRecovery(recovery);
+		parser.setBindingsRecovery(recovery);
+		parser.setProject(project);
+		parser.setCompilerOptions(getCompilerOptions(project));
+		final Map<ICompilationUnit, CompilationUnit> result= new HashMap<>(units.size() * 2);
+		parser.createASTs(units.toArray(new ICompilationUnit[units.size()]), new String[0], new ASTRequestor() {
+			@Override
+			public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+				result.put(source, ast);
+			}
+		}, pm);
+		return result;
+	}
+
 	public static ICompilationUnit getCompilationUnit(ASTNode node) {
 		ASTNode root= node.getRoot();
 		if (root instanceof CompilationUnit) {
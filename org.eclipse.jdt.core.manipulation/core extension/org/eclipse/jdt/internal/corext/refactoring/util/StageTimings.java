@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.PerformanceStats;
+
+/**
+ * Accumulates the elapsed time per stage of a refactoring, e.g. the time spent searching,
+ * analyzing and rewriting, so that it can be seen where the time of a large refactoring goes.
+ * <p>
+ * Each stage is also reported as a {@link PerformanceStats} event named
+ * <code>&lt;event prefix&gt;&lt;stage&gt;</code>, which can be enabled in the
+ * <code>.options</code> file of the plug-in.
+ * </p>
+ * <p>
+ * Typical use:
+ * </p>
+ * <pre>
+ * long start= timings.start(StageTimings.SEARCH);
+ * ... // search
+ * timings.end(StageTimings.SEARCH, start);
+ * </pre>
+ * <p>
+ * A stage must be started and ended in the same thread.
+ * </p>
+ */
+public final class StageTimings {
+
+	public static final String SEARCH= "search"; //$NON-NLS-1$
+	public static final String ANALYSIS= "analysis"; //$NON-NLS-1$
+	public static final String REWRITE= "rewrite"; //$NON-NLS-1$
+
+	private final String fEventPrefix;
+	private final Object fBlame;
+
+	private final Map<String, Long> fNanos= new LinkedHashMap<>();
+	private final Map<String, PerformanceStats> fStats= new LinkedHashMap<>();
+
+	/**
+	 * Creates new stage timings.
+	 *
+	 * @param eventPrefix the prefix of the performance event names of the stages
+	 * @param blame the object to blame for slow stages
+	 */
+	public StageTimings(String eventPrefix, Object blame) {
+		fEventPrefix= eventPrefix;
+		fBlame= blame;
+	}
+
+	/**
+	 * Starts a run of the given stage.
+	 *
+	 * @param stage the stage
+	 * @return the start time to pass to {@link #end(String, long)}
+	 */
+	public long start(String stage) {
+		getStats(stage).startRun();
+		return System.nanoTime();
+	}
+
+	/**
+	 * Ends a run of the given stage and adds the time elapsed since <code>startNanos</code> to it.
+	 *
+	 * @param stage the stage
+	 * @param startNanos the start time returned by {@link #start(String)}
+	 */
+	public void end(String stage, long startNanos) {
+		long elapsed= System.nanoTime() - startNanos;
+		synchronized (fNanos) {
+			fNanos.merge(stage, Long.valueOf(elapsed), Long::sum);
+		}
+		getStats(stage).endRun();
+	}
+
+	private PerformanceStats getStats(String stage) {
+		synchronized (fStats) {
+			return fStats.computeIfAbsent(stage, s -> PerformanceStats.getStats(fEventPrefix + s, fBlame));
+		}
+	}
+
+	/**
+	 * Returns the time spent in the given stage.
+	 *
+	 * @param stage the stage
+	 * @return the elapsed time in milliseconds, <code>0</code> if the stage has not been run
+	 */
+	public long getMillis(String stage) {
+		synchronized (fNanos) {
+			Long nanos= fNanos.get(stage);
+			return nanos == null ? 0 : TimeUnit.NANOSECONDS.toMillis(nanos.longValue());
+		}
+	}
+
+	/**
+	 * Returns the stages that have been run, in the order they have been run first.
+	 *
+	 * @return the stages
+	 */
+	public String[] getStages() {
+		synchronized (fNanos) {
+			return fNanos.keySet().toArray(new String[fNanos.size()]);
+		}
+	}
+
+	/**
+	 * Resets all stages.
+	 */
+	public void clear() {
+		synchronized (fNanos) {
+			fNanos.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buf= new StringBuilder();
+		for (String stage : getStages()) {
+			if (buf.length() > 0)
+				buf.append(", "); //$NON-NLS-1$
+			buf.append(stage).append(": ").append(getMillis(stage)).append(" ms"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return buf.toString();
+	}
+}
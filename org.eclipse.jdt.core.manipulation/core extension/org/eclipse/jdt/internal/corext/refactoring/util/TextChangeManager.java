@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,27 +14,67 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.util;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.ltk.core.refactoring.TextChange;
 
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
 
+import org.eclipse.jdt.internal.core.manipulation.JavaManipulationPlugin;
+
 
 /**
  * A <code>TextChangeManager</code> manages associations between <code>ICompilationUnit</code>
  * or <code>IFile</code> and <code>TextChange</code> objects.
+ * <p>
+ * The manager is thread safe, so that the changes of different compilation units can be
+ * created concurrently (see {@link ParallelUnitProcessor}). The returned text changes themselves
+ * are not thread safe and must only be modified by one thread at a time.
+ * </p>
+ * <p>
+ * Refactorings that touch very many files can set a {@link #setMemoryBudget(long) memory
+ * budget}. When the estimated size of the managed changes exceeds the budget at a call to
+ * {@link #checkMemoryBudget()}, changes are written to a temporary file and read back when they
+ * are accessed again. Clients must therefore not hold on to a text change across a call to
+ * <code>checkMemoryBudget()</code>, but get it from the manager again.
+ * </p>
+ * <p>
+ * The budget bounds the changes held while a refactoring creates them. {@link #getAllChanges()}
+ * reads all stored changes back, since the resulting change of the refactoring contains them.
+ * Clients that set a budget should {@link #clear()} the manager when they drop it, which deletes
+ * the temporary file right away.
+ * </p>
  */
 public class TextChangeManager {
 
-	private Map<ICompilationUnit, TextChange> fMap= new HashMap<>(10);
+	private Map<ICompilationUnit, TextChange> fMap= new ConcurrentHashMap<>(10);
 
 	private final boolean fKeepExecutedTextEdits;
 
+	private static final String MEMORY_BUDGET_PROPERTY= "org.eclipse.jdt.refactoring.textChangeBudget"; //$NON-NLS-1$
+
+	/**
+	 * Number of changes that have to be added before {@link #checkMemoryBudget()} estimates the
+	 * size of the changes again.
+	 */
+	private static final int CHECK_INTERVAL= 100;
+
+	private long fMemoryBudget;
+
+	private final AtomicInteger fAddedSinceCheck= new AtomicInteger();
+
+	private volatile TextChangeStore fStore;
+
 	public TextChangeManager() {
 		this(false);
 	}
@@ -48,10 +88,121 @@ public class TextChangeManager {
 	 * change to this manager.
 	 *
 	 * @param cu the compilation unit (key)
-	 * @param change the change associated with the compilation unit
+	 * @param change the change associated with the compilation unit, or <code>null</code> to
+	 *            remove the association
 	 */
 	public void manage(ICompilationUnit cu, TextChange change) {
-		fMap.put(cu, change);
+		removeStored(cu);
+		if (change == null)
+			fMap.remove(cu);
+		else if (fMap.put(cu, change) == null)
+			fAddedSinceCheck.incrementAndGet();
+	}
+
+	/**
+	 * Returns the memory budget used by refactorings that may touch very many files: the value
+	 * of the system property <code>org.eclipse.jdt.refactoring.textChangeBudget</code> (in
+	 * megabytes) if set, otherwise a quarter of the maximal heap size.
+	 *
+	 * @return the default memory budget in bytes
+	 */
+	public static long getDefaultMemoryBudget() {
+		Long megabytes= Long.getLong(MEMORY_BUDGET_PROPERTY);
+		if (megabytes != null)
+			return megabytes.longValue() * 1024 * 1024;
+		return Runtime.getRuntime().maxMemory() / 4;
+	}
+
+	/**
+	 * Sets the number of bytes the managed text changes may occupy in memory before
+	 * {@link #checkMemoryBudget()} moves them to a temporary file.
+	 *
+	 * @param budget the budget in bytes, or <code>0</code> to keep all changes in memory (the
+	 *            default)
+	 */
+	public void setMemoryBudget(long budget) {
+		fMemoryBudget= budget;
+	}
+
+	/**
+	 * Moves text changes to a temporary file if their estimated size exceeds the
+	 * {@link #setMemoryBudget(long) memory budget}. Changes that cannot be stored (e.g. changes
+	 * with move or copy edits) stay in memory.
+	 * <p>
+	 * Must only be called when no other thread modifies the changes of this manager, and clients
+	 * must not keep references to text changes obtained before this call.
+	 * </p>
+	 */
+	public void checkMemoryBudget() {
+		if (fMemoryBudget <= 0 || fAddedSinceCheck.get() < CHECK_INTERVAL)
+			return;
+		fAddedSinceCheck.set(0);
+		List<Entry<ICompilationUnit, TextChange>> storable= new ArrayList<>();
+		long size= 0;
+		for (Entry<ICompilationUnit, TextChange> entry : fMap.entrySet()) {
+			TextChange change= entry.getValue();
+			size+= TextChangeStore.estimateSize(change);
+			if (TextChangeStore.isStorable(change))
+				storable.add(entry);
+		}
+		if (size <= fMemoryBudget)
+			return;
+		// free half of the budget, so that the next units don't immediately exceed it again
+		long target= fMemoryBudget / 2;
+		for (Entry<ICompilationUnit, TextChange> entry : storable) {
+			if (size <= target)
+				break;
+			try {
+				getStore().store(entry.getKey(), entry.getValue());
+			} catch (IOException e) {
+				JavaManipulationPlugin.log(e);
+				return;
+			}
+			fMap.remove(entry.getKey());
+			size-= TextChangeStore.estimateSize(entry.getValue());
+		}
+	}
+
+	/**
+	 * Returns the number of text changes that are currently kept in a temporary file.
+	 *
+	 * @return the number of stored changes
+	 */
+	public int getStoredChangeCount() {
+		TextChangeStore store= fStore;
+		return store != null ? store.size() : 0;
+	}
+
+	private synchronized TextChangeStore getStore() {
+		if (fStore == null)
+			fStore= new TextChangeStore();
+		return fStore;
+	}
+
+	private void removeStored(ICompilationUnit cu) {
+		TextChangeStore store= fStore;
+		if (store != null)
+			store.remove(cu);
+	}
+
+	/*
+	 * Reads the change of the given compilation unit back into memory, if it has been stored
+	 */
+	private void restore(ICompilationUnit cu) {
+		TextChangeStore store= fStore;
+		if (store == null)
+			return;
+		synchronized (store) {
+			if (!store.contains(cu))
+				return;
+			try {
+				fMap.put(cu, store.load(cu));
+				fAddedSinceCheck.incrementAndGet();
+			} catch (IOException e) {
+				// the edits of the unit would be lost
+				throw new IllegalStateException("Could not restore the text change of " + cu.getElementName(), e); //$NON-NLS-1$
+			}
+		}
 	}
 
 	/**
@@ -62,13 +213,13 @@ public class TextChangeManager {
 	 * @return the text change associated with the given compilation unit.
 	 */
 	public TextChange get(ICompilationUnit cu) {
-		TextChange result= fMap.get(cu);
-		if (result == null) {
-			result= new CompilationUnitChange(cu.getElementName(), cu);
-			result.setKeepPreviewEdits(fKeepExecutedTextEdits);
-			fMap.put(cu, result);
-		}
-		return result;
+		restore(cu);
+		return fMap.computeIfAbsent(cu, unit -> {
+			fAddedSinceCheck.incrementAndGet();
+			TextChange change= new CompilationUnitChange(unit.getElementName(), unit);
+			change.setKeepPreviewEdits(fKeepExecutedTextEdits);
+			return change;
+		});
 	}
 
 	/**
@@ -79,6 +230,7 @@ public class TextChangeManager {
 	 * @return the removed <tt>TextChange</tt>.
 	 */
 	public TextChange remove(ICompilationUnit unit) {
+		restore(unit);
 		return fMap.remove(unit);
 	}
 
@@ -88,20 +240,32 @@ public class TextChangeManager {
 	 * @return all text changes managed by this instance
 	 */
 	public TextChange[] getAllChanges(){
+		TextChangeStore store= fStore;
+		if (store != null) {
+			for (ICompilationUnit cu : store.getCompilationUnits()) {
+				restore(cu);
+			}
+		}
 		Set<ICompilationUnit> cuSet= fMap.keySet();
 		ICompilationUnit[] cus= cuSet.toArray(new ICompilationUnit[cuSet.size()]);
-		// sort by cu name:
+		// sort by cu name (and handle, to be independent of the order in which the changes got created):
 		Arrays.sort(cus, (o1, o2) -> {
 			String name1= o1.getElementName();
 			String name2= o2.getElementName();
-			return name1.compareTo(name2);
+			int result= name1.compareTo(name2);
+			if (result != 0)
+				return result;
+			return o1.getHandleIdentifier().compareTo(o2.getHandleIdentifier());
 		});
 
 		TextChange[] textChanges= new TextChange[cus.length];
-		for (int i= 0; i < cus.length; i++) {
-			textChanges[i]= fMap.get(cus[i]);
+		int count= 0;
+		for (ICompilationUnit cu : cus) {
+			TextChange change= fMap.get(cu);
+			if (change != null) // removed concurrently
+				textChanges[count++]= change;
 		}
-		return textChanges;
+		return count == cus.length ? textChanges : Arrays.copyOf(textChanges, count);
 	}
 
 	/**
@@ -110,14 +274,23 @@ public class TextChangeManager {
 	 * @return all compilation units managed by this instance
 	 */
 	public ICompilationUnit[] getAllCompilationUnits(){
-		return fMap.keySet().toArray(new ICompilationUnit[fMap.size()]);
+		TextChangeStore store= fStore;
+		if (store == null || store.size() == 0)
+			return fMap.keySet().toArray(new ICompilationUnit[0]);
+		Set<ICompilationUnit> result= new HashSet<>(fMap.keySet());
+		result.addAll(store.getCompilationUnits());
+		return result.toArray(new ICompilationUnit[result.size()]);
 	}
 
 	/**
-	 * Clears all associations between resources and text changes.
+	 * Clears all associations between resources and text changes and deletes the temporary file
+	 * of stored changes, if any.
 	 */
 	public void clear() {
 		fMap.clear();
+		TextChangeStore store= fStore;
+		if (store != null)
+			store.clear();
 	}
 
 	/**
@@ -127,7 +300,10 @@ public class TextChangeManager {
 	 * @return <code>true</code> if any text changes are managed for the specified compilation unit and <code>false</code> otherwise
 	 */
 	public boolean containsChangesIn(ICompilationUnit cu){
-		return fMap.containsKey(cu);
+		if (fMap.containsKey(cu))
+			return true;
+		TextChangeStore store= fStore;
+		return store != null && store.contains(cu);
 	}
 }
 
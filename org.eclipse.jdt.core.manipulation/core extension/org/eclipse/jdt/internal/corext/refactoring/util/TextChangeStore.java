@@ -0,0 +1,459 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.RangeMarker;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.TextEditGroup;
+
+import org.eclipse.ltk.core.refactoring.CategorizedTextEditGroup;
+import org.eclipse.ltk.core.refactoring.GroupCategorySet;
+import org.eclipse.ltk.core.refactoring.TextChange;
+import org.eclipse.ltk.core.refactoring.TextEditBasedChangeGroup;
+import org.eclipse.ltk.core.refactoring.TextEditChangeGroup;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
+
+/**
+ * Temporary file backed store for the text changes of a {@link TextChangeManager} that
+ * runs with a memory budget.
+ * <p>
+ * Only plain {@link CompilationUnitChange}s whose edit trees consist of
+ * {@link MultiTextEdit}s, {@link ReplaceEdit}s, {@link InsertEdit}s, {@link DeleteEdit}s and
+ * {@link RangeMarker}s can be stored; other changes (e.g. with move or copy edits created by an
+ * AST rewrite) have to stay in memory. Group names and group category sets are kept in memory
+ * and referenced by index, since there are only few distinct ones and categories are compared
+ * by identity.
+ * </p>
+ * <p>
+ * The temporary file is deleted when the last change has been read back, when the store is
+ * {@link #clear() cleared}, or at the latest when the store becomes unreachable.
+ * </p>
+ */
+final class TextChangeStore {
+
+	private static final byte MULTI= 0;
+	private static final byte MULTI_DEFINED= 1;
+	private static final byte REPLACE= 2;
+	private static final byte INSERT= 3;
+	private static final byte DELETE= 4;
+	private static final byte RANGE_MARKER= 5;
+
+	private static final byte PLAIN_GROUP= 0;
+	private static final byte CATEGORIZED_GROUP= 1;
+
+	/*
+	 * Rough per object costs used to estimate the retained size of a change
+	 */
+	private static final int CHANGE_OVERHEAD= 400;
+	private static final int EDIT_OVERHEAD= 64;
+	private static final int GROUP_OVERHEAD= 96;
+
+	private static final Cleaner CLEANER= Cleaner.create();
+
+	/*
+	 * The temporary file, kept separate from the store so that it can be closed and deleted
+	 * once the store is unreachable
+	 */
+	private static final class SpillFile implements Runnable {
+		private File fFile;
+		private RandomAccessFile fAccess;
+
+		synchronized RandomAccessFile getAccess() throws IOException {
+			if (fAccess == null) {
+				fFile= File.createTempFile("textchanges", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+				fFile.deleteOnExit();
+				fAccess= new RandomAccessFile(fFile, "rw"); //$NON-NLS-1$
+			}
+			return fAccess;
+		}
+
+		@Override
+		public synchronized void run() {
+			if (fAccess != null) {
+				try {
+					fAccess.close();
+				} catch (IOException e) {
+					// ignore, the file is deleted anyway
+				}
+				fAccess= null;
+			}
+			if (fFile != null) {
+				fFile.delete();
+				fFile= null;
+			}
+		}
+	}
+
+	private static final class Record {
+		final long fOffset;
+		final int fLength;
+
+		Record(long offset, int length) {
+			fOffset= offset;
+			fLength= length;
+		}
+	}
+
+	private final Map<ICompilationUnit, Record> fRecords= new HashMap<>();
+
+	private final List<String> fNames= new ArrayList<>();
+	private final Map<String, Integer> fNameIndices= new HashMap<>();
+	private final List<GroupCategorySet> fCategorySets= new ArrayList<>();
+	private final Map<GroupCategorySet, Integer> fCategorySetIndices= new IdentityHashMap<>();
+
+	private final SpillFile fSpillFile= new SpillFile();
+
+	TextChangeStore() {
+		CLEANER.register(this, fSpillFile);
+	}
+
+	/**
+	 * Returns whether the given change can be written to the store.
+	 *
+	 * @param change the change
+	 * @return <code>true</code> if the change can be stored
+	 */
+	static boolean isStorable(TextChange change) {
+		if (change.getClass() != CompilationUnitChange.class)
+			return false;
+		CompilationUnitChange cuChange= (CompilationUnitChange) change;
+		if (cuChange.getDescriptor() != null || cuChange.getParent() != null)
+			return false;
+		TextEdit root= change.getEdit();
+		if (root == null || !isStorable(root))
+			return false;
+		for (TextEditBasedChangeGroup group : change.getChangeGroups()) {
+			Class<?> groupClass= group.getTextEditGroup().getClass();
+			if (group.getClass() != TextEditChangeGroup.class || groupClass != TextEditGroup.class && groupClass != CategorizedTextEditGroup.class)
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isStorable(TextEdit edit) {
+		Class<? extends TextEdit> editClass= edit.getClass();
+		if (editClass != MultiTextEdit.class && editClass != ReplaceEdit.class && editClass != InsertEdit.class && editClass != DeleteEdit.class && editClass != RangeMarker.class)
+			return false;
+		for (TextEdit child : edit.getChildren()) {
+			if (!isStorable(child))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Estimates the number of bytes retained by the given change.
+	 *
+	 * @param change the change
+	 * @return the estimated size in bytes
+	 */
+	static long estimateSize(TextChange change) {
+		long size= CHANGE_OVERHEAD + (long) GROUP_OVERHEAD * change.getChangeGroups().length;
+		TextEdit root= change.getEdit();
+		if (root != null)
+			size+= estimateSize(root);
+		return size;
+	}
+
+	private static long estimateSize(TextEdit edit) {
+		long size= EDIT_OVERHEAD;
+		if (edit instanceof ReplaceEdit)
+			size+= 2L * ((ReplaceEdit) edit).getText().length();
+		else if (edit instanceof InsertEdit)
+			size+= 2L * ((InsertEdit) edit).getText().length();
+		for (TextEdit child : edit.getChildren()) {
+			size+= estimateSize(child);
+		}
+		return size;
+	}
+
+	/**
+	 * Writes the given change to the store. The change must be {@link #isStorable(TextChange)
+	 * storable}.
+	 *
+	 * @param cu the compilation unit of the change
+	 * @param change the change to store
+	 * @throws IOException if writing failed
+	 */
+	synchronized void store(ICompilationUnit cu, TextChange change) throws IOException {
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		try (DataOutputStream out= new DataOutputStream(bytes)) {
+			write(out, (CompilationUnitChange) change);
+		}
+		RandomAccessFile access= fSpillFile.getAccess();
+		long offset= access.length();
+		access.seek(offset);
+		access.write(bytes.toByteArray());
+		fRecords.put(cu, new Record(offset, bytes.size()));
+	}
+
+	/**
+	 * Reads and removes the change of the given compilation unit from the store.
+	 *
+	 * @param cu the compilation unit
+	 * @return the restored change, or <code>null</code> if no change is stored for the unit
+	 * @throws IOException if reading failed
+	 */
+	synchronized TextChange load(ICompilationUnit cu) throws IOException {
+		Record record= fRecords.remove(cu);
+		if (record == null)
+			return null;
+		byte[] bytes= new byte[record.fLength];
+		RandomAccessFile access= fSpillFile.getAccess();
+		access.seek(record.fOffset);
+		access.readFully(bytes);
+		if (fRecords.isEmpty())
+			fSpillFile.run();
+		try (DataInputStream in= new DataInputStream(new ByteArrayInputStream(bytes))) {
+			return read(in, cu);
+		}
+	}
+
+	synchronized boolean contains(ICompilationUnit cu) {
+		return fRecords.containsKey(cu);
+	}
+
+	synchronized boolean remove(ICompilationUnit cu) {
+		if (fRecords.remove(cu) == null)
+			return false;
+		if (fRecords.isEmpty())
+			fSpillFile.run();
+		return true;
+	}
+
+	synchronized List<ICompilationUnit> getCompilationUnits() {
+		return new ArrayList<>(fRecords.keySet());
+	}
+
+	synchronized int size() {
+		return fRecords.size();
+	}
+
+	/**
+	 * Removes all changes and deletes the temporary file.
+	 */
+	synchronized void clear() {
+		fRecords.clear();
+		fSpillFile.run();
+	}
+
+	//---- serialization --------------------------------------------------------
+
+	private void write(DataOutputStream out, CompilationUnitChange change) throws IOException {
+		writeString(out, change.getName());
+		out.writeBoolean(change.isEnabled());
+		out.writeBoolean(change.getKeepPreviewEdits());
+		out.writeInt(change.getSaveMode());
+		writeString(out, change.getTextType());
+
+		Map<TextEdit, Integer> indices= new IdentityHashMap<>();
+		writeEdit(out, change.getEdit(), indices);
+
+		TextEditBasedChangeGroup[] groups= change.getChangeGroups();
+		out.writeInt(groups.length);
+		for (TextEditBasedChangeGroup group : groups) {
+			TextEditGroup editGroup= group.getTextEditGroup();
+			out.writeInt(getNameIndex(editGroup.getName()));
+			out.writeBoolean(group.isEnabled());
+			if (editGroup instanceof CategorizedTextEditGroup) {
+				out.writeByte(CATEGORIZED_GROUP);
+				out.writeInt(getCategorySetIndex(((CategorizedTextEditGroup) editGroup).getGroupCategorySet()));
+			} else {
+				out.writeByte(PLAIN_GROUP);
+			}
+			TextEdit[] edits= editGroup.getTextEdits();
+			out.writeInt(edits.length);
+			for (TextEdit edit : edits) {
+				Integer index= indices.get(edit);
+				if (index == null)
+					throw new IOException("Edit of group '" + editGroup.getName() + "' is not part of the edit tree"); //$NON-NLS-1$ //$NON-NLS-2$
+				out.writeInt(index.intValue());
+			}
+		}
+	}
+
+	private TextChange read(DataInputStream in, ICompilationUnit cu) throws IOException {
+		CompilationUnitChange change= new CompilationUnitChange(readString(in), cu);
+		change.setEnabled(in.readBoolean());
+		change.setKeepPreviewEdits(in.readBoolean());
+		change.setSaveMode(in.readInt());
+		change.setTextType(readString(in));
+
+		List<TextEdit> edits= new ArrayList<>();
+		change.setEdit(readEdit(in, edits));
+
+		int groupCount= in.readInt();
+		for (int i= 0; i < groupCount; i++) {
+			String name= fNames.get(in.readInt());
+			boolean enabled= in.readBoolean();
+			GroupCategorySet categories= in.readByte() == CATEGORIZED_GROUP ? fCategorySets.get(in.readInt()) : null;
+			TextEdit[] groupEdits= new TextEdit[in.readInt()];
+			for (int k= 0; k < groupEdits.length; k++) {
+				groupEdits[k]= edits.get(in.readInt());
+			}
+			TextEditGroup editGroup= categories != null ? new CategorizedTextEditGroup(name, groupEdits, categories) : new TextEditGroup(name, groupEdits);
+			TextEditChangeGroup group= new TextEditChangeGroup(change, editGroup);
+			group.setEnabled(enabled);
+			change.addTextEditChangeGroup(group);
+		}
+		return change;
+	}
+
+	/*
+	 * Edits are written in pre-order, their index in this order is used to reference them from groups
+	 */
+	private static void writeEdit(DataOutputStream out, TextEdit edit, Map<TextEdit, Integer> indices) throws IOException {
+		indices.put(edit, Integer.valueOf(indices.size()));
+		if (edit instanceof MultiTextEdit) {
+			if (isUndefined((MultiTextEdit) edit)) {
+				out.writeByte(MULTI);
+			} else {
+				out.writeByte(MULTI_DEFINED);
+				out.writeInt(edit.getOffset());
+				out.writeInt(edit.getLength());
+			}
+		} else if (edit instanceof ReplaceEdit) {
+			out.writeByte(REPLACE);
+			out.writeInt(edit.getOffset());
+			out.writeInt(edit.getLength());
+			writeString(out, ((ReplaceEdit) edit).getText());
+		} else if (edit instanceof InsertEdit) {
+			out.writeByte(INSERT);
+			out.writeInt(edit.getOffset());
+			writeString(out, ((InsertEdit) edit).getText());
+		} else if (edit instanceof DeleteEdit) {
+			out.writeByte(DELETE);
+			out.writeInt(edit.getOffset());
+			out.writeInt(edit.getLength());
+		} else {
+			out.writeByte(RANGE_MARKER);
+			out.writeInt(edit.getOffset());
+			out.writeInt(edit.getLength());
+		}
+		TextEdit[] children= edit.getChildren();
+		out.writeInt(children.length);
+		for (TextEdit child : children) {
+			writeEdit(out, child, indices);
+		}
+	}
+
+	private static TextEdit readEdit(DataInputStream in, List<TextEdit> edits) throws IOException {
+		TextEdit edit;
+		byte kind= in.readByte();
+		switch (kind) {
+			case MULTI:
+				edit= new MultiTextEdit();
+				break;
+			case MULTI_DEFINED:
+				edit= new MultiTextEdit(in.readInt(), in.readInt());
+				break;
+			case REPLACE:
+				edit= new ReplaceEdit(in.readInt(), in.readInt(), readString(in));
+				break;
+			case INSERT:
+				edit= new InsertEdit(in.readInt(), readString(in));
+				break;
+			case DELETE:
+				edit= new DeleteEdit(in.readInt(), in.readInt());
+				break;
+			case RANGE_MARKER:
+				edit= new RangeMarker(in.readInt(), in.readInt());
+				break;
+			default:
+				throw new IOException("Unknown edit kind " + kind); //$NON-NLS-1$
+		}
+		edits.add(edit);
+		int childCount= in.readInt();
+		for (int i= 0; i < childCount; i++) {
+			edit.addChild(readEdit(in, edits));
+		}
+		return edit;
+	}
+
+	/*
+	 * A multi text edit without a region of its own covers exactly its children (or
+	 * [0, 0] if it has none). A defined edit with the same region behaves the same way.
+	 */
+	private static boolean isUndefined(MultiTextEdit edit) {
+		if (!edit.hasChildren())
+			return edit.getOffset() == 0 && edit.getLength() == 0;
+		TextEdit[] children= edit.getChildren();
+		int start= children[0].getOffset();
+		int end= children[children.length - 1].getExclusiveEnd();
+		return edit.getOffset() == start && edit.getExclusiveEnd() == end;
+	}
+
+	private int getNameIndex(String name) {
+		Integer index= fNameIndices.get(name);
+		if (index == null) {
+			index= Integer.valueOf(fNames.size());
+			fNames.add(name);
+			fNameIndices.put(name, index);
+		}
+		return index.intValue();
+	}
+
+	private int getCategorySetIndex(GroupCategorySet categories) {
+		Integer index= fCategorySetIndices.get(categories);
+		if (index == null) {
+			index= Integer.valueOf(fCategorySets.size());
+			fCategorySets.add(categories);
+			fCategorySetIndices.put(categories, index);
+		}
+		return index.intValue();
+	}
+
+	/*
+	 * Strings are written as UTF-16 chars, so that text with unpaired surrogates is restored unchanged
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(value.length());
+		out.writeChars(value);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length= in.readInt();
+		if (length < 0)
+			return null;
+		char[] chars= new char[length];
+		for (int i= 0; i < length; i++) {
+			chars[i]= in.readChar();
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExternalResource;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCaseCommon;
+
+import org.eclipse.jdt.internal.corext.refactoring.code.ExtractMethodRefactoring;
+
+/**
+ * Measures the flow analysis of Extract Method on a huge generated method with hundreds of
+ * locals.
+ */
+public class ExtractMethodPerfTests extends JdtPerformanceTestCaseCommon {
+
+	private static final int LOCALS= 300;
+	private static final int STATEMENTS= 3000;
+
+	private static class MyTestSetup extends ExternalResource {
+		public static final String SRC_CONTAINER= "src";
+
+		public static IJavaProject fJProject1;
+		public static ICompilationUnit fUnit;
+		public static int fSelectionStart;
+		public static int fSelectionLength;
+
+		@Override
+		public void before() throws Throwable {
+			fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+			assertNotNull("rt not found", JavaProjectHelper.addRTJar(fJProject1));
+			IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, SRC_CONTAINER);
+			IPackageFragment pack= root.createPackageFragment("generated", true, null);
+
+			StringBuilder buf= new StringBuilder();
+			buf.append("package generated;\n");
+			buf.append("public class Huge {\n");
+			buf.append("    public int compute() {\n");
+			for (int i= 0; i < LOCALS; i++) {
+				buf.append("        int v").append(i).append("= ").append(i).append(";\n");
+			}
+			fSelectionStart= buf.length();
+			for (int i= 0; i < STATEMENTS; i++) {
+				// v0 is only read after the selection, so the extracted method has no return value
+				int a= 1 + i % (LOCALS - 1);
+				int b= 1 + (i * 7) % (LOCALS - 1);
+				int c= 1 + (i * 13) % (LOCALS - 1);
+				switch (i % 3) {
+					case 0:
+						buf.append("        if (v").append(a).append(" > v").append(b).append(") { v").append(c).append("= v").append(a).append(" + 1; } else { v").append(b).append("= v").append(c).append("; }\n");
+						break;
+					case 1:
+						buf.append("        while (v").append(a).append(" < 10) { v").append(a).append("++; }\n");
+						break;
+					default:
+						buf.append("        v").append(a).append("= v").append(b).append(" + v").append(c).append(";\n");
+						break;
+				}
+			}
+			fSelectionLength= buf.length() - fSelectionStart;
+			buf.append("        return v0;\n");
+			buf.append("    }\n");
+			buf.append("}\n");
+			fUnit= pack.createCompilationUnit("Huge.java", buf.toString(), true, null);
+		}
+
+		@Override
+		public void after() {
+			try {
+				if (fJProject1 != null && fJProject1.exists())
+					JavaProjectHelper.delete(fJProject1);
+			} catch (CoreException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Rule
+	public MyTestSetup stup= new MyTestSetup();
+
+	@Test
+	public void testExtractFromHugeMethod() throws Exception {
+		tagAsSummary("Extract Method flow analysis on huge method", Dimension.ELAPSED_PROCESS);
+
+		for (int i= 0; i < 10; i++) {
+			ExtractMethodRefactoring refactoring= new ExtractMethodRefactoring(MyTestSetup.fUnit, MyTestSetup.fSelectionStart, MyTestSetup.fSelectionLength);
+
+			joinBackgroudActivities();
+			startMeasuring();
+			RefactoringStatus status= refactoring.checkInitialConditions(new NullProgressMonitor());
+			stopMeasuring();
+
+			assertFalse(status.toString(), status.hasFatalError());
+		}
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+}
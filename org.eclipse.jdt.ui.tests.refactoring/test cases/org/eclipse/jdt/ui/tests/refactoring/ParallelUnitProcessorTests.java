@@ -0,0 +1,343 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
+import org.eclipse.ltk.core.refactoring.Refactoring;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.RefactoringStatusEntry;
+import org.eclipse.ltk.core.refactoring.TextChange;
+import org.eclipse.ltk.core.refactoring.participants.ProcessorBasedRefactoring;
+import org.eclipse.ltk.core.refactoring.participants.RenameRefactoring;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IField;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.dom.AST;
+
+import org.eclipse.jdt.internal.corext.refactoring.ParameterInfo;
+import org.eclipse.jdt.internal.corext.refactoring.code.InlineConstantRefactoring;
+import org.eclipse.jdt.internal.corext.refactoring.code.InlineMethodRefactoring;
+import org.eclipse.jdt.internal.corext.refactoring.rename.RenameTypeProcessor;
+import org.eclipse.jdt.internal.corext.refactoring.structure.ChangeSignatureProcessor;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
+import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
+import org.eclipse.jdt.internal.corext.refactoring.util.StageTimings;
+
+import org.eclipse.jdt.ui.tests.refactoring.rules.RefactoringTestSetup;
+
+/**
+ * Tests {@link ParallelUnitProcessor} and compares refactorings processed serially and in
+ * parallel.
+ */
+public class ParallelUnitProcessorTests extends GenericRefactoringTest {
+
+	private static final String PARALLELISM_PROPERTY= "org.eclipse.jdt.refactoring.parallelism";
+
+	private static final int UNIT_COUNT= 4 * ParallelUnitProcessor.MIN_PARALLEL_UNITS;
+
+	public ParallelUnitProcessorTests() {
+		rts= new RefactoringTestSetup();
+	}
+
+	private static List<Integer> createUnits() {
+		List<Integer> units= new ArrayList<>();
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			units.add(Integer.valueOf(i));
+		}
+		return units;
+	}
+
+	@Test
+	public void testOrder() throws Exception {
+		Set<Thread> threads= ConcurrentHashMap.newKeySet();
+		List<String> results= ParallelUnitProcessor.process(createUnits(), unit -> {
+			threads.add(Thread.currentThread());
+			// let later units finish first
+			sleep(UNIT_COUNT - unit.intValue());
+			return "unit" + unit;
+		}, 4, new NullProgressMonitor());
+
+		assertEquals(UNIT_COUNT, results.size());
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			assertEquals("unit" + i, results.get(i));
+		}
+		assertTrue(threads.size() <= 4);
+		assertFalse(threads.contains(Thread.currentThread()));
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void testSerialAndParallel() throws Exception {
+		List<Integer> serial= ParallelUnitProcessor.process(createUnits(), unit -> Integer.valueOf(unit.intValue() * unit.intValue()), 1, new NullProgressMonitor());
+		List<Integer> parallel= ParallelUnitProcessor.process(createUnits(), unit -> Integer.valueOf(unit.intValue() * unit.intValue()), 4, new NullProgressMonitor());
+		assertEquals(serial, parallel);
+	}
+
+	@Test
+	public void testCoreException() throws Exception {
+		CoreException failure= new CoreException(new Status(IStatus.ERROR, "org.eclipse.jdt.ui.tests.refactoring", "failed"));
+		AtomicInteger processed= new AtomicInteger();
+		try {
+			ParallelUnitProcessor.process(createUnits(), unit -> {
+				if (unit.intValue() == 3)
+					throw failure;
+				processed.incrementAndGet();
+				return unit;
+			}, 4, new NullProgressMonitor());
+			fail();
+		} catch (CoreException e) {
+			assertSame(failure, e);
+		}
+		assertTrue(processed.get() < UNIT_COUNT);
+	}
+
+	@Test
+	public void testRuntimeException() throws Exception {
+		try {
+			ParallelUnitProcessor.process(createUnits(), unit -> {
+				if (unit.intValue() == UNIT_COUNT - 1)
+					throw new IllegalStateException("failed");
+				return unit;
+			}, 4, new NullProgressMonitor());
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("failed", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		NullProgressMonitor monitor= new NullProgressMonitor();
+		AtomicInteger processed= new AtomicInteger();
+		try {
+			ParallelUnitProcessor.process(createUnits(), unit -> {
+				if (processed.incrementAndGet() == 2)
+					monitor.setCanceled(true);
+				return unit;
+			}, 2, monitor);
+			fail();
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		assertTrue(processed.get() < UNIT_COUNT);
+	}
+
+	@Test
+	public void testNested() throws Exception {
+		List<Integer> results= ParallelUnitProcessor.process(createUnits(), unit -> {
+			List<Integer> inner= ParallelUnitProcessor.process(createUnits(), value -> value, 2, null);
+			return Integer.valueOf(unit.intValue() + inner.size());
+		}, 4, new NullProgressMonitor());
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			assertEquals(i + UNIT_COUNT, results.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		assertEquals(Collections.emptyList(), ParallelUnitProcessor.process(Collections.<Integer> emptyList(), unit -> unit, 4, null));
+	}
+
+	@Test
+	public void testRenameTypeSerialAndParallel() throws Exception {
+		IType type= createCU(getPackageP(), "A.java", "package p;\npublic class A {\n}\n").getType("A");
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			createCU(getPackageP(), "Ref" + i + ".java", "package p;\npublic class Ref" + i + " {\n\tA a= new A();\n\tA get(A other) {\n\t\treturn other;\n\t}\n}\n");
+		}
+
+		Map<String, String> serial= createRenameTypePreview(type, 1);
+		Map<String, String> parallel= createRenameTypePreview(type, 4);
+		assertEquals(UNIT_COUNT + 1, serial.size());
+		assertEquals(serial, parallel);
+	}
+
+	private static Map<String, String> createRenameTypePreview(IType type, int parallelism) throws Exception {
+		RenameTypeProcessor processor= new RenameTypeProcessor(type);
+		processor.setNewElementName("B");
+		processor.setUpdateReferences(true);
+		RefactoringStatus status= new RefactoringStatus();
+		Map<String, String> previews= createPreview(new RenameRefactoring(processor), parallelism, status);
+		assertFalse(status.toString(), status.hasError());
+		return previews;
+	}
+
+	@Test
+	public void testChangeSignatureSerialAndParallel() throws Exception {
+		IMethod method= createCU(getPackageP(), "A.java", "package p;\npublic class A {\n\tpublic void m(int a) {\n\t}\n}\n").getType("A").getMethod("m", new String[] { "I" });
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			if (i % 2 == 0) {
+				createCU(getPackageP(), "Ref" + i + ".java", "package p;\npublic class Ref" + i + " {\n\tvoid f(A a) {\n\t\ta.m(" + i + ");\n\t}\n}\n");
+			} else {
+				// the removed parameter is used, which is reported for each overriding method
+				createCU(getPackageP(), "Ref" + i + ".java", "package p;\npublic class Ref" + i + " extends A {\n\tpublic void m(int a) {\n\t\tSystem.out.println(a);\n\t}\n}\n");
+			}
+		}
+
+		RefactoringStatus serialStatus= new RefactoringStatus();
+		Map<String, String> serial= createChangeSignaturePreview(method, 1, serialStatus);
+		RefactoringStatus parallelStatus= new RefactoringStatus();
+		Map<String, String> parallel= createChangeSignaturePreview(method, 4, parallelStatus);
+		assertEquals(UNIT_COUNT + 1, serial.size());
+		assertEquals(serial, parallel);
+		assertTrue(serialStatus.toString(), serialStatus.getEntries().length >= UNIT_COUNT / 2);
+		assertEquals(getMessages(serialStatus), getMessages(parallelStatus));
+	}
+
+	private static Map<String, String> createChangeSignaturePreview(IMethod method, int parallelism, RefactoringStatus status) throws Exception {
+		ChangeSignatureProcessor processor= new ChangeSignatureProcessor(method);
+		processor.setNewMethodName("n");
+		processor.getParameterInfos().get(0).markAsDeleted();
+		processor.getParameterInfos().add(ParameterInfo.createInfoForAddedParameter("String", "s", "\"s\""));
+		return createPreview(new ProcessorBasedRefactoring(processor), parallelism, status);
+	}
+
+	@Test
+	public void testChangeSignatureStageTimings() throws Exception {
+		IMethod method= createCU(getPackageP(), "A.java", "package p;\npublic class A {\n\tpublic void m(int a) {\n\t}\n}\n").getType("A").getMethod("m", new String[] { "I" });
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			createCU(getPackageP(), "Ref" + i + ".java", "package p;\npublic class Ref" + i + " {\n\tvoid f(A a) {\n\t\ta.m(" + i + ");\n\t}\n}\n");
+		}
+
+		ChangeSignatureProcessor processor= new ChangeSignatureProcessor(method);
+		processor.setNewMethodName("n");
+		RefactoringStatus status= new ProcessorBasedRefactoring(processor).checkAllConditions(new NullProgressMonitor());
+		assertFalse(status.toString(), status.hasError());
+		StageTimings timings= processor.getStageTimings();
+		assertArrayEquals(timings.toString(), new String[] { StageTimings.SEARCH, StageTimings.ANALYSIS, StageTimings.REWRITE }, timings.getStages());
+	}
+
+	@Test
+	public void testInlineMethodSerialAndBatched() throws Exception {
+		ICompilationUnit unit= createCU(getPackageP(), "A.java", "package p;\npublic class A {\n\tpublic static int m(int a) {\n\t\tint b= a + 1;\n\t\treturn b * 2;\n\t}\n}\n");
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			if (i == UNIT_COUNT / 2) {
+				// only simple functions can be inlined into an argument, no more calls are inlined afterwards
+				createCU(getPackageP(), "Ref" + i + ".java", "package p;\npublic class Ref" + i + " {\n\tvoid f(int i) {\n\t\tSystem.out.println(A.m(i));\n\t}\n}\n");
+			} else {
+				createCU(getPackageP(), "Ref" + i + ".java", "package p;\npublic class Ref" + i + " {\n\tint f(int i) {\n\t\tint x= A.m(i);\n\t\treturn x;\n\t}\n}\n");
+			}
+		}
+
+		RefactoringStatus serialStatus= new RefactoringStatus();
+		Map<String, String> serial= createInlineMethodPreview(unit, 1, serialStatus);
+		RefactoringStatus batchedStatus= new RefactoringStatus();
+		Map<String, String> batched= createInlineMethodPreview(unit, 4, batchedStatus);
+		assertTrue(serialStatus.toString(), serialStatus.hasError());
+		assertTrue(serial.toString(), serial.size() < UNIT_COUNT);
+		assertEquals(serial, batched);
+		assertEquals(getMessages(serialStatus), getMessages(batchedStatus));
+	}
+
+	private static Map<String, String> createInlineMethodPreview(ICompilationUnit unit, int parallelism, RefactoringStatus status) throws Exception {
+		IMethod method= unit.getType("A").getMethod("m", new String[] { "I" });
+		InlineMethodRefactoring refactoring= InlineMethodRefactoring.create(unit, new RefactoringASTParser(AST.getJLSLatest()).parse(unit, true), method.getNameRange().getOffset(), method.getNameRange().getLength());
+		refactoring.setCurrentMode(InlineMethodRefactoring.Mode.INLINE_ALL);
+		refactoring.setDeleteSource(true);
+		return createPreview(refactoring, parallelism, status);
+	}
+
+	@Test
+	public void testInlineConstantSerialAndBatched() throws Exception {
+		ICompilationUnit unit= createCU(getPackageP(), "A.java", "package p;\npublic class A {\n\tpublic static final int C= 1 + 2;\n}\n");
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			createCU(getPackageP(), "Ref" + i + ".java", "package p;\npublic class Ref" + i + " {\n\tint f() {\n\t\treturn A.C * " + i + ";\n\t}\n}\n");
+		}
+
+		RefactoringStatus serialStatus= new RefactoringStatus();
+		Map<String, String> serial= createInlineConstantPreview(unit, 1, serialStatus);
+		RefactoringStatus batchedStatus= new RefactoringStatus();
+		Map<String, String> batched= createInlineConstantPreview(unit, 4, batchedStatus);
+		assertEquals(UNIT_COUNT + 1, serial.size());
+		assertEquals(serial, batched);
+		assertEquals(getMessages(serialStatus), getMessages(batchedStatus));
+	}
+
+	private static Map<String, String> createInlineConstantPreview(ICompilationUnit unit, int parallelism, RefactoringStatus status) throws Exception {
+		IField field= unit.getType("A").getField("C");
+		InlineConstantRefactoring refactoring= new InlineConstantRefactoring(unit, new RefactoringASTParser(AST.getJLSLatest()).parse(unit, true), field.getNameRange().getOffset(), field.getNameRange().getLength());
+		refactoring.setReplaceAllReferences(true);
+		refactoring.setRemoveDeclaration(true);
+		return createPreview(refactoring, parallelism, status);
+	}
+
+	private static List<String> getMessages(RefactoringStatus status) {
+		List<String> messages= new ArrayList<>();
+		for (RefactoringStatusEntry entry : status.getEntries()) {
+			messages.add(entry.getSeverity() + " " + entry.getMessage());
+		}
+		return messages;
+	}
+
+	private static Map<String, String> createPreview(Refactoring refactoring, int parallelism, RefactoringStatus status) throws Exception {
+		String previous= System.getProperty(PARALLELISM_PROPERTY);
+		System.setProperty(PARALLELISM_PROPERTY, String.valueOf(parallelism));
+		try {
+			status.merge(refactoring.checkAllConditions(new NullProgressMonitor()));
+			assertFalse(status.toString(), status.hasFatalError());
+			Change change= refactoring.createChange(new NullProgressMonitor());
+			Map<String, String> previews= new TreeMap<>();
+			collectPreviews(change, previews);
+			return previews;
+		} finally {
+			if (previous != null)
+				System.setProperty(PARALLELISM_PROPERTY, previous);
+			else
+				System.clearProperty(PARALLELISM_PROPERTY);
+		}
+	}
+
+	private static void collectPreviews(Change change, Map<String, String> previews) throws CoreException {
+		if (change instanceof CompositeChange) {
+			for (Change child : ((CompositeChange) change).getChildren()) {
+				collectPreviews(child, previews);
+			}
+		} else if (change instanceof TextChange) {
+			previews.put(change.getName(), ((TextChange) change).getPreviewContent(new NullProgressMonitor()));
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+
+import org.eclipse.jdt.internal.corext.refactoring.ProjectDependencyGraph;
+import org.eclipse.jdt.internal.corext.refactoring.RefactoringScopeFactory;
+
+public class RefactoringScopeFactoryTests {
+
+	private IJavaProject fProjectA;
+	private IJavaProject fProjectB;
+	private IJavaProject fProjectC;
+	private IPackageFragmentRoot fRootB;
+	private IPackageFragmentRoot fRootC;
+	private IType fType;
+
+	@Before
+	public void setUp() throws Exception {
+		fProjectA= JavaProjectHelper.createJavaProject("A", "bin");
+		fProjectB= JavaProjectHelper.createJavaProject("B", "bin");
+		fProjectC= JavaProjectHelper.createJavaProject("C", "bin");
+		IPackageFragmentRoot rootA= JavaProjectHelper.addSourceContainer(fProjectA, "src");
+		fRootB= JavaProjectHelper.addSourceContainer(fProjectB, "src");
+		fRootC= JavaProjectHelper.addSourceContainer(fProjectC, "src");
+		JavaProjectHelper.addRequiredProject(fProjectB, fProjectA);
+		JavaProjectHelper.addRequiredProject(fProjectC, fProjectB);
+		fType= rootA.createPackageFragment("p", true, null).createCompilationUnit("A.java", "package p;\npublic class A {}\n", true, null).getType("A");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		JavaProjectHelper.delete(fProjectC);
+		JavaProjectHelper.delete(fProjectB);
+		JavaProjectHelper.delete(fProjectA);
+	}
+
+	@Test
+	public void testReferencingProjects() throws Exception {
+		IJavaSearchScope scope= RefactoringScopeFactory.create(fType);
+		assertTrue(scope.encloses(fRootB));
+		assertFalse(scope.encloses(fRootC));
+
+		ProjectDependencyGraph graph= ProjectDependencyGraph.getDefault();
+		int hits= graph.getHitCount();
+		Set<IJavaProject> projects= graph.getReferencingProjects(fProjectA);
+		assertEquals(hits + 1, graph.getHitCount());
+		assertEquals(2, projects.size());
+		assertTrue(projects.contains(fProjectA));
+		assertTrue(projects.contains(fProjectB));
+	}
+
+	@Test
+	public void testClasspathChange() throws Exception {
+		ProjectDependencyGraph graph= ProjectDependencyGraph.getDefault();
+		assertFalse(graph.getReferencingProjects(fProjectA).contains(fProjectC));
+
+		// B re-exports A, so C can reference A as well
+		JavaProjectHelper.removeFromClasspath(fProjectB, fProjectA.getPath());
+		JavaProjectHelper.addToClasspath(fProjectB, JavaCore.newProjectEntry(fProjectA.getPath(), true));
+
+		int misses= graph.getMissCount();
+		assertTrue(graph.getReferencingProjects(fProjectA).contains(fProjectC));
+		assertEquals(misses + 1, graph.getMissCount());
+		assertTrue(RefactoringScopeFactory.create(fType).encloses(fRootC));
+
+		Set<IJavaProject> related= graph.getRelatedProjects(fProjectC);
+		assertTrue(related.contains(fProjectB));
+		assertFalse(related.contains(fProjectA)); // C does not re-export B
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2020 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,6 +19,8 @@ import static org.junit.Assert.assertTrue;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Rule;
@@ -30,7 +32,9 @@ import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IType;
 
+import org.eclipse.jdt.internal.corext.refactoring.rename.RippleHierarchyCache;
 import org.eclipse.jdt.internal.corext.refactoring.rename.RippleMethodFinder2;
 
 import org.eclipse.jdt.ui.tests.refactoring.infra.AbstractJunit4CUTestCase;
@@ -136,4 +140,33 @@ public class RippleMethodFinderTests extends AbstractJunit4CUTestCase {
 		perform();
 	}
 
+	@Test
+	public void testSharedCache() throws Exception {
+		ICompilationUnit cu= createCU(rts.getPackageP(), "A_testSharedCache.java",
+				"package p;\n" +
+				"class A { void m() {} }\n" +
+				"class B extends A { void m() {} }\n");
+		IType typeA= cu.getType("A");
+		IMethod target= typeA.getMethod("m", new String[0]);
+
+		RippleHierarchyCache cache= RippleHierarchyCache.getDefault();
+		cache.clear();
+		IMethod[] first= RippleMethodFinder2.getRelatedMethods(target, new NullProgressMonitor(), null, cache);
+		assertEquals(2, first.length);
+
+		// a later refactoring reuses the ripple methods
+		int hits= cache.getHitCount();
+		IMethod[] second= RippleMethodFinder2.getRelatedMethods(target, new NullProgressMonitor(), null, cache);
+		assertEquals(hits + 1, cache.getHitCount());
+		assertEquals(new HashSet<>(Arrays.asList(first)), new HashSet<>(Arrays.asList(second)));
+
+		// a new overriding method flushes the cache
+		cu.createType("class C extends A { void m() {} }", null, true, null);
+		int misses= cache.getMissCount();
+		IMethod[] third= RippleMethodFinder2.getRelatedMethods(target, new NullProgressMonitor(), null, cache);
+		assertTrue(cache.getMissCount() > misses);
+		assertEquals(3, third.length);
+		assertTrue(Arrays.asList(third).contains(cu.getType("C").getMethod("m", new String[0])));
+	}
+
 }
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import org.eclipse.text.edits.CopySourceEdit;
+import org.eclipse.text.edits.CopyTargetEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+
+import org.eclipse.ltk.core.refactoring.GroupCategory;
+import org.eclipse.ltk.core.refactoring.GroupCategorySet;
+import org.eclipse.ltk.core.refactoring.TextChange;
+import org.eclipse.ltk.core.refactoring.TextEditBasedChangeGroup;
+
+import org.eclipse.jdt.core.ICompilationUnit;
+
+import org.eclipse.jdt.internal.corext.refactoring.changes.TextChangeCompatibility;
+import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
+
+import org.eclipse.jdt.ui.tests.refactoring.rules.RefactoringTestSetup;
+
+/**
+ * Tests the memory bounded mode of {@link TextChangeManager}.
+ */
+public class TextChangeManagerTest extends GenericRefactoringTest {
+
+	private static final int UNIT_COUNT= 150;
+
+	private static final GroupCategorySet CATEGORY= new GroupCategorySet(new GroupCategory("test.category", "Category", "Description"));
+
+	public TextChangeManagerTest() {
+		rts= new RefactoringTestSetup();
+	}
+
+	private ICompilationUnit getUnit(int i) {
+		return getPackageP().getCompilationUnit("A" + i + ".java");
+	}
+
+	@Test
+	public void testStoreAndRestore() throws Exception {
+		TextChangeManager manager= new TextChangeManager();
+		manager.setMemoryBudget(1);
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			TextChange change= manager.get(getUnit(i));
+			TextChangeCompatibility.addTextEdit(change, "update", new ReplaceEdit(10, 3, "name" + i));
+			TextChangeCompatibility.addTextEdit(change, "categorized", new ReplaceEdit(20, 3, "other"), CATEGORY);
+			change.getChangeGroups()[1].setEnabled(false);
+		}
+		manager.checkMemoryBudget();
+		assertTrue(manager.getStoredChangeCount() > 0);
+		assertEquals(UNIT_COUNT, manager.getAllCompilationUnits().length);
+
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			ICompilationUnit unit= getUnit(i);
+			assertTrue(manager.containsChangesIn(unit));
+			TextChange change= manager.get(unit);
+
+			TextEdit[] edits= change.getEdit().getChildren();
+			assertEquals(2, edits.length);
+			ReplaceEdit edit= (ReplaceEdit) edits[0];
+			assertEquals(10, edit.getOffset());
+			assertEquals(3, edit.getLength());
+			assertEquals("name" + i, edit.getText());
+
+			TextEditBasedChangeGroup[] groups= change.getChangeGroups();
+			assertEquals(2, groups.length);
+			assertEquals("update", groups[0].getName());
+			assertSame(edits[0], groups[0].getTextEdits()[0]);
+			assertTrue(groups[0].isEnabled());
+			assertEquals("categorized", groups[1].getName());
+			assertSame(edits[1], groups[1].getTextEdits()[0]);
+			assertFalse(groups[1].isEnabled());
+			assertSame(CATEGORY, groups[1].getGroupCategorySet());
+		}
+		assertEquals(0, manager.getStoredChangeCount());
+		assertEquals(UNIT_COUNT, manager.getAllChanges().length);
+	}
+
+	@Test
+	public void testUnpairedSurrogates() throws Exception {
+		TextChangeManager manager= new TextChangeManager();
+		manager.setMemoryBudget(1);
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			TextChangeCompatibility.addTextEdit(manager.get(getUnit(i)), "update", new ReplaceEdit(10, 3, "\uD800name\uDC00" + i));
+		}
+		manager.checkMemoryBudget();
+		assertTrue(manager.getStoredChangeCount() > 0);
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			ReplaceEdit edit= (ReplaceEdit) manager.get(getUnit(i)).getEdit().getChildren()[0];
+			assertEquals("\uD800name\uDC00" + i, edit.getText());
+		}
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		TextChangeManager manager= new TextChangeManager();
+		manager.setMemoryBudget(1);
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			TextChangeCompatibility.addTextEdit(manager.get(getUnit(i)), "update", new ReplaceEdit(10, 3, "name"));
+		}
+		manager.checkMemoryBudget();
+		assertTrue(manager.getStoredChangeCount() > 0);
+		manager.clear();
+		assertEquals(0, manager.getStoredChangeCount());
+		assertEquals(0, manager.getAllCompilationUnits().length);
+		assertFalse(manager.containsChangesIn(getUnit(0)));
+	}
+
+	@Test
+	public void testCopyEditsStayInMemory() throws Exception {
+		TextChangeManager manager= new TextChangeManager();
+		manager.setMemoryBudget(1);
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			TextChange change= manager.get(getUnit(i));
+			CopySourceEdit source= new CopySourceEdit(0, 5);
+			TextChangeCompatibility.addTextEdit(change, "source", source);
+			TextChangeCompatibility.addTextEdit(change, "target", new CopyTargetEdit(10, source));
+		}
+		manager.checkMemoryBudget();
+		assertEquals(0, manager.getStoredChangeCount());
+		assertEquals(UNIT_COUNT, manager.getAllChanges().length);
+	}
+
+	@Test
+	public void testNoBudget() throws Exception {
+		TextChangeManager manager= new TextChangeManager();
+		for (int i= 0; i < UNIT_COUNT; i++) {
+			TextChangeCompatibility.addTextEdit(manager.get(getUnit(i)), "update", new ReplaceEdit(10, 3, "name"));
+		}
+		manager.checkMemoryBudget();
+		assertEquals(0, manager.getStoredChangeCount());
+	}
+}
@@ -16,13 +16,15 @@
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import org.eclipse.jdt.ui.tests.refactoring.ExtractMethodPerfTests;
 import org.eclipse.jdt.ui.tests.refactoring.reorg.AllReorgPerformanceTests;
 import org.eclipse.jdt.ui.tests.refactoring.type.AllTypeConstraintsPerformanceTests;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
 	AllReorgPerformanceTests.class,
-	AllTypeConstraintsPerformanceTests.class
+	AllTypeConstraintsPerformanceTests.class,
+	ExtractMethodPerfTests.class
 })
 public class AllRefactoringPerformanceTests {
 }
@@ -20,6 +20,7 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
 	RenamePackagePerfTests1.class,
 	RenamePackagePerfTests2.class,
+	RenamePackageHierarchyPerfTests.class,
 
 	RenameTypePerfAcceptanceTests.class,
 	RenameTypePerfTests1.class,
@@ -28,6 +29,7 @@ import org.junit.runners.Suite;
 	RenameMethodPerfTests1.class,
 	RenameMethodPerfTests2.class,
 	RenameMethodWithOverloadPerfTests.class,
+	RippleMethodFinderPerfTests.class,
 
 	MoveCompilationUnitPerfTests1.class,
 	MoveCompilationUnitPerfTests2.class,
@@ -35,7 +37,9 @@ import org.junit.runners.Suite;
 	MoveStaticMembersPerfTests1.class,
 	MoveStaticMembersPerfTests2.class,
 
-	IntroduceIndirectionPerfAcceptanceTests.class
+	IntroduceIndirectionPerfAcceptanceTests.class,
+
+	SearchResultPerfTests.class
 })
 public class AllReorgPerformanceTests {
 }
\ No newline at end of file
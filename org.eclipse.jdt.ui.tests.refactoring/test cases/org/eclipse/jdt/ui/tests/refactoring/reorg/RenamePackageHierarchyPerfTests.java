@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.reorg;
+
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import org.eclipse.test.performance.Dimension;
+
+import org.eclipse.ltk.core.refactoring.participants.RenameRefactoring;
+
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.internal.corext.refactoring.rename.RenamePackageProcessor;
+
+import org.eclipse.jdt.ui.tests.refactoring.rules.RefactoringPerformanceTestSetup;
+
+/**
+ * Renames the root of a synthetic tree of 500 packages, including its subpackages.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class RenamePackageHierarchyPerfTests extends RepeatingRefactoringPerformanceTestCaseCommon {
+
+	private static final int FIRST_LEVEL= 20;
+	private static final int SECOND_LEVEL= 24;
+
+	@Rule
+	public RefactoringPerformanceTestSetup rpts= new RefactoringPerformanceTestSetup();
+
+	@Test
+	public void testACold_10_10() throws Exception {
+		executeRefactoring(10, 10, false, 1);
+	}
+
+	@Test
+	public void testB_100_10() throws Exception {
+		tagAsSummary("Rename package with 500 subpackages - 100 CUs, 10 Refs", Dimension.ELAPSED_PROCESS);
+		executeRefactoring(100, 10, true, 5);
+	}
+
+	@Override
+	protected void doExecuteRefactoring(int numberOfCus, int numberOfRefs, boolean measure) throws Exception {
+		IPackageFragment root= generateSources(numberOfCus, numberOfRefs);
+		RenamePackageProcessor processor= new RenamePackageProcessor(root);
+		processor.setNewElementName("newroot");
+		processor.setRenameSubpackages(true);
+		executeRefactoring(new RenameRefactoring(processor), measure);
+	}
+
+	/*
+	 * root, root.a<i> and root.a<i>.b<j>: 1 + FIRST_LEVEL * (1 + SECOND_LEVEL) = 501 packages, each
+	 * with one class. The referencing units import classes from different packages of the tree.
+	 */
+	private IPackageFragment generateSources(int numberOfCus, int numberOfRefs) throws Exception {
+		IPackageFragmentRoot sourceFolder= fTestProject.getSourceFolder();
+		IPackageFragment root= createPackage(sourceFolder, "root", typeName(-1, -1));
+		for (int i= 0; i < FIRST_LEVEL; i++) {
+			createPackage(sourceFolder, "root.a" + i, typeName(i, -1));
+			for (int j= 0; j < SECOND_LEVEL; j++) {
+				createPackage(sourceFolder, "root.a" + i + ".b" + j, typeName(i, j));
+			}
+		}
+
+		IPackageFragment references= sourceFolder.createPackageFragment("ref", false, null);
+		for (int i= 0; i < numberOfCus; i++) {
+			StringBuilder buf= new StringBuilder();
+			buf.append("package ref;\n");
+			for (int r= 0; r < numberOfRefs; r++) {
+				int first= (i + r) % FIRST_LEVEL;
+				int second= (i * numberOfRefs + r) % SECOND_LEVEL;
+				buf.append("import root.a" + first + ".b" + second + "." + typeName(first, second) + ";\n");
+			}
+			buf.append("public class Ref" + i + " {\n");
+			buf.append("    root.a" + (i % FIRST_LEVEL) + "." + typeName(i % FIRST_LEVEL, -1) + " field;\n");
+			buf.append("}\n");
+			references.createCompilationUnit("Ref" + i + ".java", buf.toString(), false, null);
+		}
+		return root;
+	}
+
+	private static String typeName(int first, int second) {
+		if (first < 0)
+			return "C";
+		if (second < 0)
+			return "C_" + first;
+		return "C_" + first + "_" + second;
+	}
+
+	private static IPackageFragment createPackage(IPackageFragmentRoot sourceFolder, String name, String typeName) throws Exception {
+		IPackageFragment pack= sourceFolder.createPackageFragment(name, false, null);
+		StringBuilder buf= new StringBuilder();
+		buf.append("package " + name + ";\n");
+		buf.append("public class " + typeName + " {\n");
+		buf.append("}\n");
+		pack.createCompilationUnit(typeName + ".java", buf.toString(), false, null);
+		return pack;
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.reorg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExternalResource;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.IType;
+
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCaseCommon;
+
+import org.eclipse.jdt.internal.corext.refactoring.rename.RippleHierarchyCache;
+import org.eclipse.jdt.internal.corext.refactoring.rename.RippleMethodFinder2;
+
+/**
+ * Measures the computation of ripple methods on a deep synthetic interface lattice: every
+ * interface of a level extends two interfaces of the level above, and all of them declare the
+ * same method.
+ */
+public class RippleMethodFinderPerfTests extends JdtPerformanceTestCaseCommon {
+
+	private static final int DEPTH= 12;
+	private static final int WIDTH= 8;
+
+	private static class MyTestSetup extends ExternalResource {
+		public static final String SRC_CONTAINER= "src";
+
+		public static IJavaProject fJProject1;
+		public static IPackageFragment fPackage;
+
+		@Override
+		public void before() throws Throwable {
+			fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+			assertNotNull("rt not found", JavaProjectHelper.addRTJar(fJProject1));
+			IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, SRC_CONTAINER);
+			fPackage= root.createPackageFragment("lattice", true, null);
+			for (int level= 0; level < DEPTH; level++) {
+				for (int k= 0; k < WIDTH; k++) {
+					String name= getInterfaceName(level, k);
+					StringBuilder buf= new StringBuilder();
+					buf.append("package lattice;\n");
+					buf.append("public interface ").append(name);
+					if (level > 0) {
+						buf.append(" extends ").append(getInterfaceName(level - 1, k));
+						buf.append(", ").append(getInterfaceName(level - 1, (k + 1) % WIDTH));
+					}
+					buf.append(" {\n");
+					buf.append("    void run(String arg);\n");
+					buf.append("}\n");
+					fPackage.createCompilationUnit(name + ".java", buf.toString(), true, null);
+				}
+			}
+			for (int k= 0; k < WIDTH; k++) {
+				StringBuilder buf= new StringBuilder();
+				buf.append("package lattice;\n");
+				buf.append("public class C").append(k).append(" implements ").append(getInterfaceName(DEPTH - 1, k)).append(" {\n");
+				buf.append("    public void run(String arg) {}\n");
+				buf.append("}\n");
+				fPackage.createCompilationUnit("C" + k + ".java", buf.toString(), true, null);
+			}
+		}
+
+		@Override
+		public void after() {
+			try {
+				if (fJProject1 != null && fJProject1.exists())
+					JavaProjectHelper.delete(fJProject1);
+			} catch (CoreException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Rule
+	public MyTestSetup stup= new MyTestSetup();
+
+	private static String getInterfaceName(int level, int k) {
+		return "I" + level + "_" + k;
+	}
+
+	@Test
+	public void testRippleMethodsInLattice() throws Exception {
+		tagAsSummary("Ripple methods in interface lattice", Dimension.ELAPSED_PROCESS);
+
+		int expected= DEPTH * WIDTH + WIDTH;
+		// consecutive renames of methods of the same lattice share the ripple hierarchy cache
+		RippleHierarchyCache hierarchyCache= RippleHierarchyCache.getDefault();
+		hierarchyCache.clear();
+		for (int i= 0; i < 10; i++) {
+			// a different method of the same lattice every time
+			IType type= MyTestSetup.fPackage.getCompilationUnit(getInterfaceName(i % DEPTH, i % WIDTH) + ".java").getType(getInterfaceName(i % DEPTH, i % WIDTH));
+			IMethod method= type.getMethod("run", new String[] { "QString;" });
+
+			joinBackgroudActivities();
+			startMeasuring();
+			IMethod[] related= RippleMethodFinder2.getRelatedMethods(method, new NullProgressMonitor(), null, hierarchyCache);
+			stopMeasuring();
+
+			assertEquals(expected, related.length);
+		}
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.reorg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExternalResource;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.jdt.testplugin.JavaTestPlugin;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.search.ui.NewSearchUI;
+import org.eclipse.search.ui.text.Match;
+
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.search.FieldReferenceMatch;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.MethodReferenceMatch;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchParticipant;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+import org.eclipse.jdt.ui.search.ElementQuerySpecification;
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCaseCommon;
+
+import org.eclipse.jdt.internal.ui.search.JavaSearchQuery;
+import org.eclipse.jdt.internal.ui.search.JavaSearchResult;
+import org.eclipse.jdt.internal.ui.search.JavaSearchScopeFactory;
+import org.eclipse.jdt.internal.ui.search.NewSearchResultCollector;
+
+/**
+ * Measures the heap retained by the matches of a large Java search result, and compares it with
+ * the heap retained by matches that are neither packed nor share their enclosing elements.
+ */
+public class SearchResultPerfTests extends JdtPerformanceTestCaseCommon {
+
+	/**
+	 * A match as the search result stored it before the match info was packed: separate fields
+	 * and one enclosing element handle per match.
+	 */
+	private static class UnpackedMatch extends Match {
+		@SuppressWarnings("unused")
+		private final int fAccuracy;
+		@SuppressWarnings("unused")
+		private final int fMatchRule;
+		@SuppressWarnings("unused")
+		private final boolean fIsWriteAccess;
+		@SuppressWarnings("unused")
+		private final boolean fIsReadAccess;
+		@SuppressWarnings("unused")
+		private final boolean fIsJavadoc;
+		@SuppressWarnings("unused")
+		private final boolean fIsSuperInvocation;
+
+		UnpackedMatch(SearchMatch match) {
+			super(match.getElement(), match.getOffset(), match.getLength());
+			fAccuracy= match.getAccuracy();
+			fMatchRule= match.getRule();
+			fIsWriteAccess= match instanceof FieldReferenceMatch && ((FieldReferenceMatch) match).isWriteAccess();
+			fIsReadAccess= match instanceof FieldReferenceMatch && ((FieldReferenceMatch) match).isReadAccess();
+			fIsJavadoc= match.isInsideDocComment();
+			fIsSuperInvocation= match instanceof MethodReferenceMatch && ((MethodReferenceMatch) match).isSuperInvocation();
+		}
+	}
+
+	private static class MyTestSetup extends ExternalResource {
+		public static final String SRC_CONTAINER= "src";
+
+		public static IJavaProject fJProject1;
+
+		@Override
+		public void before() throws Throwable {
+			fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+			assertNotNull("rt not found", JavaProjectHelper.addRTJar(fJProject1));
+			File junitSrcArchive= JavaTestPlugin.getDefault().getFileInPlugin(JavaProjectHelper.JUNIT_SRC_381);
+			JavaProjectHelper.addSourceContainerWithImport(fJProject1, SRC_CONTAINER, junitSrcArchive, JavaProjectHelper.JUNIT_SRC_ENCODING);
+		}
+
+		@Override
+		public void after() {
+			try {
+				if (fJProject1 != null && fJProject1.exists()) {
+					JavaProjectHelper.delete(fJProject1);
+				}
+			} catch (CoreException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Rule
+	public MyTestSetup stup= new MyTestSetup();
+
+	@Test
+	public void testStringReferencesMemory() throws Exception {
+		tagAsSummary("Java search result heap (references to String)", Dimension.USED_JAVA_HEAP);
+
+		IType type= MyTestSetup.fJProject1.findType("java.lang.String");
+		assertNotNull(type);
+
+		for (int i= 0; i < 5; i++) {
+			JavaSearchQuery query= new JavaSearchQuery(new ElementQuerySpecification(type, IJavaSearchConstants.REFERENCES, JavaSearchScopeFactory.getInstance().createWorkspaceScope(true), "workspace scope"));
+
+			joinBackgroudActivities();
+			System.gc();
+
+			startMeasuring();
+			NewSearchUI.runQueryInForeground(null, query);
+			System.gc();
+			stopMeasuring();
+
+			JavaSearchResult result= (JavaSearchResult) query.getSearchResult();
+			assertTrue(result.getMatchCount() > 0);
+			result.removeAll();
+		}
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
+	@Test
+	public void testStringReferencesMemoryComparedToUnpackedMatches() throws Exception {
+		IType type= MyTestSetup.fJProject1.findType("java.lang.String");
+		assertNotNull(type);
+		JavaSearchQuery query= new JavaSearchQuery(new ElementQuerySpecification(type, IJavaSearchConstants.REFERENCES, JavaSearchScopeFactory.getInstance().createWorkspaceScope(true), "workspace scope"));
+		joinBackgroudActivities();
+
+		JavaSearchResult unpacked= new JavaSearchResult(query);
+		long unpackedHeap= search(type, new SearchRequestor() {
+			@Override
+			public void acceptSearchMatch(SearchMatch match) {
+				if (match.getElement() != null)
+					unpacked.addMatch(new UnpackedMatch(match));
+			}
+		});
+		int unpackedCount= unpacked.getMatchCount();
+		unpacked.removeAll();
+
+		JavaSearchResult packed= new JavaSearchResult(query);
+		long packedHeap= search(type, new NewSearchResultCollector(packed, false));
+		assertEquals(unpackedCount, packed.getMatchCount());
+		packed.removeAll();
+
+		System.out.println("Heap retained by " + unpackedCount + " matches: " + packedHeap + " bytes, with unpacked matches: " + unpackedHeap + " bytes");
+		assertTrue("Packed matches should retain less heap than unpacked matches", packedHeap < unpackedHeap);
+	}
+
+	/**
+	 * Searches the references to the given type and returns the heap retained afterwards.
+	 *
+	 * @param type the type
+	 * @param requestor the requestor, which keeps the matches
+	 * @return the used heap after the search minus the used heap before the search
+	 * @throws CoreException if the search fails
+	 */
+	private static long search(IType type, SearchRequestor requestor) throws CoreException {
+		SearchPattern pattern= SearchPattern.createPattern(type, IJavaSearchConstants.REFERENCES);
+		IJavaSearchScope scope= JavaSearchScopeFactory.getInstance().createWorkspaceScope(true);
+		long before= getUsedHeap();
+		new SearchEngine().search(pattern, new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() }, scope, requestor, null);
+		return getUsedHeap() - before;
+	}
+
+	private static long getUsedHeap() {
+		Runtime runtime= Runtime.getRuntime();
+		for (int i= 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -18,7 +18,8 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-	ExtractInterfacePerfAcceptanceTests.class
+	ExtractInterfacePerfAcceptanceTests.class,
+	InferTypeArgumentsPerfTests.class
 })
 public class AllTypeConstraintsPerformanceTests {
 }
\ No newline at end of file
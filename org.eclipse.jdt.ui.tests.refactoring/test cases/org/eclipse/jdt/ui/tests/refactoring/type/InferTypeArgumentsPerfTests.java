@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.ui.tests.refactoring.type;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExternalResource;
+
+import org.eclipse.jdt.testplugin.JavaProjectHelper;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+
+import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCaseCommon;
+
+import org.eclipse.jdt.internal.corext.refactoring.generics.InferTypeArgumentsRefactoring;
+
+/**
+ * Measures the type constraint solver of Infer Generic Type Arguments on raw collections whose
+ * elements come from a generated, deep and wide type hierarchy.
+ */
+public class InferTypeArgumentsPerfTests extends JdtPerformanceTestCaseCommon {
+
+	private static final int DEPTH= 8;
+	private static final int WIDTH= 12;
+	private static final int USERS= 40;
+
+	private static class MyTestSetup extends ExternalResource {
+		public static final String SRC_CONTAINER= "src";
+
+		public static IJavaProject fJProject1;
+		public static IPackageFragment fPackage;
+
+		@Override
+		public void before() throws Throwable {
+			fJProject1= JavaProjectHelper.createJavaProject("TestProject1", "bin");
+			assertNotNull("rt not found", JavaProjectHelper.addRTJar(fJProject1));
+			IPackageFragmentRoot root= JavaProjectHelper.addSourceContainer(fJProject1, SRC_CONTAINER);
+			fPackage= root.createPackageFragment("generated", true, null);
+
+			// WIDTH chains of DEPTH classes, all implementing a common interface
+			fPackage.createCompilationUnit("Node.java", "package generated;\npublic interface Node {}\n", true, null);
+			for (int w= 0; w < WIDTH; w++) {
+				for (int d= 0; d < DEPTH; d++) {
+					String superClass= d == 0 ? "" : " extends " + typeName(w, d - 1);
+					String contents= "package generated;\npublic class " + typeName(w, d) + superClass + " implements Node {}\n";
+					fPackage.createCompilationUnit(typeName(w, d) + ".java", contents, true, null);
+				}
+			}
+
+			for (int u= 0; u < USERS; u++) {
+				StringBuilder buf= new StringBuilder();
+				buf.append("package generated;\n");
+				buf.append("import java.util.*;\n");
+				buf.append("public class User").append(u).append(" {\n");
+				for (int w= 0; w < WIDTH; w++) {
+					int d= (u + w) % DEPTH;
+					buf.append("    List list").append(w).append("= new ArrayList();\n");
+					buf.append("    Map map").append(w).append("= new HashMap();\n");
+					buf.append("    void fill").append(w).append("() {\n");
+					buf.append("        list").append(w).append(".add(new ").append(typeName(w, d)).append("());\n");
+					buf.append("        list").append(w).append(".add(new ").append(typeName(w, DEPTH - 1)).append("());\n");
+					buf.append("        map").append(w).append(".put(\"key\", list").append(w).append(".get(0));\n");
+					buf.append("        Set set= new HashSet(list").append(w).append(");\n");
+					buf.append("        ").append(typeName(w, 0)).append(" first= (").append(typeName(w, 0)).append(") set.iterator().next();\n");
+					buf.append("    }\n");
+				}
+				buf.append("}\n");
+				fPackage.createCompilationUnit("User" + u + ".java", buf.toString(), true, null);
+			}
+		}
+
+		private static String typeName(int chain, int depth) {
+			return "T" + chain + "_" + depth;
+		}
+
+		@Override
+		public void after() {
+			try {
+				if (fJProject1 != null && fJProject1.exists())
+					JavaProjectHelper.delete(fJProject1);
+			} catch (CoreException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Rule
+	public MyTestSetup stup= new MyTestSetup();
+
+	@Test
+	public void testInferTypeArguments() throws Exception {
+		tagAsSummary("Infer Generic Type Arguments on generated hierarchy", Dimension.ELAPSED_PROCESS);
+
+		for (int i= 0; i < 10; i++) {
+			InferTypeArgumentsRefactoring refactoring= new InferTypeArgumentsRefactoring(new IJavaElement[] { MyTestSetup.fPackage });
+			NullProgressMonitor pm= new NullProgressMonitor();
+			RefactoringStatus status= refactoring.checkInitialConditions(pm);
+			assertFalse(status.toString(), status.hasFatalError());
+
+			joinBackgroudActivities();
+			startMeasuring();
+			status= refactoring.checkFinalConditions(pm);
+			stopMeasuring();
+
+			assertFalse(status.toString(), status.hasFatalError());
+		}
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2020 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -41,6 +41,8 @@ import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.manipulation.OrganizeImportsOperation;
 import org.eclipse.jdt.core.manipulation.SharedASTProviderCore;
 
+import org.eclipse.jdt.internal.corext.codemanipulation.TypeNameMatchCache;
+
 import org.eclipse.jdt.ui.tests.performance.JdtPerformanceTestCaseCommon;
 
 public class OrganizeImportsPerfTest extends JdtPerformanceTestCaseCommon {
@@ -107,6 +109,15 @@ public class OrganizeImportsPerfTest extends JdtPerformanceTestCaseCommon {
 		Performance.getDefault().assertPerformance(fPerformanceMeter);
 	}
 
+	@Test
+	public void testOrganizeImportSharedCache() throws Exception {
+		measureSharedCache(Performance.getDefault().getNullPerformanceMeter(), 10);
+		measureSharedCache(fPerformanceMeter, 10);
+
+		commitMeasurements();
+		Performance.getDefault().assertPerformance(fPerformanceMeter);
+	}
+
 	private void measure(PerformanceMeter performanceMeter, int runs) throws Exception {
 		for (int j= 0; j < runs; j++) {
 			List<IJavaElement> cusList= new ArrayList<>();
@@ -126,4 +137,23 @@ public class OrganizeImportsPerfTest extends JdtPerformanceTestCaseCommon {
 
 	}
 
+	private void measureSharedCache(PerformanceMeter performanceMeter, int runs) throws Exception {
+		for (int j= 0; j < runs; j++) {
+			List<IJavaElement> cusList= new ArrayList<>();
+			addAllCUs(MyTestSetup.fJProject1.getChildren(), cusList);
+			ICompilationUnit[] cus= cusList.toArray(new ICompilationUnit[cusList.size()]);
+			CompilationUnit[] roots= createASTs(cus);
+
+			joinBackgroudActivities();
+
+			performanceMeter.start();
+			TypeNameMatchCache cache= new TypeNameMatchCache();
+			for (int i= 0; i < roots.length; i++) {
+				OrganizeImportsOperation op= new OrganizeImportsOperation(cus[i], roots[i], true, true, true, null);
+				op.setTypeNameMatchCache(cache);
+				op.run(new NullProgressMonitor());
+			}
+			performanceMeter.stop();
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2020 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@
 package org.eclipse.jdt.ui.tests.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -35,7 +36,10 @@ import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 
 import org.eclipse.core.resources.ProjectScope;
 
+import org.eclipse.text.edits.TextEdit;
+
 import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.text.Document;
 
 import org.eclipse.jdt.core.IClasspathAttribute;
 import org.eclipse.jdt.core.ICompilationUnit;
@@ -50,6 +54,8 @@ import org.eclipse.jdt.core.manipulation.OrganizeImportsOperation;
 import org.eclipse.jdt.core.manipulation.OrganizeImportsOperation.IChooseImportQuery;
 import org.eclipse.jdt.core.search.TypeNameMatch;
 
+import org.eclipse.jdt.internal.corext.codemanipulation.TypeNameMatchCache;
+
 import org.eclipse.jdt.ui.JavaUI;
 import org.eclipse.jdt.ui.PreferenceConstants;
 import org.eclipse.jdt.ui.tests.core.rules.ProjectTestSetup;
@@ -3657,6 +3663,94 @@ public class ImportOrganizeTest extends CoreTests {
 		assertEqualString(cu1.getSource(), buf1.toString());
 	}
 
+	@Test
+	public void testTypeNameMatchCacheAmbiguous() throws Exception {
+		IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+
+		IPackageFragment pack1= sourceFolder.createPackageFragment("p1", false, null);
+		pack1.createCompilationUnit("Frobnicator.java", "package p1;\npublic class Frobnicator {\n}\n", false, null);
+		IPackageFragment pack2= sourceFolder.createPackageFragment("p2", false, null);
+		pack2.createCompilationUnit("Frobnicator.java", "package p2;\npublic class Frobnicator {\n}\n", false, null);
+
+		IPackageFragment pack= sourceFolder.createPackageFragment("q", false, null);
+		ICompilationUnit[] cus= new ICompilationUnit[3];
+		for (int i= 0; i < cus.length; i++) {
+			StringBuilder buf= new StringBuilder();
+			buf.append("package q;\n");
+			buf.append("public class C" + i + " {\n");
+			buf.append("    Frobnicator e;\n");
+			buf.append("    ArrayList<Frobnicator> list;\n");
+			buf.append("}\n");
+			cus[i]= pack.createCompilationUnit("C" + i + ".java", buf.toString(), false, null);
+		}
+
+		setOrganizeImportSettings(new String[0], 99, 99, fJProject1);
+		IChooseImportQuery query= createQuery("C", new String[] { "p2.Frobnicator" }, new int[] { 2 });
+
+		String[] expected= organizeImports(cus, null, query);
+		String[] cached= organizeImports(cus, new TypeNameMatchCache(), query);
+		for (int i= 0; i < cus.length; i++) {
+			assertTrue(expected[i], expected[i].contains("import java.util.ArrayList;\n"));
+			assertTrue(expected[i], expected[i].contains("import p2.Frobnicator;\n"));
+			assertEqualString(cached[i], expected[i]);
+		}
+	}
+
+	@Test
+	public void testTypeNameMatchCacheScopes() throws Exception {
+		IJavaProject project2= JavaProjectHelper.createJavaProject("TestProject2", "bin");
+		try {
+			assertNotNull("rt not found", JavaProjectHelper.addRTJar(project2));
+			IPackageFragmentRoot sourceFolder2= JavaProjectHelper.addSourceContainer(project2, "src");
+			sourceFolder2.createPackageFragment("a2", false, null).createCompilationUnit("Shared.java", "package a2;\npublic class Shared {\n}\n", false, null);
+
+			IPackageFragmentRoot sourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src");
+			IPackageFragmentRoot testSourceFolder= JavaProjectHelper.addSourceContainer(fJProject1, "src-tests", new Path[0], new Path[0], "bin-tests",
+					new IClasspathAttribute[] { JavaCore.newClasspathAttribute(IClasspathAttribute.TEST, "true") });
+			sourceFolder.createPackageFragment("a1", false, null).createCompilationUnit("Shared.java", "package a1;\npublic class Shared {\n}\n", false, null);
+			testSourceFolder.createPackageFragment("t", false, null).createCompilationUnit("Fixture.java", "package t;\npublic class Fixture {\n}\n", false, null);
+
+			String contents= "public class C {\n    Shared s;\n    Fixture f;\n}\n";
+			ICompilationUnit[] cus= new ICompilationUnit[] {
+					testSourceFolder.createPackageFragment("t1", false, null).createCompilationUnit("C.java", "package t1;\n" + contents, false, null),
+					sourceFolder.createPackageFragment("m1", false, null).createCompilationUnit("C.java", "package m1;\n" + contents, false, null),
+					sourceFolder2.createPackageFragment("m2", false, null).createCompilationUnit("C.java", "package m2;\n" + contents, false, null)
+			};
+
+			setOrganizeImportSettings(new String[0], 99, 99, fJProject1);
+			setOrganizeImportSettings(new String[0], 99, 99, project2);
+			IChooseImportQuery query= createQuery("C", new String[] {}, new int[] {});
+
+			String[] expected= organizeImports(cus, null, query);
+			String[] cached= organizeImports(cus, new TypeNameMatchCache(), query);
+
+			assertTrue(expected[0], expected[0].contains("import a1.Shared;\nimport t.Fixture;\n"));
+			assertTrue(expected[1], expected[1].contains("import a1.Shared;\n"));
+			assertFalse(expected[1], expected[1].contains("import t.Fixture;"));
+			assertTrue(expected[2], expected[2].contains("import a2.Shared;\n"));
+			for (int i= 0; i < cus.length; i++) {
+				assertEqualString(cached[i], expected[i]);
+			}
+		} finally {
+			setOrganizeImportSettings(null, 99, 99, project2);
+			JavaProjectHelper.delete(project2);
+		}
+	}
+
+	private String[] organizeImports(ICompilationUnit[] cus, TypeNameMatchCache cache, IChooseImportQuery query) throws Exception {
+		String[] result= new String[cus.length];
+		for (int i= 0; i < cus.length; i++) {
+			OrganizeImportsOperation op= new OrganizeImportsOperation(cus[i], null, false, false, true, query);
+			op.setTypeNameMatchCache(cache);
+			TextEdit edit= op.createTextEdit(null);
+			Document document= new Document(cus[i].getSource());
+			if (edit != null)
+				edit.apply(document);
+			result[i]= document.get();
+		}
+		return result;
+	}
+
 	protected OrganizeImportsOperation createOperation(ICompilationUnit cu, String[] order, int threshold, boolean ignoreLowerCaseNames, boolean save, boolean allowSyntaxErrors, IChooseImportQuery chooseImportQuery) {
 		setOrganizeImportSettings(order, threshold, threshold, cu.getJavaProject());
 		return new OrganizeImportsOperation(cu, null, ignoreLowerCaseNames, save, allowSyntaxErrors, chooseImportQuery);
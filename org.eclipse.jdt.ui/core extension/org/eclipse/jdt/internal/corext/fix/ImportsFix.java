@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -27,6 +27,7 @@ import org.eclipse.jdt.core.manipulation.OrganizeImportsOperation.IChooseImportQ
 import org.eclipse.jdt.core.search.TypeNameMatch;
 
 import org.eclipse.jdt.internal.corext.codemanipulation.CodeGenerationSettings;
+import org.eclipse.jdt.internal.corext.codemanipulation.TypeNameMatchCache;
 import org.eclipse.jdt.internal.corext.util.Messages;
 
 import org.eclipse.jdt.ui.cleanup.ICleanUpFix;
@@ -36,7 +37,19 @@ import org.eclipse.jdt.internal.core.manipulation.util.BasicElementLabels;
 
 public class ImportsFix extends TextEditFix {
 
-	public static ICleanUpFix createCleanUp(final CompilationUnit cu, CodeGenerationSettings settings, boolean organizeImports, RefactoringStatus status) throws CoreException {
+	/**
+	 * Creates a fix that organizes the imports of the given compilation unit.
+	 *
+	 * @param cu the compilation unit
+	 * @param settings the code generation settings
+	 * @param organizeImports whether to organize the imports
+	 * @param typeNameMatchCache the cache shared with the fixes of other compilation units, or
+	 *            <code>null</code>
+	 * @param status the status to add problems to
+	 * @return the fix, or <code>null</code> if there is nothing to change
+	 * @throws CoreException if the imports could not be organized
+	 */
+	public static ICleanUpFix createCleanUp(final CompilationUnit cu, CodeGenerationSettings settings, boolean organizeImports, TypeNameMatchCache typeNameMatchCache, RefactoringStatus status) throws CoreException {
 		if (!organizeImports)
 			return null;
 
@@ -48,6 +61,7 @@ public class ImportsFix extends TextEditFix {
 
 		final ICompilationUnit unit= (ICompilationUnit)cu.getJavaElement();
 		OrganizeImportsOperation op= new OrganizeImportsOperation(unit, cu, settings.importIgnoreLowercase, false, false, query);
+		op.setTypeNameMatchCache(typeNameMatchCache);
 		final TextEdit edit= op.createTextEdit(null);
 		if (hasAmbiguity[0]) {
 			status.addInfo(Messages.format(ActionMessages.OrganizeImportsAction_multi_error_unresolvable, getLocationString(cu)));
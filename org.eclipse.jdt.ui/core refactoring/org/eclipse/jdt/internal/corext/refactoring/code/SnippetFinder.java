@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -20,6 +20,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
 
@@ -155,17 +156,26 @@ import org.eclipse.jdt.internal.corext.dom.GenericVisitor;
 	private int fIndex;
 	private Matcher fMatcher;
 	private int fTypes;
+	private StructuralHashIndex fHashIndex;
+	private int[] fSnippetHashes;
+	private Set<ASTNode> fFirstNodeCandidates;
 
-	private SnippetFinder(ASTNode[] snippet) {
+	private SnippetFinder(ASTNode[] snippet, StructuralHashIndex hashIndex) {
 		super(true);
 		fSnippet= snippet;
 		fMatcher= new Matcher();
+		fHashIndex= hashIndex;
+		fSnippetHashes= new int[snippet.length];
+		for (int i= 0; i < snippet.length; i++) {
+			fSnippetHashes[i]= hashIndex.getHash(snippet[i]);
+		}
+		fFirstNodeCandidates= hashIndex.getEnclosingNodes(fSnippetHashes[0]);
 		reset();
 	}
 
 	public static List<Match> perform(ASTNode start, ASTNode[] snippet) {
 		Assert.isTrue(start instanceof AbstractTypeDeclaration || start instanceof AnonymousClassDeclaration);
-		SnippetFinder finder= new SnippetFinder(snippet);
+		SnippetFinder finder= new SnippetFinder(snippet, new StructuralHashIndex(start));
 		start.accept(finder);
 		for (Iterator<Match> iter = finder.fResult.iterator(); iter.hasNext();) {
 			Match match = iter.next();
@@ -246,6 +256,9 @@ import org.eclipse.jdt.internal.corext.dom.GenericVisitor;
 
 	@Override
 	protected boolean visitNode(ASTNode node) {
+		// no node of this subtree can start a new match
+		if (isResetted() && !fFirstNodeCandidates.contains(node))
+			return false;
 		if (matches(node)) {
 			return false;
 		} else if (!isResetted()){
@@ -259,6 +272,9 @@ import org.eclipse.jdt.internal.corext.dom.GenericVisitor;
 	private boolean matches(ASTNode node) {
 		if (isSnippetNode(node))
 			return false;
+		// nodes with different structural hashes cannot match
+		if (fHashIndex.getHash(node) != fSnippetHashes[fIndex])
+			return false;
 		if (node.subtreeMatch(fMatcher, fSnippet[fIndex]) && fMatch.hasCorrectNesting(node)) {
 			fMatch.add(node);
 			fIndex++;
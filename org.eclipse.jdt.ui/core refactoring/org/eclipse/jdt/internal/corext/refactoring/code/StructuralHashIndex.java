@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.code;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+
+/**
+ * Structural fingerprints of all nodes of a subtree, used by {@link SnippetFinder} to find the
+ * locations where a snippet can match without running the matcher on every node.
+ * <p>
+ * The hash of a node only depends on the node types of its subtree. Names, literals and
+ * operators are ignored, and so are the contents of Javadoc comments, which the matcher does not
+ * compare either. Consequently, two nodes that match structurally always have the same hash,
+ * while nodes with different hashes can never match.
+ * </p>
+ */
+/* package */ class StructuralHashIndex {
+
+	private static class Hasher extends ASTVisitor {
+
+		private final Map<ASTNode, Integer> fHashes;
+		private int[] fStack= new int[32];
+		private int fDepth;
+
+		Hasher(Map<ASTNode, Integer> hashes) {
+			super(true);
+			fHashes= hashes;
+		}
+
+		@Override
+		public boolean preVisit2(ASTNode node) {
+			if (fDepth == fStack.length)
+				fStack= Arrays.copyOf(fStack, 2 * fDepth);
+			fStack[fDepth++]= node.getNodeType();
+			return true;
+		}
+
+		@Override
+		public void postVisit(ASTNode node) {
+			int hash= fStack[--fDepth];
+			if (node.getNodeType() == ASTNode.JAVADOC)
+				hash= ASTNode.JAVADOC;
+			fHashes.put(node, Integer.valueOf(hash));
+			if (fDepth > 0)
+				fStack[fDepth - 1]= 31 * fStack[fDepth - 1] + hash;
+		}
+	}
+
+	private final Map<ASTNode, Integer> fHashes= new IdentityHashMap<>();
+	private final Map<Integer, List<ASTNode>> fNodesByHash= new HashMap<>();
+
+	/**
+	 * Computes the hashes of all nodes in the given subtree.
+	 *
+	 * @param root the root of the subtree
+	 */
+	public StructuralHashIndex(ASTNode root) {
+		root.accept(new Hasher(fHashes));
+		for (Map.Entry<ASTNode, Integer> entry : fHashes.entrySet()) {
+			fNodesByHash.computeIfAbsent(entry.getValue(), h -> new ArrayList<>(2)).add(entry.getKey());
+		}
+	}
+
+	/**
+	 * Returns the structural hash of the given node. Nodes outside of the indexed subtree are
+	 * hashed on demand.
+	 *
+	 * @param node the node
+	 * @return the hash
+	 */
+	public int getHash(ASTNode node) {
+		Integer hash= fHashes.get(node);
+		if (hash == null) {
+			Map<ASTNode, Integer> hashes= new IdentityHashMap<>();
+			node.accept(new Hasher(hashes));
+			hash= hashes.get(node);
+		}
+		return hash.intValue();
+	}
+
+	/**
+	 * Returns the indexed nodes with the given hash together with all their ancestors, i.e. the
+	 * nodes whose subtree contains a node with the given hash.
+	 *
+	 * @param hash the hash
+	 * @return the set of nodes, compared by identity
+	 */
+	public Set<ASTNode> getEnclosingNodes(int hash) {
+		List<ASTNode> nodes= fNodesByHash.get(Integer.valueOf(hash));
+		if (nodes == null)
+			return Collections.emptySet();
+		Set<ASTNode> result= Collections.newSetFromMap(new IdentityHashMap<>());
+		for (ASTNode node : nodes) {
+			for (ASTNode current= node; current != null && result.add(current); current= current.getParent()) {
+				// add all ancestors up to one that is already known
+			}
+		}
+		return result;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2021 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -94,6 +94,7 @@ import org.eclipse.jdt.internal.corext.refactoring.tagging.IReferenceUpdating;
 import org.eclipse.jdt.internal.corext.refactoring.tagging.ITextUpdating;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaElementUtil;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaStatusContext;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
 import org.eclipse.jdt.internal.corext.refactoring.util.ResourceUtil;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
@@ -943,18 +944,18 @@ public class RenameFieldProcessor extends JavaRenameProcessor implements IRefere
 
 	}
 
-	private void addReferenceUpdates(IProgressMonitor pm) {
-		pm.beginTask("", fReferences.length); //$NON-NLS-1$
+	private void addReferenceUpdates(IProgressMonitor pm) throws CoreException {
 		String editName= RefactoringCoreMessages.RenameFieldRefactoring_Update_field_reference;
-		for (SearchResultGroup reference : fReferences) {
+		ParallelUnitProcessor.process(fReferences, reference -> {
 			ICompilationUnit cu= reference.getCompilationUnit();
-			if (cu == null)
-				continue;
-			for (SearchMatch result : reference.getSearchResults()) {
-				addTextEdit(fChangeManager.get(cu), editName, createTextChange(result));
+			if (cu != null) {
+				TextChange change= fChangeManager.get(cu);
+				for (SearchMatch result : reference.getSearchResults()) {
+					addTextEdit(change, editName, createTextChange(result));
+				}
 			}
-			pm.worked(1);
-		}
+			return null;
+		}, pm);
 	}
 
 	private TextEdit createTextChange(SearchMatch match) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -19,7 +19,9 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -100,6 +102,7 @@ import org.eclipse.jdt.internal.corext.refactoring.util.Changes;
 import org.eclipse.jdt.internal.corext.refactoring.util.CommentAnalyzer;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaElementUtil;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaStatusContext;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
 import org.eclipse.jdt.internal.corext.refactoring.util.QualifiedNameFinder;
 import org.eclipse.jdt.internal.corext.refactoring.util.QualifiedNameSearchResult;
 import org.eclipse.jdt.internal.corext.refactoring.util.ResourceUtil;
@@ -423,22 +426,35 @@ public class RenamePackageProcessor extends JavaRenameProcessor implements
 			if (result.hasFatalError())
 				return result;
 
+			if (fChangeManager != null)
+				fChangeManager.clear(); // conditions checked again
 			fChangeManager= new TextChangeManager();
+			fChangeManager.setMemoryBudget(TextChangeManager.getDefaultMemoryBudget());
 			fImportsManager= new ImportsManager();
 
 			SubProgressMonitor subPm= new SubProgressMonitor(pm, 16);
 			if (fRenameSubpackages) {
 				IPackageFragment[] allSubpackages= JavaElementUtil.getPackageAndSubpackages(fPackage);
-				subPm.beginTask("", allSubpackages.length); //$NON-NLS-1$
+				subPm.beginTask("", 2 * allSubpackages.length); //$NON-NLS-1$
+				Map<IPackageFragment, SearchResultGroup[]> references= null;
+				if (fUpdateReferences && allSubpackages.length > 1) {
+					subPm.setTaskName(RefactoringCoreMessages.RenamePackageRefactoring_searching);
+					references= getReferences(allSubpackages, new SubProgressMonitor(subPm, allSubpackages.length), result);
+				} else {
+					subPm.worked(allSubpackages.length);
+				}
 				for (IPackageFragment pack : allSubpackages) {
-					new PackageRenamer(pack, this, fChangeManager, fImportsManager).doRename(new SubProgressMonitor(subPm, 1), result);
+					SearchResultGroup[] occurrences= references == null ? null : references.getOrDefault(pack, new SearchResultGroup[0]);
+					new PackageRenamer(pack, this, fChangeManager, fImportsManager).doRename(occurrences, new SubProgressMonitor(subPm, 1), result);
+					fChangeManager.checkMemoryBudget();
 				}
 				subPm.done();
 			} else {
-				new PackageRenamer(fPackage, this, fChangeManager, fImportsManager).doRename(subPm, result);
+				new PackageRenamer(fPackage, this, fChangeManager, fImportsManager).doRename(null, subPm, result);
 			}
 
 			fImportsManager.rewriteImports(fChangeManager, new SubProgressMonitor(pm, 3));
+			fChangeManager.checkMemoryBudget();
 
 			if (fUpdateTextualMatches) {
 				pm.subTask(RefactoringCoreMessages.RenamePackageRefactoring_searching_text);
@@ -458,6 +474,81 @@ public class RenamePackageProcessor extends JavaRenameProcessor implements
 		return fPackage;
 	}
 
+	/**
+	 * Searches the references to all given packages with a single combined pattern and splits
+	 * the matches by referenced package.
+	 *
+	 * @param packages the packages, all in the package fragment root of <code>fPackage</code>
+	 * @param pm the progress monitor
+	 * @param status the status to report problems to
+	 * @return the references per package, or <code>null</code> if a match could not be
+	 *         attributed to one of the packages and the packages have to be searched one by one
+	 * @throws CoreException if the search failed
+	 */
+	private Map<IPackageFragment, SearchResultGroup[]> getReferences(IPackageFragment[] packages, IProgressMonitor pm, RefactoringStatus status) throws CoreException {
+		SearchPattern pattern= null;
+		Map<String, IPackageFragment> packagesByName= new HashMap<>();
+		for (IPackageFragment pack : packages) {
+			SearchPattern packagePattern= SearchPattern.createPattern(pack, IJavaSearchConstants.REFERENCES);
+			if (packagePattern != null) {
+				pattern= pattern == null ? packagePattern : SearchPattern.createOrPattern(pattern, packagePattern);
+				packagesByName.put(pack.getElementName(), pack);
+			}
+		}
+		Map<IPackageFragment, SearchResultGroup[]> result= new HashMap<>();
+		if (pattern == null) {
+			pm.done();
+			return result;
+		}
+
+		String binaryRefsDescription= Messages.format(RefactoringCoreMessages.ReferencesInBinaryContext_ref_in_binaries_description , getElementLabel(fPackage));
+		ReferencesInBinaryContext binaryRefs= new ReferencesInBinaryContext(binaryRefsDescription);
+		// the scope of a package only depends on its project
+		IJavaSearchScope scope= RefactoringScopeFactory.create(fPackage, true, false);
+		SearchResultGroup[] groups= RefactoringSearchEngine.search(pattern, scope, new CuCollectingSearchRequestor(binaryRefs), pm, status);
+		binaryRefs.addErrorIfNecessary(status);
+
+		Map<IPackageFragment, List<SearchResultGroup>> split= new HashMap<>();
+		for (SearchResultGroup group : groups) {
+			Map<IPackageFragment, List<SearchMatch>> matchesByPackage= new LinkedHashMap<>();
+			// the matches of a group are in the same compilation unit, whose source is read once
+			Map<ICompilationUnit, String> sources= new HashMap<>(2);
+			for (SearchMatch match : group.getSearchResults()) {
+				IPackageFragment pack= getReferencedPackage(match, packagesByName, sources);
+				if (pack == null)
+					return null;
+				matchesByPackage.computeIfAbsent(pack, key -> new ArrayList<>()).add(match);
+			}
+			for (Map.Entry<IPackageFragment, List<SearchMatch>> entry : matchesByPackage.entrySet()) {
+				List<SearchMatch> matches= entry.getValue();
+				split.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(new SearchResultGroup(group.getResource(), matches.toArray(new SearchMatch[matches.size()])));
+			}
+		}
+		for (Map.Entry<IPackageFragment, List<SearchResultGroup>> entry : split.entrySet()) {
+			List<SearchResultGroup> packageGroups= entry.getValue();
+			result.put(entry.getKey(), packageGroups.toArray(new SearchResultGroup[packageGroups.size()]));
+		}
+		return result;
+	}
+
+	private static IPackageFragment getReferencedPackage(SearchMatch match, Map<String, IPackageFragment> packagesByName, Map<ICompilationUnit, String> sources) throws JavaModelException {
+		ICompilationUnit cu= SearchUtils.getCompilationUnit(match);
+		if (cu == null)
+			return null;
+		String source= sources.get(cu);
+		if (source == null) {
+			source= cu.getSource();
+			if (source == null)
+				return null;
+			sources.put(cu, source);
+		}
+		int end= match.getOffset() + match.getLength();
+		if (match.getOffset() < 0 || end > source.length())
+			return null;
+		String reference= source.substring(match.getOffset(), end);
+		return packagesByName.get(CommentAnalyzer.normalizeReference(reference));
+	}
+
 	private RefactoringStatus checkForMainAndNativeMethods() throws CoreException{
 		RefactoringStatus result= new RefactoringStatus();
 		if (fRenameSubpackages) {
@@ -601,6 +692,7 @@ public class RenamePackageProcessor extends JavaRenameProcessor implements
 			monitor.worked(1);
 			return result;
 		} finally {
+			fChangeManager.clear();
 			fChangeManager= null;
 			fImportsManager= null;
 			monitor.done();
@@ -701,7 +793,16 @@ public class RenamePackageProcessor extends JavaRenameProcessor implements
 			fImportsManager= importsManager;
 		}
 
-		void doRename(IProgressMonitor pm, RefactoringStatus result) throws CoreException {
+		/**
+		 * Creates the updates for renaming the package.
+		 *
+		 * @param occurrences the references to the package if they have already been searched,
+		 *            or <code>null</code> to search them
+		 * @param pm the progress monitor
+		 * @param result the status to report problems to
+		 * @throws CoreException if a search or the update failed
+		 */
+		void doRename(SearchResultGroup[] occurrences, IProgressMonitor pm, RefactoringStatus result) throws CoreException {
 			pm.beginTask("", 16); //$NON-NLS-1$
 			if (fProcessor.getUpdateReferences()){
 				pm.setTaskName(RefactoringCoreMessages.RenamePackageRefactoring_searching);
@@ -709,7 +810,12 @@ public class RenamePackageProcessor extends JavaRenameProcessor implements
 				String binaryRefsDescription= Messages.format(RefactoringCoreMessages.ReferencesInBinaryContext_ref_in_binaries_description , getElementLabel(fPackage));
 				ReferencesInBinaryContext binaryRefs= new ReferencesInBinaryContext(binaryRefsDescription);
 
-				fOccurrences= getReferences(new SubProgressMonitor(pm, 4), binaryRefs, result);
+				if (occurrences != null) {
+					fOccurrences= occurrences;
+					pm.worked(4);
+				} else {
+					fOccurrences= getReferences(new SubProgressMonitor(pm, 4), binaryRefs, result);
+				}
 				fReferencesToTypesInNamesakes= getReferencesToTypesInNamesakes(new SubProgressMonitor(pm, 4), result);
 				fReferencesToTypesInPackage= getReferencesToTypesInPackage(new SubProgressMonitor(pm, 4), binaryRefs, result);
 				binaryRefs.addErrorIfNecessary(result);
@@ -769,6 +875,7 @@ public class RenamePackageProcessor extends JavaRenameProcessor implements
 					if (typeRefsRequiringNewNameImport != null)
 						updateTypeImports(typeRefsRequiringNewNameImport);
 				}
+				fTextChangeManager.checkMemoryBudget();
 				pm.worked(1);
 			}
 
@@ -1064,33 +1171,48 @@ public class RenamePackageProcessor extends JavaRenameProcessor implements
 		}
 
 		public void rewriteImports(TextChangeManager changeManager, IProgressMonitor pm) throws CoreException {
-			for (Entry<ICompilationUnit, ImportChange> entry : fImportChanges.entrySet()) {
-				ICompilationUnit cu= entry.getKey();
-				ImportChange importChange= entry.getValue();
-				ImportRewrite importRewrite= StubUtility.createImportRewrite(cu, true);
-				importRewrite.setFilterImplicitImports(false);
-				for (String toRemove : importChange.fStaticToRemove) {
-					importRewrite.removeStaticImport(toRemove);
-				}
-				for (String toRemove : importChange.fToRemove) {
-					importRewrite.removeImport(toRemove);
-				}
-				for (String[] toAdd : importChange.fStaticToAdd) {
-					importRewrite.addStaticImport(toAdd[0], toAdd[1], true);
-				}
-				for (String toAdd : importChange.fToAdd) {
-					importRewrite.addImport(toAdd);
+			// the units are independent, each one only touches its own text change
+			List<Entry<ICompilationUnit, ImportChange>> entries= new ArrayList<>(fImportChanges.entrySet());
+			pm.beginTask("", entries.size()); //$NON-NLS-1$
+			try {
+				int chunkSize= Math.max(ParallelUnitProcessor.MIN_PARALLEL_UNITS, 4 * ParallelUnitProcessor.getDefaultParallelism());
+				for (int start= 0; start < entries.size(); start+= chunkSize) {
+					List<Entry<ICompilationUnit, ImportChange>> chunk= entries.subList(start, Math.min(start + chunkSize, entries.size()));
+					ParallelUnitProcessor.process(chunk, entry -> {
+						rewriteImports(changeManager, entry.getKey(), entry.getValue());
+						return null;
+					}, new SubProgressMonitor(pm, chunk.size()));
+					changeManager.checkMemoryBudget();
 				}
+			} finally {
+				pm.done();
+			}
+		}
 
-				if (importRewrite.hasRecordedChanges()) {
-					TextEdit importEdit= importRewrite.rewriteImports(pm);
-					String name= RefactoringCoreMessages.RenamePackageRefactoring_update_imports;
-					try {
-						TextChangeCompatibility.addTextEdit(changeManager.get(cu), name, importEdit);
-					} catch (MalformedTreeException e) {
-						JavaPlugin.logErrorMessage("MalformedTreeException while processing cu " + cu); //$NON-NLS-1$
-						throw e;
-					}
+		private static void rewriteImports(TextChangeManager changeManager, ICompilationUnit cu, ImportChange importChange) throws CoreException {
+			ImportRewrite importRewrite= StubUtility.createImportRewrite(cu, true);
+			importRewrite.setFilterImplicitImports(false);
+			for (String toRemove : importChange.fStaticToRemove) {
+				importRewrite.removeStaticImport(toRemove);
+			}
+			for (String toRemove : importChange.fToRemove) {
+				importRewrite.removeImport(toRemove);
+			}
+			for (String[] toAdd : importChange.fStaticToAdd) {
+				importRewrite.addStaticImport(toAdd[0], toAdd[1], true);
+			}
+			for (String toAdd : importChange.fToAdd) {
+				importRewrite.addImport(toAdd);
+			}
+
+			if (importRewrite.hasRecordedChanges()) {
+				TextEdit importEdit= importRewrite.rewriteImports(null);
+				String name= RefactoringCoreMessages.RenamePackageRefactoring_update_imports;
+				try {
+					TextChangeCompatibility.addTextEdit(changeManager.get(cu), name, importEdit);
+				} catch (MalformedTreeException e) {
+					JavaPlugin.logErrorMessage("MalformedTreeException while processing cu " + cu); //$NON-NLS-1$
+					throw e;
 				}
 			}
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -113,6 +113,7 @@ import org.eclipse.jdt.internal.corext.refactoring.tagging.ITextUpdating;
 import org.eclipse.jdt.internal.corext.refactoring.util.Changes;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaElementUtil;
 import org.eclipse.jdt.internal.corext.refactoring.util.JavaStatusContext;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
 import org.eclipse.jdt.internal.corext.refactoring.util.QualifiedNameFinder;
 import org.eclipse.jdt.internal.corext.refactoring.util.QualifiedNameSearchResult;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
@@ -1194,21 +1195,20 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 		}
 	}
 
-	private void addReferenceUpdates(TextChangeManager manager, IProgressMonitor pm) {
-		pm.beginTask("", fReferences.length); //$NON-NLS-1$
-		for (SearchResultGroup reference : fReferences) {
+	private void addReferenceUpdates(TextChangeManager manager, IProgressMonitor pm) throws CoreException {
+		String name= RefactoringCoreMessages.RenameTypeRefactoring_update_reference;
+		String newName= getNewElementName();
+		ParallelUnitProcessor.process(fReferences, reference -> {
 			ICompilationUnit cu= reference.getCompilationUnit();
-			if (cu == null)
-				continue;
-
-			String name= RefactoringCoreMessages.RenameTypeRefactoring_update_reference;
-
-			for (SearchMatch match : reference.getSearchResults()) {
-				ReplaceEdit replaceEdit= new ReplaceEdit(match.getOffset(), match.getLength(), getNewElementName());
-				TextChangeCompatibility.addTextEdit(manager.get(cu), name, replaceEdit, CATEGORY_TYPE_RENAME);
+			if (cu != null) {
+				TextChange change= manager.get(cu);
+				for (SearchMatch match : reference.getSearchResults()) {
+					ReplaceEdit replaceEdit= new ReplaceEdit(match.getOffset(), match.getLength(), newName);
+					TextChangeCompatibility.addTextEdit(change, name, replaceEdit, CATEGORY_TYPE_RENAME);
+				}
 			}
-			pm.worked(1);
-		}
+			return null;
+		}, pm);
 	}
 
 	private void computeQualifiedNameMatches(IProgressMonitor pm) {
@@ -1371,7 +1371,7 @@ public class RenameTypeProcessor extends JavaRenameProcessor implements ITextUpd
 					if (handledTopLevelMethods.contains(currentMethod))
 						continue;
 					handledTopLevelMethods.add(currentMethod);
-					final IMethod[] ripples= RippleMethodFinder2.getRelatedMethods(currentMethod, new NullProgressMonitor(), null);
+					final IMethod[] ripples= RippleMethodFinder2.getRelatedMethods(currentMethod, new NullProgressMonitor(), null, RippleHierarchyCache.getDefault());
 
 					if (checkForWarnings(warnings, newName, ripples))
 						continue;
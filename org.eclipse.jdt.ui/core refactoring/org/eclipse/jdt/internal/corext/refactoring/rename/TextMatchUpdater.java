@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,10 +13,13 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.corext.refactoring.rename;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
@@ -50,8 +53,20 @@ import org.eclipse.jdt.internal.corext.refactoring.SearchResultGroup;
 import org.eclipse.jdt.internal.corext.refactoring.changes.TextChangeCompatibility;
 import org.eclipse.jdt.internal.corext.refactoring.rename.RefactoringScanner.TextMatch;
 import org.eclipse.jdt.internal.corext.refactoring.tagging.ITextUpdating;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
-
+import org.eclipse.jdt.internal.corext.refactoring.util.TextMatchPrefilter;
+
+/**
+ * Updates textual matches of a renamed element in comments and strings.
+ * <p>
+ * The compilation units in scope are collected first and then scanned in parallel. Units without
+ * a working copy are first read through {@link org.eclipse.core.resources.IFile#getContents(boolean)},
+ * and files that do not contain the current name are skipped without opening a buffer or running
+ * the scanner, see {@link TextMatchPrefilter}. The resulting edits are added in the order of the
+ * units.
+ * </p>
+ */
 class TextMatchUpdater {
 
 	private static final String TEXT_EDIT_LABEL= RefactoringCoreMessages.TextMatchUpdater_update;
@@ -66,7 +81,9 @@ class TextMatchUpdater {
 	private final SearchResultGroup[] fReferences;
 	private final boolean fOnlyQualified;
 
-	private final RefactoringScanner fScanner;
+	private final String fCurrentName;
+	private final String fCurrentQualifier;
+	private final TextMatchPrefilter fPrefilter;
 	private final String fNewName;
 	private final int fCurrentNameLength;
 
@@ -81,7 +98,9 @@ class TextMatchUpdater {
 
 		fNewName= newName;
 		fCurrentNameLength= currentName.length();
-		fScanner= new RefactoringScanner(currentName, currentQualifier);
+		fCurrentName= currentName;
+		fCurrentQualifier= currentQualifier;
+		fPrefilter= new TextMatchPrefilter(currentName);
 	}
 
 	static void perform(IProgressMonitor pm, IJavaSearchScope scope, String currentName, String currentQualifier, String newName, TextChangeManager manager, SearchResultGroup[] references, boolean onlyQualified) throws JavaModelException{
@@ -96,12 +115,21 @@ class TextMatchUpdater {
 		try{
 			IProject[] projectsInScope= getProjectsInScope();
 
-			pm.beginTask("", projectsInScope.length); //$NON-NLS-1$
+			pm.beginTask("", 2 * projectsInScope.length); //$NON-NLS-1$
+			List<ICompilationUnit> units= new ArrayList<>();
 			for (IProject project : projectsInScope) {
 				if (pm.isCanceled())
 					throw new OperationCanceledException();
-				addTextMatches(project, new SubProgressMonitor(pm, 1));
+				collectCompilationUnits(project, units, new SubProgressMonitor(pm, 1));
+			}
+			List<Set<TextMatch>> matches= ParallelUnitProcessor.process(units, this::scan, new SubProgressMonitor(pm, projectsInScope.length));
+			for (int i= 0; i < units.size(); i++) {
+				addCuTextMatches(units.get(i), matches.get(i));
 			}
+		} catch (JavaModelException e){
+			throw e;
+		} catch (CoreException e){
+			throw new JavaModelException(e);
 		} finally{
 			pm.done();
 		}
@@ -120,7 +148,7 @@ class TextMatchUpdater {
 		return projectsInScope.toArray(new IProject[projectsInScope.size()]);
 	}
 
-	private void addTextMatches(IResource resource, IProgressMonitor pm) throws JavaModelException{
+	private void collectCompilationUnits(IResource resource, List<ICompilationUnit> units, IProgressMonitor pm) throws JavaModelException{
 		try{
 			String task= RefactoringCoreMessages.TextMatchUpdater_searching + resource.getFullPath();
 			if (resource instanceof IFile){
@@ -132,7 +160,7 @@ class TextMatchUpdater {
 					return;
 				if (! fScope.encloses(element))
 					return;
-				addCuTextMatches((ICompilationUnit) element);
+				units.add((ICompilationUnit) element);
 
 			} else if (resource instanceof IContainer){
 				IResource[] members= ((IContainer) resource).members();
@@ -141,7 +169,7 @@ class TextMatchUpdater {
 				for (IResource member : members) {
 					if (pm.isCanceled())
 						throw new OperationCanceledException();
-					addTextMatches(member, new SubProgressMonitor(pm, 1));
+					collectCompilationUnits(member, units, new SubProgressMonitor(pm, 1));
 				}
 			}
 		} catch (JavaModelException e){
@@ -153,9 +181,30 @@ class TextMatchUpdater {
 		}
 	}
 
-	private void addCuTextMatches(ICompilationUnit cu) throws JavaModelException{
-		fScanner.scan(cu);
-		Set<TextMatch> matches= fScanner.getMatches(); //Set of TextMatch
+	/*
+	 * Called from worker threads.
+	 */
+	private Set<TextMatch> scan(ICompilationUnit cu) throws JavaModelException {
+		char[] contents= null;
+		IResource resource= cu.getResource();
+		if (!cu.isWorkingCopy() && !cu.hasUnsavedChanges() && resource instanceof IFile) {
+			try {
+				contents= fPrefilter.readIfMayContain((IFile) resource);
+				if (contents == null)
+					return Collections.emptySet();
+			} catch (CoreException | IOException e) {
+				// read through the buffer below
+			}
+		}
+		if (contents == null)
+			contents= cu.getBuffer().getCharacters();
+
+		RefactoringScanner scanner= new RefactoringScanner(fCurrentName, fCurrentQualifier);
+		scanner.scan(contents, cu.getJavaProject());
+		return scanner.getMatches();
+	}
+
+	private void addCuTextMatches(ICompilationUnit cu, Set<TextMatch> matches) {
 		if (matches.isEmpty())
 			return;
 
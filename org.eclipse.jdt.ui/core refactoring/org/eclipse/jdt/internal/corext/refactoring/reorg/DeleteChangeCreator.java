@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2021 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -56,6 +56,7 @@ import org.eclipse.jdt.internal.corext.refactoring.changes.DynamicValidationStat
 import org.eclipse.jdt.internal.corext.refactoring.changes.TextChangeCompatibility;
 import org.eclipse.jdt.internal.corext.refactoring.changes.UndoablePackageDeleteChange;
 import org.eclipse.jdt.internal.corext.refactoring.structure.CompilationUnitRewrite;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringASTParser;
 import org.eclipse.jdt.internal.corext.refactoring.util.RefactoringFileBuffers;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
@@ -105,9 +106,11 @@ class DeleteChangeCreator {
 		Map<ICompilationUnit, List<IJavaElement>> grouped= ReorgUtils.groupByCompilationUnit(getElementsSmallerThanCu(javaElements));
 		if (!grouped.isEmpty() ){
 			Assert.isNotNull(manager);
-			for (Map.Entry<ICompilationUnit, List<IJavaElement>> entry : grouped.entrySet()) {
-				ICompilationUnit cu = entry.getKey();
-				result.add(createDeleteChange(cu, entry.getValue(), manager));
+			// the units are independent, each one only touches its own text change
+			List<Change> changes= ParallelUnitProcessor.process(new ArrayList<>(grouped.entrySet()),
+					entry -> createDeleteChange(entry.getKey(), entry.getValue(), manager), null);
+			for (Change change : changes) {
+				result.add(change);
 			}
 		}
 
@@ -131,9 +134,14 @@ class DeleteChangeCreator {
 		return addTextEditFromRewrite(manager, cu, rewriter.getASTRewrite());
 	}
 
+	/*
+	 * Called on a worker thread of the ParallelUnitProcessor. The buffer is connected and
+	 * disconnected in that thread, and only disconnected if it has been connected, since the
+	 * connection count of the buffer is shared with other clients of the same file.
+	 */
 	private static TextChange addTextEditFromRewrite(TextChangeManager manager, ICompilationUnit cu, ASTRewrite rewrite) throws CoreException {
+		ITextFileBuffer buffer= RefactoringFileBuffers.acquire(cu);
 		try {
-			ITextFileBuffer buffer= RefactoringFileBuffers.acquire(cu);
 			TextEdit resultingEdits= rewrite.rewriteAST(buffer.getDocument(), cu.getOptions(true));
 			TextChange textChange= manager.get(cu);
 			if (textChange instanceof TextFileChange) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,9 +16,10 @@ package org.eclipse.jdt.internal.corext.refactoring.reorg;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
@@ -66,6 +67,7 @@ import org.eclipse.jdt.internal.corext.refactoring.SearchResultGroup;
 import org.eclipse.jdt.internal.corext.refactoring.base.ReferencesInBinaryContext;
 import org.eclipse.jdt.internal.corext.refactoring.changes.TextChangeCompatibility;
 import org.eclipse.jdt.internal.corext.refactoring.structure.ReferenceFinderUtil;
+import org.eclipse.jdt.internal.corext.refactoring.util.ParallelUnitProcessor;
 import org.eclipse.jdt.internal.corext.refactoring.util.TextChangeManager;
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
 import org.eclipse.jdt.internal.corext.util.Messages;
@@ -79,7 +81,7 @@ public class MoveCuUpdateCreator {
 	private ICompilationUnit[] fCus;
 	private IPackageFragment fDestination;
 
-	private Map<ICompilationUnit, ImportRewrite> fImportRewrites; //ICompilationUnit -> ImportEdit
+	private Map<ICompilationUnit, ImportRewrite> fImportRewrites; //ICompilationUnit -> ImportEdit, updated in parallel per referencing unit
 
 	public MoveCuUpdateCreator(ICompilationUnit cu, IPackageFragment pack){
 		this(new ICompilationUnit[]{cu}, pack);
@@ -90,7 +92,7 @@ public class MoveCuUpdateCreator {
 		Assert.isNotNull(pack);
 		fCus= cus;
 		fDestination= pack;
-		fImportRewrites= new HashMap<>();
+		fImportRewrites= new ConcurrentHashMap<>();
 		fNewPackage= fDestination.isDefaultPackage() ? "" : fDestination.getElementName() + '.'; //$NON-NLS-1$
 	}
 
@@ -122,69 +124,82 @@ public class MoveCuUpdateCreator {
 	}
 
 	private void addUpdates(TextChangeManager changeManager, IProgressMonitor pm, RefactoringStatus status) throws CoreException {
-		pm.beginTask("", fCus.length);  //$NON-NLS-1$
-		for (ICompilationUnit cu : fCus) {
-			if (pm.isCanceled())
-				throw new OperationCanceledException();
-			addUpdates(changeManager, cu, new SubProgressMonitor(pm, 1), status);
-		}
-	}
-
-	private void addUpdates(TextChangeManager changeManager, ICompilationUnit movedUnit, IProgressMonitor pm, RefactoringStatus status) throws CoreException{
-		try{
-			pm.beginTask("", 3);  //$NON-NLS-1$
-		  	pm.subTask(Messages.format(RefactoringCoreMessages.MoveCuUpdateCreator_searching, BasicElementLabels.getFileName(movedUnit)));
+		pm.beginTask("", 3 * fCus.length);  //$NON-NLS-1$
+		try {
+			// moved units grouped by their source package, the type references only depend on the source package
+			Map<IPackageFragment, List<ICompilationUnit>> movedUnits= new LinkedHashMap<>();
+			for (ICompilationUnit cu : fCus) {
+				if (pm.isCanceled())
+					throw new OperationCanceledException();
+			  	pm.subTask(Messages.format(RefactoringCoreMessages.MoveCuUpdateCreator_searching, BasicElementLabels.getFileName(cu)));
+				if (isInAnotherFragmentOfSamePackage(cu, fDestination)) {
+					pm.worked(3);
+					continue;
+				}
+			  	addImportToSourcePackageTypes(cu, new SubProgressMonitor(pm, 1));
+				removeImportsToDestinationPackageTypes(cu);
+				movedUnits.computeIfAbsent((IPackageFragment) cu.getParent(), pack -> new ArrayList<>()).add(cu);
+			}
 
-			if (isInAnotherFragmentOfSamePackage(movedUnit, fDestination)){
-				pm.worked(3);
-				return;
+			// one search per source package, the matches are grouped by referencing unit
+			Map<ICompilationUnit, List<SourceReferences>> references= new LinkedHashMap<>();
+			for (Map.Entry<IPackageFragment, List<ICompilationUnit>> entry : movedUnits.entrySet()) {
+				IPackageFragment source= entry.getKey();
+				List<ICompilationUnit> units= entry.getValue();
+				for (SearchResultGroup group : getReferences(source, units, new SubProgressMonitor(pm, units.size()), status)) {
+					ICompilationUnit referencingCu= group.getCompilationUnit();
+					if (referencingCu != null)
+						references.computeIfAbsent(referencingCu, cu -> new ArrayList<>()).add(new SourceReferences(source, group.getSearchResults()));
+				}
 			}
 
-		  	addImportToSourcePackageTypes(movedUnit, new SubProgressMonitor(pm, 1));
-			removeImportsToDestinationPackageTypes(movedUnit);
-			addReferenceUpdates(changeManager, movedUnit, new SubProgressMonitor(pm, 2), status);
-		} finally{
+			// the updates of a referencing unit only touch its own import rewrite and text change
+			List<ICompilationUnit> cuList= Arrays.asList(fCus);
+			int remaining= 0;
+			for (List<ICompilationUnit> units : movedUnits.values())
+				remaining+= units.size();
+			ParallelUnitProcessor.process(new ArrayList<>(references.entrySet()), entry -> {
+				for (SourceReferences sourceReferences : entry.getValue()) {
+					addReferenceUpdates(changeManager, sourceReferences.fSource, entry.getKey(), sourceReferences.fMatches, cuList);
+				}
+				return null;
+			}, new SubProgressMonitor(pm, remaining));
+		} finally {
 			pm.done();
 		}
 	}
 
-	private void addReferenceUpdates(TextChangeManager changeManager, ICompilationUnit movedUnit, IProgressMonitor pm, RefactoringStatus status) throws JavaModelException, CoreException {
-		List<ICompilationUnit> cuList= Arrays.asList(fCus);
-		for (SearchResultGroup searchResultGroup : getReferences(movedUnit, pm, status)) {
-			ICompilationUnit referencingCu= searchResultGroup.getCompilationUnit();
-			if (referencingCu == null)
-				continue;
-			boolean simpleReferencesNeedNewImport= simpleReferencesNeedNewImport(movedUnit, referencingCu, cuList);
-			for (SearchMatch result : searchResultGroup.getSearchResults()) {
-				// TODO: should update type references with results from addImport
-				TypeReference reference= (TypeReference) result;
-				if (reference.isImportDeclaration()) {
-					ImportRewrite rewrite= getImportRewrite(referencingCu);
-					IImportDeclaration importDecl= (IImportDeclaration) SearchUtils.getEnclosingJavaElement(result);
-					if (Flags.isStatic(importDecl.getFlags())) {
-						rewrite.removeStaticImport(importDecl.getElementName());
-						addStaticImport(movedUnit, importDecl, rewrite);
-					} else {
-						rewrite.removeImport(importDecl.getElementName());
-						rewrite.addImport(createStringForNewImport(movedUnit, importDecl));
-					}
-				} else if (reference.isQualified()) {
-					TextChange textChange= changeManager.get(referencingCu);
-					String changeName= RefactoringCoreMessages.MoveCuUpdateCreator_update_references;
-					TextEdit replaceEdit= new ReplaceEdit(reference.getOffset(), reference.getSimpleNameStart() - reference.getOffset(), fNewPackage);
-					TextChangeCompatibility.addTextEdit(textChange, changeName, replaceEdit);
-				} else if (simpleReferencesNeedNewImport) {
-					ImportRewrite importEdit= getImportRewrite(referencingCu);
-					String typeName= reference.getSimpleName();
-					importEdit.addImport(getQualifiedType(fDestination.getElementName(), typeName));
+	private void addReferenceUpdates(TextChangeManager changeManager, IPackageFragment source, ICompilationUnit referencingCu, SearchMatch[] matches, List<ICompilationUnit> cuList) throws CoreException {
+		boolean simpleReferencesNeedNewImport= simpleReferencesNeedNewImport(source, referencingCu, cuList);
+		for (SearchMatch result : matches) {
+			// TODO: should update type references with results from addImport
+			TypeReference reference= (TypeReference) result;
+			if (reference.isImportDeclaration()) {
+				ImportRewrite rewrite= getImportRewrite(referencingCu);
+				IImportDeclaration importDecl= (IImportDeclaration) SearchUtils.getEnclosingJavaElement(result);
+				if (Flags.isStatic(importDecl.getFlags())) {
+					rewrite.removeStaticImport(importDecl.getElementName());
+					addStaticImport(source, importDecl, rewrite);
+				} else {
+					rewrite.removeImport(importDecl.getElementName());
+					rewrite.addImport(createStringForNewImport(source, importDecl));
 				}
+			} else if (reference.isQualified()) {
+				TextChange textChange= changeManager.get(referencingCu);
+				String changeName= RefactoringCoreMessages.MoveCuUpdateCreator_update_references;
+				TextEdit replaceEdit= new ReplaceEdit(reference.getOffset(), reference.getSimpleNameStart() - reference.getOffset(), fNewPackage);
+				TextChangeCompatibility.addTextEdit(textChange, changeName, replaceEdit);
+			} else if (simpleReferencesNeedNewImport) {
+				ImportRewrite importEdit= getImportRewrite(referencingCu);
+				String typeName= reference.getSimpleName();
+				importEdit.addImport(getQualifiedType(fDestination.getElementName(), typeName));
 			}
 		}
 	}
 
-	private void addStaticImport(ICompilationUnit movedUnit, IImportDeclaration importDecl, ImportRewrite rewrite) {
+	private void addStaticImport(IPackageFragment source, IImportDeclaration importDecl, ImportRewrite rewrite) {
 		String old= importDecl.getElementName();
-		int oldPackLength= movedUnit.getParent().getElementName().length();
+		int oldPackLength= source.getElementName().length();
 
 		StringBuilder result= new StringBuilder(fDestination.getElementName());
 		if (oldPackLength == 0) // move FROM default package
@@ -205,9 +220,9 @@ public class MoveCuUpdateCreator {
 			return packageName + '.' + typeName;
 	}
 
-    private String createStringForNewImport(ICompilationUnit movedUnit, IImportDeclaration importDecl) {
+    private String createStringForNewImport(IPackageFragment source, IImportDeclaration importDecl) {
     	String old= importDecl.getElementName();
-		int oldPackLength= movedUnit.getParent().getElementName().length();
+		int oldPackLength= source.getElementName().length();
 
 		StringBuilder result= new StringBuilder(fDestination.getElementName());
 		if (oldPackLength == 0) // move FROM default package
@@ -262,32 +277,30 @@ public class MoveCuUpdateCreator {
 		return importEdit;
 	}
 
-	private boolean simpleReferencesNeedNewImport(ICompilationUnit movedUnit, ICompilationUnit referencingCu, List<ICompilationUnit> cuList) {
-		if (referencingCu.equals(movedUnit))
-			return false;
+	private boolean simpleReferencesNeedNewImport(IPackageFragment source, ICompilationUnit referencingCu, List<ICompilationUnit> cuList) {
 		if (cuList.contains(referencingCu))
 			return false;
-		if (isReferenceInAnotherFragmentOfSamePackage(referencingCu, movedUnit)) {
+		if (isReferenceInAnotherFragmentOfSamePackage(referencingCu, source)) {
 			/* Destination package is different from source, since
 			 * isDestinationAnotherFragmentOfSamePackage(movedUnit) was false in addUpdates(.) */
 			return true;
 		}
 
 		//heuristic
-		if (referencingCu.getImport(movedUnit.getParent().getElementName() + ".*").exists()) //$NON-NLS-1$
+		if (referencingCu.getImport(source.getElementName() + ".*").exists()) //$NON-NLS-1$
 			return true; // has old star import
-		if (referencingCu.getParent().equals(movedUnit.getParent()))
+		if (referencingCu.getParent().equals(source))
 			return true; //is moved away from same package
 		return false;
 	}
 
-	private boolean isReferenceInAnotherFragmentOfSamePackage(ICompilationUnit referencingCu, ICompilationUnit movedUnit) {
+	private boolean isReferenceInAnotherFragmentOfSamePackage(ICompilationUnit referencingCu, IPackageFragment source) {
 		if (referencingCu == null)
 			return false;
 		if (! (referencingCu.getParent() instanceof IPackageFragment))
 			return false;
 		IPackageFragment pack= (IPackageFragment) referencingCu.getParent();
-		return isInAnotherFragmentOfSamePackage(movedUnit, pack);
+		return ! source.equals(pack) && JavaModelUtil.isSamePackage(source, pack);
 	}
 
 	private static boolean isInAnotherFragmentOfSamePackage(ICompilationUnit cu, IPackageFragment pack) {
@@ -297,21 +310,49 @@ public class MoveCuUpdateCreator {
 		return ! cuPack.equals(pack) && JavaModelUtil.isSamePackage(cuPack, pack);
 	}
 
-	private static SearchResultGroup[] getReferences(ICompilationUnit unit, IProgressMonitor pm, RefactoringStatus status) throws CoreException {
-		final SearchPattern pattern= RefactoringSearchEngine.createOrPattern(unit.getTypes(), IJavaSearchConstants.REFERENCES);
+	/**
+	 * Searches the references to the types of all moved units of a source package with a single
+	 * combined pattern.
+	 *
+	 * @param source the source package
+	 * @param units the moved units of the source package
+	 * @param pm the progress monitor
+	 * @param status the status to report binary references to
+	 * @return the references, grouped by referencing unit
+	 * @throws CoreException if the search failed
+	 */
+	private static SearchResultGroup[] getReferences(IPackageFragment source, List<ICompilationUnit> units, IProgressMonitor pm, RefactoringStatus status) throws CoreException {
+		List<IType> types= new ArrayList<>();
+		for (ICompilationUnit unit : units) {
+			types.addAll(Arrays.asList(unit.getTypes()));
+		}
+		final SearchPattern pattern= RefactoringSearchEngine.createOrPattern(types.toArray(new IType[types.size()]), IJavaSearchConstants.REFERENCES);
 		if (pattern != null) {
-			String binaryRefsDescription= Messages.format(RefactoringCoreMessages.ReferencesInBinaryContext_ref_in_binaries_description , BasicElementLabels.getFileName(unit));
+			String element= units.size() == 1 ? BasicElementLabels.getFileName(units.get(0)) : BasicElementLabels.getJavaElementName(source.getElementName());
+			String binaryRefsDescription= Messages.format(RefactoringCoreMessages.ReferencesInBinaryContext_ref_in_binaries_description , element);
 			ReferencesInBinaryContext binaryRefs= new ReferencesInBinaryContext(binaryRefsDescription);
-			Collector requestor= new Collector(((IPackageFragment) unit.getParent()), binaryRefs);
-			IJavaSearchScope scope= RefactoringScopeFactory.create(unit, true, false);
+			Collector requestor= new Collector(source, binaryRefs);
+			// the scope of a compilation unit only depends on its project
+			IJavaSearchScope scope= RefactoringScopeFactory.create(units.get(0), true, false);
 
-			SearchResultGroup[] result= RefactoringSearchEngine.search(pattern, scope, requestor, new SubProgressMonitor(pm, 1), status);
+			SearchResultGroup[] result= RefactoringSearchEngine.search(pattern, scope, requestor, pm, status);
 			binaryRefs.addErrorIfNecessary(status);
 			return result;
 		}
+		pm.done();
 		return new SearchResultGroup[] {};
 	}
 
+	private static final class SourceReferences {
+		final IPackageFragment fSource;
+		final SearchMatch[] fMatches;
+
+		SourceReferences(IPackageFragment source, SearchMatch[] matches) {
+			fSource= source;
+			fMatches= matches;
+		}
+	}
+
 	private final static class Collector extends CollectingSearchRequestor {
 		private IPackageFragment fSource;
 		private IScanner fScanner;
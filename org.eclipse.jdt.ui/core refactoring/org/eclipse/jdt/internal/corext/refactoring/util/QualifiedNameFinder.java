@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -61,10 +61,12 @@ public class QualifiedNameFinder {
 
 		private final String fNewValue;
 		private final QualifiedNameSearchResult fResult;
+		private final TextMatchPrefilter fPrefilter;
 
-		public ResultCollector(QualifiedNameSearchResult result, String newValue) {
+		public ResultCollector(QualifiedNameSearchResult result, String newValue, TextMatchPrefilter prefilter) {
 			fResult= result;
 			fNewValue= newValue;
+			fPrefilter= prefilter;
 		}
 
 		@Override
@@ -87,6 +89,10 @@ public class QualifiedNameFinder {
 			if (segment != null && (segment.startsWith(".refactorings") || segment.startsWith(".deprecations"))) //$NON-NLS-1$ //$NON-NLS-2$
 				return false;
 
+			// skip files that cannot contain the name before the search engine decodes them:
+			if (fPrefilter != null && !fPrefilter.mayContain(file))
+				return false;
+
 			return true;
 		}
 
@@ -140,7 +146,9 @@ public class QualifiedNameFinder {
 			return;
 		}
 
-		ResultCollector collector= new ResultCollector(result, newValue);
+		// the pattern is a plain qualified name unless it uses wildcards
+		TextMatchPrefilter prefilter= pattern.indexOf('*') == -1 && pattern.indexOf('?') == -1 && pattern.indexOf('\\') == -1 ? new TextMatchPrefilter(pattern) : null;
+		ResultCollector collector= new ResultCollector(result, newValue, prefilter);
 		TextSearchEngine engine= TextSearchEngine.create();
 		Pattern searchPattern= PatternConstructor.createPattern(pattern, true, false);
 
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.corext.refactoring.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.CoreException;
+
+import org.eclipse.core.resources.IFile;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.LocationKind;
+
+/**
+ * Reads files through the workspace and rejects files that cannot contain a given name before
+ * they get decoded or tokenized.
+ * <p>
+ * The check is done on the raw bytes of the file and is only used when the name is plain ASCII
+ * and the charset of the file encodes ASCII characters as single bytes (e.g. UTF-8 or ISO-8859-1).
+ * In all other cases, the filter conservatively accepts the file.
+ * </p>
+ * <p>
+ * The filter is stateless after construction and can be used from several threads.
+ * </p>
+ */
+public final class TextMatchPrefilter {
+
+	private static final Map<String, Boolean> fgAsciiCompatible= new ConcurrentHashMap<>();
+
+	private final String fName;
+	private final byte[] fNameBytes;
+
+	/**
+	 * Creates a filter for files containing the given name.
+	 *
+	 * @param name the name that must occur in accepted files
+	 */
+	public TextMatchPrefilter(String name) {
+		fName= name;
+		fNameBytes= isAscii(name) && name.length() > 0 ? name.getBytes(StandardCharsets.US_ASCII) : null;
+	}
+
+	/**
+	 * Returns whether the given file may contain the name. Files that are open in a dirty editor
+	 * or that cannot be read are always accepted.
+	 *
+	 * @param file the file to check
+	 * @return <code>false</code> if the file cannot contain the name
+	 */
+	public boolean mayContain(IFile file) {
+		if (fNameBytes == null || isDirty(file))
+			return true;
+		try {
+			if (!isAsciiCompatible(file.getCharset()))
+				return true;
+			return indexOf(read(file), fNameBytes) != -1;
+		} catch (CoreException | IOException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Reads the contents of the given file as the Java model would do for a compilation unit
+	 * without a working copy, i.e. decoded with the charset of the file and without byte order
+	 * mark.
+	 *
+	 * @param file the file to read
+	 * @return the contents, or <code>null</code> if the file cannot contain the name
+	 * @throws CoreException if the file or its charset could not be accessed
+	 * @throws IOException if the file could not be read, or if it is open in a dirty buffer and
+	 *             must be read through that buffer instead
+	 */
+	public char[] readIfMayContain(IFile file) throws CoreException, IOException {
+		if (isDirty(file))
+			throw new IOException(file.getFullPath().toString());
+		String charsetName= file.getCharset();
+		ByteBuffer contents= read(file);
+		if (fNameBytes != null && isAsciiCompatible(charsetName) && indexOf(contents, fNameBytes) == -1)
+			return null;
+
+		CharBuffer chars= Charset.forName(charsetName).newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE)
+				.decode(contents);
+		int start= chars.hasRemaining() && chars.get(chars.position()) == '\uFEFF' ? chars.position() + 1 : chars.position();
+		char[] result= Arrays.copyOfRange(chars.array(), start + chars.arrayOffset(), chars.limit() + chars.arrayOffset());
+		if (fNameBytes == null && !contains(result, fName))
+			return null;
+		return result;
+	}
+
+	private static ByteBuffer read(IFile file) throws CoreException, IOException {
+		try (InputStream in= file.getContents(true)) {
+			return ByteBuffer.wrap(in.readAllBytes());
+		}
+	}
+
+	private static boolean isDirty(IFile file) {
+		ITextFileBuffer buffer= FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
+		return buffer != null && buffer.isDirty();
+	}
+
+	private static boolean isAscii(String name) {
+		for (int i= 0; i < name.length(); i++) {
+			if (name.charAt(i) >= 0x80)
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isAsciiCompatible(String charsetName) {
+		if (charsetName == null)
+			return false;
+		return fgAsciiCompatible.computeIfAbsent(charsetName, TextMatchPrefilter::computeAsciiCompatible).booleanValue();
+	}
+
+	private static Boolean computeAsciiCompatible(String charsetName) {
+		try {
+			Charset charset= Charset.forName(charsetName);
+			if (!charset.canEncode())
+				return Boolean.FALSE;
+			byte[] ascii= new byte[0x80];
+			for (int i= 0; i < ascii.length; i++) {
+				ascii[i]= (byte) i;
+			}
+			String decoded= new String(ascii, StandardCharsets.US_ASCII);
+			ByteBuffer encoded= charset.newEncoder().encode(CharBuffer.wrap(decoded));
+			byte[] bytes= new byte[encoded.remaining()];
+			encoded.get(bytes);
+			return Boolean.valueOf(Arrays.equals(ascii, bytes) && decoded.equals(new String(ascii, charset)));
+		} catch (IllegalArgumentException | CharacterCodingException e) {
+			return Boolean.FALSE;
+		}
+	}
+
+	private static int indexOf(ByteBuffer buffer, byte[] pattern) {
+		byte first= pattern[0];
+		int max= buffer.limit() - pattern.length;
+		outer: for (int i= buffer.position(); i <= max; i++) {
+			if (buffer.get(i) != first)
+				continue;
+			for (int k= 1; k < pattern.length; k++) {
+				if (buffer.get(i + k) != pattern[k])
+					continue outer;
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private static boolean contains(char[] chars, String name) {
+		int max= chars.length - name.length();
+		outer: for (int i= 0; i <= max; i++) {
+			for (int k= 0; k < name.length(); k++) {
+				if (chars[i + k] != name.charAt(k))
+					continue outer;
+			}
+			return true;
+		}
+		return false;
+	}
+}
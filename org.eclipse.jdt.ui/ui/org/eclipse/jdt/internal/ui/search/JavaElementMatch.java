@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,46 +17,62 @@ import org.eclipse.search.ui.text.Match;
 
 /**
  * A search match with additional java-specific info.
+ * <p>
+ * Search results can hold millions of matches, so the java-specific info is packed into a
+ * single <code>int</code>.
+ * </p>
  */
 public class JavaElementMatch extends Match {
-	private final int fAccuracy;
-	private final int fMatchRule;
-	private final boolean fIsWriteAccess;
-	private final boolean fIsReadAccess;
-	private final boolean fIsJavadoc;
-	private final boolean fIsSuperInvocation;
+
+	private static final int READ_ACCESS= 1;
+	private static final int WRITE_ACCESS= 1 << 1;
+	private static final int JAVADOC= 1 << 2;
+	private static final int SUPER_INVOCATION= 1 << 3;
+
+	private static final int ACCURACY_SHIFT= 4;
+	private static final int ACCURACY_MASK= 0xF;
+	private static final int MATCH_RULE_SHIFT= 8;
+
+	/**
+	 * Bits 0-3: access and location flags, bits 4-7: accuracy, bits 8-31: match rule.
+	 */
+	private final int fBits;
 
 	JavaElementMatch(Object element, int matchRule, int offset, int length, int accuracy, boolean isReadAccess, boolean isWriteAccess, boolean isJavadoc, boolean isSuperInvocation) {
 		super(element, offset, length);
-		fAccuracy= accuracy;
-		fMatchRule= matchRule;
-		fIsWriteAccess= isWriteAccess;
-		fIsReadAccess= isReadAccess;
-		fIsJavadoc= isJavadoc;
-		fIsSuperInvocation= isSuperInvocation;
+		int bits= (matchRule << MATCH_RULE_SHIFT) | ((accuracy & ACCURACY_MASK) << ACCURACY_SHIFT);
+		if (isReadAccess)
+			bits|= READ_ACCESS;
+		if (isWriteAccess)
+			bits|= WRITE_ACCESS;
+		if (isJavadoc)
+			bits|= JAVADOC;
+		if (isSuperInvocation)
+			bits|= SUPER_INVOCATION;
+		fBits= bits;
 	}
 
 	public int getAccuracy() {
-		return fAccuracy;
+		return (fBits >>> ACCURACY_SHIFT) & ACCURACY_MASK;
 	}
 
 	public boolean isWriteAccess() {
-		return fIsWriteAccess;
+		return (fBits & WRITE_ACCESS) != 0;
 	}
 
 	public boolean isReadAccess() {
-		return fIsReadAccess;
+		return (fBits & READ_ACCESS) != 0;
 	}
 
 	public boolean isJavadoc() {
-		return fIsJavadoc;
+		return (fBits & JAVADOC) != 0;
 	}
 
 	public boolean isSuperInvocation() {
-		return fIsSuperInvocation;
+		return (fBits & SUPER_INVOCATION) != 0;
 	}
 
 	public int getMatchRule() {
-		return fMatchRule;
+		return fBits >>> MATCH_RULE_SHIFT;
 	}
 }
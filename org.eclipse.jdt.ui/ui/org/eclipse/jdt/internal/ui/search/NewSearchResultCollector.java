@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,9 +13,18 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.search;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.PerformanceStats;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.search.ui.text.AbstractTextSearchResult;
+import org.eclipse.search.ui.text.Match;
 
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.search.FieldDeclarationMatch;
@@ -27,14 +36,79 @@ import org.eclipse.jdt.core.search.SearchMatch;
 import org.eclipse.jdt.core.search.SearchParticipant;
 import org.eclipse.jdt.core.search.SearchRequestor;
 
+/**
+ * Collects the matches of a Java search into an {@link AbstractTextSearchResult}.
+ * <p>
+ * Every change of the search result is propagated to the search views, so matches are buffered
+ * and added in batches: a batch is published when it reaches the batch size, or at the latest
+ * {@value #MAX_BATCH_DELAY} ms after the last batch, also if no further match is reported. Remaining
+ * matches are published in {@link #endReporting()}.
+ * </p>
+ */
 public class NewSearchResultCollector extends SearchRequestor {
+
+	/**
+	 * The default number of matches that are buffered before they are added to the search result.
+	 */
+	public static final int DEFAULT_BATCH_SIZE= 500;
+
+	/**
+	 * Maximal time in milliseconds between two batches as long as matches are reported.
+	 */
+	private static final long MAX_BATCH_DELAY= 200;
+
+	private static final String PERF_SEARCH_COLLECTOR= "org.eclipse.jdt.ui/perf/search/collector"; //$NON-NLS-1$
+
 	private AbstractTextSearchResult fSearch;
 	private boolean fIgnorePotentials;
 
+	private final int fBatchSize;
+
+	/**
+	 * The buffered matches. Also the lock for publishing, since the flush job publishes the
+	 * matches from another thread.
+	 */
+	private final List<Match> fBatch;
+	private final Job fFlushJob;
+	private long fLastBatchTime;
+	private long fStartTime;
+	private long fEndTime;
+	private int fMatchCount;
+	private int fBatchCount;
+	private PerformanceStats fStats;
+
+	/**
+	 * Canonical instances of the enclosing elements reported so far. The search engine creates a
+	 * new handle for every match, so without sharing, large results keep one handle (and its
+	 * parent chain) per match alive.
+	 */
+	private final Map<IJavaElement, IJavaElement> fEnclosingElements= new HashMap<>();
+
 	public NewSearchResultCollector(AbstractTextSearchResult search, boolean ignorePotentials) {
+		this(search, ignorePotentials, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Creates a collector that adds the matches to the given search result in batches.
+	 *
+	 * @param search the search result
+	 * @param ignorePotentials whether potential matches are ignored
+	 * @param batchSize the maximal number of matches that are buffered before they are added to the
+	 *            search result, <code>1</code> to add every match immediately
+	 */
+	public NewSearchResultCollector(AbstractTextSearchResult search, boolean ignorePotentials, int batchSize) {
 		super();
 		fSearch= search;
 		fIgnorePotentials= ignorePotentials;
+		fBatchSize= Math.max(1, batchSize);
+		fBatch= new ArrayList<>(Math.min(fBatchSize, DEFAULT_BATCH_SIZE));
+		fFlushJob= Job.create(SearchMessages.JavaSearchQuery_label, monitor -> {
+			synchronized (fBatch) {
+				publishBatch();
+			}
+			return Status.OK_STATUS;
+		});
+		fFlushJob.setSystem(true);
 	}
 
 	@Override
@@ -43,6 +117,10 @@ public class NewSearchResultCollector extends SearchRequestor {
 		if (enclosingElement != null) {
 			if (fIgnorePotentials && (match.getAccuracy() == SearchMatch.A_INACCURATE))
 				return;
+			IJavaElement canonical= fEnclosingElements.putIfAbsent(enclosingElement, enclosingElement);
+			if (canonical != null) {
+				enclosingElement= canonical;
+			}
 			boolean isWriteAccess= false;
 			boolean isReadAccess= false;
 			if (match instanceof FieldReferenceMatch) {
@@ -63,16 +141,89 @@ public class NewSearchResultCollector extends SearchRequestor {
 				MethodReferenceMatch methodRef= (MethodReferenceMatch) match;
 				isSuperInvocation= methodRef.isSuperInvocation();
 			}
-			fSearch.addMatch(new JavaElementMatch(enclosingElement, match.getRule(), match.getOffset(), match.getLength(), match.getAccuracy(), isReadAccess, isWriteAccess, match.isInsideDocComment(), isSuperInvocation));
+			JavaElementMatch javaMatch= new JavaElementMatch(enclosingElement, match.getRule(), match.getOffset(), match.getLength(), match.getAccuracy(), isReadAccess, isWriteAccess, match.isInsideDocComment(), isSuperInvocation);
+			synchronized (fBatch) {
+				fBatch.add(javaMatch);
+				fMatchCount++;
+				long delay= System.currentTimeMillis() - fLastBatchTime;
+				if (fBatch.size() >= fBatchSize || delay >= MAX_BATCH_DELAY) {
+					publishBatch();
+				} else if (fBatch.size() == 1) {
+					// publish the match in time, also if no further match is reported
+					fFlushJob.schedule(MAX_BATCH_DELAY - delay);
+				}
+			}
 		}
 	}
 
+	/*
+	 * Must be called with the lock on fBatch.
+	 */
+	private void publishBatch() {
+		if (!fBatch.isEmpty()) {
+			fSearch.addMatches(fBatch.toArray(new Match[fBatch.size()]));
+			fBatch.clear();
+			fBatchCount++;
+		}
+		fLastBatchTime= System.currentTimeMillis();
+	}
+
 	@Override
 	public void beginReporting() {
+		fStartTime= System.currentTimeMillis();
+		fEndTime= 0;
+		fLastBatchTime= fStartTime;
+		fMatchCount= 0;
+		fBatchCount= 0;
+		if (PerformanceStats.isEnabled(PERF_SEARCH_COLLECTOR)) {
+			fStats= PerformanceStats.getStats(PERF_SEARCH_COLLECTOR, this);
+			fStats.startRun();
+		}
 	}
 
 	@Override
 	public void endReporting() {
+		fFlushJob.cancel();
+		synchronized (fBatch) {
+			publishBatch();
+		}
+		fEnclosingElements.clear();
+		fEndTime= System.currentTimeMillis();
+		if (fStats != null) {
+			fStats.endRun();
+			fStats= null;
+		}
+	}
+
+	/**
+	 * Returns the number of matches collected in the last search.
+	 *
+	 * @return the number of matches
+	 */
+	public int getMatchCount() {
+		return fMatchCount;
+	}
+
+	/**
+	 * Returns the number of batches in which the matches of the last search have been added to
+	 * the search result.
+	 *
+	 * @return the number of batches
+	 */
+	public int getBatchCount() {
+		return fBatchCount;
+	}
+
+	/**
+	 * Returns the throughput of the last search.
+	 *
+	 * @return the number of matches collected per second, or <code>0</code> if nothing has been
+	 *         collected yet
+	 */
+	public double getMatchesPerSecond() {
+		long end= fEndTime != 0 ? fEndTime : System.currentTimeMillis();
+		long elapsed= Math.max(1, end - fStartTime);
+		return fMatchCount * 1000d / elapsed;
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,7 +16,11 @@ package org.eclipse.jdt.internal.ui.typehierarchy;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.swt.widgets.Display;
 
@@ -32,6 +36,7 @@ import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.ui.progress.IWorkbenchSiteProgressService;
 
 import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.Flags;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IElementChangedListener;
 import org.eclipse.jdt.core.IJavaElement;
@@ -45,6 +50,7 @@ import org.eclipse.jdt.core.ITypeHierarchy;
 import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.Signature;
 
 import org.eclipse.jdt.internal.corext.util.JavaModelUtil;
 import org.eclipse.jdt.internal.corext.util.Messages;
@@ -84,6 +90,46 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 	 */
 	private boolean fRefreshJobCanceledExplicitly= true;
 
+	/**
+	 * Indicates whether changes are analyzed on the Java element deltas. If set, the hierarchy is
+	 * only recomputed if a delta can change its shape (added, removed or changed supertypes,
+	 * classpath changes). Otherwise every change reported by the type hierarchy triggers a full
+	 * refresh.
+	 *
+	 * @since 3.29
+	 */
+	private boolean fIncrementalRefresh;
+
+	/**
+	 * Simple names of all types in the current hierarchy, computed lazily in the incremental mode.
+	 *
+	 * @since 3.29
+	 */
+	private volatile Set<String> fHierarchyTypeNames;
+
+	/**
+	 * Types of the current hierarchy by compilation unit, computed lazily in the incremental mode.
+	 *
+	 * @since 3.29
+	 */
+	private volatile Map<ICompilationUnit, List<IType>> fHierarchyTypesByUnit;
+
+	/**
+	 * Indicates whether the current hierarchy has been restored from a snapshot and still needs to
+	 * be recomputed.
+	 *
+	 * @since 3.29
+	 */
+	private boolean fHierarchyFromSnapshot;
+
+	/**
+	 * Indicates whether the current hierarchy has been computed but no snapshot of it has been
+	 * written yet.
+	 *
+	 * @since 3.29
+	 */
+	private boolean fSnapshotNeeded;
+
 	/**
 	 * Creates the type hierarchy life cycle.
 	 *
@@ -94,6 +140,7 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		this(false);
 		fTypeHierarchyViewPart= part;
 		fRefreshHierarchyJob= null;
+		fIncrementalRefresh= true;
 	}
 
 	public TypeHierarchyLifeCycle(boolean isSuperTypesOnly) {
@@ -107,6 +154,28 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		return fHierarchy;
 	}
 
+	/**
+	 * Sets whether the hierarchy is refreshed incrementally. In the incremental mode, the Java
+	 * element deltas are analyzed and the hierarchy is only recomputed if a change can affect
+	 * its shape. Changes that leave the hierarchy intact only update the affected types.
+	 *
+	 * @param incremental <code>true</code> to enable the incremental mode
+	 * @since 3.29
+	 */
+	public void setIncrementalRefresh(boolean incremental) {
+		fIncrementalRefresh= incremental;
+	}
+
+	/**
+	 * Returns whether the hierarchy is refreshed incrementally.
+	 *
+	 * @return <code>true</code> if the incremental mode is enabled
+	 * @since 3.29
+	 */
+	public boolean isIncrementalRefresh() {
+		return fIncrementalRefresh;
+	}
+
 	/**
 	 * Returns the array of input elements.
 	 *
@@ -123,6 +192,10 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 			JavaCore.removeElementChangedListener(this);
 			fHierarchy= null;
 			fInputElements= null;
+			fHierarchyTypeNames= null;
+			fHierarchyTypesByUnit= null;
+			fHierarchyFromSnapshot= false;
+			fSnapshotNeeded= false;
 		}
 		synchronized (this) {
 			if (fRefreshHierarchyJob != null) {
@@ -283,6 +356,73 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 				fTypeHierarchyViewPart.setViewersInput();
 				fTypeHierarchyViewPart.updateViewers();
 			});
+			storeHierarchySnapshot(pm);
+		}
+	}
+
+	/**
+	 * Restores the hierarchy for the given elements from a snapshot written by a previous session.
+	 * A restored hierarchy can be outdated: it is replaced by a newly computed hierarchy on the
+	 * next refresh, see {@link #isHierarchyFromSnapshot()}.
+	 *
+	 * @param elements the java elements on which the hierarchy is computed
+	 * @param pm the progress monitor
+	 * @return <code>true</code> if the hierarchy has been restored from a snapshot,
+	 *         <code>false</code> if no valid snapshot is available
+	 * @since 3.29
+	 */
+	public boolean restoreHierarchySnapshot(IJavaElement[] elements, IProgressMonitor pm) {
+		if (fIsSuperTypesOnly || elements.length != 1 || elements[0].getElementType() != IJavaElement.TYPE) {
+			return false;
+		}
+		ITypeHierarchy hierarchy= TypeHierarchySnapshotStore.load((IType) elements[0], pm);
+		if (hierarchy == null) {
+			return false;
+		}
+		if (fHierarchy != null) {
+			fHierarchy.removeTypeHierarchyChangedListener(this);
+			JavaCore.removeElementChangedListener(this);
+		}
+		fHierarchy= hierarchy;
+		fInputElements= elements;
+		fHierarchy.addTypeHierarchyChangedListener(this);
+		JavaCore.addElementChangedListener(this);
+		fHierarchyTypeNames= null;
+		fHierarchyTypesByUnit= null;
+		fHierarchyRefreshNeeded= false;
+		fHierarchyFromSnapshot= true;
+		fSnapshotNeeded= false;
+		return true;
+	}
+
+	/**
+	 * Returns whether the current hierarchy has been restored from a snapshot and has not been
+	 * recomputed yet.
+	 *
+	 * @return <code>true</code> if the hierarchy comes from a snapshot
+	 * @since 3.29
+	 */
+	public boolean isHierarchyFromSnapshot() {
+		return fHierarchyFromSnapshot;
+	}
+
+	/**
+	 * Writes a snapshot of a newly computed hierarchy, so that it can be restored quickly by
+	 * {@link #restoreHierarchySnapshot(IJavaElement[], IProgressMonitor)}. Only hierarchies on a
+	 * single type are stored.
+	 *
+	 * @param pm the progress monitor
+	 * @since 3.29
+	 */
+	public void storeHierarchySnapshot(IProgressMonitor pm) {
+		ITypeHierarchy hierarchy= fHierarchy;
+		IJavaElement[] elements= fInputElements;
+		if (!fSnapshotNeeded || hierarchy == null || elements == null) {
+			return;
+		}
+		fSnapshotNeeded= false;
+		if (!fIsSuperTypesOnly && elements.length == 1 && elements[0].getElementType() == IJavaElement.TYPE) {
+			TypeHierarchySnapshotStore.store((IType) elements[0], hierarchy, pm);
 		}
 	}
 
@@ -314,7 +454,7 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 
 
 	public void doHierarchyRefresh(IJavaElement[] elements, IProgressMonitor pm) throws JavaModelException {
-		boolean hierachyCreationNeeded= (fHierarchy == null || !Arrays.equals(elements, fInputElements));
+		boolean hierachyCreationNeeded= (fHierarchy == null || fHierarchyFromSnapshot || !Arrays.equals(elements, fInputElements));
 		// to ensure the order of the two listeners always remove / add listeners on operations
 		// on type hierarchies
 		if (fHierarchy != null) {
@@ -327,6 +467,8 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 				throw new OperationCanceledException();
 			}
 			fInputElements= elements;
+			fHierarchyFromSnapshot= false;
+			fSnapshotNeeded= fTypeHierarchyViewPart != null;
 		} else {
 			fHierarchy.refresh(pm);
 			if (pm != null && pm.isCanceled())
@@ -334,6 +476,8 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		}
 		fHierarchy.addTypeHierarchyChangedListener(this);
 		JavaCore.addElementChangedListener(this);
+		fHierarchyTypeNames= null;
+		fHierarchyTypesByUnit= null;
 		fHierarchyRefreshNeeded= false;
 	}
 
@@ -342,8 +486,22 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 	 */
 	@Override
 	public void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
-	 	fHierarchyRefreshNeeded= true;
- 		fireChange(null);
+		if (fIncrementalRefresh) {
+			// the deltas are analyzed in elementChanged(..)
+			return;
+		}
+		invalidateHierarchy();
+	}
+
+	/**
+	 * Marks the hierarchy as outdated and notifies the listeners. The hierarchy is recomputed
+	 * on the next call to {@link #ensureRefreshedTypeHierarchy(IJavaElement[], IRunnableContext)}.
+	 *
+	 * @since 3.29
+	 */
+	public void invalidateHierarchy() {
+		fHierarchyRefreshNeeded= true;
+		fireChange(null);
 	}
 
 	/*
@@ -358,6 +516,18 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		if (fHierarchyRefreshNeeded) {
 			return;
 		} else {
+			if (fIncrementalRefresh) {
+				try {
+					if (isHierarchyAffected(event.getDelta())) {
+						invalidateHierarchy();
+						return;
+					}
+				} catch (JavaModelException e) {
+					JavaPlugin.log(e);
+					invalidateHierarchy();
+					return;
+				}
+			}
 			ArrayList<IType> changedTypes= new ArrayList<>();
 			processDelta(event.getDelta(), changedTypes);
 			if (changedTypes.size() > 0) {
@@ -430,5 +600,272 @@ public class TypeHierarchyLifeCycle implements ITypeHierarchyChangedListener, IE
 		}
 	}
 
+	/*
+	 * Incremental mode: returns true if the delta can change the shape of the hierarchy, i.e. if
+	 * types of the hierarchy got removed or changed their supertypes, if new subtypes can have been
+	 * added or if the classpath changed.
+	 */
+	private boolean isHierarchyAffected(IJavaElementDelta delta) throws JavaModelException {
+		IJavaElement element= delta.getElement();
+		int kind= delta.getKind();
+		int flags= delta.getFlags();
+		switch (element.getElementType()) {
+			case IJavaElement.JAVA_MODEL:
+				return isHierarchyAffected(delta.getAffectedChildren());
+			case IJavaElement.JAVA_PROJECT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_CLASSPATH_CHANGED | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+						| IJavaElementDelta.F_OPENED | IJavaElementDelta.F_CLOSED)) != 0) {
+					return true;
+				}
+				return isHierarchyAffected(delta.getAffectedChildren());
+			case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+				if (kind != IJavaElementDelta.CHANGED || (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+						| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED | IJavaElementDelta.F_REORDER)) != 0) {
+					return true;
+				}
+				return isHierarchyAffected(delta.getAffectedChildren());
+			case IJavaElement.PACKAGE_FRAGMENT:
+				if (kind != IJavaElementDelta.CHANGED) {
+					return true;
+				}
+				return isHierarchyAffected(delta.getAffectedChildren());
+			case IJavaElement.COMPILATION_UNIT: {
+				ICompilationUnit cu= (ICompilationUnit) element;
+				if (!JavaModelUtil.isPrimary(cu)) {
+					return false;
+				}
+				if (kind == IJavaElementDelta.REMOVED) {
+					return containsTypesOf(cu, false);
+				}
+				if (kind == IJavaElementDelta.ADDED) {
+					for (IType type : cu.getTypes()) {
+						if (isPossibleSubtype(type)) {
+							return true;
+						}
+					}
+					return false;
+				}
+				if (isPossibleStructuralChange(flags)) {
+					if (!cu.exists()) {
+						return containsTypesOf(cu, false);
+					}
+					for (IType type : cu.getAllTypes()) {
+						if (isTypeShapeChanged(type)) {
+							return true;
+						}
+					}
+					return containsTypesOf(cu, true);
+				}
+				return isHierarchyAffected(delta.getAffectedChildren());
+			}
+			case IJavaElement.TYPE: {
+				IType type= (IType) element;
+				if (kind == IJavaElementDelta.REMOVED) {
+					return getHierarchy().contains(type);
+				}
+				if (kind == IJavaElementDelta.ADDED) {
+					return isPossibleSubtype(type);
+				}
+				if ((flags & (IJavaElementDelta.F_SUPER_TYPES | IJavaElementDelta.F_MODIFIERS)) != 0 && isTypeShapeChanged(type)) {
+					return true;
+				}
+				return isHierarchyAffected(delta.getAffectedChildren()); // (inner types)
+			}
+			case IJavaElement.CLASS_FILE:
+				if (element instanceof IOrdinaryClassFile) {
+					IType type= ((IOrdinaryClassFile) element).getType();
+					if (kind == IJavaElementDelta.REMOVED) {
+						return getHierarchy().contains(type);
+					}
+					return isTypeShapeChanged(type);
+				}
+				return false;
+			default:
+				return false;
+		}
+	}
+
+	private boolean isHierarchyAffected(IJavaElementDelta[] deltas) throws JavaModelException {
+		for (IJavaElementDelta delta : deltas) {
+			if (isHierarchyAffected(delta)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Returns true if the declared supertypes of the given type differ from the supertypes in the
+	 * hierarchy, or if a type not in the hierarchy can be a new subtype.
+	 */
+	private boolean isTypeShapeChanged(IType type) throws JavaModelException {
+		ITypeHierarchy hierarchy= getHierarchy();
+		if (!type.exists()) {
+			return hierarchy.contains(type);
+		}
+		if (!hierarchy.contains(type)) {
+			return isPossibleSubtype(type);
+		}
+		if (type.isInterface() != Flags.isInterface(hierarchy.getCachedFlags(type))) {
+			return true;
+		}
+
+		String superclassName= type.getSuperclassName();
+		IType superclass= hierarchy.getSuperclass(type);
+		if (superclassName != null) {
+			if (superclass == null || !isSameType(type, superclassName, superclass)) {
+				return true;
+			}
+		} else if (superclass != null && !isImplicitSupertype(superclass)) {
+			return true;
+		}
+
+		List<IType> superInterfaces= new ArrayList<>();
+		for (IType superInterface : hierarchy.getSuperInterfaces(type)) {
+			if (!isImplicitSupertype(superInterface)) {
+				superInterfaces.add(superInterface);
+			}
+		}
+		String[] superInterfaceNames= type.getSuperInterfaceNames();
+		if (superInterfaceNames.length != superInterfaces.size()) {
+			return true;
+		}
+		for (String superInterfaceName : superInterfaceNames) {
+			boolean found= false;
+			for (IType superInterface : superInterfaces) {
+				if (isSameType(type, superInterfaceName, superInterface)) {
+					found= true;
+					break;
+				}
+			}
+			if (!found) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Returns true if the supertype name declared by the given type resolves to the given
+	 * supertype. Names that do not resolve to exactly one type are treated as different, so that
+	 * the hierarchy is recomputed.
+	 */
+	private static boolean isSameType(IType type, String typeName, IType supertype) throws JavaModelException {
+		String erasure= Signature.getTypeErasure(typeName);
+		String qualifiedName= supertype.getFullyQualifiedName('.');
+		if (type.isBinary()) {
+			// binary types declare qualified names, with '$' separating member types
+			return erasure.replace('$', '.').equals(qualifiedName);
+		}
+		if (!Signature.getSimpleName(erasure).equals(supertype.getElementName())) {
+			return false;
+		}
+		String[][] resolved= type.resolveType(erasure);
+		if (resolved == null || resolved.length != 1) {
+			return false;
+		}
+		return JavaModelUtil.concatenateName(resolved[0][0], resolved[0][1]).equals(qualifiedName);
+	}
+
+	/*
+	 * Returns true if the given type (or one of its member types) declares a supertype with the
+	 * simple name of a type in the hierarchy, and hence can be a subtype that is not yet shown.
+	 */
+	private boolean isPossibleSubtype(IType type) throws JavaModelException {
+		if (!type.exists()) {
+			return false;
+		}
+		Set<String> typeNames= getHierarchyTypeNames();
+		String superclassName= type.getSuperclassName();
+		if (superclassName != null) {
+			if (typeNames.contains(getSimpleName(superclassName))) {
+				return true;
+			}
+		} else if (type.isAnnotation()) {
+			if (typeNames.contains("Annotation")) { //$NON-NLS-1$
+				return true;
+			}
+		} else if (!type.isInterface()) {
+			if (typeNames.contains("Object") || typeNames.contains("Enum") || typeNames.contains("Record")) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				return true;
+			}
+		}
+		for (String superInterfaceName : type.getSuperInterfaceNames()) {
+			if (typeNames.contains(getSimpleName(superInterfaceName))) {
+				return true;
+			}
+		}
+		for (IType memberType : type.getTypes()) {
+			if (isPossibleSubtype(memberType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Returns true if the hierarchy contains types of the given compilation unit. If onlyDeleted is
+	 * set, only types that do not exist anymore are considered.
+	 */
+	private boolean containsTypesOf(ICompilationUnit cu, boolean onlyDeleted) {
+		List<IType> types= getHierarchyTypesByUnit().get(cu);
+		if (types == null) {
+			return false;
+		}
+		if (!onlyDeleted) {
+			return true;
+		}
+		for (IType type : types) {
+			if (!type.exists()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Map<ICompilationUnit, List<IType>> getHierarchyTypesByUnit() {
+		Map<ICompilationUnit, List<IType>> typesByUnit= fHierarchyTypesByUnit;
+		if (typesByUnit == null) {
+			typesByUnit= new HashMap<>();
+			for (IType type : getHierarchy().getAllTypes()) {
+				ICompilationUnit cu= type.getCompilationUnit();
+				if (cu != null) {
+					typesByUnit.computeIfAbsent(cu, key -> new ArrayList<>(1)).add(type);
+				}
+			}
+			fHierarchyTypesByUnit= typesByUnit;
+		}
+		return typesByUnit;
+	}
+
+	private Set<String> getHierarchyTypeNames() {
+		Set<String> typeNames= fHierarchyTypeNames;
+		if (typeNames == null) {
+			IType[] allTypes= getHierarchy().getAllTypes();
+			typeNames= new HashSet<>(allTypes.length * 2);
+			for (IType type : allTypes) {
+				typeNames.add(type.getElementName());
+			}
+			fHierarchyTypeNames= typeNames;
+		}
+		return typeNames;
+	}
+
+	private static boolean isImplicitSupertype(IType type) {
+		switch (type.getFullyQualifiedName()) {
+			case "java.lang.Object": //$NON-NLS-1$
+			case "java.lang.Enum": //$NON-NLS-1$
+			case "java.lang.Record": //$NON-NLS-1$
+			case "java.lang.annotation.Annotation": //$NON-NLS-1$
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static String getSimpleName(String typeName) {
+		return Signature.getSimpleName(Signature.getTypeErasure(typeName));
+	}
+
 
 }
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jdt.internal.ui.typehierarchy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.JavaModelException;
+
+import org.eclipse.jdt.internal.ui.JavaPlugin;
+
+/**
+ * Persists type hierarchies of recently viewed types in the plug-in state location, so that the
+ * type hierarchy view can show a hierarchy immediately when it is reopened.
+ * <p>
+ * A snapshot consists of a small header followed by the binary format written by
+ * {@link ITypeHierarchy#store(java.io.OutputStream, IProgressMonitor)}. The header records the
+ * focus type and a stamp of the resolved classpath of its project; snapshots with a different
+ * stamp are ignored. A restored snapshot can still be outdated (e.g. after changes in other
+ * projects), so clients have to validate it by recomputing the hierarchy in the background.
+ * </p>
+ *
+ * @since 3.29
+ */
+final class TypeHierarchySnapshotStore {
+
+	private static final String SNAPSHOT_DIR= "typeHierarchySnapshots"; //$NON-NLS-1$
+	private static final String SNAPSHOT_EXTENSION= ".hierarchy"; //$NON-NLS-1$
+
+	private static final int MAGIC= 0x4A544853; // 'JTHS'
+	private static final int VERSION= 1;
+
+	/**
+	 * Maximal number of snapshots kept on disk. The least recently written snapshots are deleted
+	 * first.
+	 */
+	private static final int MAX_SNAPSHOTS= 10;
+
+	private TypeHierarchySnapshotStore() {
+	}
+
+	/**
+	 * Loads the snapshot of the type hierarchy of the given type.
+	 *
+	 * @param type the focus type
+	 * @param pm the progress monitor
+	 * @return the restored hierarchy, or <code>null</code> if no valid snapshot is available
+	 */
+	public static ITypeHierarchy load(IType type, IProgressMonitor pm) {
+		File file= getSnapshotFile(type);
+		if (file == null || !file.isFile()) {
+			return null;
+		}
+		try (DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+			if (!type.getHandleIdentifier().equals(in.readUTF())) {
+				return null;
+			}
+			if (in.readLong() != computeClasspathStamp(type.getJavaProject())) {
+				return null;
+			}
+			return type.loadTypeHierachy(in, pm);
+		} catch (IOException | JavaModelException e) {
+			// outdated or corrupt snapshot: recompute and overwrite it
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the type hierarchy of the given type.
+	 *
+	 * @param type the focus type
+	 * @param hierarchy the hierarchy to store
+	 * @param pm the progress monitor
+	 */
+	public static void store(IType type, ITypeHierarchy hierarchy, IProgressMonitor pm) {
+		File file= getSnapshotFile(type);
+		if (file == null) {
+			return;
+		}
+		File tmpFile= new File(file.getParentFile(), file.getName() + ".tmp"); //$NON-NLS-1$
+		try {
+			try (DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(type.getHandleIdentifier());
+				out.writeLong(computeClasspathStamp(type.getJavaProject()));
+				out.flush();
+				hierarchy.store(out, pm);
+			}
+			if (pm != null && pm.isCanceled()) {
+				tmpFile.delete();
+				return;
+			}
+			if (file.exists()) {
+				file.delete();
+			}
+			if (!tmpFile.renameTo(file)) {
+				tmpFile.delete();
+			}
+			pruneSnapshots(file.getParentFile());
+		} catch (IOException | JavaModelException e) {
+			tmpFile.delete();
+			JavaPlugin.log(e);
+		}
+	}
+
+	private static File getSnapshotFile(IType type) {
+		File dir;
+		try {
+			dir= JavaPlugin.getDefault().getStateLocation().append(SNAPSHOT_DIR).toFile();
+		} catch (IllegalStateException e) {
+			// no state location
+			return null;
+		}
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			return null;
+		}
+		CRC32 crc= new CRC32();
+		crc.update(type.getHandleIdentifier().getBytes(StandardCharsets.UTF_8));
+		return new File(dir, Long.toHexString(crc.getValue()) + SNAPSHOT_EXTENSION);
+	}
+
+	private static void pruneSnapshots(File dir) {
+		File[] files= dir.listFiles((d, name) -> name.endsWith(SNAPSHOT_EXTENSION));
+		if (files == null || files.length <= MAX_SNAPSHOTS) {
+			return;
+		}
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+		for (int i= MAX_SNAPSHOTS; i < files.length; i++) {
+			files[i].delete();
+		}
+	}
+
+	/*
+	 * Stamp of the resolved classpath of the project: the entries and the time stamps and sizes
+	 * of libraries.
+	 */
+	private static long computeClasspathStamp(IJavaProject project) throws JavaModelException {
+		CRC32 crc= new CRC32();
+		for (IClasspathEntry entry : project.getResolvedClasspath(true)) {
+			crc.update(entry.getEntryKind());
+			crc.update(entry.getPath().toString().getBytes(StandardCharsets.UTF_8));
+			if (entry.getEntryKind() == IClasspathEntry.CPE_LIBRARY) {
+				File library= getLocation(entry.getPath()).toFile();
+				updateLong(crc, library.lastModified());
+				updateLong(crc, library.length());
+			}
+		}
+		return crc.getValue();
+	}
+
+	private static IPath getLocation(IPath path) {
+		IResource resource= ResourcesPlugin.getWorkspace().getRoot().findMember(path);
+		if (resource != null && resource.getLocation() != null) {
+			return resource.getLocation();
+		}
+		return path;
+	}
+
+	private static void updateLong(CRC32 crc, long value) {
+		for (int i= 0; i < 8; i++) {
+			crc.update((int) (value >>> (i * 8)));
+		}
+	}
+}
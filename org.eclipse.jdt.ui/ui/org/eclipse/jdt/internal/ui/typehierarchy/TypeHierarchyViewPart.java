@@ -776,7 +776,7 @@ public class TypeHierarchyViewPart extends ViewPart implements ITypeHierarchyVie
 					if (event.keyCode == SWT.F5) {
 						ITypeHierarchy hierarchy= fHierarchyLifeCycle.getHierarchy();
 						if (hierarchy != null) {
-							fHierarchyLifeCycle.typeHierarchyChanged(hierarchy);
+							fHierarchyLifeCycle.invalidateHierarchy();
 							doTypeHierarchyChangedOnViewers(null);
 						}
 						updateHierarchyViewer(false);
@@ -1681,15 +1681,25 @@ public class TypeHierarchyViewPart extends ViewPart implements ITypeHierarchyVie
 
 
 	private void doRestoreInBackground(final IMemento memento, final IJavaElement[] hierarchyInput, IProgressMonitor monitor) throws JavaModelException {
-		fHierarchyLifeCycle.doHierarchyRefresh(hierarchyInput, monitor);
+		final boolean fromSnapshot= fHierarchyLifeCycle.restoreHierarchySnapshot(hierarchyInput, monitor);
+		if (!fromSnapshot) {
+			fHierarchyLifeCycle.doHierarchyRefresh(hierarchyInput, monitor);
+		}
 		final boolean doRestore= !monitor.isCanceled();
 		if (doRestore) {
 			Display.getDefault().asyncExec(() -> {
 				// running async: check first if view still exists
 				if (fPagebook != null && !fPagebook.isDisposed()) {
 					doRestoreState(memento, hierarchyInput);
+					if (fromSnapshot && fHierarchyLifeCycle.isHierarchyFromSnapshot()) {
+						// show the snapshot, but validate it in the background
+						fHierarchyLifeCycle.invalidateHierarchy();
+					}
 				}
 			});
+			if (!fromSnapshot) {
+				fHierarchyLifeCycle.storeHierarchySnapshot(monitor);
+			}
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,11 +13,12 @@
  *******************************************************************************/
 package org.eclipse.jdt.internal.ui.viewsupport;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.core.runtime.Assert;
@@ -26,12 +27,63 @@ import org.eclipse.jface.resource.ImageDescriptor;
 
 import org.eclipse.ui.PlatformUI;
 
+import org.eclipse.jdt.ui.JavaElementImageDescriptor;
+
 /**
  * A registry that maps <code>ImageDescriptors</code> to <code>Image</code>.
+ * <p>
+ * In addition to the descriptor based lookup, the registry keeps a cache of decorated
+ * images keyed by base image, adornment flags and size. This allows label providers to
+ * look up composed Java element images without allocating a new
+ * {@link JavaElementImageDescriptor} for every paint.
+ * </p>
  */
 public class ImageDescriptorRegistry {
 
-	private Map<ImageDescriptor, Image> fRegistry= Collections.synchronizedMap(new HashMap<ImageDescriptor, Image>(10));
+	/**
+	 * Key of the decorated image cache. Instances are immutable and cheap to create
+	 * compared to a {@link JavaElementImageDescriptor}.
+	 */
+	private static final class DecoratedImageKey {
+
+		private final ImageDescriptor fBase;
+		private final int fAdornments;
+		private final int fWidth;
+		private final int fHeight;
+		private final int fHashCode;
+
+		DecoratedImageKey(ImageDescriptor base, int adornments, Point size) {
+			fBase= base;
+			fAdornments= adornments;
+			fWidth= size.x;
+			fHeight= size.y;
+			fHashCode= ((base.hashCode() * 31 + adornments) * 31 + fWidth) * 31 + fHeight;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof DecoratedImageKey))
+				return false;
+			DecoratedImageKey other= (DecoratedImageKey) obj;
+			return fHashCode == other.fHashCode
+					&& fAdornments == other.fAdornments
+					&& fWidth == other.fWidth
+					&& fHeight == other.fHeight
+					&& fBase.equals(other.fBase);
+		}
+
+		@Override
+		public int hashCode() {
+			return fHashCode;
+		}
+	}
+
+	private final Map<ImageDescriptor, Image> fRegistry= new ConcurrentHashMap<>(64);
+	private final Map<DecoratedImageKey, Image> fDecoratedImages= new ConcurrentHashMap<>(256);
+	private final AtomicLong fDecoratedHits= new AtomicLong();
+	private final AtomicLong fDecoratedMisses= new AtomicLong();
 	private Display fDisplay;
 
 	/**
@@ -61,15 +113,77 @@ public class ImageDescriptorRegistry {
 			return result;
 
 		result= descriptor.createImage();
+		if (result != null) {
+			Image existing= fRegistry.putIfAbsent(descriptor, result);
+			if (existing != null) {
+				result.dispose();
+				return existing;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the Java element image composed of the given base image, adornments and size.
+	 * The result is the same image as returned by
+	 * <code>get(new JavaElementImageDescriptor(baseImage, adornments, size))</code>, but
+	 * repeated lookups do not need to create an image descriptor.
+	 *
+	 * @param baseImage the base image, or <code>null</code> for a missing image
+	 * @param adornments the adornment flags as defined in {@link JavaElementImageDescriptor}
+	 * @param size the size of the resulting image
+	 * @return the decorated image or <code>null</code> if the image can't be created
+	 */
+	public Image getDecorated(ImageDescriptor baseImage, int adornments, Point size) {
+		if (baseImage == null)
+			baseImage= ImageDescriptor.getMissingImageDescriptor();
+
+		DecoratedImageKey key= new DecoratedImageKey(baseImage, adornments, size);
+		Image result= fDecoratedImages.get(key);
+		if (result != null && !result.isDisposed()) {
+			fDecoratedHits.incrementAndGet();
+			return result;
+		}
+		fDecoratedMisses.incrementAndGet();
+
+		result= get(new JavaElementImageDescriptor(baseImage, adornments, size));
 		if (result != null)
-			fRegistry.put(descriptor, result);
+			fDecoratedImages.put(key, result);
 		return result;
 	}
 
+	/**
+	 * Returns the number of decorated image lookups that were answered from the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getDecoratedImageHits() {
+		return fDecoratedHits.get();
+	}
+
+	/**
+	 * Returns the number of decorated image lookups that had to go through an image descriptor.
+	 *
+	 * @return the number of cache misses
+	 */
+	public long getDecoratedImageMisses() {
+		return fDecoratedMisses.get();
+	}
+
+	/**
+	 * Returns the number of decorated images currently held in the cache.
+	 *
+	 * @return the size of the decorated image cache
+	 */
+	public int getDecoratedImageCount() {
+		return fDecoratedImages.size();
+	}
+
 	/**
 	 * Disposes all images managed by this registry.
 	 */
 	public void dispose() {
+		fDecoratedImages.clear();
 		for (Image image : fRegistry.values()) {
 			image.dispose();
 		}
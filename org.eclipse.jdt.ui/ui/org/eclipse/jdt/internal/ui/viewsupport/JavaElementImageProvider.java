@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2020 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -105,9 +105,20 @@ public class JavaElementImageProvider {
 	 * @return return the image or <code>null</code>
 	 */
 	public Image getImageLabel(Object element, int flags) {
+		if (element instanceof IJavaElement) {
+			return getJavaImageLabel((IJavaElement) element, flags);
+		}
 		return getImageLabel(computeDescriptor(element, flags));
 	}
 
+	/*
+	 * Same as getImageLabel(getJavaImageDescriptor(element, flags)), but goes through the decorated
+	 * image cache of the registry to avoid creating a descriptor for every lookup.
+	 */
+	private Image getJavaImageLabel(IJavaElement element, int flags) {
+		return createJavaImage(element, flags, getRegistry()::getDecorated);
+	}
+
 	private Image getImageLabel(ImageDescriptor descriptor){
 		if (descriptor == null)
 			return null;
@@ -168,14 +179,26 @@ public class JavaElementImageProvider {
 	 * @return returns the image descriptor
 	 */
 	public ImageDescriptor getJavaImageDescriptor(IJavaElement element, int flags) {
+		return createJavaImage(element, flags, JavaElementImageDescriptor::new);
+	}
+
+	/*
+	 * Decides on the base image, adornments and size of a Java element, shared by
+	 * getJavaImageDescriptor(..) and getJavaImageLabel(..).
+	 */
+	private <T> T createJavaImage(IJavaElement element, int flags, DecoratedImageFactory<T> factory) {
 		Point size= useSmallSize(flags) ? SMALL_SIZE : BIG_SIZE;
 
 		ImageDescriptor baseDesc= getBaseImageDescriptor(element, flags);
 		if (baseDesc != null) {
 			int adornmentFlags= computeJavaAdornmentFlags(element, flags);
-			return new JavaElementImageDescriptor(baseDesc, adornmentFlags, size);
+			return factory.create(baseDesc, adornmentFlags, size);
 		}
-		return new JavaElementImageDescriptor(JavaPluginImages.DESC_OBJS_GHOST, 0, size);
+		return factory.create(JavaPluginImages.DESC_OBJS_GHOST, 0, size);
+	}
+
+	private interface DecoratedImageFactory<T> {
+		T create(ImageDescriptor baseImage, int adornments, Point size);
 	}
 
 	/**
@@ -555,7 +578,7 @@ public class JavaElementImageProvider {
 
 
 	public static Image getDecoratedImage(ImageDescriptor baseImage, int adornments, Point size) {
-		return JavaPlugin.getImageDescriptorRegistry().get(new JavaElementImageDescriptor(baseImage, adornments, size));
+		return JavaPlugin.getImageDescriptorRegistry().getDecorated(baseImage, adornments, size);
 	}
 
 
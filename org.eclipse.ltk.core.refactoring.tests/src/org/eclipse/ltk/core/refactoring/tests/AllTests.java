@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2020 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,6 +25,10 @@ import org.eclipse.ltk.core.refactoring.tests.scripting.RefactoringScriptingTest
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
 	RefactoringContextTest.class,
+	CompositeChangeValidationTest.class,
+	ContentHashValidationTest.class,
+	PreviewSnapshotTest.class,
+	UndoManagerMemoryTest.class,
 	ParticipantTests.class,
 	RefactoringHistoryTests.class,
 	RefactoringScriptingTests.class,
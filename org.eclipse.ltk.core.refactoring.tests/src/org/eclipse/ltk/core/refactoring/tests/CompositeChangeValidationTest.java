@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.ResourceAttributes;
+
+import org.eclipse.text.edits.InsertEdit;
+
+import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.RefactoringStatusEntry;
+import org.eclipse.ltk.core.refactoring.TextFileChange;
+import org.eclipse.ltk.core.refactoring.tests.util.SimpleTestProject;
+
+public class CompositeChangeValidationTest {
+
+	private static final int FILES= 20;
+
+	private SimpleTestProject fProject;
+	private IFile[] fFiles;
+
+	@Before
+	public void setUp() throws Exception {
+		fProject= new SimpleTestProject();
+		IFolder folder= fProject.createFolder("test");
+		fFiles= new IFile[FILES];
+		for (int i= 0; i < FILES; i++) {
+			fFiles[i]= fProject.createFile(folder, "file" + i + ".txt", "content " + i);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (IFile file : fFiles) {
+			setReadOnly(file, false);
+		}
+		fProject.delete();
+	}
+
+	private static void setReadOnly(IFile file, boolean readOnly) throws Exception {
+		ResourceAttributes attributes= file.getResourceAttributes();
+		if (attributes != null && attributes.isReadOnly() != readOnly) {
+			attributes.setReadOnly(readOnly);
+			file.setResourceAttributes(attributes);
+		}
+	}
+
+	private static void makeOutOfSync(IFile file) throws Exception {
+		File location= file.getLocation().toFile();
+		Files.write(location.toPath(), "out of sync".getBytes());
+		location.setLastModified(location.lastModified() + 10000);
+	}
+
+	/*
+	 * The composite change validates the children one after the other until the first fatal
+	 * error, and must report the same status when it validates them together.
+	 */
+	private static RefactoringStatus isValidSequentially(CompositeChange change) throws Exception {
+		RefactoringStatus result= new RefactoringStatus();
+		for (Change child : change.getChildren()) {
+			if (result.hasFatalError())
+				break;
+			if (child.isEnabled())
+				result.merge(child.isValid(new NullProgressMonitor()));
+		}
+		return result;
+	}
+
+	private static void assertSameStatus(RefactoringStatus expected, RefactoringStatus actual) {
+		assertEquals(actual.toString(), expected.getSeverity(), actual.getSeverity());
+		RefactoringStatusEntry[] expectedEntries= expected.getEntries();
+		RefactoringStatusEntry[] actualEntries= actual.getEntries();
+		assertEquals(actual.toString(), expectedEntries.length, actualEntries.length);
+		for (int i= 0; i < expectedEntries.length; i++) {
+			assertEquals(expectedEntries[i].getSeverity(), actualEntries[i].getSeverity());
+			assertEquals(expectedEntries[i].getMessage(), actualEntries[i].getMessage());
+		}
+	}
+
+	private CompositeChange createChange() {
+		CompositeChange result= new CompositeChange("composite");
+		for (IFile file : fFiles) {
+			TextFileChange change= new TextFileChange(file.getName(), file);
+			change.setEdit(new InsertEdit(0, "new "));
+			result.add(change);
+		}
+		result.initializeValidationData(new NullProgressMonitor());
+		return result;
+	}
+
+	@Test
+	public void testUnchangedFiles() throws Exception {
+		CompositeChange change= createChange();
+		try {
+			RefactoringStatus status= change.isValid(new NullProgressMonitor());
+			assertTrue(status.toString(), status.isOK());
+		} finally {
+			change.dispose();
+		}
+	}
+
+	@Test
+	public void testModifiedFile() throws Exception {
+		CompositeChange change= createChange();
+		try {
+			fFiles[FILES / 2].setContents(new ByteArrayInputStream("modified".getBytes()), true, false, null);
+			RefactoringStatus status= change.isValid(new NullProgressMonitor());
+			assertTrue(status.toString(), status.hasFatalError());
+			assertEquals(status.toString(), 1, status.getEntries().length);
+		} finally {
+			change.dispose();
+		}
+	}
+
+	@Test
+	public void testModifiedFileOfDisabledChange() throws Exception {
+		CompositeChange change= createChange();
+		try {
+			Change disabled= change.getChildren()[FILES / 2];
+			disabled.setEnabled(false);
+			fFiles[FILES / 2].setContents(new ByteArrayInputStream("modified".getBytes()), true, false, null);
+			RefactoringStatus status= change.isValid(new NullProgressMonitor());
+			assertFalse(status.toString(), status.hasError());
+		} finally {
+			change.dispose();
+		}
+	}
+
+	@Test
+	public void testFatalErrorInTheMiddle() throws Exception {
+		CompositeChange change= createChange();
+		try {
+			fFiles[FILES / 2].setContents(new ByteArrayInputStream("modified".getBytes()), true, false, null);
+			// must not be validated, since the validation stops at the modified file
+			makeOutOfSync(fFiles[FILES / 2 + 1]);
+			setReadOnly(fFiles[FILES / 2 + 2], true);
+
+			RefactoringStatus status= change.isValid(new NullProgressMonitor());
+			assertTrue(status.toString(), status.hasFatalError());
+			assertEquals(status.toString(), 1, status.getEntries().length);
+			assertSameStatus(isValidSequentially(change), status);
+		} finally {
+			change.dispose();
+		}
+	}
+
+	@Test
+	public void testReadOnlyFile() throws Exception {
+		CompositeChange change= createChange();
+		try {
+			setReadOnly(fFiles[2], true);
+			fFiles[FILES / 2].setContents(new ByteArrayInputStream("modified".getBytes()), true, false, null);
+
+			RefactoringStatus status= change.isValid(new NullProgressMonitor());
+			assertSameStatus(isValidSequentially(change), status);
+		} finally {
+			change.dispose();
+		}
+	}
+
+	@Test
+	public void testOutOfSyncFile() throws Exception {
+		CompositeChange change= createChange();
+		try {
+			makeOutOfSync(fFiles[FILES / 2]);
+			makeOutOfSync(fFiles[FILES / 2 + 1]);
+
+			RefactoringStatus status= change.isValid(new NullProgressMonitor());
+			assertTrue(status.toString(), status.hasFatalError());
+			assertSameStatus(isValidSequentially(change), status);
+		} finally {
+			change.dispose();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+
+import org.eclipse.text.edits.InsertEdit;
+
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.TextFileChange;
+import org.eclipse.ltk.core.refactoring.tests.util.SimpleTestProject;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringPreferenceConstants;
+
+public class ContentHashValidationTest {
+
+	private SimpleTestProject fProject;
+	private IFile fFile;
+
+	@Before
+	public void setUp() throws Exception {
+		fProject= new SimpleTestProject();
+		IFolder folder= fProject.createFolder("test");
+		fFile= fProject.createFile(folder, "file.txt", "content");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		setContentHashValidation(false);
+		fProject.delete();
+	}
+
+	private static void setContentHashValidation(boolean enabled) {
+		IEclipsePreferences preferences= InstanceScope.INSTANCE.getNode(RefactoringCorePlugin.getPluginId());
+		if (enabled)
+			preferences.putBoolean(RefactoringPreferenceConstants.PREFERENCE_CONTENT_HASH_VALIDATION, true);
+		else
+			preferences.remove(RefactoringPreferenceConstants.PREFERENCE_CONTENT_HASH_VALIDATION);
+	}
+
+	private TextFileChange createChange() {
+		TextFileChange change= new TextFileChange(fFile.getName(), fFile);
+		change.setEdit(new InsertEdit(0, "new "));
+		change.initializeValidationData(new NullProgressMonitor());
+		return change;
+	}
+
+	private void setContents(String content) throws Exception {
+		long stamp= fFile.getModificationStamp();
+		fFile.setContents(new ByteArrayInputStream(content.getBytes()), true, false, null);
+		assertNotEquals(stamp, fFile.getModificationStamp());
+	}
+
+	@Test
+	public void testStampOnlyChange() throws Exception {
+		TextFileChange change= createChange();
+		setContents("content");
+		RefactoringStatus status= change.isValid(new NullProgressMonitor());
+		assertTrue(status.toString(), status.hasFatalError());
+
+		setContentHashValidation(true);
+		change= createChange();
+		setContents("content");
+		status= change.isValid(new NullProgressMonitor());
+		assertFalse(status.toString(), status.hasFatalError());
+	}
+
+	@Test
+	public void testContentChange() throws Exception {
+		setContentHashValidation(true);
+		TextFileChange change= createChange();
+		setContents("modified content");
+		RefactoringStatus status= change.isValid(new NullProgressMonitor());
+		assertTrue(status.toString(), status.hasFatalError());
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEditGroup;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+
+import org.eclipse.ltk.core.refactoring.DocumentChange;
+import org.eclipse.ltk.core.refactoring.TextChange;
+import org.eclipse.ltk.core.refactoring.TextEditBasedChangeGroup;
+import org.eclipse.ltk.core.refactoring.TextEditChangeGroup;
+
+public class PreviewSnapshotTest {
+
+	private static final String CONTENT= "first line\nsecond line\nthird line\n";
+
+	private DocumentChange fChange;
+	private TextEditChangeGroup fThird;
+
+	@Before
+	public void setUp() {
+		fChange= new DocumentChange("change", new Document(CONTENT));
+		fChange.setEdit(new MultiTextEdit());
+		addGroup(fChange, new ReplaceEdit(0, 5, "1st"));
+		fThird= addGroup(fChange, new ReplaceEdit(23, 5, "3rd"));
+	}
+
+	private static TextEditChangeGroup addGroup(TextChange change, ReplaceEdit edit) {
+		change.addEdit(edit);
+		TextEditChangeGroup group= new TextEditChangeGroup(change, new TextEditGroup("group", edit));
+		change.addTextEditChangeGroup(group);
+		return group;
+	}
+
+	@Test
+	public void testPreviewOfChange() throws Exception {
+		fThird.setEnabled(false);
+		TextChange.PreviewSnapshot snapshot= fChange.createPreviewSnapshot(new NullProgressMonitor());
+		String preview= fChange.getPreviewContent(new NullProgressMonitor());
+		// the enablement is captured when the snapshot is created
+		fThird.setEnabled(true);
+		assertEquals(CONTENT, snapshot.getCurrentContent(new NullProgressMonitor()));
+		assertEquals("1st line\nsecond line\nthird line\n", preview);
+		assertEquals(preview, snapshot.getPreviewContent(new NullProgressMonitor()));
+	}
+
+	@Test
+	public void testPreviewOfGroups() throws Exception {
+		TextEditBasedChangeGroup[] groups= { fThird };
+		IRegion region= fThird.getRegion();
+		TextChange.PreviewSnapshot snapshot= fChange.createPreviewSnapshot(groups, region, true, 1, new NullProgressMonitor());
+		assertEquals(fChange.getCurrentContent(region, true, 1, new NullProgressMonitor()), snapshot.getCurrentContent(new NullProgressMonitor()));
+		assertEquals(fChange.getPreviewContent(groups, region, true, 1, new NullProgressMonitor()), snapshot.getPreviewContent(new NullProgressMonitor()));
+		assertEquals("second line\n3rd line\n", snapshot.getPreviewContent(new NullProgressMonitor()));
+	}
+
+	@Test
+	public void testOverriddenPreview() throws Exception {
+		DocumentChange change= new DocumentChange("change", new Document(CONTENT)) {
+			@Override
+			public String getPreviewContent(TextEditBasedChangeGroup[] changeGroups, IRegion region, boolean expandRegionToFullLine, int surroundingLines, IProgressMonitor pm) throws CoreException {
+				return "overridden";
+			}
+		};
+		change.setEdit(new MultiTextEdit());
+		TextEditChangeGroup group= addGroup(change, new ReplaceEdit(0, 5, "1st"));
+		TextChange.PreviewSnapshot snapshot= change.createPreviewSnapshot(new TextEditBasedChangeGroup[] { group }, new Region(0, 5), true, 0, new NullProgressMonitor());
+		assertEquals("first line", snapshot.getCurrentContent(new NullProgressMonitor()));
+		assertEquals("overridden", snapshot.getPreviewContent(new NullProgressMonitor()));
+	}
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.UndoEdit;
+
+import org.eclipse.jface.text.Document;
+
+import org.eclipse.ltk.core.refactoring.CompositeChange;
+import org.eclipse.ltk.core.refactoring.PerformChangeOperation;
+import org.eclipse.ltk.core.refactoring.RefactoringCore;
+import org.eclipse.ltk.core.refactoring.TextFileChange;
+import org.eclipse.ltk.core.refactoring.tests.util.SimpleTestProject;
+import org.eclipse.ltk.internal.core.refactoring.CompactedUndoEdit;
+import org.eclipse.ltk.internal.core.refactoring.UndoManager2;
+
+public class UndoManagerMemoryTest {
+
+	private static final int FILES= 10;
+
+	private SimpleTestProject fProject;
+	private IFile[] fFiles;
+	private String[] fContents;
+	private UndoManager2 fUndoManager;
+
+	@Before
+	public void setUp() throws Exception {
+		fProject= new SimpleTestProject();
+		IFolder folder= fProject.createFolder("test");
+		fFiles= new IFile[FILES];
+		fContents= new String[FILES];
+		for (int i= 0; i < FILES; i++) {
+			StringBuilder buf= new StringBuilder();
+			for (int line= 0; line < 200; line++) {
+				buf.append("line ").append(line).append(" of file ").append(i).append('\n');
+			}
+			fContents[i]= buf.toString();
+			fFiles[i]= fProject.createFile(folder, "file" + i + ".txt", fContents[i]);
+		}
+		fUndoManager= (UndoManager2) RefactoringCore.getUndoManager();
+		fUndoManager.flush();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fUndoManager.setMemoryBudget(-1);
+		fUndoManager.flush();
+		fProject.delete();
+	}
+
+	private void replaceContents(String name) throws Exception {
+		CompositeChange change= new CompositeChange(name);
+		for (IFile file : fFiles) {
+			TextFileChange fileChange= new TextFileChange(file.getName(), file);
+			fileChange.setEdit(new ReplaceEdit(0, fProject.getContent(file).length(), name));
+			change.add(fileChange);
+		}
+		change.initializeValidationData(new NullProgressMonitor());
+		PerformChangeOperation operation= new PerformChangeOperation(change);
+		operation.setUndoManager(fUndoManager, name);
+		operation.run(new NullProgressMonitor());
+		assertTrue(operation.changeExecuted());
+	}
+
+	private void rename(String oldName, String newName) throws Exception {
+		CompositeChange change= new CompositeChange(newName);
+		for (IFile file : fFiles) {
+			String content= fProject.getContent(file);
+			MultiTextEdit edit= new MultiTextEdit();
+			for (int offset= content.indexOf(oldName); offset >= 0; offset= content.indexOf(oldName, offset + 1)) {
+				edit.addChild(new ReplaceEdit(offset, oldName.length(), newName));
+			}
+			TextFileChange fileChange= new TextFileChange(file.getName(), file);
+			fileChange.setEdit(edit);
+			change.add(fileChange);
+		}
+		change.initializeValidationData(new NullProgressMonitor());
+		PerformChangeOperation operation= new PerformChangeOperation(change);
+		operation.setUndoManager(fUndoManager, newName);
+		operation.run(new NullProgressMonitor());
+		assertTrue(operation.changeExecuted());
+	}
+
+	@Test
+	public void testCompactedUndoEdit() throws Exception {
+		Document document= new Document(fContents[0]);
+		MultiTextEdit edit= new MultiTextEdit();
+		edit.addChild(new ReplaceEdit(0, 4, "row"));
+		edit.addChild(new InsertEdit(10, "inserted"));
+		edit.addChild(new DeleteEdit(20, 5));
+		edit.addChild(new ReplaceEdit(40, 2, "longer text"));
+		UndoEdit undo= edit.apply(document, TextEdit.CREATE_UNDO);
+		String modified= document.get();
+
+		CompactedUndoEdit compacted= CompactedUndoEdit.create(undo);
+		assertNotNull(compacted);
+		UndoEdit redo= compacted.expand().apply(document, TextEdit.CREATE_UNDO);
+		assertEquals(fContents[0], document.get());
+		redo.apply(document);
+		assertEquals(modified, document.get());
+	}
+
+	@Test
+	public void testNoCompactionWithinBudget() throws Exception {
+		int compacted= fUndoManager.getMemoryStatistics().getCompactedChanges();
+		rename("line", "row");
+		rename("file", "document");
+		UndoManager2.MemoryStatistics statistics= fUndoManager.getMemoryStatistics();
+		assertEquals(statistics.toString(), Long.MAX_VALUE, statistics.getBudget());
+		assertEquals(statistics.toString(), compacted, statistics.getCompactedChanges());
+		assertTrue(fUndoManager.testHasNumberOfUndos(2));
+	}
+
+	@Test
+	public void testCompactedUndoOfRename() throws Exception {
+		int compacted= fUndoManager.getMemoryStatistics().getCompactedChanges();
+		rename("line", "row");
+		// both renames have about the same size, only the older one needs to be compacted
+		long usage= fUndoManager.getMemoryStatistics().getUsage();
+		fUndoManager.setMemoryBudget(usage + usage / 2);
+		rename("file", "document");
+		UndoManager2.MemoryStatistics statistics= fUndoManager.getMemoryStatistics();
+		assertEquals(statistics.toString(), compacted + FILES, statistics.getCompactedChanges());
+		assertTrue(fUndoManager.testHasNumberOfUndos(2));
+
+		fUndoManager.performUndo(null, new NullProgressMonitor());
+		for (int i= 0; i < FILES; i++) {
+			assertEquals(fContents[i].replace("line", "row"), fProject.getContent(fFiles[i]));
+		}
+		fUndoManager.performUndo(null, new NullProgressMonitor());
+		for (int i= 0; i < FILES; i++) {
+			assertEquals(fContents[i], fProject.getContent(fFiles[i]));
+		}
+		fUndoManager.performRedo(null, new NullProgressMonitor());
+		for (int i= 0; i < FILES; i++) {
+			assertEquals(fContents[i].replace("line", "row"), fProject.getContent(fFiles[i]));
+		}
+	}
+
+	@Test
+	public void testCompactedUndo() throws Exception {
+		int compacted= fUndoManager.getMemoryStatistics().getCompactedChanges();
+		replaceContents("first");
+		fUndoManager.setMemoryBudget(fUndoManager.getMemoryStatistics().getUsage());
+		replaceContents("second");
+		UndoManager2.MemoryStatistics statistics= fUndoManager.getMemoryStatistics();
+		assertEquals(statistics.toString(), compacted + FILES, statistics.getCompactedChanges());
+		assertTrue(fUndoManager.testHasNumberOfUndos(2));
+
+		fUndoManager.performUndo(null, new NullProgressMonitor());
+		fUndoManager.performUndo(null, new NullProgressMonitor());
+		for (int i= 0; i < FILES; i++) {
+			assertEquals(fContents[i], fProject.getContent(fFiles[i]));
+		}
+	}
+
+	@Test
+	public void testEvictOldest() throws Exception {
+		int evicted= fUndoManager.getMemoryStatistics().getEvictedOperations();
+		fUndoManager.setMemoryBudget(0);
+		replaceContents("first");
+		replaceContents("second");
+		assertTrue(fUndoManager.testHasNumberOfUndos(1));
+		assertEquals("second", fUndoManager.peekUndoName());
+		assertEquals(evicted + 1, fUndoManager.getMemoryStatistics().getEvictedOperations());
+
+		fUndoManager.performUndo(null, new NullProgressMonitor());
+		for (IFile file : fFiles) {
+			assertEquals("first", fProject.getContent(file));
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.core.refactoring.tests.history;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.prefs.BackingStoreException;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.ProjectScope;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+import org.eclipse.ltk.core.refactoring.CheckConditionsOperation;
+import org.eclipse.ltk.core.refactoring.PerformRefactoringOperation;
+import org.eclipse.ltk.core.refactoring.RefactoringCore;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.core.refactoring.history.RefactoringHistory;
+import org.eclipse.ltk.core.refactoring.tests.util.SimpleTestProject;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringPreferenceConstants;
+import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryService;
+
+/**
+ * Tests the binary index of the refactoring history, which is used to read the descriptor
+ * proxies of a history.
+ */
+public class RefactoringHistoryIndexTests {
+
+	private static final int NUMBER= 12;
+
+	/** The refactorings are spread over several weeks and months, and thus history folders */
+	private static final long STAMP_FACTOR= 7 * 24 * 60 * 60 * 1000L;
+
+	private SimpleTestProject fProject;
+
+	private RefactoringHistoryService fService;
+
+	@Before
+	public void setUp() throws Exception {
+		fService= RefactoringHistoryService.getInstance();
+		fService.connect();
+		fProject= new SimpleTestProject();
+		for (int index= 0; index < NUMBER; index++)
+			executeRefactoring(index);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		fService.deleteRefactoringHistory(fProject.getProject(), null);
+		fService.disconnect();
+		fProject.delete();
+	}
+
+	private void executeRefactoring(int index) throws CoreException {
+		executeRefactoring(index, "A mock description number " + index);
+	}
+
+	private void executeRefactoring(int index, String description) throws CoreException {
+		try {
+			fService.setOverrideTimeStamp(getTimeStamp(index));
+			MockRefactoring refactoring= new MockRefactoring(fProject.getProject().getName(), description, "A mock comment number " + index, Collections.<String, String> emptyMap(), RefactoringDescriptor.NONE);
+			ResourcesPlugin.getWorkspace().run(new PerformRefactoringOperation(refactoring, CheckConditionsOperation.ALL_CONDITIONS), null);
+		} finally {
+			fService.setOverrideTimeStamp(-1);
+		}
+	}
+
+	private static long getTimeStamp(int index) {
+		return (index + 1) * STAMP_FACTOR;
+	}
+
+	private long[] getTimeStamps(long start, long end) {
+		RefactoringHistory history= fService.getProjectHistory(fProject.getProject(), start, end, RefactoringDescriptor.NONE, null);
+		RefactoringDescriptorProxy[] proxies= history.getDescriptors();
+		long[] stamps= new long[proxies.length];
+		for (int index= 0; index < proxies.length; index++)
+			stamps[index]= proxies[index].getTimeStamp();
+		Arrays.sort(stamps);
+		return stamps;
+	}
+
+	private long[] getTimeStamps() {
+		return getTimeStamps(0, Long.MAX_VALUE);
+	}
+
+	private static long[] getExpectedTimeStamps(int from, int to) {
+		long[] stamps= new long[to - from];
+		for (int index= from; index < to; index++)
+			stamps[index - from]= getTimeStamp(index);
+		return stamps;
+	}
+
+	private static File[] getIndexFiles() {
+		File folder= RefactoringCorePlugin.getDefault().getStateLocation().append(RefactoringHistoryService.NAME_HISTORY_FOLDER).append(".index").toFile();
+		File[] files= folder.listFiles((directory, name) -> name.endsWith(".bin"));
+		return files != null ? files : new File[0];
+	}
+
+	/**
+	 * Discards the indexes held in memory, so that the next query reads the binary index files.
+	 */
+	private void reconnect() {
+		fService.disconnect();
+		fService.connect();
+	}
+
+	private void setSharedRefactoringHistory(boolean shared) throws BackingStoreException, CoreException {
+		final IEclipsePreferences preferences= new ProjectScope(fProject.getProject()).getNode(RefactoringCore.ID_PLUGIN);
+		preferences.put(RefactoringPreferenceConstants.PREFERENCE_SHARED_REFACTORING_HISTORY, Boolean.toString(shared));
+		preferences.flush();
+		RefactoringHistoryService.setSharedRefactoringHistory(fProject.getProject(), shared, null);
+	}
+
+	@Test
+	public void testIndexFile() throws Exception {
+		long[] expected= getExpectedTimeStamps(0, NUMBER);
+		assertArrayEquals(expected, getTimeStamps());
+		assertTrue("Binary index should exist", getIndexFiles().length > 0);
+
+		reconnect();
+		assertArrayEquals(expected, getTimeStamps());
+	}
+
+	@Test
+	public void testUnreadableIndexFile() throws Exception {
+		long[] expected= getExpectedTimeStamps(0, NUMBER);
+		assertArrayEquals(expected, getTimeStamps());
+		for (File file : getIndexFiles())
+			Files.write(file.toPath(), "unreadable".getBytes(StandardCharsets.UTF_8));
+
+		reconnect();
+		assertArrayEquals(expected, getTimeStamps());
+	}
+
+	private String getDescription(int index) {
+		RefactoringDescriptorProxy[] proxies= fService.getProjectHistory(fProject.getProject(), getTimeStamp(index), getTimeStamp(index), RefactoringDescriptor.NONE, null).getDescriptors();
+		assertEquals(1, proxies.length);
+		return proxies[0].getDescription();
+	}
+
+	@Test
+	public void testLongDescription() throws Exception {
+		// longer than the 64 KB that DataOutputStream.writeUTF can write
+		StringBuilder builder= new StringBuilder();
+		while (builder.length() < 70000)
+			builder.append("A long description \u00e4\u20ac ");
+		String description= builder.toString();
+		executeRefactoring(NUMBER, description);
+		assertEquals(description, getDescription(NUMBER));
+		assertTrue("Binary index should contain the description", Arrays.stream(getIndexFiles()).anyMatch(file -> file.length() > description.length()));
+
+		reconnect();
+		assertEquals(description, getDescription(NUMBER));
+		assertArrayEquals(getExpectedTimeStamps(0, NUMBER + 1), getTimeStamps());
+	}
+
+	@Test
+	public void testTimeRange() throws Exception {
+		assertArrayEquals(getExpectedTimeStamps(3, 8), getTimeStamps(getTimeStamp(3), getTimeStamp(7)));
+		assertArrayEquals(getExpectedTimeStamps(3, 8), getTimeStamps(getTimeStamp(3) - 1, getTimeStamp(7) + 1));
+		assertArrayEquals(getExpectedTimeStamps(0, 1), getTimeStamps(0, getTimeStamp(0)));
+		assertArrayEquals(getExpectedTimeStamps(NUMBER - 1, NUMBER), getTimeStamps(getTimeStamp(NUMBER - 1), Long.MAX_VALUE));
+		assertEquals(0, getTimeStamps(getTimeStamp(NUMBER), Long.MAX_VALUE).length);
+	}
+
+	@Test
+	public void testAddRefactoring() throws Exception {
+		assertArrayEquals(getExpectedTimeStamps(0, NUMBER), getTimeStamps());
+
+		executeRefactoring(NUMBER);
+		assertArrayEquals(getExpectedTimeStamps(0, NUMBER + 1), getTimeStamps());
+
+		reconnect();
+		assertArrayEquals(getExpectedTimeStamps(0, NUMBER + 1), getTimeStamps());
+	}
+
+	@Test
+	public void testDeleteRefactorings() throws Exception {
+		RefactoringDescriptorProxy[] proxies= fService.getProjectHistory(fProject.getProject(), 0, getTimeStamp(NUMBER / 2 - 1), RefactoringDescriptor.NONE, null).getDescriptors();
+		assertEquals(NUMBER / 2, proxies.length);
+
+		fService.deleteRefactoringDescriptors(proxies, null);
+		assertArrayEquals(getExpectedTimeStamps(NUMBER / 2, NUMBER), getTimeStamps());
+
+		reconnect();
+		assertArrayEquals(getExpectedTimeStamps(NUMBER / 2, NUMBER), getTimeStamps());
+	}
+
+	@Test
+	public void testSharedHistory() throws Exception {
+		long[] expected= getExpectedTimeStamps(0, NUMBER);
+		assertArrayEquals(expected, getTimeStamps());
+
+		setSharedRefactoringHistory(true);
+		assertArrayEquals(expected, getTimeStamps());
+
+		// e.g. the shared history is deleted by the team provider
+		IFolder folder= fProject.getProject().getFolder(RefactoringHistoryService.NAME_HISTORY_FOLDER);
+		assertTrue("Refactoring history folder should exist", folder.exists());
+		folder.delete(true, null);
+		assertEquals(0, getTimeStamps().length);
+	}
+}
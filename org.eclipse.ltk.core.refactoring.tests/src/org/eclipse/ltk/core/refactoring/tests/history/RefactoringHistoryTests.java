@@ -18,6 +18,7 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+	RefactoringHistoryIndexTests.class,
 	RefactoringHistorySerializationTests.class,
 	RefactoringHistoryServiceTests.class
 })
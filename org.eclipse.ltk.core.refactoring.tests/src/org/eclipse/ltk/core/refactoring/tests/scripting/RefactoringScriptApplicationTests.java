@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,12 +13,75 @@
  *******************************************************************************/
 package org.eclipse.ltk.core.refactoring.tests.scripting;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+import org.eclipse.ltk.core.refactoring.PerformRefactoringHistoryOperation;
+import org.eclipse.ltk.core.refactoring.Refactoring;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptor;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+
 public class RefactoringScriptApplicationTests {
 
+	private static final String SCRIPT= "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + "<session version=\"1.0\">\n" + "<refactoring description=\"First mock refactoring\" id=\"org.eclipse.ltk.core.mock\"/>\n" + "<refactoring description=\"Second mock refactoring\" id=\"org.eclipse.ltk.core.mock\"/>\n" + "<refactoring description=\"Third mock refactoring\" id=\"org.eclipse.ltk.core.mock\"/>\n" + "</session>\n";
+
+	private static final class RecordingOperation extends PerformRefactoringHistoryOperation {
+
+		private final List<String> fDescriptions= new ArrayList<>();
+
+		private int fPerformed;
+
+		RecordingOperation(String script) throws Exception {
+			super(new ByteArrayInputStream(script.getBytes("utf-8")));
+		}
+
+		@Override
+		protected RefactoringStatus aboutToPerformRefactoring(Refactoring refactoring, RefactoringDescriptor descriptor, IProgressMonitor monitor) {
+			fDescriptions.add(descriptor.getDescription());
+			// do not execute the mock refactorings, which would be recorded in the workspace history
+			return RefactoringStatus.createFatalErrorStatus(descriptor.getDescription());
+		}
+
+		@Override
+		protected void refactoringPerformed(Refactoring refactoring, IProgressMonitor monitor) {
+			fPerformed++;
+		}
+	}
+
 	@Test
 	public void test0() throws Exception {
 
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testStreamingReplay() throws Exception {
+		RecordingOperation operation= new RecordingOperation(SCRIPT);
+		operation.run(new NullProgressMonitor());
+		assertEquals(List.of("First mock refactoring", "Second mock refactoring", "Third mock refactoring"), operation.fDescriptions);
+		assertEquals(3, operation.fPerformed);
+		assertEquals(3, operation.getExecutionStatus().getEntries().length);
+	}
+
+	@Test
+	public void testStreamingReplayUnsupportedVersion() throws Exception {
+		RecordingOperation operation= new RecordingOperation(SCRIPT.replace("version=\"1.0\"", "version=\"2.0\""));
+		try {
+			operation.run(new NullProgressMonitor());
+			fail("Script with unsupported version has been replayed");
+		} catch (CoreException exception) {
+			assertEquals(IRefactoringCoreStatusCodes.UNSUPPORTED_REFACTORING_HISTORY_VERSION, exception.getStatus().getCode());
+		}
+		assertEquals(0, operation.fPerformed);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2022 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -228,19 +228,47 @@ public class CompositeChange extends Change {
 	 * will not receive the <code>isValid</code> call.
 	 * </p>
 	 * <p>
+	 * Consecutive children that are plain {@link TextFileChange}s operate on
+	 * independent files and are validated together: their buffer validation
+	 * states are checked in parallel. The result is the same as if they had
+	 * been validated one after the other.
+	 * </p>
+	 * <p>
 	 * Client are allowed to extend this method.
 	 * </p>
 	 */
 	@Override
 	public RefactoringStatus isValid(IProgressMonitor pm) throws CoreException {
 		RefactoringStatus result= new RefactoringStatus();
-		pm.beginTask("", fChanges.size()); //$NON-NLS-1$
-		for (Iterator<Change> iter= fChanges.iterator(); iter.hasNext() && !result.hasFatalError();) {
-			Change change= iter.next();
-			if (change.isEnabled())
-				result.merge(change.isValid(new SubProgressMonitor(pm, 1)));
-			else
-				pm.worked(1);
+		int size= fChanges.size();
+		pm.beginTask("", size); //$NON-NLS-1$
+		int i= 0;
+		while (i < size && !result.hasFatalError()) {
+			// collect the enabled text file changes up to the next child that has to be validated on its own
+			List<TextFileChange> batch= new ArrayList<>();
+			int end= i;
+			for (; end < size; end++) {
+				Change change= fChanges.get(end);
+				if (change.isEnabled()) {
+					if (!TextFileChange.hasDefaultValidation(change))
+						break;
+					batch.add((TextFileChange) change);
+				}
+			}
+			if (batch.size() > 1) {
+				result.merge(TextFileChange.isValid(batch, new SubProgressMonitor(pm, end - i)));
+				i= end;
+			} else {
+				for (int last= Math.max(end, i + 1); i < last && !result.hasFatalError(); i++) {
+					Change change= fChanges.get(i);
+					if (change.isEnabled())
+						result.merge(change.isValid(new SubProgressMonitor(pm, 1)));
+					else
+						pm.worked(1);
+					if (pm.isCanceled())
+						throw new OperationCanceledException();
+				}
+			}
 			if (pm.isCanceled())
 				throw new OperationCanceledException();
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,9 +14,15 @@
  *******************************************************************************/
 package org.eclipse.ltk.core.refactoring;
 
+import java.io.InputStream;
+
+import org.xml.sax.InputSource;
+
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.PerformanceStats;
 import org.eclipse.core.runtime.SubProgressMonitor;
 
 import org.eclipse.core.resources.IWorkspaceRunnable;
@@ -25,6 +31,7 @@ import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.ltk.core.refactoring.history.IRefactoringHistoryService;
 import org.eclipse.ltk.core.refactoring.history.RefactoringHistory;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringSessionReader;
 import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryService;
 
 /**
@@ -51,12 +58,18 @@ import org.eclipse.ltk.internal.core.refactoring.history.RefactoringHistoryServi
  */
 public class PerformRefactoringHistoryOperation implements IWorkspaceRunnable {
 
+	/** The performance event of a single refactoring */
+	private static final String PERF_PERFORM_REFACTORING= "org.eclipse.ltk.core.refactoring/perf/history/performRefactoring"; //$NON-NLS-1$
+
 	/** The status of the execution */
 	private RefactoringStatus fExecutionStatus= new RefactoringStatus();
 
-	/** The refactoring history */
+	/** The refactoring history, or <code>null</code> if a script is replayed */
 	private final RefactoringHistory fRefactoringHistory;
 
+	/** The refactoring script, or <code>null</code> if a history is replayed */
+	private final InputStream fScript;
+
 	/**
 	 * Creates a new perform refactoring history operation.
 	 *
@@ -66,6 +79,34 @@ public class PerformRefactoringHistoryOperation implements IWorkspaceRunnable {
 	public PerformRefactoringHistoryOperation(final RefactoringHistory history) {
 		Assert.isNotNull(history);
 		fRefactoringHistory= history;
+		fScript= null;
+	}
+
+	/**
+	 * Creates a new perform refactoring history operation which replays a
+	 * refactoring script.
+	 * <p>
+	 * The refactorings of the script are created and executed one at a time
+	 * while the script is read, so that the refactoring descriptors of a large
+	 * script are never held in memory at once. The stream is not closed by the
+	 * operation.
+	 * </p>
+	 * <p>
+	 * This is meant for replaying scripts without user interaction. Clients
+	 * which show the refactorings of a script before performing them, like the
+	 * Apply Script wizard, need the whole refactoring history anyway and should
+	 * use {@link #PerformRefactoringHistoryOperation(RefactoringHistory)}.
+	 * </p>
+	 *
+	 * @param script
+	 *            the input stream of the refactoring script
+	 *
+	 * @since 3.14
+	 */
+	public PerformRefactoringHistoryOperation(final InputStream script) {
+		Assert.isNotNull(script);
+		fRefactoringHistory= null;
+		fScript= script;
 	}
 
 	/**
@@ -208,9 +249,58 @@ public class PerformRefactoringHistoryOperation implements IWorkspaceRunnable {
 		// Do nothing
 	}
 
+	/**
+	 * Creates and performs the refactoring of the specified descriptor.
+	 *
+	 * @param descriptor
+	 *            the refactoring descriptor
+	 * @param monitor
+	 *            the progress monitor of the operation, of which 160 units of
+	 *            work are consumed
+	 * @throws CoreException
+	 *             if an error occurs while performing the refactoring
+	 */
+	private void performRefactoring(final RefactoringDescriptor descriptor, final IProgressMonitor monitor) throws CoreException {
+		final PerformanceStats stats= PerformanceStats.getStats(PERF_PERFORM_REFACTORING, descriptor.getID() + ", " + descriptor.getDescription()); //$NON-NLS-1$
+		stats.startRun();
+		RefactoringContext context= null;
+		RefactoringStatus status= new RefactoringStatus();
+		try {
+			try {
+				context= createRefactoringContext(descriptor, status, new SubProgressMonitor(monitor, 30, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			} catch (CoreException exception) {
+				status.merge(RefactoringStatus.create(exception.getStatus()));
+			}
+			if (context != null && !status.hasFatalError()) {
+				Refactoring refactoring= context.getRefactoring();
+				final PerformRefactoringOperation operation= new PerformRefactoringOperation(refactoring, CheckConditionsOperation.ALL_CONDITIONS);
+				try {
+					status.merge(aboutToPerformRefactoring(refactoring, descriptor, new SubProgressMonitor(monitor, 30, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
+					if (!status.hasFatalError()) {
+						ResourcesPlugin.getWorkspace().run(operation, new SubProgressMonitor(monitor, 90, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+						status.merge(operation.getConditionStatus());
+						if (!status.hasFatalError())
+							status.merge(operation.getValidationStatus());
+					}
+				} finally {
+					refactoringPerformed(refactoring, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+				}
+			}
+		} finally {
+			fExecutionStatus.merge(status);
+			if (context != null)
+				context.dispose();
+			stats.endRun();
+		}
+	}
+
 	@Override
 	public void run(final IProgressMonitor monitor) throws CoreException {
 		fExecutionStatus= new RefactoringStatus();
+		if (fScript != null) {
+			runScript(monitor);
+			return;
+		}
 		final RefactoringDescriptorProxy[] proxies= fRefactoringHistory.getDescriptors();
 		monitor.beginTask(RefactoringCoreMessages.PerformRefactoringHistoryOperation_perform_refactorings, 170 * proxies.length);
 		final IRefactoringHistoryService service= RefactoringHistoryService.getInstance();
@@ -218,40 +308,37 @@ public class PerformRefactoringHistoryOperation implements IWorkspaceRunnable {
 			service.connect();
 			for (RefactoringDescriptorProxy proxie : proxies) {
 				final RefactoringDescriptor descriptor= proxie.requestDescriptor(new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
-				if (descriptor != null) {
-					RefactoringContext context= null;
-					RefactoringStatus status= new RefactoringStatus();
-					try {
-						try {
-							context= createRefactoringContext(descriptor, status, new SubProgressMonitor(monitor, 30, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
-						} catch (CoreException exception) {
-							status.merge(RefactoringStatus.create(exception.getStatus()));
-						}
-						if (context != null && !status.hasFatalError()) {
-							Refactoring refactoring= context.getRefactoring();
-							final PerformRefactoringOperation operation= new PerformRefactoringOperation(refactoring, CheckConditionsOperation.ALL_CONDITIONS);
-							try {
-								status.merge(aboutToPerformRefactoring(refactoring, descriptor, new SubProgressMonitor(monitor, 30, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)));
-								if (!status.hasFatalError()) {
-									ResourcesPlugin.getWorkspace().run(operation, new SubProgressMonitor(monitor, 90, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
-									status.merge(operation.getConditionStatus());
-									if (!status.hasFatalError())
-										status.merge(operation.getValidationStatus());
-								}
-							} finally {
-								refactoringPerformed(refactoring, new SubProgressMonitor(monitor, 10, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
-							}
-						}
-					} finally {
-						fExecutionStatus.merge(status);
-						if (context != null)
-							context.dispose();
-					}
-				}
+				if (descriptor != null)
+					performRefactoring(descriptor, monitor);
 			}
 		} finally {
 			service.disconnect();
 			monitor.done();
 		}
 	}
+
+	/**
+	 * Replays the refactoring script while it is read.
+	 *
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs while reading the script or performing a
+	 *             refactoring
+	 */
+	private void runScript(final IProgressMonitor monitor) throws CoreException {
+		monitor.beginTask(RefactoringCoreMessages.PerformRefactoringHistoryOperation_perform_refactorings, IProgressMonitor.UNKNOWN);
+		final IRefactoringHistoryService service= RefactoringHistoryService.getInstance();
+		try {
+			service.connect();
+			new RefactoringSessionReader(false, null).readSession(new InputSource(fScript), descriptor -> {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+				performRefactoring(descriptor, monitor);
+			});
+		} finally {
+			service.disconnect();
+			monitor.done();
+		}
+	}
 }
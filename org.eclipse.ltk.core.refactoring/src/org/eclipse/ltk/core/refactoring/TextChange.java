@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -73,6 +73,141 @@ import org.eclipse.ltk.internal.core.refactoring.Changes;
  */
 public abstract class TextChange extends TextEditBasedChange {
 
+	/**
+	 * A preview of a text change that is computed on demand, e.g. in a background job.
+	 * The edits of the change and the active state of its change groups are captured
+	 * when the snapshot is created, so that later modifications of them, e.g. by the user
+	 * in the preview, do not affect the computation.
+	 * <p>
+	 * A snapshot is not thread safe. It reads the current document of the change only once.
+	 * </p>
+	 *
+	 * @see TextChange#createPreviewSnapshot(IProgressMonitor)
+	 * @see TextChange#createPreviewSnapshot(TextEditBasedChangeGroup[], IRegion, boolean, int, IProgressMonitor)
+	 *
+	 * @since 3.14
+	 *
+	 * @noinstantiate This class is not intended to be instantiated by clients.
+	 */
+	public static final class PreviewSnapshot {
+		private final TextChange fChange;
+		private final TextEditBasedChangeGroup[] fChangeGroups;
+		private final IRegion fRegion;
+		private final boolean fExpandRegionToFullLine;
+		private final int fSurroundingLines;
+		/** The copy of the root edit, or <code>null</code> if there is nothing to apply */
+		private TextEdit fRoot;
+		private TextEdit[] fExcludes;
+		private TextEdit[] fIncludes;
+		/** The copies of the edits of the change groups */
+		private TextEdit[] fGroupEdits;
+		/** The region covered by the change groups before the change */
+		private IRegion fGroupRegion;
+		private String fDocumentContent;
+		private String fCurrentContent;
+		private String fPreviewContent;
+
+		PreviewSnapshot(TextChange change, TextEditBasedChangeGroup[] changeGroups, IRegion region, boolean expandRegionToFullLine, int surroundingLines) {
+			fChange= change;
+			fChangeGroups= changeGroups;
+			fRegion= region;
+			fExpandRegionToFullLine= expandRegionToFullLine;
+			fSurroundingLines= surroundingLines;
+		}
+
+		/**
+		 * Returns the current content of the change, clipped to the region of the
+		 * snapshot if it has been created for change groups.
+		 *
+		 * @param pm a progress monitor to report progress or <code>null</code>
+		 *  if no progress reporting is desired
+		 * @return the current content
+		 *
+		 * @throws CoreException if the document of the change can't be acquired
+		 *
+		 * @see TextChange#getCurrentContent(IRegion, boolean, int, IProgressMonitor)
+		 */
+		public String getCurrentContent(IProgressMonitor pm) throws CoreException {
+			if (fCurrentContent == null) {
+				if (fChangeGroups == ALL_EDITS) {
+					fCurrentContent= getDocumentContent(pm);
+				} else {
+					IDocument document= new Document(getDocumentContent(pm));
+					Assert.isTrue(document.getLength() >= fRegion.getOffset() + fRegion.getLength());
+					fCurrentContent= fChange.getContent(document, fRegion, fExpandRegionToFullLine, fSurroundingLines);
+				}
+			}
+			return fCurrentContent;
+		}
+
+		/**
+		 * Returns the preview of the change, clipped to the region of the snapshot
+		 * if it has been created for change groups.
+		 *
+		 * @param pm a progress monitor to report progress or <code>null</code>
+		 *  if no progress reporting is desired
+		 * @return the preview content
+		 *
+		 * @throws CoreException if the preview can't be created
+		 *
+		 * @see TextChange#getPreviewContent(TextEditBasedChangeGroup[], IRegion, boolean, int, IProgressMonitor)
+		 */
+		public String getPreviewContent(IProgressMonitor pm) throws CoreException {
+			if (fPreviewContent != null)
+				return fPreviewContent;
+			IDocument document= new Document(getDocumentContent(pm));
+			if (fRoot != null) {
+				LocalTextEditProcessor processor= new LocalTextEditProcessor(document, fRoot, fChangeGroups == ALL_EDITS ? TextEdit.NONE : TextEdit.UPDATE_REGIONS);
+				if (fIncludes != null)
+					processor.setIncludes(fIncludes);
+				else
+					processor.setExcludes(fExcludes);
+				try {
+					processor.performEdits();
+				} catch (BadLocationException e) {
+					throw Changes.asCoreException(e);
+				}
+			}
+			if (fChangeGroups == ALL_EDITS) {
+				fPreviewContent= document.get();
+			} else {
+				IRegion newRegion= fGroupEdits.length == 0 ? null : TextEdit.getCoverage(fGroupEdits);
+				// without a new region, all edits were delete edits
+				int delta= (newRegion != null ? newRegion.getLength() : 0) - (fGroupRegion != null ? fGroupRegion.getLength() : 0);
+				fPreviewContent= fChange.getContent(document, new Region(fRegion.getOffset(), fRegion.getLength() + delta), fExpandRegionToFullLine, fSurroundingLines);
+			}
+			return fPreviewContent;
+		}
+
+		private String getDocumentContent(IProgressMonitor pm) throws CoreException {
+			if (fDocumentContent == null)
+				fDocumentContent= fChange.getCurrentDocument(pm).get();
+			return fDocumentContent;
+		}
+	}
+
+	// whether a change class computes its contents as implemented here, see createPreviewSnapshot
+	private static final ClassValue<Boolean> DEFAULT_PREVIEW= new ClassValue<>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return Boolean.valueOf(isDeclaredHere(type, "getCurrentDocument", IProgressMonitor.class) //$NON-NLS-1$
+						&& isDeclaredHere(type, "getCurrentContent", IProgressMonitor.class) //$NON-NLS-1$
+						&& isDeclaredHere(type, "getCurrentContent", IRegion.class, boolean.class, int.class, IProgressMonitor.class) //$NON-NLS-1$
+						&& isDeclaredHere(type, "getPreviewDocument", IProgressMonitor.class) //$NON-NLS-1$
+						&& isDeclaredHere(type, "getPreviewContent", IProgressMonitor.class) //$NON-NLS-1$
+						&& isDeclaredHere(type, "getPreviewContent", TextEditChangeGroup[].class, IRegion.class, boolean.class, int.class, IProgressMonitor.class) //$NON-NLS-1$
+						&& isDeclaredHere(type, "getPreviewContent", TextEditBasedChangeGroup[].class, IRegion.class, boolean.class, int.class, IProgressMonitor.class)); //$NON-NLS-1$
+			} catch (NoSuchMethodException e) {
+				return Boolean.FALSE;
+			}
+		}
+
+		private boolean isDeclaredHere(Class<?> type, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+			return type.getMethod(name, parameterTypes).getDeclaringClass() == TextChange.class;
+		}
+	};
+
 	private TextEdit fEdit;
 	private TextEditCopier fCopier;
 
@@ -514,6 +649,93 @@ public abstract class TextChange extends TextEditBasedChange {
 
 	}
 
+	/**
+	 * Creates a snapshot of the preview of this text change, which can be computed
+	 * later, e.g. in a background job. The snapshot considers the active state that the
+	 * added {@link TextEditChangeGroup text edit change groups} have when it is created.
+	 * <p>
+	 * If a subclass overrides the methods computing the contents of this change, the
+	 * snapshot contents are computed right away by calling them.
+	 * </p>
+	 *
+	 * @param pm a progress monitor to report progress or <code>null</code>
+	 *  if no progress reporting is desired
+	 * @return the snapshot of the preview
+	 *
+	 * @throws CoreException if the contents have to be computed right away and can't be
+	 *
+	 * @see #getPreviewContent(IProgressMonitor)
+	 *
+	 * @since 3.14
+	 */
+	public PreviewSnapshot createPreviewSnapshot(IProgressMonitor pm) throws CoreException {
+		PreviewSnapshot result= new PreviewSnapshot(this, ALL_EDITS, null, false, 0);
+		if (!DEFAULT_PREVIEW.get(getClass()).booleanValue()) {
+			result.fCurrentContent= getCurrentContent(pm);
+			result.fPreviewContent= getPreviewContent(pm);
+		} else if (fEdit != null) {
+			TextEditCopier copier= new TextEditCopier(fEdit);
+			result.fRoot= copier.perform();
+			result.fExcludes= mapEdits(getDisabledEdits(), copier);
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a snapshot of the preview of the given change groups clipped to a specific
+	 * region, which can be computed later, e.g. in a background job. The preview and the
+	 * region are determined like the ones of {@link #getPreviewContent(TextEditBasedChangeGroup[],
+	 * IRegion, boolean, int, IProgressMonitor)}, with the active state that the change groups
+	 * have when the snapshot is created.
+	 * <p>
+	 * If a subclass overrides the methods computing the contents of this change, the
+	 * snapshot contents are computed right away by calling them.
+	 * </p>
+	 *
+	 * @param changeGroups a set of change groups for which a preview is to be
+	 *  generated
+	 * @param region the starting region for the clipping
+	 * @param expandRegionToFullLine if <code>true</code> is passed the region
+	 *  is extended to cover full lines
+	 * @param surroundingLines the number of surrounding lines to be added to
+	 *  the clipping region. Is only considered if <code>expandRegionToFullLine
+	 *  </code> is <code>true</code>
+	 * @param pm a progress monitor to report progress or <code>null</code>
+	 *  if no progress reporting is desired
+	 * @return the snapshot of the preview
+	 *
+	 * @throws CoreException if the contents have to be computed right away and can't be
+	 *
+	 * @since 3.14
+	 */
+	public PreviewSnapshot createPreviewSnapshot(TextEditBasedChangeGroup[] changeGroups, IRegion region, boolean expandRegionToFullLine, int surroundingLines, IProgressMonitor pm) throws CoreException {
+		Assert.isNotNull(region);
+		Assert.isTrue(surroundingLines >= 0);
+		PreviewSnapshot result= new PreviewSnapshot(this, changeGroups, region, expandRegionToFullLine, surroundingLines);
+		if (!DEFAULT_PREVIEW.get(getClass()).booleanValue()) {
+			result.fCurrentContent= getCurrentContent(region, expandRegionToFullLine, surroundingLines, pm);
+			result.fPreviewContent= getPreviewContent(changeGroups, region, expandRegionToFullLine, surroundingLines, pm);
+			return result;
+		}
+		IRegion currentRegion= getRegion(changeGroups);
+		Assert.isTrue(currentRegion == null || region.getOffset() <= currentRegion.getOffset() &&
+			currentRegion.getOffset() + currentRegion.getLength() <= region.getOffset() + region.getLength());
+		TextEdit root= getEdit();
+		Assert.isNotNull(root, "No root edit"); //$NON-NLS-1$
+		for (TextEditBasedChangeGroup group : changeGroups) {
+			Assert.isTrue(group.getTextEditChange() == this);
+			for (TextEdit edit : group.getTextEdits()) {
+				Assert.isTrue(root == edit.getRoot(), "Wrong root edit"); //$NON-NLS-1$
+			}
+		}
+		TextEditCopier copier= new TextEditCopier(root);
+		result.fRoot= copier.perform();
+		result.fIncludes= mapEdits(getEnabledEdits(changeGroups), copier);
+		result.fGroupEdits= mapEdits(getEdits(changeGroups), copier);
+		result.fGroupRegion= currentRegion;
+		return result;
+	}
+
 	//---- private helper methods --------------------------------------------------
 
 	private PreviewAndRegion getPreviewDocument(TextEditBasedChangeGroup[] changes, IProgressMonitor pm) throws CoreException {
@@ -536,13 +758,7 @@ public abstract class TextChange extends TextEditBasedChange {
 	private TextEditProcessor createTextEditProcessor(IDocument document, int flags, boolean preview) {
 		if (fEdit == null)
 			return new TextEditProcessor(document, new MultiTextEdit(0,0), flags);
-		List<TextEdit> excludes= new ArrayList<>(0);
-		TextEditBasedChangeGroup[] groups= getChangeGroups();
-		for (TextEditBasedChangeGroup edit : groups) {
-			if (!edit.isEnabled()) {
-				excludes.addAll(Arrays.asList(edit.getTextEditGroup().getTextEdits()));
-			}
-		}
+		TextEdit[] excludes= getDisabledEdits();
 		if (preview) {
 			fCopier= new TextEditCopier(fEdit);
 			TextEdit copiedEdit= fCopier.perform();
@@ -550,15 +766,13 @@ public abstract class TextChange extends TextEditBasedChange {
 			if (keep)
 				flags= flags | TextEdit.UPDATE_REGIONS;
 			LocalTextEditProcessor result= new LocalTextEditProcessor(document, copiedEdit, flags);
-			result.setExcludes(mapEdits(
-				excludes.toArray(new TextEdit[excludes.size()]),
-				fCopier));
+			result.setExcludes(mapEdits(excludes, fCopier));
 			if (!keep)
 				fCopier= null;
 			return result;
 		} else {
 			LocalTextEditProcessor result= new LocalTextEditProcessor(document, fEdit, flags | TextEdit.UPDATE_REGIONS);
-			result.setExcludes(excludes.toArray(new TextEdit[excludes.size()]));
+			result.setExcludes(excludes);
 			return result;
 		}
 	}
@@ -566,40 +780,60 @@ public abstract class TextChange extends TextEditBasedChange {
 	private TextEditProcessor createTextEditProcessor(IDocument document, int flags, TextEditBasedChangeGroup[] changes) {
 		if (fEdit == null)
 			return new TextEditProcessor(document, new MultiTextEdit(0,0), flags);
-		List<TextEdit> includes= new ArrayList<>(0);
 		for (TextEditBasedChangeGroup change : changes) {
 			Assert.isTrue(change.getTextEditChange() == this);
-			if (change.isEnabled()) {
-				includes.addAll(Arrays.asList(change.getTextEditGroup().getTextEdits()));
-			}
 		}
+		TextEdit[] includes= getEnabledEdits(changes);
 		fCopier= new TextEditCopier(fEdit);
 		TextEdit copiedEdit= fCopier.perform();
 		boolean keep= getKeepPreviewEdits();
 		if (keep)
 			flags= flags | TextEdit.UPDATE_REGIONS;
 		LocalTextEditProcessor result= new LocalTextEditProcessor(document, copiedEdit, flags);
-		result.setIncludes(mapEdits(
-			includes.toArray(new TextEdit[includes.size()]),
-			fCopier));
+		result.setIncludes(mapEdits(includes, fCopier));
 		if (!keep)
 			fCopier= null;
 		return result;
 	}
 
+	private TextEdit[] getDisabledEdits() {
+		List<TextEdit> result= new ArrayList<>(0);
+		for (TextEditBasedChangeGroup change : getChangeGroups()) {
+			if (!change.isEnabled()) {
+				result.addAll(Arrays.asList(change.getTextEditGroup().getTextEdits()));
+			}
+		}
+		return result.toArray(new TextEdit[result.size()]);
+	}
+
+	private static TextEdit[] getEnabledEdits(TextEditBasedChangeGroup[] changes) {
+		List<TextEdit> result= new ArrayList<>(0);
+		for (TextEditBasedChangeGroup change : changes) {
+			if (change.isEnabled()) {
+				result.addAll(Arrays.asList(change.getTextEditGroup().getTextEdits()));
+			}
+		}
+		return result.toArray(new TextEdit[result.size()]);
+	}
+
+	private static TextEdit[] getEdits(TextEditBasedChangeGroup[] changes) {
+		List<TextEdit> result= new ArrayList<>();
+		for (TextEditBasedChangeGroup change : changes) {
+			result.addAll(Arrays.asList(change.getTextEditGroup().getTextEdits()));
+		}
+		return result.toArray(new TextEdit[result.size()]);
+	}
+
 	private IRegion getRegion(TextEditBasedChangeGroup[] changes) {
 		if (changes == ALL_EDITS) {
 			if (fEdit == null)
 				return null;
 			return fEdit.getRegion();
 		} else {
-			List<TextEdit> edits= new ArrayList<>();
-			for (TextEditBasedChangeGroup change : changes) {
-				edits.addAll(Arrays.asList(change.getTextEditGroup().getTextEdits()));
-			}
-			if (edits.isEmpty())
+			TextEdit[] edits= getEdits(changes);
+			if (edits.length == 0)
 				return null;
-			return TextEdit.getCoverage(edits.toArray(new TextEdit[edits.size()]));
+			return TextEdit.getCoverage(edits);
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.ltk.core.refactoring;
 
+import java.util.List;
+import java.util.stream.IntStream;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
@@ -20,6 +22,7 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 
 import org.eclipse.core.resources.IFile;
@@ -85,6 +88,18 @@ public class TextFileChange extends TextChange {
 	private BufferValidationState fValidationState;
 	private ContentStamp fContentStamp;
 
+	// whether a change class uses the validation implemented here, see isValid(List, IProgressMonitor)
+	private static final ClassValue<Boolean> DEFAULT_VALIDATION= new ClassValue<>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return Boolean.valueOf(type.getMethod("isValid", IProgressMonitor.class).getDeclaringClass() == TextFileChange.class); //$NON-NLS-1$
+			} catch (NoSuchMethodException e) {
+				return Boolean.FALSE;
+			}
+		}
+	};
+
 	/**
 	 * Creates a new <code>TextFileChange</code> for the given file.
 	 *
@@ -197,6 +212,82 @@ public class TextFileChange extends TextChange {
 		}
 	}
 
+	/**
+	 * Returns whether the given change is a text file change that does not override
+	 * {@link #isValid(IProgressMonitor)} and can therefore be validated together with
+	 * other text file changes by {@link #isValid(List, IProgressMonitor)}.
+	 *
+	 * @param change the change
+	 * @return <code>true</code> if the change can be validated in a batch
+	 */
+	static boolean hasDefaultValidation(Change change) {
+		return change instanceof TextFileChange && DEFAULT_VALIDATION.get(change.getClass()).booleanValue();
+	}
+
+	/**
+	 * Validates the given text file changes as if <code>isValid</code> had been sent to them
+	 * one after the other until the first one returned a fatal error.
+	 * <p>
+	 * The validation states of all changes are checked in parallel, since they only look at
+	 * independent files, and can hash the content of a file whose modification stamp has changed.
+	 * The synchronization states are then checked and the files that need saving are made
+	 * committable one after the other, and the validation stops at the first fatal error, exactly
+	 * as in the sequential validation. In particular, the team provider is never asked to make a
+	 * file committable after a file that failed.
+	 * </p>
+	 *
+	 * @param changes the changes to validate, all of them with {@link #hasDefaultValidation(Change)}
+	 * @param monitor a progress monitor
+	 * @return the merged status of all validated changes
+	 * @throws CoreException if the validation of one of the changes failed
+	 */
+	static RefactoringStatus isValid(List<TextFileChange> changes, IProgressMonitor monitor) throws CoreException {
+		int size= changes.size();
+		try {
+			monitor.beginTask("", 2 * size); //$NON-NLS-1$
+			boolean[] needsSaving= new boolean[size];
+			for (int i= 0; i < size; i++) {
+				TextFileChange change= changes.get(i);
+				if (change.fValidationState == null)
+					throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), "TextFileChange has not been initialialized")); //$NON-NLS-1$
+				needsSaving[i]= change.needsSaving();
+			}
+
+			RefactoringStatus[] states= new RefactoringStatus[size];
+			CoreException[] exceptions= new CoreException[size];
+			IntStream.range(0, size).parallel().forEach(i -> {
+				try {
+					states[i]= changes.get(i).fValidationState.isValid(needsSaving[i]);
+				} catch (CoreException e) {
+					exceptions[i]= e;
+				}
+			});
+			monitor.worked(size);
+			if (monitor.isCanceled())
+				throw new OperationCanceledException();
+
+			RefactoringStatus result= new RefactoringStatus();
+			for (int i= 0; i < size && !result.hasFatalError(); i++) {
+				if (exceptions[i] != null)
+					throw exceptions[i];
+				result.merge(states[i]);
+				IFile[] files= new IFile[] { changes.get(i).fFile };
+				if (needsSaving[i]) {
+					result.merge(Changes.validateModifiesFiles(files));
+				} else {
+					// we are reading the file. So it should be at least in sync
+					result.merge(Changes.checkInSync(files));
+				}
+				monitor.worked(1);
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+			}
+			return result;
+		} finally {
+			monitor.done();
+		}
+	}
+
 	@Override
 	public void dispose() {
 		if (fValidationState != null) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -38,6 +38,7 @@ import org.eclipse.jface.text.link.LinkedModeModel;
 
 import org.eclipse.ltk.internal.core.refactoring.BufferValidationState;
 import org.eclipse.ltk.internal.core.refactoring.Changes;
+import org.eclipse.ltk.internal.core.refactoring.CompactedUndoEdit;
 import org.eclipse.ltk.internal.core.refactoring.ContentStamps;
 import org.eclipse.ltk.internal.core.refactoring.Lock;
 import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
@@ -58,6 +59,7 @@ public class UndoTextFileChange extends Change {
 
 	private String fName;
 	private UndoEdit fUndo;
+	private CompactedUndoEdit fCompactedUndo;
 	private IFile fFile;
 	private ContentStamp fContentStampToRestore;
 	private int fSaveMode;
@@ -126,6 +128,60 @@ public class UndoTextFileChange extends Change {
 		return new UndoTextFileChange(getName(), fFile, edit, stampToRestore, fSaveMode);
 	}
 
+	/**
+	 * Note: this is an internal method and should not be called outside of
+	 * the refactoring framework.
+	 * <p>
+	 * Returns an estimate of the memory held by the undo edit of this change.
+	 * </p>
+	 *
+	 * @return the estimated size in bytes
+	 *
+	 * @since 3.14
+	 *
+	 * @noreference This method is not intended to be referenced by clients.
+	 */
+	public final synchronized long internalGetMemoryEstimate() {
+		if (fCompactedUndo != null)
+			return fCompactedUndo.getMemoryEstimate();
+		return CompactedUndoEdit.getMemoryEstimate(fUndo);
+	}
+
+	/**
+	 * Note: this is an internal method and should not be called outside of
+	 * the refactoring framework.
+	 * <p>
+	 * Compresses the undo edit of this change. The edit is expanded again
+	 * when the change is performed. Compacting an already compacted change
+	 * has no effect.
+	 * </p>
+	 *
+	 * @return the estimated number of bytes freed
+	 *
+	 * @since 3.14
+	 *
+	 * @noreference This method is not intended to be referenced by clients.
+	 */
+	public final synchronized long internalCompact() {
+		if (fUndo == null)
+			return 0;
+		CompactedUndoEdit compacted= CompactedUndoEdit.create(fUndo);
+		if (compacted == null)
+			return 0;
+		long freed= CompactedUndoEdit.getMemoryEstimate(fUndo) - compacted.getMemoryEstimate();
+		if (freed <= 0)
+			return 0;
+		fCompactedUndo= compacted;
+		fUndo= null;
+		return freed;
+	}
+
+	private synchronized TextEdit getUndoEdit() {
+		if (fUndo != null)
+			return fUndo;
+		return fCompactedUndo.expand();
+	}
+
 	@Override
 	public Object getModifiedElement() {
 		return fFile;
@@ -267,7 +323,7 @@ public class UndoTextFileChange extends Change {
 	private UndoEdit doPerformEdits(IDocument document, boolean[] setContentStampSuccess) throws MalformedTreeException, BadLocationException, CoreException {
 		// perform the changes
 		LinkedModeModel.closeAllModels(document);
-		UndoEdit redo= fUndo.apply(document, TextEdit.CREATE_UNDO);
+		UndoEdit redo= getUndoEdit().apply(document, TextEdit.CREATE_UNDO);
 
 		// try to restore the document content stamp
 		setContentStampSuccess[0]= ContentStamps.set(document, fContentStampToRestore);
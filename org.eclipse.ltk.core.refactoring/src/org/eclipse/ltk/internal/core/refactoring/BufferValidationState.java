@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,8 +13,11 @@
  *******************************************************************************/
 package org.eclipse.ltk.internal.core.refactoring;
 
+import java.util.Arrays;
+
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Platform;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
@@ -313,15 +316,39 @@ class NoStampValidationState extends BufferValidationState {
 }
 
 /**
- * Buffer validation state based on modification stamp.
+ * Buffer validation state based on modification stamp. If enabled by the
+ * {@link RefactoringPreferenceConstants#PREFERENCE_CONTENT_HASH_VALIDATION} preference,
+ * a hash of the file content is recorded as well, so that a file whose stamp has
+ * changed without a change of its content, e.g. by a save without edits, is still valid.
  */
 class ModificationStampValidationState extends BufferValidationState {
 
 	private ModificationStamp fModificationStamp;
+	private final byte[] fContentHash;
 
 	public ModificationStampValidationState(IFile file) {
 		super(file);
 		fModificationStamp= getModificationStamp();
+		fContentHash= fExisted && isContentHashEnabled() ? ContentStamps.getContentHash(file) : null;
+	}
+
+	private static boolean isContentHashEnabled() {
+		return Platform.getPreferencesService().getBoolean(RefactoringCorePlugin.getPluginId(), RefactoringPreferenceConstants.PREFERENCE_CONTENT_HASH_VALIDATION, false, null);
+	}
+
+	/**
+	 * Returns whether the content of the file is unchanged although its stamp is not.
+	 * The current stamp is remembered on success, so the content is only hashed again
+	 * after the next stamp change.
+	 *
+	 * @param currentStamp the current modification stamp
+	 * @return <code>true</code> if the content hash is unchanged
+	 */
+	private boolean isContentUnchanged(ModificationStamp currentStamp) {
+		if (fContentHash == null || !Arrays.equals(fContentHash, ContentStamps.getContentHash(fFile)))
+			return false;
+		fModificationStamp= currentStamp;
+		return true;
 	}
 
 	@Override
@@ -345,6 +372,8 @@ class ModificationStampValidationState extends BufferValidationState {
 				&& !currentStamp.isDocumentStamp())
 			|| (fModificationStamp.isFileStamp()
 				&& currentStamp.isFileStamp() && isDirty(fFile))) {
+			if (isContentUnchanged(currentStamp))
+				return result;
 			result.addFatalError(Messages.format(
 				RefactoringCoreMessages.TextChanges_error_content_changed,
 				BasicElementLabels.getPathLabel(fFile.getFullPath(), false)
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.UndoEdit;
+
+/**
+ * A compressed form of an {@link UndoEdit}, used to reduce the memory held by old undo changes
+ * on the undo stack.
+ * <p>
+ * Undo edits created by the text edit framework are flat lists of replace edits. Unlike the
+ * children of other edits, they are applied one after the other, from the last to the first,
+ * and the offset of each edit refers to the document as modified by the edits applied before.
+ * When the edits are applied in ascending order without touching the text inserted by each
+ * other, as for the undo of a flat edit tree, they are converted to edits on the unmodified
+ * document. The offsets, lengths and replaced text of these edits are stored deflated and are
+ * expanded into an equivalent edit tree when the undo is performed.
+ * </p>
+ */
+public final class CompactedUndoEdit {
+
+	// rough per object overhead of a text edit with its region, used for estimates only
+	private static final int EDIT_OVERHEAD= 64;
+
+	private final byte[] fData;
+
+	private CompactedUndoEdit(byte[] data) {
+		fData= data;
+	}
+
+	/**
+	 * Compresses the given undo edit.
+	 *
+	 * @param edit the edit to compress
+	 * @return the compressed edit, or <code>null</code> if the edit does not only consist of
+	 *         replace edits or cannot be converted to independent edits
+	 */
+	public static CompactedUndoEdit create(UndoEdit edit) {
+		TextEdit[] children= edit.getChildren();
+		for (TextEdit child : children) {
+			if (!(child instanceof ReplaceEdit) || child.hasChildren())
+				return null;
+		}
+		// the edits on the unmodified document, in the order of their offsets
+		ReplaceEdit[] edits= toIndependentEdits(children);
+		if (edits == null)
+			return null;
+		ByteArrayOutputStream bytes= new ByteArrayOutputStream();
+		try (DataOutputStream out= new DataOutputStream(new DeflaterOutputStream(bytes))) {
+			out.writeInt(edits.length);
+			for (ReplaceEdit child : edits) {
+				String text= child.getText();
+				out.writeInt(child.getOffset());
+				out.writeInt(child.getLength());
+				out.writeInt(text.length());
+				out.writeChars(text);
+			}
+		} catch (IOException e) {
+			// cannot happen for in-memory streams
+			return null;
+		}
+		return new CompactedUndoEdit(bytes.toByteArray());
+	}
+
+	/**
+	 * Converts the children of an undo edit, which are applied from the last to the first, to
+	 * independent edits on the unmodified document.
+	 *
+	 * @param children the replace edits of the undo edit
+	 * @return the independent edits in the order of their offsets, or <code>null</code> if the
+	 *         edits are not applied in ascending or descending order or overlap each other
+	 */
+	private static ReplaceEdit[] toIndependentEdits(TextEdit[] children) {
+		int count= children.length;
+		ReplaceEdit[] result= new ReplaceEdit[count];
+		// applied in ascending order: each edit is shifted by the length the edits before have added
+		int end= 0;
+		int delta= 0;
+		int i= count - 1;
+		for (; i >= 0; i--) {
+			ReplaceEdit child= (ReplaceEdit) children[i];
+			if (child.getOffset() < end)
+				break;
+			result[count - 1 - i]= new ReplaceEdit(child.getOffset() - delta, child.getLength(), child.getText());
+			end= child.getOffset() + child.getText().length();
+			delta+= child.getText().length() - child.getLength();
+		}
+		if (i < 0)
+			return result;
+		// applied in descending order: the edits before do not move the following ones
+		int start= Integer.MAX_VALUE;
+		for (i= count - 1; i >= 0; i--) {
+			ReplaceEdit child= (ReplaceEdit) children[i];
+			if (child.getOffset() + child.getLength() > start)
+				return null;
+			result[i]= new ReplaceEdit(child.getOffset(), child.getLength(), child.getText());
+			start= child.getOffset();
+		}
+		return result;
+	}
+
+	/**
+	 * Expands this edit into a tree that is equivalent to the compressed undo edit.
+	 *
+	 * @return the expanded edit
+	 */
+	public TextEdit expand() {
+		try (DataInputStream in= new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(fData)))) {
+			int count= in.readInt();
+			MultiTextEdit result= new MultiTextEdit();
+			for (int i= 0; i < count; i++) {
+				int offset= in.readInt();
+				int length= in.readInt();
+				char[] text= new char[in.readInt()];
+				for (int c= 0; c < text.length; c++) {
+					text[c]= in.readChar();
+				}
+				result.addChild(new ReplaceEdit(offset, length, new String(text)));
+			}
+			return result;
+		} catch (IOException e) {
+			// cannot happen for in-memory streams
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns an estimate of the memory held by this edit.
+	 *
+	 * @return the estimated size in bytes
+	 */
+	public long getMemoryEstimate() {
+		return fData.length + EDIT_OVERHEAD;
+	}
+
+	/**
+	 * Returns an estimate of the memory held by the given edit tree.
+	 *
+	 * @param edit the edit
+	 * @return the estimated size in bytes
+	 */
+	public static long getMemoryEstimate(TextEdit edit) {
+		long result= EDIT_OVERHEAD;
+		if (edit instanceof ReplaceEdit)
+			result+= 2L * ((ReplaceEdit) edit).getText().length();
+		for (TextEdit child : edit.getChildren()) {
+			result+= getMemoryEstimate(child);
+		}
+		return result;
+	}
+}
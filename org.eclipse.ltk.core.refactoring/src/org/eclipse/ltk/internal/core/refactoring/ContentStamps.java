@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,12 +13,22 @@
  *******************************************************************************/
 package org.eclipse.ltk.internal.core.refactoring;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.ITextFileBuffer;
+import org.eclipse.core.filebuffers.LocationKind;
+
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentExtension4;
@@ -128,6 +138,48 @@ public class ContentStamps {
 		return false;
 	}
 
+	/**
+	 * Computes a hash of the current content of the given file. The content is taken
+	 * from the file buffer if one is connected, and is read from the file otherwise.
+	 *
+	 * @param file the file
+	 * @return the hash of the file content, or <code>null</code> if the content could
+	 *         not be read
+	 */
+	public static byte[] getContentHash(IFile file) {
+		MessageDigest digest;
+		try {
+			digest= MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+		ITextFileBuffer buffer= FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
+		if (buffer != null) {
+			char[] content= buffer.getDocument().get().toCharArray();
+			update(digest, content, content.length);
+		} else {
+			try (Reader reader= new InputStreamReader(file.getContents(), file.getCharset(true))) {
+				char[] chars= new char[8192];
+				int read;
+				while ((read= reader.read(chars)) != -1) {
+					update(digest, chars, read);
+				}
+			} catch (CoreException | IOException e) {
+				return null;
+			}
+		}
+		return digest.digest();
+	}
+
+	private static void update(MessageDigest digest, char[] chars, int length) {
+		byte[] bytes= new byte[2 * length];
+		for (int i= 0; i < length; i++) {
+			bytes[2 * i]= (byte) (chars[i] >> 8);
+			bytes[2 * i + 1]= (byte) chars[i];
+		}
+		digest.update(bytes);
+	}
+
 	private ContentStamps() {
 	}
 }
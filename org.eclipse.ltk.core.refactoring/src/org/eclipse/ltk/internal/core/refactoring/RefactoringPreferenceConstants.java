@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -23,6 +23,22 @@ public final class RefactoringPreferenceConstants {
 	/** The shared refactoring history preference */
 	public static final String PREFERENCE_SHARED_REFACTORING_HISTORY= "org.eclipse.ltk.core.refactoring.enable.project.refactoring.history"; //$NON-NLS-1$
 
+	/**
+	 * The memory budget of the refactoring undo history in megabytes. The history is not limited
+	 * if the value is negative, which is the default.
+	 *
+	 * @since 3.14
+	 */
+	public static final String PREFERENCE_UNDO_MEMORY_BUDGET= "org.eclipse.ltk.core.refactoring.undo.memory.budget"; //$NON-NLS-1$
+
+	/**
+	 * Whether the validation of text changes and their undos compares content hashes
+	 * when only the modification stamp of a file has changed
+	 *
+	 * @since 3.14
+	 */
+	public static final String PREFERENCE_CONTENT_HASH_VALIDATION= "org.eclipse.ltk.core.refactoring.validation.content.hash"; //$NON-NLS-1$
+
 	private RefactoringPreferenceConstants() {
 		// Not for instantiation
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -51,6 +51,41 @@ import org.eclipse.ltk.internal.core.refactoring.history.RefactoringContribution
  */
 public final class RefactoringSessionReader extends DefaultHandler {
 
+	/**
+	 * Handler for refactoring descriptors which are read one at a time.
+	 *
+	 * @since 3.14
+	 */
+	public interface IRefactoringDescriptorHandler {
+
+		/**
+		 * Handles the specified refactoring descriptor. The descriptor is not
+		 * referenced by the reader after this method returns.
+		 *
+		 * @param descriptor
+		 *            the refactoring descriptor which has been read
+		 * @throws CoreException
+		 *             if an error occurs while handling the descriptor. Reading
+		 *             stops and the exception is rethrown by the reader.
+		 */
+		void handleDescriptor(RefactoringDescriptor descriptor) throws CoreException;
+	}
+
+	/**
+	 * SAX exception wrapping a core exception thrown by a descriptor handler.
+	 */
+	private static final class HandlerException extends SAXException {
+
+		private static final long serialVersionUID= 1L;
+
+		private final CoreException fCoreException;
+
+		HandlerException(CoreException exception) {
+			super(exception);
+			fCoreException= exception;
+		}
+	}
+
 	/** The comment of the refactoring session, or <code>null</code> */
 	private String fComment= null;
 
@@ -62,6 +97,9 @@ public final class RefactoringSessionReader extends DefaultHandler {
 
 	private final boolean fCreateDefaultDescriptors;
 
+	/** The handler of descriptors which are read one at a time, or <code>null</code> */
+	private IRefactoringDescriptorHandler fHandler= null;
+
 	/**
 	 * The current list of refactoring descriptors, or <code>null</code>
 	 * (element type: <code>RefactoringDescriptor</code>)
@@ -140,10 +178,7 @@ public final class RefactoringSessionReader extends DefaultHandler {
 			if (!fSessionFound)
 				throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.REFACTORING_HISTORY_FORMAT_ERROR, RefactoringCoreMessages.RefactoringSessionReader_no_session, null));
 			if (fRefactoringDescriptors != null) {
-				if (fVersion == null || "".equals(fVersion)) //$NON-NLS-1$
-					throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.MISSING_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_missing_version_information, null));
-				if (!IRefactoringSerializationConstants.CURRENT_VERSION.equals(fVersion))
-					throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.UNSUPPORTED_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_unsupported_version_information, null));
+				checkVersion();
 				return new RefactoringSessionDescriptor(fRefactoringDescriptors.toArray(new RefactoringDescriptor[fRefactoringDescriptors.size()]), fVersion, fComment);
 			}
 		} catch (SAXParseException exception) {
@@ -164,6 +199,63 @@ public final class RefactoringSessionReader extends DefaultHandler {
 		return null;
 	}
 
+	/**
+	 * Reads the refactoring descriptors of a refactoring session from the
+	 * specified input object and passes them to the handler as soon as they
+	 * have been read. Unlike {@link #readSession(InputSource)}, the
+	 * descriptors of the session are never held in memory at once.
+	 *
+	 * @param source
+	 *            the input source
+	 * @param handler
+	 *            the handler of the refactoring descriptors
+	 * @throws CoreException
+	 *             if an error occurs while reading form the input source, or
+	 *             if the handler throws an exception
+	 *
+	 * @since 3.14
+	 */
+	public void readSession(final InputSource source, final IRefactoringDescriptorHandler handler) throws CoreException {
+		fSessionFound= false;
+		fHandler= handler;
+		try {
+			source.setSystemId("/"); //$NON-NLS-1$
+			createParser(SAXParserFactory.newInstance()).parse(source, this);
+			if (!fSessionFound)
+				throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.REFACTORING_HISTORY_FORMAT_ERROR, RefactoringCoreMessages.RefactoringSessionReader_no_session, null));
+		} catch (HandlerException exception) {
+			throw exception.fCoreException;
+		} catch (SAXParseException exception) {
+			String message= Messages.format(RefactoringCoreMessages.RefactoringSessionReader_invalid_contents_at,
+					new Object[] {
+							Integer.toString(exception.getLineNumber()),
+							Integer.toString(exception.getColumnNumber())
+			});
+			throwCoreException(exception, message);
+		} catch (IOException | ParserConfigurationException | SAXException exception) {
+			throwCoreException(exception, exception.getLocalizedMessage());
+		} finally {
+			fHandler= null;
+			fVersion= null;
+			fComment= null;
+			fLocator= null;
+		}
+	}
+
+	/**
+	 * Checks the version of the session, once its first refactoring
+	 * descriptor is handled.
+	 *
+	 * @throws CoreException
+	 *             if the version is missing or not supported
+	 */
+	private void checkVersion() throws CoreException {
+		if (fVersion == null || "".equals(fVersion)) //$NON-NLS-1$
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.MISSING_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_missing_version_information, null));
+		if (!IRefactoringSerializationConstants.CURRENT_VERSION.equals(fVersion))
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCorePlugin.getPluginId(), IRefactoringCoreStatusCodes.UNSUPPORTED_REFACTORING_HISTORY_VERSION, RefactoringCoreMessages.RefactoringSessionReader_unsupported_version_information, null));
+	}
+
 	private void throwCoreException(Exception exception, String message) throws CoreException {
 		throw new CoreException(new Status(IStatus.ERROR,
 				RefactoringCorePlugin.getPluginId(),
@@ -242,9 +334,18 @@ public final class RefactoringSessionReader extends DefaultHandler {
 			} catch (NumberFormatException exception) {
 				// Do nothing
 			}
-			if (fRefactoringDescriptors == null)
-				fRefactoringDescriptors= new ArrayList<>();
-			fRefactoringDescriptors.add(descriptor);
+			if (fHandler != null) {
+				try {
+					checkVersion();
+					fHandler.handleDescriptor(descriptor);
+				} catch (CoreException exception) {
+					throw new HandlerException(exception);
+				}
+			} else {
+				if (fRefactoringDescriptors == null)
+					fRefactoringDescriptors= new ArrayList<>();
+				fRefactoringDescriptors.add(descriptor);
+			}
 
 		} else if (IRefactoringSerializationConstants.ELEMENT_SESSION.equals(qualifiedName)) {
 			fSessionFound= true;
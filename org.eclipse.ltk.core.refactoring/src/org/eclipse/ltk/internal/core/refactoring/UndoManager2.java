@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -27,17 +27,74 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 
 import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.CompositeChange;
 import org.eclipse.ltk.core.refactoring.IUndoManager;
 import org.eclipse.ltk.core.refactoring.IUndoManagerListener;
 import org.eclipse.ltk.core.refactoring.IValidationCheckResultQuery;
 import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.ltk.core.refactoring.UndoTextFileChange;
 
 public class UndoManager2 implements IUndoManager {
 
+	/**
+	 * Statistics about the memory held by the refactoring undo history.
+	 */
+	public static final class MemoryStatistics {
+		private final long fUsage;
+		private final long fBudget;
+		private final int fCompactedChanges;
+		private final int fEvictedOperations;
+
+		MemoryStatistics(long usage, long budget, int compactedChanges, int evictedOperations) {
+			fUsage= usage;
+			fBudget= budget;
+			fCompactedChanges= compactedChanges;
+			fEvictedOperations= evictedOperations;
+		}
+
+		/**
+		 * @return the estimated memory held by the undo changes in bytes
+		 */
+		public long getUsage() {
+			return fUsage;
+		}
+
+		/**
+		 * @return the memory budget in bytes, {@link Long#MAX_VALUE} if the history is not limited
+		 */
+		public long getBudget() {
+			return fBudget;
+		}
+
+		/**
+		 * @return the number of undo text file changes that have been compacted so far
+		 */
+		public int getCompactedChanges() {
+			return fCompactedChanges;
+		}
+
+		/**
+		 * @return the number of undo operations that have been evicted so far to stay within
+		 *         the budget
+		 */
+		public int getEvictedOperations() {
+			return fEvictedOperations;
+		}
+
+		@Override
+		public String toString() {
+			return "usage: " + fUsage + " bytes, budget: " + fBudget + " bytes, compacted changes: " + fCompactedChanges + ", evicted operations: " + fEvictedOperations; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+	}
+
+	// the default memory budget of the undo history in megabytes, negative for no limit
+	private static final int DEFAULT_MEMORY_BUDGET= -1;
+
 	private class OperationHistoryListener implements IOperationHistoryListener {
 		@Override
 		public void historyNotification(OperationHistoryEvent event) {
@@ -115,6 +172,11 @@ public class UndoManager2 implements IUndoManager {
 
 	private ListenerList<IUndoManagerListener> fListeners;
 
+	private long fMemoryBudget= -1;
+	private long fMemoryUsage;
+	private int fCompactedChanges;
+	private int fEvictedOperations;
+
 	public UndoManager2() {
 		fOperationHistory= OperationHistoryFactory.getOperationHistory();
 	}
@@ -177,9 +239,105 @@ public class UndoManager2 implements IUndoManager {
 			operation.setLabel(name);
 			fOperationHistory.add(fActiveOperation);
 			fActiveOperation= null;
+			enforceMemoryBudget();
+		}
+	}
+
+	/**
+	 * Sets the memory budget of the refactoring undo history.
+	 *
+	 * @param budget the budget in bytes, or <code>-1</code> to use the budget from the
+	 *            preferences
+	 */
+	public void setMemoryBudget(long budget) {
+		fMemoryBudget= budget;
+	}
+
+	private long getMemoryBudget() {
+		if (fMemoryBudget >= 0)
+			return fMemoryBudget;
+		int megaBytes= Platform.getPreferencesService().getInt(RefactoringCorePlugin.getPluginId(), RefactoringPreferenceConstants.PREFERENCE_UNDO_MEMORY_BUDGET, DEFAULT_MEMORY_BUDGET, null);
+		if (megaBytes < 0)
+			return Long.MAX_VALUE;
+		return megaBytes * 1024L * 1024L;
+	}
+
+	/**
+	 * Returns statistics about the memory held by the undo history, as of the last time an undo
+	 * change has been added.
+	 *
+	 * @return the statistics
+	 */
+	public synchronized MemoryStatistics getMemoryStatistics() {
+		return new MemoryStatistics(fMemoryUsage, getMemoryBudget(), fCompactedChanges, fEvictedOperations);
+	}
+
+	/**
+	 * Keeps the undo changes within the memory budget. Nothing is done as long as the undo
+	 * changes fit into the budget. Otherwise the replaced text of all but the most recent undo
+	 * change is compressed, and if that is not enough, the oldest undo operations are removed from
+	 * the history. The most recent undo operation is always kept.
+	 */
+	private synchronized void enforceMemoryBudget() {
+		long budget= getMemoryBudget();
+		IUndoableOperation[] undos= fOperationHistory.getUndoHistory(RefactoringCorePlugin.getUndoContext());
+		Change[] changes= new Change[undos.length];
+		long usage= 0;
+		for (int i= 0; i < undos.length; i++) {
+			UndoableOperation2ChangeAdapter operation= getUnwrappedOperation(undos[i]);
+			changes[i]= operation != null ? operation.getChange() : null;
+			if (changes[i] != null)
+				usage+= getMemoryEstimate(changes[i]);
+		}
+		fMemoryUsage= usage;
+		if (usage <= budget)
+			return;
+
+		usage= 0;
+		int i= undos.length - 1;
+		for (; i >= 0; i--) {
+			Change change= changes[i];
+			if (change == null)
+				continue;
+			if (i < undos.length - 1)
+				compact(change);
+			long size= getMemoryEstimate(change);
+			if (i < undos.length - 1 && usage + size > budget)
+				break;
+			usage+= size;
+		}
+		// evict the remaining operations, oldest first
+		for (int j= 0; j <= i; j++) {
+			fOperationHistory.replaceOperation(undos[j], new IUndoableOperation[0]);
+			undos[j].dispose();
+			fEvictedOperations++;
+		}
+		fMemoryUsage= usage;
+	}
+
+	private void compact(Change change) {
+		if (change instanceof UndoTextFileChange) {
+			if (((UndoTextFileChange) change).internalCompact() > 0)
+				fCompactedChanges++;
+		} else if (change instanceof CompositeChange) {
+			for (Change child : ((CompositeChange) change).getChildren()) {
+				compact(child);
+			}
 		}
 	}
 
+	private static long getMemoryEstimate(Change change) {
+		if (change instanceof UndoTextFileChange)
+			return ((UndoTextFileChange) change).internalGetMemoryEstimate();
+		long result= 0;
+		if (change instanceof CompositeChange) {
+			for (Change child : ((CompositeChange) change).getChildren()) {
+				result+= getMemoryEstimate(child);
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public boolean anythingToUndo() {
 		return fOperationHistory.canUndo(RefactoringCorePlugin.getUndoContext());
@@ -266,6 +424,9 @@ public class UndoManager2 implements IUndoManager {
 		fActiveOperation= null;
 		fIsOpen= false;
 		fOperationHistory.dispose(RefactoringCorePlugin.getUndoContext(), true, true, false);
+		synchronized (this) {
+			fMemoryUsage= 0;
+		}
 	}
 
 	@Override
@@ -0,0 +1,567 @@
+/*******************************************************************************
+ * Copyright (c) 2023 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ltk.internal.core.refactoring.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+
+import org.eclipse.ltk.core.refactoring.IRefactoringCoreStatusCodes;
+import org.eclipse.ltk.core.refactoring.RefactoringCore;
+import org.eclipse.ltk.core.refactoring.RefactoringDescriptorProxy;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCoreMessages;
+import org.eclipse.ltk.internal.core.refactoring.RefactoringCorePlugin;
+
+/**
+ * Binary index of the refactoring descriptor proxies of a refactoring
+ * history.
+ * <p>
+ * The index files of the history folder tree remain the persistent format of
+ * the history, since they may be shared with other workspaces. The binary
+ * index is a cache of their contents, stored in the plug-in state location as
+ * one block of time stamps and descriptions per history folder, together with
+ * the modification time and length of the folder's index file. When queried,
+ * only the index files that changed since the binary index has been written
+ * are read again, and the binary index is created from the existing history
+ * when it does not exist yet.
+ * </p>
+ * <p>
+ * The history folder tree is only listed by the first query of an index.
+ * Afterwards, only the history folders which have been invalidated since the
+ * last query are read again. Changes to the history which do not go through
+ * a refactoring history manager, like moving or sharing a history, require
+ * the index to be discarded.
+ * </p>
+ * <p>
+ * In memory, the time stamps of all blocks are kept sorted, so that time range
+ * queries need a binary search plus the number of returned proxies.
+ * Refactoring descriptors are only loaded from the history files when
+ * requested.
+ * </p>
+ *
+ * @since 3.14
+ */
+final class RefactoringHistoryIndex {
+
+	/** The time stamps and descriptions of the entries of one history folder */
+	private static final class Block {
+
+		/** The descriptions of the entries */
+		private final String[] fDescriptions;
+
+		/** The length of the index file */
+		private final long fLength;
+
+		/** The modification time of the index file */
+		private final long fModified;
+
+		/** The time stamps of the entries, in ascending order */
+		private final long[] fStamps;
+
+		private Block(final long modified, final long length, final long[] stamps, final String[] descriptions) {
+			fModified= modified;
+			fLength= length;
+			fStamps= stamps;
+			fDescriptions= descriptions;
+		}
+
+		private boolean isValid(final IFileInfo info) {
+			return info.getLastModified() == fModified && info.getLength() == fLength;
+		}
+	}
+
+	/** The identifier of the binary index format */
+	private static final int MAGIC= 0x52484958;
+
+	/** The name of the folder of the binary indexes */
+	private static final String NAME_INDEX_FOLDER= ".index"; //$NON-NLS-1$
+
+	/** The version of the binary index format */
+	private static final int VERSION= 2;
+
+	/** Maximal number of binary indexes kept in memory */
+	private static final int MAX_INDEXES= 8;
+
+	/** The binary indexes, keyed by history store */
+	private static final Map<IFileStore, RefactoringHistoryIndex> fgIndexes= new LinkedHashMap<>(MAX_INDEXES, 0.75f, true) {
+
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IFileStore, RefactoringHistoryIndex> entry) {
+			return size() > MAX_INDEXES;
+		}
+	};
+
+	/**
+	 * Discards the binary index of the specified refactoring history, so that
+	 * its history folder tree is listed again on the next query.
+	 *
+	 * @param store
+	 *            the history file store
+	 */
+	static synchronized void discardIndex(final IFileStore store) {
+		fgIndexes.remove(store);
+	}
+
+	/**
+	 * Discards all binary indexes held in memory.
+	 */
+	static synchronized void discardIndexes() {
+		fgIndexes.clear();
+	}
+
+	/**
+	 * Returns the binary index of the specified refactoring history.
+	 *
+	 * @param store
+	 *            the history file store
+	 * @return the binary index
+	 */
+	static synchronized RefactoringHistoryIndex getIndex(final IFileStore store) {
+		RefactoringHistoryIndex index= fgIndexes.get(store);
+		if (index == null) {
+			index= new RefactoringHistoryIndex(store);
+			fgIndexes.put(store, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the name of the binary index file of the specified history
+	 * store. The name is a digest of the URI of the store, so that different
+	 * stores practically never share an index file. The URI is stored in the
+	 * index file as well, and an index file of another store is ignored.
+	 *
+	 * @param uri
+	 *            the URI of the history store
+	 * @return the file name
+	 */
+	private static String getIndexFileName(final String uri) {
+		String name;
+		try {
+			name= HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(uri.getBytes(StandardCharsets.UTF_8))); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException exception) {
+			name= Integer.toHexString(uri.hashCode());
+		}
+		return name + ".bin"; //$NON-NLS-1$
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+	 *
+	 * @param input
+	 *            the input stream
+	 * @param limit
+	 *            the maximal length of the encoded string
+	 * @return the string
+	 * @throws IOException
+	 *             if the string could not be read
+	 */
+	private static String readString(final DataInputStream input, final long limit) throws IOException {
+		final int length= input.readInt();
+		if (length < 0 || length > limit)
+			throw new IOException("Invalid string length: " + length); //$NON-NLS-1$
+		final byte[] bytes= new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a string as UTF-8 bytes, preceded by their number. Unlike
+	 * {@link DataOutputStream#writeUTF(String)}, this works for strings of
+	 * any length, e.g. long refactoring descriptions.
+	 *
+	 * @param output
+	 *            the output stream
+	 * @param string
+	 *            the string
+	 * @throws IOException
+	 *             if the string could not be written
+	 */
+	private static void writeString(final DataOutputStream output, final String string) throws IOException {
+		final byte[] bytes= string.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	/** The blocks of the history folders, keyed by relative path, or <code>null</code> if not loaded yet */
+	private Map<String, Block> fBlocks= null;
+
+	/** The paths of the history folders invalidated since the last query */
+	private final Set<String> fInvalidPaths= new HashSet<>();
+
+	/** The descriptions of all entries, parallel to the time stamps */
+	private String[] fDescriptions= new String[0];
+
+	/** The history file store */
+	private final IFileStore fHistoryStore;
+
+	/** The file of the binary index */
+	private final IFileStore fIndexFile;
+
+	/** The time stamps of all entries, in ascending order */
+	private long[] fStamps= new long[0];
+
+	/**
+	 * Creates a new binary index.
+	 *
+	 * @param store
+	 *            the history file store
+	 */
+	private RefactoringHistoryIndex(final IFileStore store) {
+		fHistoryStore= store;
+		fIndexFile= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER).getChild(NAME_INDEX_FOLDER).getChild(getIndexFileName(store.toURI().toString()));
+	}
+
+	/**
+	 * Collects the index files of the history folder tree.
+	 *
+	 * @param store
+	 *            the current folder
+	 * @param path
+	 *            the path of the current folder relative to the history store
+	 * @param files
+	 *            the map of relative folder paths to index file infos
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private void collectIndexFiles(final IFileStore store, final String path, final Map<String, IFileInfo> files, final IProgressMonitor monitor) throws CoreException {
+		for (IFileInfo info : store.childInfos(EFS.NONE, null)) {
+			final String name= info.getName();
+			if (info.isDirectory())
+				collectIndexFiles(store.getChild(name), path.isEmpty() ? name : path + IPath.SEPARATOR + name, files, monitor);
+			else if (RefactoringHistoryService.NAME_INDEX_FILE.equalsIgnoreCase(name))
+				files.put(path, info);
+		}
+		if (monitor.isCanceled())
+			throw new OperationCanceledException();
+	}
+
+	/**
+	 * Invalidates the block of the specified history folder, e.g. since its
+	 * index file has been written. The block is read again on the next query.
+	 *
+	 * @param path
+	 *            the path of the history folder relative to the history store
+	 */
+	synchronized void invalidate(final IPath path) {
+		if (fBlocks != null)
+			fInvalidPaths.add(path.toString());
+	}
+
+	/**
+	 * Loads the blocks of the binary index file, if there is one for the
+	 * history store.
+	 *
+	 * @return the blocks
+	 */
+	private Map<String, Block> loadBlocks() {
+		final Map<String, Block> blocks= new HashMap<>();
+		final IFileInfo info= fIndexFile.fetchInfo();
+		if (!info.exists())
+			return blocks;
+		final long limit= info.getLength();
+		try (DataInputStream input= new DataInputStream(new BufferedInputStream(fIndexFile.openInputStream(EFS.NONE, null)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION || !fHistoryStore.toURI().toString().equals(readString(input, limit)))
+				return blocks;
+			final int count= input.readInt();
+			for (int index= 0; index < count; index++) {
+				final String path= readString(input, limit);
+				final long modified= input.readLong();
+				final long length= input.readLong();
+				final int size= input.readInt();
+				final long[] stamps= new long[size];
+				final String[] descriptions= new String[size];
+				for (int entry= 0; entry < size; entry++) {
+					stamps[entry]= input.readLong();
+					descriptions[entry]= readString(input, limit);
+				}
+				blocks.put(path, new Block(modified, length, stamps, descriptions));
+			}
+		} catch (IOException | CoreException exception) {
+			// An unreadable index is created again from the history
+			blocks.clear();
+		}
+		return blocks;
+	}
+
+	/**
+	 * Reads the block of the specified index file.
+	 *
+	 * @param file
+	 *            the index file
+	 * @param info
+	 *            the file info of the index file
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @return the block
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private Block readBlock(final IFileStore file, final IFileInfo info, final IProgressMonitor monitor) throws CoreException {
+		final RefactoringDescriptorProxy[] proxies;
+		try (InputStream stream= file.openInputStream(EFS.NONE, monitor)) {
+			proxies= RefactoringHistoryManager.readRefactoringDescriptorProxies(stream, null, 0, Long.MAX_VALUE);
+		} catch (IOException exception) {
+			throw new CoreException(new Status(IStatus.ERROR, RefactoringCore.ID_PLUGIN, IRefactoringCoreStatusCodes.REFACTORING_HISTORY_IO_ERROR, exception.getLocalizedMessage(), exception));
+		}
+		RefactoringHistoryManager.sortRefactoringDescriptorsAscending(proxies);
+		final long[] stamps= new long[proxies.length];
+		final String[] descriptions= new String[proxies.length];
+		for (int index= 0; index < proxies.length; index++) {
+			stamps[index]= proxies[index].getTimeStamp();
+			descriptions[index]= proxies[index].getDescription();
+		}
+		return new Block(info.getLastModified(), info.getLength(), stamps, descriptions);
+	}
+
+	/**
+	 * Reads the refactoring descriptor proxies within the specified time
+	 * range.
+	 *
+	 * @param project
+	 *            the name of the project, or <code>null</code> for the
+	 *            workspace
+	 * @param collection
+	 *            the collection of proxies to add to
+	 * @param start
+	 *            the start time stamp, inclusive
+	 * @param end
+	 *            the end time stamp, inclusive
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	synchronized void readRefactoringDescriptorProxies(final String project, final Collection<RefactoringDescriptorProxy> collection, final long start, final long end, final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 10);
+			update(new SubProgressMonitor(monitor, 9, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL));
+			int low= 0;
+			int high= fStamps.length;
+			while (low < high) {
+				final int middle= (low + high) >>> 1;
+				if (fStamps[middle] < start)
+					low= middle + 1;
+				else
+					high= middle;
+			}
+			for (int index= low; index < fStamps.length && fStamps[index] <= end; index++)
+				collection.add(new DefaultRefactoringDescriptorProxy(fDescriptions[index], project, fStamps[index]));
+			monitor.worked(1);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Saves the blocks to the binary index file.
+	 */
+	private void saveBlocks() {
+		try {
+			fIndexFile.getParent().mkdir(EFS.NONE, null);
+			try (DataOutputStream output= new DataOutputStream(new BufferedOutputStream(fIndexFile.openOutputStream(EFS.NONE, null)))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				writeString(output, fHistoryStore.toURI().toString());
+				output.writeInt(fBlocks.size());
+				for (Entry<String, Block> entry : fBlocks.entrySet()) {
+					final Block block= entry.getValue();
+					writeString(output, entry.getKey());
+					output.writeLong(block.fModified);
+					output.writeLong(block.fLength);
+					output.writeInt(block.fStamps.length);
+					for (int index= 0; index < block.fStamps.length; index++) {
+						output.writeLong(block.fStamps[index]);
+						writeString(output, block.fDescriptions[index]);
+					}
+				}
+			}
+		} catch (IOException | CoreException exception) {
+			RefactoringCorePlugin.log(exception);
+		}
+	}
+
+	/**
+	 * Brings the index up to date with the index files of the history folder
+	 * tree.
+	 *
+	 * @param monitor
+	 *            the progress monitor to use
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private void update(final IProgressMonitor monitor) throws CoreException {
+		try {
+			monitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, 10);
+			final boolean loaded= fBlocks == null;
+			final boolean modified;
+			try {
+				if (loaded) {
+					fBlocks= loadBlocks();
+					fInvalidPaths.clear();
+					modified= updateAll(monitor);
+				} else
+					modified= updateInvalid(monitor);
+			} catch (CoreException | OperationCanceledException exception) {
+				// Partially read blocks are read again on the next query
+				fBlocks= null;
+				throw exception;
+			}
+			if (loaded || modified)
+				updateEntries();
+			if (modified)
+				saveBlocks();
+			monitor.worked(1);
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Lists the history folder tree and reads the blocks of the index files
+	 * which changed since the binary index has been written.
+	 *
+	 * @param monitor
+	 *            the progress monitor to use, with 9 units of work
+	 * @return <code>true</code> if a block has changed, <code>false</code>
+	 *         otherwise
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private boolean updateAll(final IProgressMonitor monitor) throws CoreException {
+		final Map<String, IFileInfo> files= new HashMap<>();
+		if (fHistoryStore.fetchInfo().exists())
+			collectIndexFiles(fHistoryStore, "", files, monitor); //$NON-NLS-1$
+		monitor.worked(2);
+		boolean modified= fBlocks.keySet().retainAll(files.keySet());
+		final List<Entry<String, IFileInfo>> stale= new ArrayList<>();
+		for (Entry<String, IFileInfo> entry : files.entrySet()) {
+			final Block block= fBlocks.get(entry.getKey());
+			if (block == null || !block.isValid(entry.getValue()))
+				stale.add(entry);
+		}
+		final IProgressMonitor subMonitor= new SubProgressMonitor(monitor, 7, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL);
+		try {
+			subMonitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, stale.size());
+			for (Entry<String, IFileInfo> entry : stale) {
+				final String path= entry.getKey();
+				final IFileStore folder= path.isEmpty() ? fHistoryStore : fHistoryStore.getFileStore(new Path(path));
+				fBlocks.put(path, readBlock(folder.getChild(RefactoringHistoryService.NAME_INDEX_FILE), entry.getValue(), new SubProgressMonitor(subMonitor, 1)));
+				modified= true;
+			}
+		} finally {
+			subMonitor.done();
+		}
+		return modified;
+	}
+
+	/**
+	 * Reads the blocks of the history folders invalidated since the last
+	 * query.
+	 *
+	 * @param monitor
+	 *            the progress monitor to use, with 9 units of work
+	 * @return <code>true</code> if a block has changed, <code>false</code>
+	 *         otherwise
+	 * @throws CoreException
+	 *             if an error occurs
+	 */
+	private boolean updateInvalid(final IProgressMonitor monitor) throws CoreException {
+		final IProgressMonitor subMonitor= new SubProgressMonitor(monitor, 9, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL);
+		try {
+			subMonitor.beginTask(RefactoringCoreMessages.RefactoringHistoryService_retrieving_history, fInvalidPaths.size());
+			boolean modified= false;
+			for (final Iterator<String> iterator= fInvalidPaths.iterator(); iterator.hasNext();) {
+				final String path= iterator.next();
+				final IFileStore folder= path.isEmpty() ? fHistoryStore : fHistoryStore.getFileStore(new Path(path));
+				final IFileStore file= folder.getChild(RefactoringHistoryService.NAME_INDEX_FILE);
+				final IFileInfo info= file.fetchInfo(EFS.NONE, null);
+				if (info.exists())
+					fBlocks.put(path, readBlock(file, info, new SubProgressMonitor(subMonitor, 1)));
+				else {
+					fBlocks.remove(path);
+					subMonitor.worked(1);
+				}
+				iterator.remove();
+				modified= true;
+			}
+			return modified;
+		} finally {
+			subMonitor.done();
+		}
+	}
+
+	/**
+	 * Merges the blocks into the sorted time stamps and descriptions of all
+	 * entries.
+	 */
+	private void updateEntries() {
+		int size= 0;
+		for (Block block : fBlocks.values())
+			size+= block.fStamps.length;
+		final long[] stamps= new long[size];
+		final Integer[] order= new Integer[size];
+		final String[] descriptions= new String[size];
+		int offset= 0;
+		for (Block block : fBlocks.values()) {
+			for (int index= 0; index < block.fStamps.length; index++, offset++) {
+				stamps[offset]= block.fStamps[index];
+				descriptions[offset]= block.fDescriptions[index];
+				order[offset]= Integer.valueOf(offset);
+			}
+		}
+		Arrays.sort(order, (first, second) -> Long.compare(stamps[first.intValue()], stamps[second.intValue()]));
+		fStamps= new long[size];
+		fDescriptions= new String[size];
+		for (int index= 0; index < size; index++) {
+			fStamps[index]= stamps[order[index].intValue()];
+			fDescriptions[index]= descriptions[order[index].intValue()];
+		}
+	}
+}
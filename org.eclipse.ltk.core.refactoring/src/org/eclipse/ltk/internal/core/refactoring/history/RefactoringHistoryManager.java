@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -844,6 +844,8 @@ public final class RefactoringHistoryManager {
 				}
 			}
 		} finally {
+			if (descriptor.getTimeStamp() >= 0)
+				RefactoringHistoryIndex.getIndex(fHistoryStore).invalidate(stampToPath(descriptor.getTimeStamp()));
 			monitor.done();
 		}
 	}
@@ -923,10 +925,10 @@ public final class RefactoringHistoryManager {
 			final Set<RefactoringDescriptorProxy> set= new HashSet<>();
 			try {
 				if (fHistoryStore.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(fHistoryStore, fProjectName, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					RefactoringHistoryIndex.getIndex(fHistoryStore).readRefactoringDescriptorProxies(fProjectName, set, start, end, new SubProgressMonitor(monitor, 80));
 				final IFileStore store= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation()).getChild(RefactoringHistoryService.NAME_HISTORY_FOLDER).getChild(RefactoringHistoryService.NAME_WORKSPACE_PROJECT);
 				if (store.fetchInfo(EFS.NONE, new SubProgressMonitor(monitor, 20, SubProgressMonitor.SUPPRESS_SUBTASK_LABEL)).exists())
-					readRefactoringDescriptorProxies(store, null, set, start, end, new SubProgressMonitor(monitor, 80), RefactoringCoreMessages.RefactoringHistoryService_retrieving_history);
+					RefactoringHistoryIndex.getIndex(store).readRefactoringDescriptorProxies(null, set, start, end, new SubProgressMonitor(monitor, 80));
 			} catch (CoreException exception) {
 				RefactoringCorePlugin.log(exception);
 			}
@@ -1020,6 +1022,7 @@ public final class RefactoringHistoryManager {
 				}
 			}
 		} finally {
+			RefactoringHistoryIndex.getIndex(fHistoryStore).invalidate(path);
 			monitor.done();
 		}
 	}
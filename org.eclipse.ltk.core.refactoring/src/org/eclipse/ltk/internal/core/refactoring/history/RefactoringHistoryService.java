@@ -49,6 +49,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
@@ -271,6 +272,7 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 						}
 					}
 				} finally {
+					RefactoringHistoryIndex.discardIndexes();
 					if (enable)
 						project.refreshLocal(IResource.DEPTH_INFINITE, new SubProgressMonitor(monitor, 30));
 					else {
@@ -515,7 +517,11 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 			final IFileStore stateStore= EFS.getLocalFileSystem().getStore(RefactoringCorePlugin.getDefault().getStateLocation());
 			if (NAME_WORKSPACE_PROJECT.equals(name)) {
 				final IFileStore metaStore= stateStore.getChild(NAME_HISTORY_FOLDER).getChild(name);
-				metaStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 100));
+				try {
+					metaStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 100));
+				} finally {
+					RefactoringHistoryIndex.discardIndexes();
+				}
 			} else {
 				final URI uri= project.getLocationURI();
 				if (uri != null && project.isAccessible()) {
@@ -525,6 +531,7 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 						final IFileStore projectStore= EFS.getStore(uri).getChild(NAME_HISTORY_FOLDER);
 						projectStore.delete(EFS.NONE, new SubProgressMonitor(monitor, 20));
 					} finally {
+						RefactoringHistoryIndex.discardIndexes();
 						project.refreshLocal(IResource.DEPTH_INFINITE, new SubProgressMonitor(monitor, 60));
 					}
 				}
@@ -546,6 +553,7 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 			if (fResourceListener != null)
 				ResourcesPlugin.getWorkspace().removeResourceChangeListener(fResourceListener);
 			fOperationListener= null;
+			RefactoringHistoryIndex.discardIndexes();
 		}
 	}
 
@@ -858,6 +866,7 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 		} catch (CoreException exception) {
 			RefactoringCorePlugin.log(exception);
 		} finally {
+			RefactoringHistoryIndex.discardIndexes();
 			monitor.done();
 		}
 	}
@@ -868,6 +877,19 @@ public final class RefactoringHistoryService implements IRefactoringHistoryServi
 			final IResourceDelta delta= event.getDelta();
 			if (delta != null) {
 				final IResourceDelta[] deltas= delta.getAffectedChildren();
+				for (IResourceDelta child : deltas) {
+					// Shared histories may be changed by the team provider
+					if (child.findMember(new Path(NAME_HISTORY_FOLDER)) != null) {
+						final URI uri= child.getResource().getLocationURI();
+						if (uri != null) {
+							try {
+								RefactoringHistoryIndex.discardIndex(EFS.getStore(uri).getChild(NAME_HISTORY_FOLDER));
+							} catch (CoreException exception) {
+								RefactoringHistoryIndex.discardIndexes();
+							}
+						}
+					}
+				}
 				if (deltas.length == 2) {
 					final IPath toPath= deltas[0].getMovedToPath();
 					final IPath fromPath= deltas[1].getMovedFromPath();
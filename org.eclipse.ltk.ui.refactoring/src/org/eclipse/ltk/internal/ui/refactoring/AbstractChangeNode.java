@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -26,7 +26,9 @@ import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ltk.core.refactoring.Change;
 import org.eclipse.ltk.core.refactoring.CompositeChange;
 import org.eclipse.ltk.core.refactoring.GroupCategory;
+import org.eclipse.ltk.core.refactoring.MultiStateTextFileChange;
 import org.eclipse.ltk.core.refactoring.TextEditBasedChange;
+import org.eclipse.ltk.core.refactoring.TextEditBasedChangeGroup;
 import org.eclipse.ltk.ui.refactoring.ChangePreviewViewerInput;
 import org.eclipse.ltk.ui.refactoring.IChangePreviewViewer;
 import org.eclipse.ltk.ui.refactoring.TextEditChangeNode;
@@ -88,6 +90,24 @@ public abstract class AbstractChangeNode extends PreviewNode {
 
 	abstract PreviewNode[] doCreateChildren();
 
+	@Override
+	boolean hasChildren() {
+		if (fChildren != null)
+			return fChildren.length > 0;
+		return doHasChildren();
+	}
+
+	/**
+	 * Returns whether this node has children, without creating the child
+	 * nodes if possible. Used by the tree viewer to decide whether a node
+	 * can be expanded, so that children are only created on expansion.
+	 *
+	 * @return whether this node has children
+	 */
+	boolean doHasChildren() {
+		return getChildren().length > 0;
+	}
+
 	@Override
 	public String getText() {
 		return fChange.getName();
@@ -153,7 +173,11 @@ public abstract class AbstractChangeNode extends PreviewNode {
 	}
 
 	int getCompositeChangeActive() {
-		if (fChildren != null && fChildren.length > 0) {
+		if (fChildren == null) {
+			// the children of a collapsed node have not been created yet
+			return getActive(fChange, getFilter());
+		}
+		if (fChildren.length > 0) {
 			int result= fChildren[0].getActive();
 			for (int i= 1; i < fChildren.length; i++) {
 				result= ACTIVATION_TABLE[fChildren[i].getActive()][result];
@@ -166,6 +190,64 @@ public abstract class AbstractChangeNode extends PreviewNode {
 		}
 	}
 
+	/**
+	 * Returns the filter of the child changes of this node.
+	 *
+	 * @return the filter, or <code>null</code> if all child changes are shown
+	 */
+	RefactoringPreviewChangeFilter getFilter() {
+		return null;
+	}
+
+	/**
+	 * Returns the activation state that a node of the given change has once
+	 * its children are created. The state is computed from the enablement of
+	 * the child changes and change groups, without creating any nodes.
+	 *
+	 * @param change the change
+	 * @param filter the filter of the child changes, or <code>null</code>
+	 * @return the activation state
+	 */
+	static int getActive(Change change, RefactoringPreviewChangeFilter filter) {
+		int result= -1;
+		if (change instanceof CompositeChange) {
+			result= getChildrenActive((CompositeChange) change, filter, result);
+		} else if (change instanceof TextEditBasedChange && !(change instanceof MultiStateTextFileChange)) {
+			for (TextEditBasedChangeGroup group : ((TextEditBasedChange) change).getChangeGroups()) {
+				if (group.getTextEditGroup().isEmpty())
+					continue;
+				int active= group.isEnabled() ? ACTIVE : INACTIVE;
+				result= result == -1 ? active : ACTIVATION_TABLE[active][result];
+				if (result == PARTLY_ACTIVE)
+					break;
+			}
+		}
+		if (result == -1)
+			return change.isEnabled() ? ACTIVE : INACTIVE;
+		return result;
+	}
+
+	/*
+	 * Combines the activation states of the children of the given composite
+	 * change into the given state, -1 if there is none yet. Synthetic
+	 * composite changes are flattened, as done by CompositeChangeNode.
+	 */
+	private static int getChildrenActive(CompositeChange focus, RefactoringPreviewChangeFilter filter, int result) {
+		for (Change child : focus.getChildren()) {
+			if (filter == null || filter.select(child)) {
+				if (child instanceof CompositeChange && ((CompositeChange) child).isSynthetic()) {
+					result= getChildrenActive((CompositeChange) child, filter, result);
+				} else {
+					int active= getActive(child, null);
+					result= result == -1 ? active : ACTIVATION_TABLE[active][result];
+				}
+				if (result == PARTLY_ACTIVE)
+					break;
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Returns <code>true</code> iff the change node contains a derived
 	 * resource.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -61,6 +61,8 @@ class ChangeElementTreeViewer extends CheckboxTreeViewer {
 
 	public ChangeElementTreeViewer(Composite parentComposite) {
 		super(parentComposite, SWT.NONE);
+		// items are looked up by element on every check state change, which is slow for large changes
+		setUseHashlookup(true);
 		addFilter(new GroupCategoryFilter());
 		addCheckStateListener(event -> {
 			PreviewNode element= (PreviewNode)event.getElement();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -35,6 +35,11 @@ public class CompositeChangeNode extends AbstractChangeNode {
 		return getCompositeChangeActive();
 	}
 
+	@Override
+	RefactoringPreviewChangeFilter getFilter() {
+		return fFilter;
+	}
+
 	@Override
 	public ImageDescriptor getImageDescriptor() {
 		return RefactoringPluginImages.DESC_OBJS_COMPOSITE_CHANGE;
@@ -47,6 +52,21 @@ public class CompositeChangeNode extends AbstractChangeNode {
 		return children.toArray(new PreviewNode[children.size()]);
 	}
 
+	@Override
+	boolean doHasChildren() {
+		return hasFlattenedChildren((CompositeChange)getChange());
+	}
+
+	private boolean hasFlattenedChildren(CompositeChange focus) {
+		for (Change change : focus.getChildren()) {
+			if (fFilter == null || fFilter.select(change)) {
+				if (!(change instanceof CompositeChange && ((CompositeChange) change).isSynthetic()) || hasFlattenedChildren((CompositeChange) change))
+					return true;
+			}
+		}
+		return false;
+	}
+
 	private void getFlattendedChildren(List<PreviewNode> result, CompositeChangeNode parent, CompositeChange focus) {
 		for (Change change : focus.getChildren()) {
 			if (fFilter == null || fFilter.select(change)) {
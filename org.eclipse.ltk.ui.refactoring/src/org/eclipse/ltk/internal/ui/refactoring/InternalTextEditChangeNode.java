@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,7 @@ import java.util.List;
 
 import org.eclipse.ltk.core.refactoring.Change;
 import org.eclipse.ltk.core.refactoring.GroupCategory;
+import org.eclipse.ltk.core.refactoring.MultiStateTextFileChange;
 import org.eclipse.ltk.core.refactoring.TextEditBasedChange;
 import org.eclipse.ltk.ui.refactoring.TextEditChangeNode;
 import org.eclipse.ltk.ui.refactoring.TextEditChangeNode.ChildNode;
@@ -41,6 +42,20 @@ public abstract class InternalTextEditChangeNode extends AbstractChangeNode {
 		return (TextEditBasedChange)getChange();
 	}
 
+	@Override
+	boolean doHasChildren() {
+		TextEditBasedChange change= getTextEditBasedChange();
+		if (change instanceof MultiStateTextFileChange)
+			return false;
+		return change.getChangeGroups().length > 0;
+	}
+
+	@Override
+	boolean hasDerived() {
+		// the child nodes of a text change modify the same resource
+		return hasDerivedResourceChange(getChange());
+	}
+
 	@Override
 	final PreviewNode[] doCreateChildren() {
 		return createChildNodes();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -52,6 +52,8 @@ public final class RefactoringUIMessages extends NLS {
 
 	public static String ChangeExceptionHandler_unexpected_exception;
 
+	public static String ComparePreviewer_computing_preview;
+
 	public static String ComparePreviewer_element_name;
 
 	public static String ComparePreviewer_original_source;
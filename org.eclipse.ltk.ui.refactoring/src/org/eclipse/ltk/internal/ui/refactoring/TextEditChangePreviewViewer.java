@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2019 IBM Corporation and others.
+ * Copyright (c) 2000, 2023 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,16 +16,27 @@ package org.eclipse.ltk.internal.ui.refactoring;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 
 import org.eclipse.core.runtime.AssertionFailedException;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
 
 import org.eclipse.core.resources.IResource;
 
@@ -47,6 +58,7 @@ import org.eclipse.compare.structuremergeviewer.DiffNode;
 import org.eclipse.compare.structuremergeviewer.ICompareInput;
 
 import org.eclipse.ltk.core.refactoring.Change;
+import org.eclipse.ltk.core.refactoring.TextChange;
 import org.eclipse.ltk.core.refactoring.TextEditBasedChange;
 import org.eclipse.ltk.core.refactoring.TextEditBasedChangeGroup;
 import org.eclipse.ltk.ui.refactoring.ChangePreviewViewerInput;
@@ -54,8 +66,95 @@ import org.eclipse.ltk.ui.refactoring.IChangePreviewViewer;
 
 public class TextEditChangePreviewViewer implements IChangePreviewViewer {
 
+	private static final int PREVIEW_CACHE_SIZE= 20;
+
 	private ComparePreviewer fViewer;
 
+	/** Most recently shown previews, only accessed in the UI thread */
+	private final Map<PreviewKey, String[]> fPreviewCache= new LinkedHashMap<>(PREVIEW_CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID= 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<PreviewKey, String[]> eldest) {
+			return size() > PREVIEW_CACHE_SIZE;
+		}
+	};
+
+	private Job fPreviewJob;
+
+	/** Runs the preview jobs of this viewer one at a time, since they read the documents of the changes */
+	private final ISchedulingRule fPreviewRule= new ISchedulingRule() {
+		@Override
+		public boolean contains(ISchedulingRule rule) {
+			return rule == this;
+		}
+
+		@Override
+		public boolean isConflicting(ISchedulingRule rule) {
+			return rule == this;
+		}
+	};
+
+	/**
+	 * Identifies a preview of a text edit based change. The enablement of the change and of
+	 * its groups is part of the key, since it determines the preview content.
+	 */
+	private static final class PreviewKey {
+		final TextEditBasedChange fChange;
+		final TextEditBasedChangeGroup[] fGroups;
+		final IRegion fRange;
+		final int fSurroundingLines;
+		final BitSet fEnablement;
+
+		PreviewKey(TextEditBasedChange change, TextEditBasedChangeGroup[] groups, IRegion range, int surroundingLines) {
+			fChange= change;
+			fGroups= groups;
+			fRange= range;
+			fSurroundingLines= surroundingLines;
+			TextEditBasedChangeGroup[] all= change.getChangeGroups();
+			fEnablement= new BitSet(all.length + 1);
+			fEnablement.set(0, change.isEnabled());
+			for (int i= 0; i < all.length; i++) {
+				fEnablement.set(i + 1, all[i].isEnabled());
+			}
+		}
+
+		String[] computeContents(IProgressMonitor monitor) throws CoreException {
+			if (fGroups == null)
+				return new String[] { fChange.getCurrentContent(monitor), fChange.getPreviewContent(monitor) };
+			return new String[] {
+				fChange.getCurrentContent(fRange, true, fSurroundingLines, monitor),
+				fChange.getPreviewContent(fGroups, fRange, true, fSurroundingLines, monitor) };
+		}
+
+		/*
+		 * Captures the preview of a text change in the UI thread, since the preview tree
+		 * changes the enablement of the change groups there.
+		 */
+		TextChange.PreviewSnapshot createSnapshot(IProgressMonitor monitor) throws CoreException {
+			TextChange change= (TextChange)fChange;
+			if (fGroups == null)
+				return change.createPreviewSnapshot(monitor);
+			return change.createPreviewSnapshot(fGroups, fRange, true, fSurroundingLines, monitor);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof PreviewKey))
+				return false;
+			PreviewKey other= (PreviewKey)obj;
+			return fChange == other.fChange && Arrays.equals(fGroups, other.fGroups) && Objects.equals(fRange, other.fRange)
+					&& fSurroundingLines == other.fSurroundingLines && fEnablement.equals(other.fEnablement);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(fChange, Integer.valueOf(Arrays.hashCode(fGroups)), fRange, Integer.valueOf(fSurroundingLines), fEnablement);
+		}
+	}
+
 	private static class TextEditBasedChangeInput extends ChangePreviewViewerInput {
 		TextEditBasedChangeGroup group;
 		int surroundingLines;
@@ -182,6 +281,7 @@ public class TextEditChangePreviewViewer implements IChangePreviewViewer {
 	@Override
 	public void createControl(Composite parent) {
 		fViewer= new ComparePreviewer(parent);
+		fViewer.addDisposeListener(e -> cancelPreviewJob());
 	}
 
 	@Override
@@ -191,35 +291,100 @@ public class TextEditChangePreviewViewer implements IChangePreviewViewer {
 
 	@Override
 	public void setInput(ChangePreviewViewerInput input) {
-		try {
-			Change change= input.getChange();
-			if (input instanceof TextEditBasedChangeInput) {
-				TextEditBasedChangeInput extended= (TextEditBasedChangeInput)input;
-				if (extended.group != null && extended.surroundingLines >= 0) {
-					TextEditBasedChangeGroup group= extended.group;
-					TextEditBasedChange editChange= group.getTextEditChange();
-					setInput(editChange, editChange.getCurrentContent(group.getRegion(), true, 2, new NullProgressMonitor()),
-						editChange.getPreviewContent(new TextEditBasedChangeGroup[] { group }, group.getRegion(), true, 2, new NullProgressMonitor()),
-						editChange.getTextType());
-					return;
-				} else if (extended.groups != null && extended.groups.length > 0 && extended.range != null) {
-					TextEditBasedChange editChange= extended.groups[0].getTextEditChange();
-					TextEditBasedChangeGroup[] groups= extended.groups;
-					setInput(editChange, editChange.getCurrentContent(extended.range, true, 0, new NullProgressMonitor()),
-						editChange.getPreviewContent(groups, extended.range, true, 0, new NullProgressMonitor()),
-						editChange.getTextType());
-					return;
-				}
-			} else if (change instanceof TextEditBasedChange) {
-				TextEditBasedChange editChange= (TextEditBasedChange)change;
-				setInput(editChange, editChange.getCurrentContent(new NullProgressMonitor()), editChange.getPreviewContent(new NullProgressMonitor()), editChange.getTextType());
-				return;
-			} else {
-				fViewer.setInput(null);
+		Change change= input.getChange();
+		PreviewKey key= null;
+		if (input instanceof TextEditBasedChangeInput) {
+			TextEditBasedChangeInput extended= (TextEditBasedChangeInput)input;
+			if (extended.group != null && extended.surroundingLines >= 0) {
+				TextEditBasedChange editChange= extended.group.getTextEditChange();
+				key= new PreviewKey(editChange, new TextEditBasedChangeGroup[] { extended.group }, extended.group.getRegion(), 2);
+			} else if (extended.groups != null && extended.groups.length > 0 && extended.range != null) {
+				TextEditBasedChange editChange= extended.groups[0].getTextEditChange();
+				key= new PreviewKey(editChange, extended.groups, extended.range, 0);
 			}
-		} catch (CoreException | AssertionFailedException e) {
-			RefactoringUIPlugin.log(e);
+		} else if (change instanceof TextEditBasedChange) {
+			key= new PreviewKey((TextEditBasedChange)change, null, null, 0);
+		}
+		cancelPreviewJob();
+		if (key == null) {
 			fViewer.setInput(null);
+			return;
+		}
+		String[] contents= fPreviewCache.get(key);
+		if (contents != null) {
+			setInput(key.fChange, contents[0], contents[1], key.fChange.getTextType());
+		} else if (key.fChange instanceof TextChange) {
+			try {
+				schedulePreviewJob(key, key.createSnapshot(new NullProgressMonitor()));
+			} catch (CoreException | AssertionFailedException e) {
+				RefactoringUIPlugin.log(e);
+				fViewer.setInput(null);
+			}
+		} else {
+			// other changes can only be previewed with their current enablement
+			try {
+				contents= key.computeContents(new NullProgressMonitor());
+				fPreviewCache.put(key, contents);
+				setInput(key.fChange, contents[0], contents[1], key.fChange.getTextType());
+			} catch (CoreException | AssertionFailedException e) {
+				RefactoringUIPlugin.log(e);
+				fViewer.setInput(null);
+			}
+		}
+	}
+
+	/**
+	 * Computes the current and the preview content of the given snapshot in the background
+	 * and shows it once it is available, unless the input has changed in the meantime. The
+	 * previous preview is cleared until then.
+	 *
+	 * @param key the key of the preview
+	 * @param snapshot the preview to compute
+	 */
+	private void schedulePreviewJob(final PreviewKey key, final TextChange.PreviewSnapshot snapshot) {
+		fViewer.setLabel(null);
+		fViewer.setImageDescriptor(null);
+		fViewer.setInput(null);
+		fViewer.setText(RefactoringUIMessages.ComparePreviewer_computing_preview);
+		final Display display= fViewer.getDisplay();
+		final Job job= new Job(RefactoringUIMessages.ComparePreviewer_computing_preview) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				String[] contents;
+				try {
+					contents= new String[] { snapshot.getCurrentContent(monitor), snapshot.getPreviewContent(monitor) };
+				} catch (CoreException | AssertionFailedException e) {
+					RefactoringUIPlugin.log(e);
+					contents= null;
+				}
+				if (monitor.isCanceled())
+					return Status.CANCEL_STATUS;
+				final String[] result= contents;
+				display.asyncExec(() -> {
+					if (fViewer.isDisposed() || fPreviewJob != this)
+						return;
+					fPreviewJob= null;
+					if (result != null) {
+						fPreviewCache.put(key, result);
+						setInput(key.fChange, result[0], result[1], key.fChange.getTextType());
+					} else {
+						fViewer.setText(""); //$NON-NLS-1$
+					}
+				});
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.INTERACTIVE);
+		job.setRule(fPreviewRule);
+		fPreviewJob= job;
+		job.schedule();
+	}
+
+	private void cancelPreviewJob() {
+		if (fPreviewJob != null) {
+			fPreviewJob.cancel();
+			fPreviewJob= null;
 		}
 	}
 